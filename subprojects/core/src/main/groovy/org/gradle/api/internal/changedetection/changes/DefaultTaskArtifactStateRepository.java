@@ -30,6 +30,7 @@ import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.internal.reflect.Instantiator;
+import org.gradle.util.Clock;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -60,6 +61,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         private boolean upToDate;
         private TaskUpToDateState states;
         private IncrementalTaskInputsInternal taskInputs;
+        private Clock executionClock;
 
         public TaskArtifactStateImpl(TaskInternal task, TaskHistoryRepository.History history) {
             this.task = task;
@@ -110,6 +112,7 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
         }
 
         public void beforeTask() {
+            executionClock = new Clock();
         }
 
         public void afterTask() {
@@ -117,6 +120,9 @@ public class DefaultTaskArtifactStateRepository implements TaskArtifactStateRepo
                 return;
             }
 
+            if (executionClock != null) {
+                history.getCurrentExecution().setExecutionTime(executionClock.getTimeInMs());
+            }
             if (taskInputs!=null) {
                 getStates().getDiscoveredInputFilesChanges().newInputs(taskInputs.getDiscoveredInputs());
             }
@@ -95,6 +95,11 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         };
     }
 
+    public long getPreviousExecutionTime(TaskInternal task) {
+        TaskHistory history = loadHistory(task);
+        return history.configurations.isEmpty() ? -1 : history.configurations.get(0).getExecutionTime();
+    }
+
     private TaskHistory loadHistory(final TaskInternal task) {
         return cacheAccess.useCache("Load task history", new Factory<TaskHistory>() {
             public TaskHistory create() {
@@ -277,6 +282,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 execution.outputFilesSnapshotId = decoder.readLong();
                 execution.discoveredFilesSnapshotId = decoder.readLong();
                 execution.setTaskClass(decoder.readString());
+                execution.setExecutionTime(decoder.readLong());
                 int outputFiles = decoder.readInt();
                 Set<String> files = new HashSet<String>();
                 for (int j = 0; j < outputFiles; j++) {
@@ -299,6 +305,7 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                 encoder.writeLong(execution.outputFilesSnapshotId);
                 encoder.writeLong(execution.discoveredFilesSnapshotId);
                 encoder.writeString(execution.getTaskClass());
+                encoder.writeLong(execution.getExecutionTime());
                 encoder.writeInt(execution.getOutputFiles().size());
                 for (String outputFile : execution.getOutputFiles()) {
                     encoder.writeString(outputFile);
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+/**
+ * A snapshot of the usage counters of an in-memory cache.
+ */
+public class CacheStatistics {
+    private final long size;
+    private final long capacity;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public CacheStatistics(long size, long capacity, long hitCount, long missCount, long evictionCount) {
+        this.size = size;
+        this.capacity = capacity;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the proportion of the capacity that is in use, between 0 and 1.
+     */
+    public double getOccupancy() {
+        return capacity == 0 ? 0.0 : (double) size / capacity;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the proportion of lookups that were served from the cache, or 1 when there have been no lookups.
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Size{%d} Capacity{%d} HitRate{%.3f} Hits{%d} Misses{%d} Evictions{%d}", size, capacity, getHitRate(), hitCount, missCount, evictionCount);
+    }
+}
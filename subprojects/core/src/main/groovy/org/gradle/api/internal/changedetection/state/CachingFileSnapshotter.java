@@ -15,27 +15,60 @@
  */
 package org.gradle.api.internal.changedetection.state;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.hash.Hasher;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.PersistentStore;
+import org.gradle.cache.internal.OptimisticallyReadableCache;
+import org.gradle.internal.Factory;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationProcessor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
 import org.gradle.internal.serialize.Decoder;
 import org.gradle.internal.serialize.Encoder;
 import org.gradle.internal.serialize.Serializer;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * Snapshots files by their content hash, reusing the hash recorded in the cache while a file's length and timestamp are unchanged.
+ *
+ * <p>A batch of files is snapshotted in passes. The files are stat-ed, then looked up in the in-memory layer of the cache without the cache
+ * lock, where the cache supports this. Files not found there are looked up while holding the cache lock, then the files that are still
+ * missing are hashed without the lock, and their hashes recorded while holding the lock again. So snapshots taken by several threads at
+ * once only contend for the cache lock for files that are not in memory. When given a {@link BuildOperationProcessor}, the stat and
+ * hash passes are run in parallel. Only the lookup and record passes touch the cache through the lock, on the calling thread.</p>
+ */
 public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementSnapshotter {
+    // Work is handed to the worker pool in fixed size batches, so that the cost of scheduling is spread over many files
+    static final int BATCH_SIZE = 256;
+
+    private final PersistentStore store;
     private final PersistentIndexedCache<String, FileInfo> cache;
     private final Hasher hasher;
     private final FileInfoSerializer serializer = new FileInfoSerializer();
     private final StringInterner stringInterner;
+    private final BuildOperationProcessor buildOperationProcessor;
 
     public CachingFileSnapshotter(Hasher hasher, PersistentStore store, StringInterner stringInterner) {
+        this(hasher, "fileHashes", store, stringInterner, null);
+    }
+
+    /**
+     * @param cacheName the name of the cache to record hashes in. Each hash format needs its own cache, so that hashes of one format are never read as another.
+     */
+    public CachingFileSnapshotter(Hasher hasher, String cacheName, PersistentStore store, StringInterner stringInterner, @Nullable BuildOperationProcessor buildOperationProcessor) {
         this.hasher = hasher;
-        this.cache = store.createCache("fileHashes", String.class, serializer);
+        this.store = store;
+        this.cache = store.createCache(cacheName, String.class, serializer);
         this.stringInterner = stringInterner;
+        this.buildOperationProcessor = buildOperationProcessor;
     }
 
     public FileInfo snapshot(File file) {
@@ -50,7 +83,7 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
         String absolutePath = file.getAbsolutePath();
         FileInfo info = cache.get(absolutePath);
 
-        if (info != null && length == info.length && timestamp == info.timestamp) {
+        if (isUpToDate(info, length, timestamp)) {
             return info;
         }
 
@@ -60,6 +93,136 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
         return info;
     }
 
+    public List<FileSnapshot> snapshotAll(List<? extends FileTreeElement> files) {
+        final int count = files.size();
+        final File[] fileArray = new File[count];
+        final long[] lengths = new long[count];
+        final long[] timestamps = new long[count];
+        final FileInfo[] infos = new FileInfo[count];
+        final String[] absolutePaths = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            fileArray[i] = files.get(i).getFile();
+        }
+        final List<? extends FileTreeElement> elements = files;
+        runInBatches(count, "stat", new IndexAction() {
+            public void execute(int index) {
+                FileTreeElement element = elements.get(index);
+                lengths[index] = element.getSize();
+                timestamps[index] = element.getLastModified();
+            }
+        });
+
+        final int[] misses = new int[count];
+        int missCount = 0;
+        OptimisticallyReadableCache<String, FileInfo> inMemoryCache = cache instanceof OptimisticallyReadableCache ? (OptimisticallyReadableCache<String, FileInfo>) cache : null;
+        for (int i = 0; i < count; i++) {
+            absolutePaths[i] = fileArray[i].getAbsolutePath();
+            FileInfo info = inMemoryCache == null ? null : inMemoryCache.getIfCached(absolutePaths[i]);
+            if (isUpToDate(info, lengths[i], timestamps[i])) {
+                infos[i] = info;
+            } else {
+                misses[missCount++] = i;
+            }
+        }
+        if (missCount == 0) {
+            return Arrays.<FileSnapshot>asList(infos);
+        }
+
+        final int cacheMissCount = missCount;
+        final int hashCount = store.useCache("Look up file hashes", new Factory<Integer>() {
+            public Integer create() {
+                int stillMissing = 0;
+                for (int i = 0; i < cacheMissCount; i++) {
+                    int fileIndex = misses[i];
+                    FileInfo info = cache.get(absolutePaths[fileIndex]);
+                    if (isUpToDate(info, lengths[fileIndex], timestamps[fileIndex])) {
+                        infos[fileIndex] = info;
+                    } else {
+                        misses[stillMissing++] = fileIndex;
+                    }
+                }
+                return stillMissing;
+            }
+        });
+        if (hashCount == 0) {
+            return Arrays.<FileSnapshot>asList(infos);
+        }
+
+        runInBatches(hashCount, "hash", new IndexAction() {
+            public void execute(int index) {
+                int fileIndex = misses[index];
+                infos[fileIndex] = new FileInfo(hasher.hash(fileArray[fileIndex]), lengths[fileIndex], timestamps[fileIndex]);
+            }
+        });
+
+        store.useCache("Record file hashes", new Runnable() {
+            public void run() {
+                for (int i = 0; i < hashCount; i++) {
+                    int fileIndex = misses[i];
+                    cache.put(stringInterner.intern(absolutePaths[fileIndex]), infos[fileIndex]);
+                }
+            }
+        });
+        return Arrays.<FileSnapshot>asList(infos);
+    }
+
+    private static boolean isUpToDate(@Nullable FileInfo info, long length, long timestamp) {
+        return info != null && length == info.length && timestamp == info.timestamp;
+    }
+
+    private void runInBatches(int count, String description, IndexAction action) {
+        if (buildOperationProcessor == null || count <= BATCH_SIZE) {
+            for (int i = 0; i < count; i++) {
+                action.execute(i);
+            }
+            return;
+        }
+        BuildOperationQueue<Batch> queue = buildOperationProcessor.newQueue(new BatchWorker(action), null);
+        for (int start = 0; start < count; start += BATCH_SIZE) {
+            queue.add(new Batch(description, start, Math.min(start + BATCH_SIZE, count)));
+        }
+        queue.waitForCompletion();
+    }
+
+    private interface IndexAction {
+        void execute(int index);
+    }
+
+    private static class Batch implements BuildOperation {
+        private final String description;
+        private final int start;
+        private final int end;
+
+        private Batch(String description, int start, int end) {
+            this.description = description;
+            this.start = start;
+            this.end = end;
+        }
+
+        public String getDescription() {
+            return description + " files " + start + " to " + end;
+        }
+    }
+
+    private static class BatchWorker implements BuildOperationWorker<Batch> {
+        private final IndexAction action;
+
+        private BatchWorker(IndexAction action) {
+            this.action = action;
+        }
+
+        public String getDisplayName() {
+            return "file snapshotter";
+        }
+
+        public void execute(Batch batch) {
+            for (int i = batch.start; i < batch.end; i++) {
+                action.execute(i);
+            }
+        }
+    }
+
     public static class FileInfo implements FileSnapshot {
         private final byte[] hash;
         private final long timestamp;
@@ -74,6 +237,14 @@ public class CachingFileSnapshotter implements FileSnapshotter, FileTreeElementS
         public byte[] getHash() {
             return hash;
         }
+
+        public long getLength() {
+            return length;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
     }
 
     private static class FileInfoSerializer implements Serializer<FileInfo> {
@@ -33,12 +33,10 @@ import java.util.*;
 
 public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshotter {
     private final FileTreeElementSnapshotter snapshotter;
-    private TaskArtifactStateCacheAccess cacheAccess;
     private final StringInterner stringInterner;
 
-    public DefaultFileCollectionSnapshotter(FileTreeElementSnapshotter snapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+    public DefaultFileCollectionSnapshotter(FileTreeElementSnapshotter snapshotter, StringInterner stringInterner) {
         this.snapshotter = snapshotter;
-        this.cacheAccess = cacheAccess;
         this.stringInterner = stringInterner;
     }
 
@@ -59,20 +57,22 @@ public class DefaultFileCollectionSnapshotter implements FileCollectionSnapshott
 
         final Map<String, IncrementalFileSnapshot> snapshots = new HashMap<String, IncrementalFileSnapshot>();
 
-        cacheAccess.useCache("Create file snapshot", new Runnable() {
-            public void run() {
-                for (FileVisitDetails fileDetails : allFileVisitDetails) {
-                    final String absolutePath = stringInterner.intern(fileDetails.getFile().getAbsolutePath());
-                    if (!snapshots.containsKey(absolutePath)) {
-                        if (fileDetails.isDirectory()) {
-                            snapshots.put(absolutePath, DirSnapshot.getInstance());
-                        } else {
-                            snapshots.put(absolutePath, new FileHashSnapshot(snapshotter.snapshot(fileDetails).getHash()));
-                        }
-                    }
+        // Collect the files first, so that they can be snapshotted as a single batch. The snapshotter takes the cache lock as it needs it
+        Map<String, FileVisitDetails> files = new LinkedHashMap<String, FileVisitDetails>();
+        for (FileVisitDetails fileDetails : allFileVisitDetails) {
+            String absolutePath = stringInterner.intern(fileDetails.getFile().getAbsolutePath());
+            if (!snapshots.containsKey(absolutePath) && !files.containsKey(absolutePath)) {
+                if (fileDetails.isDirectory()) {
+                    snapshots.put(absolutePath, DirSnapshot.getInstance());
+                } else {
+                    files.put(absolutePath, fileDetails);
                 }
             }
-        });
+        }
+        Iterator<FileSnapshot> fileSnapshots = snapshotter.snapshotAll(new ArrayList<FileVisitDetails>(files.values())).iterator();
+        for (String absolutePath : files.keySet()) {
+            snapshots.put(absolutePath, new FileHashSnapshot(fileSnapshots.next().getHash()));
+        }
 
         return new FileCollectionSnapshotImpl(snapshots);
     }
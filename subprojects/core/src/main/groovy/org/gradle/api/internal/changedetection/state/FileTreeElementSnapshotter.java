@@ -18,6 +18,15 @@ package org.gradle.api.internal.changedetection.state;
 
 import org.gradle.api.file.FileTreeElement;
 
+import java.util.List;
+
 public interface FileTreeElementSnapshotter extends FileSnapshotter {
     FileSnapshot snapshot(FileTreeElement fileDetails);
+
+    /**
+     * Takes a snapshot of each of the given files, returning the snapshots in the same order as the files.
+     * The provided files must exist and be files (rather than, say, directories).
+     * Takes the cache lock as required, so may be called without holding it.
+     */
+    List<FileSnapshot> snapshotAll(List<? extends FileTreeElement> files);
 }
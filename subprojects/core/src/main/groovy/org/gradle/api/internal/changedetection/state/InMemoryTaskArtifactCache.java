@@ -17,6 +17,7 @@
 package org.gradle.api.internal.changedetection.state;
 
 import com.google.common.cache.*;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.cache.HeapProportionalSizer;
 import org.gradle.api.logging.LogLevel;
 import org.gradle.api.logging.Logger;
@@ -24,14 +25,20 @@ import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.CacheDecorator;
 import org.gradle.cache.internal.FileLock;
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache;
+import org.gradle.cache.internal.OptimisticallyReadableCache;
 
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class InMemoryTaskArtifactCache implements CacheDecorator {
     private final static Logger LOG = Logging.getLogger(InMemoryTaskArtifactCache.class);
     private final static Object NULL = new Object();
+    /**
+     * The name of the cache of MurmurHash3 file hashes. Hashes of different formats must not share a cache.
+     */
+    public static final String FILE_HASHES_CACHE = "fileHashes-murmur3";
     private static final Map<String, Integer> CACHE_CAPS = new CacheCapSizer().calculateCaps();
 
     static class CacheCapSizer {
@@ -41,7 +48,7 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             DEFAULT_CAP_SIZES.put("fileSnapshots", 10000);
             DEFAULT_CAP_SIZES.put("taskArtifacts", 2000);
             DEFAULT_CAP_SIZES.put("outputFileStates", 3000);
-            DEFAULT_CAP_SIZES.put("fileHashes", 400000);
+            DEFAULT_CAP_SIZES.put(FILE_HASHES_CACHE, 400000);
             DEFAULT_CAP_SIZES.put("compilationState", 1000);
         }
 
@@ -70,14 +77,95 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
             .maximumSize(CACHE_CAPS.size() * 2) //X2 to factor in a child build (for example buildSrc)
             .build();
 
+    // File hashes are kept outside of the heap, as there are many more of them than entries of any other cache
+    private final Cache<String, OffHeapFileHashStore> fileHashStores = CacheBuilder.newBuilder()
+            .maximumSize(2) //to factor in a child build (for example buildSrc)
+            .build();
+
     private final Map<String, FileLock.State> states = new HashMap<String, FileLock.State>();
+    private final Map<String, Integer> capacities = new HashMap<String, Integer>();
+
+    /**
+     * Returns the usage counters of the in-memory data of the given cache, or null when this process has not used the cache.
+     */
+    @Nullable
+    public CacheStatistics getStatistics(String cacheId) {
+        OffHeapFileHashStore store = fileHashStores.getIfPresent(cacheId);
+        if (store != null) {
+            return store.getStatistics();
+        }
+        Cache<Object, Object> data;
+        Integer capacity;
+        synchronized (lock) {
+            data = cache.getIfPresent(cacheId);
+            capacity = capacities.get(cacheId);
+        }
+        if (data == null || capacity == null) {
+            return null;
+        }
+        CacheStats stats = data.stats();
+        return new CacheStatistics(data.size(), capacity, stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> decorate(final String cacheId, String cacheName, final MultiProcessSafePersistentIndexedCache<K, V> original) {
+        if (cacheName.equals(FILE_HASHES_CACHE)) {
+            final OffHeapFileHashStore store = loadFileHashStore(cacheId, cacheName);
+            return new InvalidatingCache<K, V>(cacheId, original) {
+                private long loggedEvictionCount;
+
+                @Override
+                protected V getFromMemory(K key) {
+                    CachingFileSnapshotter.FileInfo value = store.get((String) key);
+                    return value == OffHeapFileHashStore.MISSING ? null : (V) value;
+                }
+
+                public V get(K key) {
+                    CachingFileSnapshotter.FileInfo value = store.get((String) key);
+                    if (value == OffHeapFileHashStore.MISSING) {
+                        return null;
+                    }
+                    if (value != null) {
+                        return (V) value;
+                    }
+                    V out = original.get(key);
+                    store.put((String) key, (CachingFileSnapshotter.FileInfo) out);
+                    maybeLogEvictions();
+                    return out;
+                }
+
+                public void put(K key, V value) {
+                    original.put(key, value);
+                    store.put((String) key, (CachingFileSnapshotter.FileInfo) value);
+                    maybeLogEvictions();
+                }
+
+                public void remove(K key) {
+                    store.put((String) key, null);
+                    original.remove(key);
+                }
+
+                @Override
+                protected void invalidateAll() {
+                    store.clear();
+                }
+
+                private void maybeLogEvictions() {
+                    long evictionCount = store.getEvictionCount();
+                    if (evictionCount - loggedEvictionCount >= Math.max(1, store.getCapacity() / 10)) {
+                        loggedEvictionCount = evictionCount;
+                        LOG.info("Cache entries evicted. Off-heap cache of {}: {} {}", cacheId, store, LoggingEvictionListener.EVICTION_MITIGATION_MESSAGE);
+                    }
+                }
+            };
+        }
+
         final Cache<Object, Object> data = loadData(cacheId, cacheName);
 
-        return new MultiProcessSafePersistentIndexedCache<K, V>() {
-            public void close() {
-                original.close();
+        return new InvalidatingCache<K, V>(cacheId, original) {
+            @Override
+            protected V getFromMemory(K key) {
+                Object value = data.getIfPresent(key);
+                return value == NULL ? null : (V) value;
             }
 
             public V get(K key) {
@@ -104,25 +192,28 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
                 original.remove(key);
             }
 
-            public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
-                boolean outOfDate;
-                synchronized (lock) {
-                    FileLock.State previousState = states.get(cacheId);
-                    outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
-                }
-
-                if (outOfDate) {
-                    LOG.info("Invalidating in-memory cache of {}", cacheId);
-                    data.invalidateAll();
-                }
+            @Override
+            protected void invalidateAll() {
+                data.invalidateAll();
             }
+        };
+    }
 
-            public void onEndWork(FileLock.State currentCacheState) {
-                synchronized (lock) {
-                    states.put(cacheId, currentCacheState);
-                }
+    private OffHeapFileHashStore loadFileHashStore(String cacheId, String cacheName) {
+        OffHeapFileHashStore store;
+        synchronized (lock) {
+            store = fileHashStores.getIfPresent(cacheId);
+            if (store != null) {
+                LOG.info("Off-heap cache of {}: {}", cacheId, store);
+            } else {
+                Integer maxSize = CACHE_CAPS.get(cacheName);
+                assert maxSize != null : "Unknown cache.";
+                store = new OffHeapFileHashStore(maxSize);
+                LOG.info("Creating off-heap cache of {}: Capacity{{}}", cacheId, store.getCapacity());
+                fileHashStores.put(cacheId, store);
             }
-        };
+        }
+        return store;
     }
 
     private Cache<Object, Object> loadData(String cacheId, String cacheName) {
@@ -139,11 +230,78 @@ public class InMemoryTaskArtifactCache implements CacheDecorator {
                 theData = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().removalListener(evictionListener).build();
                 evictionListener.setCache(theData);
                 this.cache.put(cacheId, theData);
+                capacities.put(cacheId, maxSize);
             }
         }
         return theData;
     }
 
+    /**
+     * Discards the in-memory data of a cache when another process has updated the cache since this process last used it.
+     *
+     * <p>The in-memory data matches the backing cache only while this process holds the cache lock, so reads without the lock are
+     * versioned: the stamp is even while the lock is held and is incremented when the lock is acquired or released. A read without
+     * the lock is served from memory only when the stamp is even and does not change while the value is read.</p>
+     */
+    private abstract class InvalidatingCache<K, V> implements MultiProcessSafePersistentIndexedCache<K, V>, OptimisticallyReadableCache<K, V> {
+        private final String cacheId;
+        private final MultiProcessSafePersistentIndexedCache<K, V> original;
+        private final AtomicLong stamp = new AtomicLong(1);
+
+        protected InvalidatingCache(String cacheId, MultiProcessSafePersistentIndexedCache<K, V> original) {
+            this.cacheId = cacheId;
+            this.original = original;
+        }
+
+        protected abstract void invalidateAll();
+
+        /**
+         * Returns the value held in memory for the given key, without loading it from the backing cache.
+         */
+        protected abstract V getFromMemory(K key);
+
+        public V getIfCached(K key) {
+            long before = stamp.get();
+            if ((before & 1) != 0) {
+                return null;
+            }
+            V value = getFromMemory(key);
+            return stamp.get() == before ? value : null;
+        }
+
+        private void setLockHeld(boolean lockHeld) {
+            // Only called by the thread that owns the cache, so the stamp is never incremented concurrently
+            if (((stamp.get() & 1) == 0) != lockHeld) {
+                stamp.incrementAndGet();
+            }
+        }
+
+        public void close() {
+            original.close();
+        }
+
+        public void onStartWork(String operationDisplayName, FileLock.State currentCacheState) {
+            boolean outOfDate;
+            synchronized (lock) {
+                FileLock.State previousState = states.get(cacheId);
+                outOfDate = previousState == null || currentCacheState.hasBeenUpdatedSince(previousState);
+            }
+
+            if (outOfDate) {
+                LOG.info("Invalidating in-memory cache of {}", cacheId);
+                invalidateAll();
+            }
+            setLockHeld(true);
+        }
+
+        public void onEndWork(FileLock.State currentCacheState) {
+            setLockHeld(false);
+            synchronized (lock) {
+                states.put(cacheId, currentCacheState);
+            }
+        }
+    }
+
     private static class LoggingEvictionListener implements RemovalListener<Object, Object> {
         private static Logger logger = Logging.getLogger(LoggingEvictionListener.class);
         private static final String EVICTION_MITIGATION_MESSAGE = "\nPerformance may suffer from in-memory cache misses. Increase max heap size of Gradle build process to reduce cache misses.";
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A fixed capacity store of file hashes held in a direct buffer outside of the Java heap, so that a long lived process does not have to keep
+ * hundreds of thousands of small path, hash and {@link CachingFileSnapshotter.FileInfo} objects alive. A {@code FileInfo} is only created when
+ * an entry is read.
+ *
+ * <p>Entries are keyed by a 128 bit hash of the file path and held in fixed width records, grouped into buckets of {@value #BUCKET_SIZE}
+ * records. When a bucket is full, a record is evicted with the clock algorithm: reading a record sets its reference bit, and the bucket's
+ * clock hand clears reference bits until it reaches a record that has not been read since the hand last passed it.</p>
+ */
+class OffHeapFileHashStore {
+    static final int BUCKET_SIZE = 8;
+    static final int MAX_HASH_LENGTH = 32;
+
+    /**
+     * Returned by {@link #get(String)} for a path that is recorded as having no entry in the backing cache.
+     */
+    static final CachingFileSnapshotter.FileInfo MISSING = new CachingFileSnapshotter.FileInfo(new byte[0], -1, -1);
+
+    // Record layout: path hash, file length, file timestamp, reference bit, hash length, padding, hash
+    private static final int KEY_HIGH = 0;
+    private static final int KEY_LOW = 8;
+    private static final int LENGTH = 16;
+    private static final int TIMESTAMP = 24;
+    private static final int REFERENCED = 32;
+    private static final int HASH_LENGTH = 33;
+    private static final int HASH = 40;
+    static final int RECORD_SIZE = HASH + MAX_HASH_LENGTH;
+
+    private static final byte MISSING_HASH_LENGTH = -1;
+    private static final HashFunction PATH_HASH = Hashing.murmur3_128();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer records;
+    private final byte[] clockHands;
+    private final int bucketCount;
+    private int size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public OffHeapFileHashStore(int capacity) {
+        bucketCount = Math.max(1, Math.min((capacity + BUCKET_SIZE - 1) / BUCKET_SIZE, Integer.MAX_VALUE / (BUCKET_SIZE * RECORD_SIZE)));
+        records = ByteBuffer.allocateDirect(bucketCount * BUCKET_SIZE * RECORD_SIZE);
+        clockHands = new byte[bucketCount];
+    }
+
+    /**
+     * Returns the entry for the given path, {@link #MISSING} when the path is recorded as having no entry, or null when the path is not in this store.
+     */
+    @Nullable
+    public synchronized CachingFileSnapshotter.FileInfo get(String path) {
+        int offset = find(path);
+        if (offset < 0) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        records.put(offset + REFERENCED, (byte) 1);
+        int hashLength = records.get(offset + HASH_LENGTH);
+        if (hashLength == MISSING_HASH_LENGTH) {
+            return MISSING;
+        }
+        byte[] hash = new byte[hashLength];
+        for (int i = 0; i < hashLength; i++) {
+            hash[i] = records.get(offset + HASH + i);
+        }
+        return new CachingFileSnapshotter.FileInfo(hash, records.getLong(offset + LENGTH), records.getLong(offset + TIMESTAMP));
+    }
+
+    /**
+     * Records the entry for the given path. A null entry records that the path has no entry in the backing cache.
+     */
+    public synchronized void put(String path, @Nullable CachingFileSnapshotter.FileInfo fileInfo) {
+        HashCode pathHash = hashPath(path);
+        long high = high(pathHash);
+        long low = low(pathHash);
+        int bucket = bucketFor(low);
+        int offset = find(bucket, high, low);
+        if (fileInfo != null && fileInfo.getHash().length > MAX_HASH_LENGTH) {
+            // Does not fit in a record, so leave it to the backing cache
+            if (offset >= 0) {
+                clearRecord(offset);
+                size--;
+            }
+            return;
+        }
+        if (offset < 0) {
+            offset = allocate(bucket);
+            records.putLong(offset + KEY_HIGH, high);
+            records.putLong(offset + KEY_LOW, low);
+        }
+        records.put(offset + REFERENCED, (byte) 1);
+        if (fileInfo == null) {
+            records.put(offset + HASH_LENGTH, MISSING_HASH_LENGTH);
+            return;
+        }
+        byte[] hash = fileInfo.getHash();
+        records.putLong(offset + LENGTH, fileInfo.getLength());
+        records.putLong(offset + TIMESTAMP, fileInfo.getTimestamp());
+        records.put(offset + HASH_LENGTH, (byte) hash.length);
+        for (int i = 0; i < hash.length; i++) {
+            records.put(offset + HASH + i, hash[i]);
+        }
+    }
+
+    public synchronized void clear() {
+        for (int offset = 0; offset < records.capacity(); offset += RECORD_SIZE) {
+            clearRecord(offset);
+        }
+        size = 0;
+    }
+
+    public int getCapacity() {
+        return bucketCount * BUCKET_SIZE;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(size, getCapacity(), hitCount, missCount, evictionCount);
+    }
+
+    @Override
+    public String toString() {
+        return getStatistics().toString();
+    }
+
+    private int find(String path) {
+        HashCode pathHash = hashPath(path);
+        long low = low(pathHash);
+        return find(bucketFor(low), high(pathHash), low);
+    }
+
+    private int find(int bucket, long high, long low) {
+        int first = bucket * BUCKET_SIZE;
+        for (int record = first; record < first + BUCKET_SIZE; record++) {
+            int offset = record * RECORD_SIZE;
+            if (records.getLong(offset + KEY_LOW) == low && records.getLong(offset + KEY_HIGH) == high) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    private int allocate(int bucket) {
+        int first = bucket * BUCKET_SIZE;
+        for (int record = first; record < first + BUCKET_SIZE; record++) {
+            int offset = record * RECORD_SIZE;
+            if (isEmpty(offset)) {
+                size++;
+                return offset;
+            }
+        }
+        // The hand clears at most one full round of reference bits, so this finds a record within two rounds
+        while (true) {
+            int hand = clockHands[bucket];
+            clockHands[bucket] = (byte) ((hand + 1) % BUCKET_SIZE);
+            int offset = (first + hand) * RECORD_SIZE;
+            if (records.get(offset + REFERENCED) == 0) {
+                evictionCount++;
+                return offset;
+            }
+            records.put(offset + REFERENCED, (byte) 0);
+        }
+    }
+
+    private boolean isEmpty(int offset) {
+        return records.getLong(offset + KEY_LOW) == 0 && records.getLong(offset + KEY_HIGH) == 0;
+    }
+
+    private void clearRecord(int offset) {
+        records.putLong(offset + KEY_HIGH, 0);
+        records.putLong(offset + KEY_LOW, 0);
+        records.put(offset + REFERENCED, (byte) 0);
+    }
+
+    private int bucketFor(long low) {
+        return (int) ((low & Long.MAX_VALUE) % bucketCount);
+    }
+
+    private static HashCode hashPath(String path) {
+        return PATH_HASH.hashString(path, UTF_8);
+    }
+
+    private static long high(HashCode pathHash) {
+        byte[] bytes = pathHash.asBytes();
+        long high = 0;
+        for (int i = 8; i < 16; i++) {
+            high = (high << 8) | (bytes[i] & 0xff);
+        }
+        return high;
+    }
+
+    private static long low(HashCode pathHash) {
+        long low = pathHash.asLong();
+        // An all zero key marks an empty record
+        return low == 0 ? 1 : low;
+    }
+}
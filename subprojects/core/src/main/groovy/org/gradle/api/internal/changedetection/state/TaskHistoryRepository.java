@@ -20,6 +20,11 @@ import org.gradle.api.internal.TaskInternal;
 public interface TaskHistoryRepository {
     History getHistory(TaskInternal task);
 
+    /**
+     * Returns the time in milliseconds that the most recent recorded execution of the given task took, or -1 when not known.
+     */
+    long getPreviousExecutionTime(TaskInternal task);
+
     interface History {
         TaskExecution getPreviousExecution();
 
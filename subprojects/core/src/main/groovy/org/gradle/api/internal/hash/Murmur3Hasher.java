@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.internal.os.OperatingSystem;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Hashes file content with the 128 bit variant of MurmurHash3. This is not a cryptographic hash, but it is much cheaper to compute
+ * than MD5 and strong enough to detect changes to files.
+ *
+ * <p>Files larger than {@link #MAPPED_READ_THRESHOLD} are hashed straight from a memory mapping, smaller files are read through a buffer
+ * that is reused by each thread. Files are never mapped on Windows, where a mapped file cannot be deleted until the mapping is garbage collected.</p>
+ */
+public class Murmur3Hasher implements Hasher {
+    static final long MAPPED_READ_THRESHOLD = 1024 * 1024;
+    private static final long MAPPED_REGION_SIZE = 64 * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final boolean useMappedReads;
+    private final ThreadLocal<byte[]> buffers = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
+
+    public Murmur3Hasher() {
+        this(!OperatingSystem.current().isWindows());
+    }
+
+    Murmur3Hasher(boolean useMappedReads) {
+        this.useMappedReads = useMappedReads;
+    }
+
+    public byte[] hash(File file) {
+        try {
+            FileInputStream inputStream = new FileInputStream(file);
+            try {
+                com.google.common.hash.Hasher hasher = HASH_FUNCTION.newHasher();
+                FileChannel channel = inputStream.getChannel();
+                long size = channel.size();
+                if (useMappedReads && size > MAPPED_READ_THRESHOLD) {
+                    hashMapped(channel, size, hasher);
+                } else {
+                    hashRead(inputStream, hasher, buffers.get());
+                }
+                return hasher.hash().asBytes();
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Failed to create MurmurHash3 hash for file %s.", file.getAbsolutePath()), e);
+        }
+    }
+
+    private static void hashMapped(FileChannel channel, long size, com.google.common.hash.Hasher hasher) throws IOException {
+        for (long position = 0; position < size; position += MAPPED_REGION_SIZE) {
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_REGION_SIZE, size - position));
+            // The hasher takes longs in little-endian byte order, so this feeds it the same bytes without copying them to the heap
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            while (region.remaining() >= 8) {
+                hasher.putLong(region.getLong());
+            }
+            while (region.hasRemaining()) {
+                hasher.putByte(region.get());
+            }
+        }
+    }
+
+    private static void hashRead(FileInputStream inputStream, com.google.common.hash.Hasher hasher, byte[] buffer) throws IOException {
+        while (true) {
+            int length = inputStream.read(buffer);
+            if (length < 0) {
+                break;
+            }
+            hasher.putBytes(buffer, 0, length);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import org.gradle.cache.PersistentIndexedCacheParameters;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.cache.internal.cacheops.CacheAccessOperationsStack;
 import org.gradle.cache.internal.filelock.LockOptions;
+import org.gradle.cache.internal.logstructured.LogStructuredPersistentIndexedCache;
 import org.gradle.internal.Factories;
 import org.gradle.internal.Factory;
 import org.gradle.internal.UncheckedException;
@@ -44,6 +45,12 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
     private final static Logger LOG = Logging.getLogger(DefaultCacheAccess.class);
 
+    /**
+     * The time slice, in milliseconds, for which a contended cache keeps its file lock so that operations queued in this process can run
+     * before the lock is handed over to the other process. Defaults to 0, which hands the lock over as soon as the current operation completes.
+     */
+    public static final String LOCK_LEASE_PROPERTY = "org.gradle.cache.lockLease";
+
     private final String cacheDisplayName;
     private final File lockTarget;
     private final File baseDir;
@@ -60,8 +67,19 @@ public class DefaultCacheAccess implements CacheCoordinator {
     private boolean contended;
     private final CacheAccessOperationsStack operations;
     private int cacheClosedCount;
+    private final long leaseMs;
+    private long fileLockAcquiredAt;
+    private int waitingForOwnership;
+    private long lockWaitTime;
+    private int lockAcquisitionCount;
+    private int contendedReleaseCount;
 
     public DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction) {
+        this(cacheDisplayName, lockTarget, baseDir, lockManager, initializationAction, Long.getLong(LOCK_LEASE_PROPERTY, 0L));
+    }
+
+    DefaultCacheAccess(String cacheDisplayName, File lockTarget, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, long leaseMs) {
+        this.leaseMs = leaseMs;
         this.cacheDisplayName = cacheDisplayName;
         this.lockTarget = lockTarget;
         this.baseDir = baseDir;
@@ -83,7 +101,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
             if (fileLock != null) {
                 throw new IllegalStateException("File lock " + lockTarget + " is already open.");
             }
+            long start = System.currentTimeMillis();
             fileLock = lockManager.lock(lockTarget, lockOptions, cacheDisplayName);
+            lockAcquired(start);
 
             boolean rebuild = initializationAction.requiresInitialization(fileLock);
             if (rebuild) {
@@ -164,6 +184,9 @@ public class DefaultCacheAccess implements CacheCoordinator {
             if (cacheClosedCount != 1) {
                 LOG.debug("Cache {} was closed {} times.", cacheDisplayName, cacheClosedCount);
             }
+            if (lockAcquisitionCount > 0) {
+                LOG.debug("Waited {}ms in total for {} acquisitions of the file lock for {}, which was handed over to another process {} times.", lockWaitTime, lockAcquisitionCount, cacheDisplayName, contendedReleaseCount);
+            }
         } finally {
             lockOptions = null;
             owner = null;
@@ -181,8 +204,10 @@ public class DefaultCacheAccess implements CacheCoordinator {
         }
 
         boolean wasStarted = false;
+        boolean outermost;
         lock.lock();
         try {
+            outermost = !operations.isInCacheAction();
             takeOwnership(operationDisplayName);
             wasStarted = onStartWork();
         } finally {
@@ -194,7 +219,8 @@ public class DefaultCacheAccess implements CacheCoordinator {
             lock.lock();
             try {
                 try {
-                    if (wasStarted) {
+                    // An operation that ran on a lock kept for the lease hands the lock over once the lease is used up
+                    if (wasStarted || outermost && contended) {
                         onEndWork();
                     }
                 } finally {
@@ -210,10 +236,13 @@ public class DefaultCacheAccess implements CacheCoordinator {
         lock.lock();
         try {
             while (owner != null && owner != Thread.currentThread()) {
+                waitingForOwnership++;
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
+                } finally {
+                    waitingForOwnership--;
                 }
             }
             owner = Thread.currentThread();
@@ -297,10 +326,13 @@ public class DefaultCacheAccess implements CacheCoordinator {
         lock.lock();
         try {
             while (owner != null) {
+                waitingForOwnership++;
                 try {
                     condition.await();
                 } catch (InterruptedException e) {
                     throw UncheckedException.throwAsUncheckedException(e);
+                } finally {
+                    waitingForOwnership--;
                 }
             }
             owner = Thread.currentThread();
@@ -314,12 +346,23 @@ public class DefaultCacheAccess implements CacheCoordinator {
     }
 
     public <K, V> MultiProcessSafePersistentIndexedCache<K, V> newCache(final PersistentIndexedCacheParameters<K, V> parameters) {
-        final File cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
-        Factory<BTreePersistentIndexedCache<K, V>> indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
-            public BTreePersistentIndexedCache<K, V> create() {
-                return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
-            }
-        };
+        final File cacheFile;
+        Factory<? extends CloseablePersistentIndexedCache<K, V>> indexedCacheFactory;
+        if (parameters.isLogStructured()) {
+            cacheFile = new File(baseDir, parameters.getCacheName() + LogStructuredPersistentIndexedCache.INDEX_FILE_EXTENSION);
+            indexedCacheFactory = new Factory<LogStructuredPersistentIndexedCache<K, V>>() {
+                public LogStructuredPersistentIndexedCache<K, V> create() {
+                    return doCreateLogStructuredCache(baseDir, parameters.getCacheName(), parameters.getKeySerializer(), parameters.getValueSerializer());
+                }
+            };
+        } else {
+            cacheFile = new File(baseDir, parameters.getCacheName() + ".bin");
+            indexedCacheFactory = new Factory<BTreePersistentIndexedCache<K, V>>() {
+                public BTreePersistentIndexedCache<K, V> create() {
+                    return doCreateCache(cacheFile, parameters.getKeySerializer(), parameters.getValueSerializer());
+                }
+            };
+        }
 
         MultiProcessSafePersistentIndexedCache<K, V> indexedCache = new DefaultMultiProcessSafePersistentIndexedCache<K, V>(indexedCacheFactory, fileAccess);
         CacheDecorator decorator = parameters.getCacheDecorator();
@@ -342,11 +385,17 @@ public class DefaultCacheAccess implements CacheCoordinator {
         return new BTreePersistentIndexedCache<K, V>(cacheFile, keySerializer, valueSerializer);
     }
 
+    <K, V> LogStructuredPersistentIndexedCache<K, V> doCreateLogStructuredCache(File baseDir, String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        return new LogStructuredPersistentIndexedCache<K, V>(baseDir, cacheName, keySerializer, valueSerializer);
+    }
+
     private boolean onStartWork() {
         if (fileLock != null) {
             return false;
         }
+        long start = System.currentTimeMillis();
         fileLock = lockManager.lock(lockTarget, lockOptions.withMode(Exclusive), cacheDisplayName, operations.getDescription());
+        lockAcquired(start);
         if (initializationAction.requiresInitialization(fileLock)) {
             fileLock.writeFile(new Runnable() {
                 public void run() {
@@ -368,12 +417,61 @@ public class DefaultCacheAccess implements CacheCoordinator {
         if (fileLock == null) {
             return false;
         }
-        if (contended || fileLock.getMode() == Shared) {
+        if (fileLock.getMode() == Shared) {
+            closeFileLock();
+        } else if (contended && !withinLease()) {
+            contendedReleaseCount++;
             closeFileLock();
         }
         return true;
     }
 
+    /**
+     * Returns true when the file lock should be kept a little longer so that the operations queued up in this process can run first.
+     */
+    private boolean withinLease() {
+        return waitingForOwnership > 0 && System.currentTimeMillis() - fileLockAcquiredAt < leaseMs;
+    }
+
+    private void lockAcquired(long waitStartedAt) {
+        fileLockAcquiredAt = System.currentTimeMillis();
+        lockWaitTime += fileLockAcquiredAt - waitStartedAt;
+        lockAcquisitionCount++;
+    }
+
+    /**
+     * Returns the total time, in milliseconds, this cache has spent waiting to acquire its file lock.
+     */
+    public long getLockWaitTime() {
+        lock.lock();
+        try {
+            return lockWaitTime;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLockAcquisitionCount() {
+        lock.lock();
+        try {
+            return lockAcquisitionCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of times this cache has released its file lock because another process asked for it.
+     */
+    public int getContendedReleaseCount() {
+        lock.lock();
+        try {
+            return contendedReleaseCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private FileLock getLock() {
         lock.lock();
         try {
@@ -422,6 +520,7 @@ public class DefaultCacheAccess implements CacheCoordinator {
 
                     takeOwnership("Other process requested access to " + cacheDisplayName);
                     try {
+                        contendedReleaseCount++;
                         closeFileLock();
                     } finally {
                         releaseOwnership();
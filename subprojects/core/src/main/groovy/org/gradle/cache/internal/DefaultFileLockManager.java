@@ -240,6 +240,12 @@ public class DefaultFileLockManager implements FileLockManager {
                     lockedFiles.remove(target);
                 }
             });
+            stoppable.add(new Stoppable() {
+                public void stop() {
+                    // Wake up any processes that are waiting for this lock, rather than have them poll for it
+                    fileLockContentionHandler.lockReleased(lockId);
+                }
+            });
             stoppable.stop();
         }
 
@@ -313,17 +319,24 @@ public class DefaultFileLockManager implements FileLockManager {
                 if (fileLock != null) {
                     return fileLock;
                 }
+                LockInfo pingedOwner = null;
                 if (port != -1) { //we don't like the assumption about the port very much
                     LockInfo lockInfo = readInformationRegion(System.currentTimeMillis()); //no need for timeout here, as we're already looping with timeout
                     if (lockInfo.port != -1) {
                         LOGGER.debug("The file lock is held by a different Gradle process (pid: {}, operation: {}). Will attempt to ping owner at port {}", lockInfo.pid, lockInfo.operation, lockInfo.port);
                         fileLockContentionHandler.pingOwner(lockInfo.port, lockInfo.lockId, displayName);
+                        pingedOwner = lockInfo;
                     } else {
                         LOGGER.debug("The file lock is held by a different Gradle process. I was unable to read on which port the owner listens for lock access requests.");
                     }
                 }
                 //TODO SF we should inform on the progress/status bar that we're waiting
-                Thread.sleep(200L);
+                if (pingedOwner != null) {
+                    // The owner tells us when it has released the lock. Owners running older Gradle versions do not, so keep polling as well
+                    fileLockContentionHandler.waitForRelease(pingedOwner.lockId, 200L);
+                } else {
+                    Thread.sleep(200L);
+                }
             } while (System.currentTimeMillis() < waitUntil);
             return null;
         }
@@ -22,12 +22,16 @@ import java.io.*;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
 
 import static org.gradle.internal.UncheckedException.throwAsUncheckedException;
 
 public class FileLockCommunicator {
     private static final byte PROTOCOL_VERSION = 1;
+    // The message type is an optional trailing byte. Older versions only read the first 9 bytes of a packet and ignore it.
+    private static final byte PING_WITH_RELEASE_NOTIFICATION = 1;
+    private static final byte LOCK_RELEASED = 2;
     private final DatagramSocket socket;
     private final InetAddressFactory addressFactory;
     private boolean stopped;
@@ -43,7 +47,7 @@ public class FileLockCommunicator {
 
     public void pingOwner(int ownerPort, long lockId, String displayName) {
         try {
-            byte[] bytesToSend = encode(lockId);
+            byte[] bytesToSend = encode(lockId, PING_WITH_RELEASE_NOTIFICATION);
             // Ping the owner via all available local addresses
             for (InetAddress address : addressFactory.findLocalAddresses()) {
                 socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, address, ownerPort));
@@ -53,12 +57,24 @@ public class FileLockCommunicator {
         }
     }
 
-    public long receive() throws GracefullyStoppedException {
+    /**
+     * Tells a process that pinged us while waiting for the given lock that the lock has been released, so it can retry immediately.
+     */
+    public void notifyReleased(SocketAddress waiter, long lockId) {
         try {
-            byte[] bytes = new byte[9];
+            byte[] bytesToSend = encode(lockId, LOCK_RELEASED);
+            socket.send(new DatagramPacket(bytesToSend, bytesToSend.length, waiter));
+        } catch (IOException e) {
+            throw new RuntimeException(String.format("Failed to notify %s that lock %s has been released", waiter, lockId), e);
+        }
+    }
+
+    public FileLockPacket receive() throws GracefullyStoppedException {
+        try {
+            byte[] bytes = new byte[10];
             DatagramPacket packet = new DatagramPacket(bytes, bytes.length);
             socket.receive(packet);
-            return decode(bytes);
+            return decode(bytes, packet.getLength(), packet.getSocketAddress());
         } catch (IOException e) {
             if (!stopped) {
                 throw new RuntimeException(e);
@@ -72,22 +88,25 @@ public class FileLockCommunicator {
         socket.close();
     }
 
-    private static byte[] encode(long lockId) throws IOException {
+    private static byte[] encode(long lockId, byte type) throws IOException {
         ByteArrayOutputStream packet = new ByteArrayOutputStream();
         DataOutputStream dataOutput = new DataOutputStream(packet);
         dataOutput.writeByte(PROTOCOL_VERSION);
         dataOutput.writeLong(lockId);
+        dataOutput.writeByte(type);
         dataOutput.flush();
         return packet.toByteArray();
     }
 
-    private static long decode(byte[] bytes) throws IOException {
-        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes));
+    private static FileLockPacket decode(byte[] bytes, int length, SocketAddress sender) throws IOException {
+        DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes, 0, length));
         byte version = dataInput.readByte();
         if (version != PROTOCOL_VERSION) {
             throw new IllegalArgumentException(String.format("Unexpected protocol version %s received in lock contention notification message", version));
         }
-        return dataInput.readLong();
+        long lockId = dataInput.readLong();
+        byte type = length > 9 ? dataInput.readByte() : 0;
+        return new FileLockPacket(lockId, type == PING_WITH_RELEASE_NOTIFICATION, type == LOCK_RELEASED, sender);
     }
 
     public int getPort() {
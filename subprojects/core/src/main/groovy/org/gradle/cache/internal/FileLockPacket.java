@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import java.net.SocketAddress;
+
+/**
+ * A message received by a {@link FileLockCommunicator}: either a request from another process for access to a lock we hold,
+ * or a notification that a lock we are waiting for has been released.
+ */
+public class FileLockPacket {
+    private final long lockId;
+    private final boolean releaseNotificationRequested;
+    private final boolean lockReleased;
+    private final SocketAddress sender;
+
+    public FileLockPacket(long lockId, boolean releaseNotificationRequested, boolean lockReleased, SocketAddress sender) {
+        this.lockId = lockId;
+        this.releaseNotificationRequested = releaseNotificationRequested;
+        this.lockReleased = lockReleased;
+        this.sender = sender;
+    }
+
+    public long getLockId() {
+        return lockId;
+    }
+
+    /**
+     * Returns true when the sender of this access request wants to be told when the lock has been released.
+     */
+    public boolean isReleaseNotificationRequested() {
+        return releaseNotificationRequested;
+    }
+
+    public boolean isLockReleased() {
+        return lockReleased;
+    }
+
+    public SocketAddress getSender() {
+        return sender;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.api.Nullable;
+
+/**
+ * An indexed cache that can serve some reads without the cache lock.
+ */
+public interface OptimisticallyReadableCache<K, V> {
+    /**
+     * Returns the value for the given key, if it can be read without holding the cache lock. May be called from any thread.
+     *
+     * @return The value, or null when the value cannot be read without the lock. A null result says nothing about whether the cache
+     * contains the key, so the caller should then fall back to {@link org.gradle.cache.PersistentIndexedCache#get(Object)} while
+     * holding the cache lock.
+     */
+    @Nullable
+    V getIfCached(K key);
+}
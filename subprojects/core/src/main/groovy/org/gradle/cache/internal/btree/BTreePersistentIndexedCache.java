@@ -16,7 +16,8 @@
 package org.gradle.cache.internal.btree;
 
 import org.gradle.api.UncheckedIOException;
-import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.serialize.Serializer;
 import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
 import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
@@ -40,7 +41,11 @@ import java.util.*;
 // todo - free list leaks disk space
 // todo - merge adjacent free blocks
 // todo - use more efficient lookup for free block with nearest size
-public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+public class BTreePersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
+    /**
+     * When set, caches read and write their blocks through memory mapped pages of the cache file rather than through seek and read.
+     */
+    public static final String MAPPED_BLOCK_STORE_TOGGLE = "org.gradle.cache.mappedBlockStore";
     private static final Logger LOGGER = LoggerFactory.getLogger(BTreePersistentIndexedCache.class);
     private final File cacheFile;
     private final Serializer<K> keySerializer;
@@ -56,12 +61,17 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, createBackingStore(cacheFile), keySerializer, valueSerializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    BTreePersistentIndexedCache(File cacheFile, BlockStore backingStore, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                short maxChildIndexEntries, int maxFreeListEntries) {
         this.cacheFile = cacheFile;
         this.keySerializer = keySerializer;
         this.serializer = valueSerializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        BlockStore cachingStore = new CachingBlockStore(backingStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
             open();
@@ -70,6 +80,14 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
+    private static BlockStore createBackingStore(File cacheFile) {
+        // A mapped file cannot be truncated on Windows until the mapping is garbage collected
+        if (Boolean.getBoolean(MAPPED_BLOCK_STORE_TOGGLE) && !OperatingSystem.current().isWindows()) {
+            return new MappedFileBlockStore(cacheFile);
+        }
+        return new FileBackedBlockStore(cacheFile);
+    }
+
     @Override
     public String toString() {
         return String.format("cache %s (%s)", cacheFile.getName(), cacheFile);
@@ -0,0 +1,390 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
+import org.apache.commons.collections.map.LRUMap;
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * A {@link BlockStore} that reads and writes blocks through memory mapped pages of the cache file, using the same file format as
+ * {@link FileBackedBlockStore}.
+ *
+ * <p>The most recently used pages are kept mapped. While the store is open, the file is grown a whole page at a time, so that a page is
+ * mapped once instead of being remapped for every block appended to it. The end of the written blocks is tracked separately, and the
+ * file is truncated to it on close, so the closed file contains nothing but blocks and can be opened by either store. As with
+ * {@link FileBackedBlockStore}, written pages are left to the operating system to write back, and dirty blocks are held by the
+ * {@link CachingBlockStore} in front of this store until the end of the unit of work.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    static final int DEFAULT_PAGE_SIZE = 1024 * 1024;
+    static final int DEFAULT_MAX_PAGES = 64;
+
+    private final File cacheFile;
+    private final int pageSize;
+    private final Map<Long, MappedByteBuffer> pages;
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long nextBlock;
+    private Factory factory;
+    private long currentFileSize;
+    private long dataEnd;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    MappedFileBlockStore(File cacheFile, int pageSize, int maxPages) {
+        this.cacheFile = cacheFile;
+        this.pageSize = pageSize;
+        this.pages = new LRUMap(maxPages);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            dataEnd = currentFileSize;
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void close() {
+        pages.clear();
+        try {
+            if (currentFileSize > dataEnd) {
+                file.setLength(dataEnd);
+            }
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void clear() {
+        pages.clear();
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+            dataEnd = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    private void ensureFileSize(long size) throws IOException {
+        if (dataEnd < size) {
+            dataEnd = size;
+        }
+        if (currentFileSize < size) {
+            long newSize = (size + pageSize - 1) / pageSize * pageSize;
+            file.setLength(newSize);
+            currentFileSize = newSize;
+        }
+    }
+
+    /**
+     * Returns a view of the page containing the given position, positioned at that position. The view ends at the end of the page or the
+     * end of the file, whichever is first. Only a page that was partly mapped before the file grew past it is mapped again.
+     */
+    private ByteBuffer pageAt(long pos) throws IOException {
+        long index = pos / pageSize;
+        long pageStart = index * pageSize;
+        int offset = (int) (pos - pageStart);
+        MappedByteBuffer page = pages.get(index);
+        if (page == null || page.capacity() <= offset) {
+            // Not mapped, or mapped before the file grew past the end of the mapping
+            page = channel.map(FileChannel.MapMode.READ_WRITE, pageStart, Math.min(pageSize, currentFileSize - pageStart));
+            pages.put(index, page);
+        }
+        ByteBuffer view = page.duplicate();
+        view.position(offset);
+        return view;
+    }
+
+    private class PageInputStream extends InputStream {
+        private long pos;
+        private ByteBuffer current;
+
+        PageInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!hasRemaining()) {
+                return -1;
+            }
+            pos++;
+            return current.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, current.remaining());
+            current.get(buffer, offset, count);
+            pos += count;
+            return count;
+        }
+
+        private boolean hasRemaining() throws IOException {
+            if (current != null && current.hasRemaining()) {
+                return true;
+            }
+            if (pos >= dataEnd) {
+                return false;
+            }
+            current = pageAt(pos);
+            return true;
+        }
+    }
+
+    private class PageOutputStream extends OutputStream {
+        private long pos;
+        private ByteBuffer current;
+
+        PageOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureRemaining(1);
+            current.put((byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensureRemaining(length);
+                int count = Math.min(length, current.remaining());
+                current.put(buffer, offset, count);
+                pos += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Covers a payload that wrote more than it said it would without crossing into the next page
+            ensureFileSize(pos);
+        }
+
+        private void ensureRemaining(int length) throws IOException {
+            if (current != null && current.hasRemaining()) {
+                return;
+            }
+            // Blocks are sized before they are written, so this only grows the file if a payload writes more than it said it would
+            ensureFileSize(pos + length);
+            current = pageAt(pos);
+        }
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+            BlockPayload payload = getPayload();
+            ensureFileSize(pos + HEADER_SIZE + TAIL_SIZE + payloadSize);
+
+            CountingOutputStream countingOutputStream = new CountingOutputStream(new PageOutputStream(pos));
+            DataOutputStream outputStream = new DataOutputStream(countingOutputStream);
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            outputStream.writeLong(countingOutputStream.getCount());
+            outputStream.close();
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= dataEnd) {
+                throw blockCorruptedException();
+            }
+
+            CountingInputStream countingInputStream = new CountingInputStream(new PageInputStream(pos));
+            DataInputStream inputStream = new DataInputStream(countingInputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = inputStream.readByte();
+            if (type != (byte) BLOCK_MARKER) {
+                throw blockCorruptedException();
+            }
+            type = inputStream.readByte();
+            if (type != (byte) payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = inputStream.readInt();
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > dataEnd) {
+                throw blockCorruptedException();
+            }
+            payload.read(inputStream);
+
+            // Read and verify count
+            long actualCount = countingInputStream.getCount();
+            long count = inputStream.readLong();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+            inputStream.close();
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+}
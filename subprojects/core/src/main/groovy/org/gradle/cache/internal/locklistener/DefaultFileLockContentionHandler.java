@@ -19,21 +19,31 @@ package org.gradle.cache.internal.locklistener;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.cache.internal.FileLockCommunicator;
+import org.gradle.cache.internal.FileLockPacket;
 import org.gradle.cache.internal.GracefullyStoppedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.concurrent.StoppableExecutor;
 import org.gradle.messaging.remote.internal.inet.InetAddressFactory;
 
+import java.net.SocketAddress;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 public class DefaultFileLockContentionHandler implements FileLockContentionHandler, Stoppable {
     private static final Logger LOGGER = Logging.getLogger(DefaultFileLockContentionHandler.class);
     private final Lock lock = new ReentrantLock();
+    private final Condition releaseReceived = lock.newCondition();
     private final Map<Long, Runnable> contendedActions = new HashMap<Long, Runnable>();
+    private final Map<Long, Set<SocketAddress>> waitingProcesses = new HashMap<Long, Set<SocketAddress>>();
+    private final Set<Long> pendingReleases = new HashSet<Long>();
     private final ExecutorFactory executorFactory;
     private final InetAddressFactory addressFactory;
 
@@ -62,20 +72,33 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
 
             private void doRun() {
                 while (true) {
-                    long lockId;
+                    FileLockPacket packet;
                     try {
-                        lockId = communicator.receive();
+                        packet = communicator.receive();
                     } catch (GracefullyStoppedException e) {
                         return;
                     }
                     lock.lock();
                     Runnable action;
                     try {
-                        action = contendedActions.get(lockId);
+                        if (packet.isLockReleased()) {
+                            pendingReleases.add(packet.getLockId());
+                            releaseReceived.signalAll();
+                            continue;
+                        }
+                        action = contendedActions.get(packet.getLockId());
                         if (action == null) {
                             //received access request for lock that is already closed
                             continue;
                         }
+                        if (packet.isReleaseNotificationRequested()) {
+                            Set<SocketAddress> waiting = waitingProcesses.get(packet.getLockId());
+                            if (waiting == null) {
+                                waiting = new LinkedHashSet<SocketAddress>();
+                                waitingProcesses.put(packet.getLockId(), waiting);
+                            }
+                            waiting.add(packet.getSender());
+                        }
                     } finally {
                         lock.unlock();
                     }
@@ -92,10 +115,7 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
             if (communicator == null) {
                 throw new IllegalStateException("Must initialize the handler by reserving the port first.");
             }
-            if (executor == null) {
-                executor = executorFactory.create("File lock request listener");
-                executor.execute(listener());
-            }
+            startListening();
             if (contendedActions.containsKey(lockId)) {
                 throw new UnsupportedOperationException("Multiple contention actions for a given lock are currently not supported.");
             }
@@ -105,8 +125,59 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         }
     }
 
+    private void startListening() {
+        if (executor == null) {
+            executor = executorFactory.create("File lock request listener");
+            executor.execute(listener());
+        }
+    }
+
     public void pingOwner(int port, long lockId, String displayName) {
-        getCommunicator().pingOwner(port, lockId, displayName);
+        FileLockCommunicator communicator = getCommunicator();
+        lock.lock();
+        try {
+            // The owner answers on our port once it has released the lock, so make sure someone is listening
+            startListening();
+        } finally {
+            lock.unlock();
+        }
+        communicator.pingOwner(port, lockId, displayName);
+    }
+
+    public void waitForRelease(long lockId, long timeoutMs) throws InterruptedException {
+        lock.lock();
+        try {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+            // Releases of other locks wake us up as well, so keep waiting until the release of this lock arrives
+            while (!pendingReleases.remove(lockId) && !stopped && remainingNanos > 0) {
+                remainingNanos = releaseReceived.awaitNanos(remainingNanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void lockReleased(long lockId) {
+        Set<SocketAddress> waiting;
+        FileLockCommunicator communicator;
+        lock.lock();
+        try {
+            waiting = waitingProcesses.remove(lockId);
+            communicator = this.communicator;
+            if (waiting == null || communicator == null || stopped) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (SocketAddress address : waiting) {
+            try {
+                communicator.notifyReleased(address, lockId);
+            } catch (RuntimeException e) {
+                // The waiting process falls back to polling
+                LOGGER.debug("Could not notify process at {} that the lock has been released.", address, e);
+            }
+        }
     }
 
     private void assertNotStopped() {
@@ -130,6 +201,9 @@ public class DefaultFileLockContentionHandler implements FileLockContentionHandl
         try {
             stopped = true;
             contendedActions.clear();
+            waitingProcesses.clear();
+            pendingReleases.clear();
+            releaseReceived.signalAll();
             if (communicator != null) {
                 communicator.stop();
             }
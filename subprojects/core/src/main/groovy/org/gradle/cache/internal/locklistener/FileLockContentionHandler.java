@@ -24,4 +24,14 @@ public interface FileLockContentionHandler {
     int reservePort();
 
     void pingOwner(int port, long lockId, String displayName);
+
+    /**
+     * Blocks until the owner of the given lock, which was pinged, reports that it released the lock, or until the timeout expires.
+     */
+    void waitForRelease(long lockId, long timeoutMs) throws InterruptedException;
+
+    /**
+     * Tells the processes that pinged us for the given lock that it has been released.
+     */
+    void lockReleased(long lockId);
 }
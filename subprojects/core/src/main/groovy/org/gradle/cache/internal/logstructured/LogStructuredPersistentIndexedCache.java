@@ -0,0 +1,551 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.internal.CloseablePersistentIndexedCache;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A persistent indexed cache that appends every update to a log, split into segment files, and keeps the location of the current
+ * value of each key in an in-memory index. As with {@link org.gradle.cache.internal.btree.BTreePersistentIndexedCache}, keys are
+ * identified by a 64 bit hash of their serialized form.
+ *
+ * <p>Each record in a segment carries a checksum. When the cache is opened, the index is loaded from the index file written when
+ * the cache was last closed, and any records appended since are replayed. When the index file is missing or does not match the
+ * segments, the index is rebuilt by replaying all segments. Replay stops at the first record of a segment that is incomplete or
+ * fails its checksum and discards the rest of the segment, so a log truncated by a crash loses only the records written last.</p>
+ *
+ * <p>Space used by replaced and removed entries is reclaimed when the cache is closed, while the cache is still locked, by copying
+ * the live records of each segment whose ratio of garbage exceeds the threshold to the end of the log and deleting the segment.</p>
+ */
+public class LogStructuredPersistentIndexedCache<K, V> implements CloseablePersistentIndexedCache<K, V> {
+    public static final String INDEX_FILE_EXTENSION = ".idx";
+    static final long DEFAULT_MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+    static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogStructuredPersistentIndexedCache.class);
+    private static final String SEGMENT_FILE_EXTENSION = ".log";
+    private static final int SEGMENT_MAGIC = 0x4C4F4701;
+    private static final int INDEX_MAGIC = 0x49445801;
+    private static final int SEGMENT_HEADER_SIZE = 4;
+    // Body length and checksum
+    private static final int RECORD_HEADER_SIZE = 8;
+    // Record type and key hash
+    private static final int BODY_HEADER_SIZE = 9;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final HashFunction KEY_HASH = Hashing.murmur3_128();
+
+    private final File baseDir;
+    private final String cacheName;
+    private final File indexFile;
+    private final Pattern segmentFileName;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final long maxSegmentSize;
+    private final double compactionThreshold;
+    private final SortedMap<Integer, Segment> segments = new TreeMap<Integer, Segment>();
+    private final Map<Long, Location> index = new HashMap<Long, Location>();
+    private Segment active;
+
+    public LogStructuredPersistentIndexedCache(File baseDir, String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(baseDir, cacheName, keySerializer, valueSerializer, DEFAULT_MAX_SEGMENT_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    LogStructuredPersistentIndexedCache(File baseDir, String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                                        long maxSegmentSize, double compactionThreshold) {
+        this.baseDir = baseDir;
+        this.cacheName = cacheName;
+        this.indexFile = new File(baseDir, cacheName + INDEX_FILE_EXTENSION);
+        this.segmentFileName = Pattern.compile(Pattern.quote(cacheName) + "\\.(\\d+)" + Pattern.quote(SEGMENT_FILE_EXTENSION));
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.maxSegmentSize = maxSegmentSize;
+        this.compactionThreshold = compactionThreshold;
+        try {
+            open();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not open %s.", this), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache %s (%s)", cacheName, baseDir);
+    }
+
+    public V get(K key) {
+        try {
+            long hash = hashKey(key);
+            Location location = index.get(hash);
+            if (location == null) {
+                return null;
+            }
+            byte[] body = location.segment.read(location.offset, location.length);
+            if (body == null || hashOf(body) != hash) {
+                LOGGER.info("Discarding corrupted entry for '{}' from {}.", key, this);
+                removeLocation(hash);
+                return null;
+            }
+            return valueSerializer.read(new KryoBackedDecoder(new ByteArrayInputStream(body, BODY_HEADER_SIZE, body.length - BODY_HEADER_SIZE)));
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            long hash = hashKey(key);
+            ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+            KryoBackedEncoder encoder = new KryoBackedEncoder(valueBytes);
+            valueSerializer.write(encoder, value);
+            encoder.flush();
+            Location location = append(PUT, hash, valueBytes.toByteArray());
+            removeLocation(hash);
+            addLocation(hash, location);
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
+        }
+    }
+
+    public void remove(K key) {
+        try {
+            long hash = hashKey(key);
+            if (removeLocation(hash)) {
+                // A removal record is never live, but is kept while an older segment may still hold a value for the key
+                append(REMOVE, hash, new byte[0]);
+            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
+        }
+    }
+
+    public void close() {
+        try {
+            compact();
+            writeIndex();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not close %s.", this), e);
+        } finally {
+            for (Segment segment : segments.values()) {
+                segment.close();
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        }
+    }
+
+    /**
+     * Returns the number of bytes used by the segments of this cache.
+     */
+    long getSize() {
+        long size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    private void open() throws IOException {
+        LOGGER.debug("Opening {}", this);
+        baseDir.mkdirs();
+        File[] files = baseDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = segmentFileName.matcher(file.getName());
+                if (matcher.matches()) {
+                    Segment segment = new Segment(Integer.parseInt(matcher.group(1)), file);
+                    if (segment.open()) {
+                        segments.put(segment.id, segment);
+                    } else {
+                        LOGGER.info("Discarding {} from {}, as it is not a log segment.", file.getName(), this);
+                        segment.delete();
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Long> replayFrom = readIndex();
+        if (replayFrom == null) {
+            LOGGER.debug("Rebuilding index of {}", this);
+            index.clear();
+            for (Segment segment : segments.values()) {
+                segment.liveBytes = 0;
+            }
+            replayFrom = Collections.emptyMap();
+        }
+        for (Segment segment : segments.values()) {
+            Long offset = replayFrom.get(segment.id);
+            replay(segment, offset == null ? SEGMENT_HEADER_SIZE : offset);
+        }
+
+        if (segments.isEmpty()) {
+            newSegment(1);
+        } else {
+            active = segments.get(segments.lastKey());
+        }
+    }
+
+    /**
+     * Loads the index file, returning the offset in each segment from which records need to be replayed, or null if the index file
+     * does not match the segments.
+     */
+    private Map<Integer, Long> readIndex() {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        try {
+            CheckedInputStream checkedInputStream = new CheckedInputStream(new BufferedInputStream(new FileInputStream(indexFile)), new CRC32());
+            DataInputStream inputStream = new DataInputStream(checkedInputStream);
+            try {
+                if (inputStream.readInt() != INDEX_MAGIC) {
+                    return null;
+                }
+                Map<Integer, Long> replayFrom = new HashMap<Integer, Long>();
+                int lastIndexedSegment = 0;
+                int segmentCount = inputStream.readInt();
+                for (int i = 0; i < segmentCount; i++) {
+                    int id = inputStream.readInt();
+                    long size = inputStream.readLong();
+                    long liveBytes = inputStream.readLong();
+                    Segment segment = segments.get(id);
+                    if (segment == null || segment.size < size) {
+                        // The log has been compacted or truncated since the index was written
+                        return null;
+                    }
+                    segment.liveBytes = liveBytes;
+                    replayFrom.put(id, size);
+                    lastIndexedSegment = Math.max(lastIndexedSegment, id);
+                }
+                for (Segment segment : segments.values()) {
+                    if (segment.id < lastIndexedSegment && !replayFrom.containsKey(segment.id)) {
+                        return null;
+                    }
+                }
+                int entryCount = inputStream.readInt();
+                for (int i = 0; i < entryCount; i++) {
+                    long hash = inputStream.readLong();
+                    Segment segment = segments.get(inputStream.readInt());
+                    long offset = inputStream.readLong();
+                    int length = inputStream.readInt();
+                    if (segment == null) {
+                        return null;
+                    }
+                    index.put(hash, new Location(segment, offset, length));
+                }
+                long checksum = checkedInputStream.getChecksum().getValue();
+                if (inputStream.readLong() != checksum) {
+                    return null;
+                }
+                return replayFrom;
+            } finally {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not read the index of {}.", this);
+            return null;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        File tmpFile = new File(baseDir, cacheName + INDEX_FILE_EXTENSION + ".tmp");
+        CheckedOutputStream checkedOutputStream = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)), new CRC32());
+        DataOutputStream outputStream = new DataOutputStream(checkedOutputStream);
+        try {
+            outputStream.writeInt(INDEX_MAGIC);
+            outputStream.writeInt(segments.size());
+            for (Segment segment : segments.values()) {
+                outputStream.writeInt(segment.id);
+                outputStream.writeLong(segment.size);
+                outputStream.writeLong(segment.liveBytes);
+            }
+            outputStream.writeInt(index.size());
+            for (Map.Entry<Long, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                outputStream.writeLong(entry.getKey());
+                outputStream.writeInt(location.segment.id);
+                outputStream.writeLong(location.offset);
+                outputStream.writeInt(location.length);
+            }
+            outputStream.flush();
+            outputStream.writeLong(checkedOutputStream.getChecksum().getValue());
+        } finally {
+            outputStream.close();
+        }
+        if (indexFile.exists() && !indexFile.delete()) {
+            throw new IOException(String.format("Could not delete %s.", indexFile));
+        }
+        if (!tmpFile.renameTo(indexFile)) {
+            throw new IOException(String.format("Could not rename %s to %s.", tmpFile, indexFile));
+        }
+    }
+
+    private void replay(Segment segment, long offset) throws IOException {
+        while (offset < segment.size) {
+            byte[] body = segment.readRecordAt(offset);
+            if (body == null) {
+                LOGGER.info("Discarding {} bytes from the end of {} of {}, as they were not completely written.", segment.size - offset, segment.file.getName(), this);
+                segment.truncate(offset);
+                return;
+            }
+            int length = RECORD_HEADER_SIZE + body.length;
+            long hash = hashOf(body);
+            removeLocation(hash);
+            if (body[0] == PUT) {
+                addLocation(hash, new Location(segment, offset, length));
+            }
+            offset += length;
+        }
+    }
+
+    private void compact() throws IOException {
+        List<Segment> candidates = new ArrayList<Segment>();
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.getGarbageRatio() > compactionThreshold) {
+                candidates.add(segment);
+            }
+        }
+        for (Segment segment : candidates) {
+            boolean hasOlderSegment = segments.firstKey() < segment.id;
+            long copied = 0;
+            long offset = SEGMENT_HEADER_SIZE;
+            while (offset < segment.size) {
+                byte[] body = segment.readRecordAt(offset);
+                if (body == null) {
+                    break;
+                }
+                int length = RECORD_HEADER_SIZE + body.length;
+                long hash = hashOf(body);
+                Location current = index.get(hash);
+                if (body[0] == PUT && current != null && current.segment == segment && current.offset == offset) {
+                    removeLocation(hash);
+                    addLocation(hash, appendRecord(body));
+                    copied += length;
+                } else if (body[0] == REMOVE && current == null && hasOlderSegment) {
+                    appendRecord(body);
+                    copied += length;
+                }
+                offset += length;
+            }
+            segment.close();
+            segment.delete();
+            segments.remove(segment.id);
+            LOGGER.debug("Compacted {} of {}, reclaiming {} bytes.", segment.file.getName(), this, segment.size - copied);
+        }
+    }
+
+    private Location append(byte type, long hash, byte[] valueBytes) throws IOException {
+        byte[] body = new byte[BODY_HEADER_SIZE + valueBytes.length];
+        body[0] = type;
+        for (int i = 0; i < 8; i++) {
+            body[1 + i] = (byte) (hash >>> (56 - 8 * i));
+        }
+        System.arraycopy(valueBytes, 0, body, BODY_HEADER_SIZE, valueBytes.length);
+        return appendRecord(body);
+    }
+
+    private Location appendRecord(byte[] body) throws IOException {
+        if (active.size >= maxSegmentSize) {
+            newSegment(active.id + 1);
+        }
+        return active.append(body);
+    }
+
+    private void newSegment(int id) throws IOException {
+        Segment segment = new Segment(id, new File(baseDir, cacheName + "." + id + SEGMENT_FILE_EXTENSION));
+        segment.create();
+        segments.put(id, segment);
+        active = segment;
+    }
+
+    private void addLocation(long hash, Location location) {
+        index.put(hash, location);
+        location.segment.liveBytes += location.length;
+    }
+
+    private boolean removeLocation(long hash) {
+        Location location = index.remove(hash);
+        if (location == null) {
+            return false;
+        }
+        location.segment.liveBytes -= location.length;
+        return true;
+    }
+
+    private long hashKey(K key) throws Exception {
+        ByteArrayOutputStream keyBytes = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(keyBytes);
+        keySerializer.write(encoder, key);
+        encoder.flush();
+        return KEY_HASH.hashBytes(keyBytes.toByteArray()).asLong();
+    }
+
+    private static long hashOf(byte[] body) {
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (body[1 + i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static class Location {
+        final Segment segment;
+        final long offset;
+        final int length;
+
+        Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+        final int id;
+        final File file;
+        RandomAccessFile raf;
+        long size;
+        long liveBytes;
+
+        Segment(int id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+
+        void create() throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(0);
+            raf.writeInt(SEGMENT_MAGIC);
+            size = SEGMENT_HEADER_SIZE;
+        }
+
+        boolean open() throws IOException {
+            raf = new RandomAccessFile(file, "rw");
+            size = raf.length();
+            if (size < SEGMENT_HEADER_SIZE || raf.readInt() != SEGMENT_MAGIC) {
+                close();
+                return false;
+            }
+            return true;
+        }
+
+        double getGarbageRatio() {
+            long recordBytes = size - SEGMENT_HEADER_SIZE;
+            return recordBytes == 0 ? 0 : (double) (recordBytes - liveBytes) / recordBytes;
+        }
+
+        Location append(byte[] body) throws IOException {
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            long offset = size;
+            raf.seek(offset);
+            byte[] record = new byte[RECORD_HEADER_SIZE + body.length];
+            writeInt(record, 0, body.length);
+            writeInt(record, 4, (int) crc.getValue());
+            System.arraycopy(body, 0, record, RECORD_HEADER_SIZE, body.length);
+            raf.write(record);
+            size += record.length;
+            return new Location(this, offset, record.length);
+        }
+
+        /**
+         * Reads the body of the record at the given offset, returning null if the record is incomplete or corrupt.
+         */
+        byte[] readRecordAt(long offset) throws IOException {
+            if (offset + RECORD_HEADER_SIZE > size) {
+                return null;
+            }
+            raf.seek(offset);
+            int bodyLength = raf.readInt();
+            if (bodyLength < BODY_HEADER_SIZE || offset + RECORD_HEADER_SIZE + bodyLength > size) {
+                return null;
+            }
+            return read(offset, RECORD_HEADER_SIZE + bodyLength);
+        }
+
+        /**
+         * Reads the body of the record with the given length at the given offset, returning null if the record is corrupt.
+         */
+        byte[] read(long offset, int length) throws IOException {
+            byte[] record = new byte[length];
+            raf.seek(offset);
+            raf.readFully(record);
+            int bodyLength = readInt(record, 0);
+            if (bodyLength != length - RECORD_HEADER_SIZE) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(record, RECORD_HEADER_SIZE, bodyLength);
+            if ((int) crc.getValue() != readInt(record, 4)) {
+                return null;
+            }
+            byte[] body = new byte[bodyLength];
+            System.arraycopy(record, RECORD_HEADER_SIZE, body, 0, bodyLength);
+            return body;
+        }
+
+        void truncate(long offset) throws IOException {
+            raf.setLength(offset);
+            size = offset;
+        }
+
+        void close() {
+            if (raf == null) {
+                return;
+            }
+            try {
+                raf.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                raf = null;
+            }
+        }
+
+        void delete() {
+            if (!file.delete() && file.exists()) {
+                throw new UncheckedIOException(String.format("Could not delete %s.", file));
+            }
+        }
+
+        private static void writeInt(byte[] bytes, int offset, int value) {
+            bytes[offset] = (byte) (value >>> 24);
+            bytes[offset + 1] = (byte) (value >>> 16);
+            bytes[offset + 2] = (byte) (value >>> 8);
+            bytes[offset + 3] = (byte) value;
+        }
+
+        private static int readInt(byte[] bytes, int offset) {
+            return ((bytes[offset] & 0xff) << 24) | ((bytes[offset + 1] & 0xff) << 16) | ((bytes[offset + 2] & 0xff) << 8) | (bytes[offset + 3] & 0xff);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import com.google.common.collect.Sets;
+import org.gradle.api.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Formatter;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.gradle.util.Clock.prettyTime;
+
+/**
+ * Compares the critical path predicted from the estimated task durations with the critical path that execution actually took.
+ * The actual critical path is found by walking back from the task that finished last, each time to the dependency that held
+ * the task up the longest, which is the dependency that finished last.
+ */
+class CriticalPathReport {
+    private final Collection<TaskInfo> executionPlan;
+
+    public CriticalPathReport(Collection<TaskInfo> executionPlan) {
+        this.executionPlan = executionPlan;
+    }
+
+    public List<TaskInfo> getPredictedCriticalPath() {
+        List<TaskInfo> path = new ArrayList<TaskInfo>();
+        TaskInfo current = longestRemainingCriticalPath(executionPlan);
+        while (current != null) {
+            path.add(current);
+            current = longestRemainingCriticalPath(current.getDependents());
+        }
+        return path;
+    }
+
+    public List<TaskInfo> getActualCriticalPath() {
+        LinkedList<TaskInfo> path = new LinkedList<TaskInfo>();
+        TaskInfo current = lastFinished(executionPlan);
+        while (current != null) {
+            path.addFirst(current);
+            current = lastFinished(Sets.union(current.getDependencySuccessors(), current.getMustSuccessors()));
+        }
+        return path;
+    }
+
+    public String render() {
+        Formatter formatter = new Formatter();
+        List<TaskInfo> predicted = getPredictedCriticalPath();
+        long predictedLength = predicted.isEmpty() ? 0 : predicted.get(0).getRemainingCriticalPath();
+        formatter.format("Predicted critical path (%s):", prettyTime(predictedLength));
+        for (TaskInfo taskInfo : predicted) {
+            formatter.format("%n  %s (estimated %s)", taskInfo, prettyTime(taskInfo.getEstimatedDuration()));
+        }
+        List<TaskInfo> actual = getActualCriticalPath();
+        long actualLength = actual.isEmpty() ? 0 : actual.get(actual.size() - 1).getExecutionEndTime() - actual.get(0).getExecutionStartTime();
+        formatter.format("%nActual critical path (%s):", prettyTime(actualLength));
+        for (TaskInfo taskInfo : actual) {
+            long took = taskInfo.getExecutionEndTime() - taskInfo.getExecutionStartTime();
+            formatter.format("%n  %s (estimated %s, took %s)", taskInfo, prettyTime(taskInfo.getEstimatedDuration()), prettyTime(took));
+        }
+        return formatter.toString();
+    }
+
+    @Nullable
+    private static TaskInfo longestRemainingCriticalPath(Iterable<TaskInfo> tasks) {
+        TaskInfo longest = null;
+        for (TaskInfo taskInfo : tasks) {
+            if (longest == null || taskInfo.getRemainingCriticalPath() > longest.getRemainingCriticalPath()) {
+                longest = taskInfo;
+            }
+        }
+        return longest;
+    }
+
+    @Nullable
+    private static TaskInfo lastFinished(Iterable<TaskInfo> tasks) {
+        TaskInfo last = null;
+        for (TaskInfo taskInfo : tasks) {
+            // Tasks that were skipped without being handed to a worker have no execution times
+            if (taskInfo.getExecutionEndTime() > 0 && (last == null || taskInfo.getExecutionEndTime() > last.getExecutionEndTime())) {
+                last = taskInfo;
+            }
+        }
+        return last;
+    }
+}
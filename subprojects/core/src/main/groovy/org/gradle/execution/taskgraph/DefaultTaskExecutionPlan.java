@@ -41,7 +41,6 @@ import org.gradle.internal.graph.DirectedGraphRenderer;
 import org.gradle.internal.graph.GraphNodeRenderer;
 import org.gradle.logging.StyledTextOutput;
 import org.gradle.util.CollectionUtils;
-import org.gradle.util.TextUtil;
 
 import java.io.File;
 import java.io.IOException;
@@ -58,16 +57,35 @@ import java.util.concurrent.locks.ReentrantLock;
 public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
 
     public static final String INTRA_PROJECT_TOGGLE = "org.gradle.parallel.intra";
+    public static final String CRITICAL_PATH_TOGGLE = "org.gradle.parallel.criticalPath";
 
     private final static Logger LOGGER = Logging.getLogger(DefaultTaskExecutionPlan.class);
 
+    private static final Comparator<TaskInfo> EXECUTION_ORDER = new Comparator<TaskInfo>() {
+        public int compare(TaskInfo left, TaskInfo right) {
+            return left.getExecutionIndex() - right.getExecutionIndex();
+        }
+    };
+
+    private static final Comparator<TaskInfo> CRITICAL_PATH_ORDER = new Comparator<TaskInfo>() {
+        public int compare(TaskInfo left, TaskInfo right) {
+            if (left.getRemainingCriticalPath() != right.getRemainingCriticalPath()) {
+                return left.getRemainingCriticalPath() > right.getRemainingCriticalPath() ? -1 : 1;
+            }
+            return left.getExecutionIndex() - right.getExecutionIndex();
+        }
+    };
+
     private final Lock lock = new ReentrantLock();
-    private final Condition condition = lock.newCondition();
+    private final Condition taskAvailable = lock.newCondition();
+    private final Condition allTasksCompleted = lock.newCondition();
     private final Set<TaskInfo> tasksInUnknownState = new LinkedHashSet<TaskInfo>();
     private final Set<TaskInfo> entryTasks = new LinkedHashSet<TaskInfo>();
     private final TaskDependencyGraph graph = new TaskDependencyGraph();
     private final LinkedHashMap<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
-    private final List<TaskInfo> executionQueue = new LinkedList<TaskInfo>();
+    private final NavigableSet<TaskInfo> readyTasks;
+    private int queuedTaskCount;
+    private int waitingWorkerCount;
     private final List<Throwable> failures = new ArrayList<Throwable>();
     private Spec<? super Task> filter = Specs.satisfyAll();
 
@@ -76,19 +94,39 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     private final Multiset<String> projectsWithRunningTasks = HashMultiset.create();
     private final Multiset<String> projectsWithRunningNonParallelizableTasks = HashMultiset.create();
     private final Set<TaskInternal> runningTasks = Sets.newIdentityHashSet();
-    private final Map<Task, Set<String>> canonicalizedOutputCache = Maps.newIdentityHashMap();
+    private final Map<Task, Set<String>> canonicalizedOutputPaths = Maps.newIdentityHashMap();
+    private final Set<TaskInfo> runningTasksWithUnknownOutputs = Sets.newIdentityHashSet();
+    private final OutputPathTrie<TaskInternal> runningTaskOutputs = new OutputPathTrie<TaskInternal>(StandardSystemProperty.FILE_SEPARATOR.value().charAt(0));
     private final Map<Task, Boolean> isParallelSafeCache = Maps.newIdentityHashMap();
     private boolean tasksCancelled;
 
     private final boolean intraProjectParallelization;
+    private final TaskDurationEstimator durationEstimator;
 
-    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+    /**
+     * @param durationEstimator when not null, tasks that are ready to start are ordered by the estimated length of the longest chain of tasks
+     * waiting on them, rather than by their position in the execution plan.
+     */
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization, @Nullable TaskDurationEstimator durationEstimator) {
         this.cancellationToken = cancellationToken;
         this.intraProjectParallelization = intraProjectParallelization;
+        this.durationEstimator = durationEstimator;
+        this.readyTasks = new TreeSet<TaskInfo>(durationEstimator == null ? EXECUTION_ORDER : CRITICAL_PATH_ORDER);
 
         if (intraProjectParallelization) {
             LOGGER.info("intra project task parallelization is enabled");
         }
+        if (durationEstimator != null) {
+            LOGGER.info("critical path task ordering is enabled");
+        }
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, boolean intraProjectParallelization) {
+        this(cancellationToken, intraProjectParallelization, null);
+    }
+
+    public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken, TaskDurationEstimator durationEstimator) {
+        this(cancellationToken, Boolean.getBoolean(INTRA_PROJECT_TOGGLE), Boolean.getBoolean(CRITICAL_PATH_TOGGLE) ? durationEstimator : null);
     }
 
     public DefaultTaskExecutionPlan(BuildCancellationToken cancellationToken) {
@@ -313,8 +351,54 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 }
             }
         }
-        executionQueue.clear();
-        executionQueue.addAll(executionPlan.values());
+        scheduleExecutionPlan();
+    }
+
+    /**
+     * Counts, for each task in the plan, the dependencies that have not completed yet and queues the tasks that can start straight away.
+     * From here on a task only needs to be looked at again when one of its dependencies changes state.
+     */
+    private void scheduleExecutionPlan() {
+        readyTasks.clear();
+        queuedTaskCount = 0;
+        int executionIndex = 0;
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            taskInfo.resetScheduling(executionIndex++);
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            for (TaskInfo dependency : Sets.union(taskInfo.getMustSuccessors(), taskInfo.getDependencySuccessors())) {
+                // Tasks outside of the plan are never executed, so they can never hold up the tasks that depend on them
+                if (executionPlan.containsKey(dependency.getTask())) {
+                    dependency.addDependent(taskInfo);
+                }
+            }
+        }
+        if (durationEstimator != null) {
+            estimateRemainingCriticalPaths();
+        }
+        for (TaskInfo taskInfo : executionPlan.values()) {
+            if (taskInfo.isReady()) {
+                queuedTaskCount++;
+            }
+            if (taskInfo.isReadyToStart()) {
+                readyTasks.add(taskInfo);
+            }
+        }
+    }
+
+    /**
+     * Estimates, for each task in the plan, how long it will take from starting the task until every task that transitively waits on it is complete.
+     * The tasks waiting on a task always come later in the plan, so walking the plan backwards visits them first.
+     */
+    private void estimateRemainingCriticalPaths() {
+        for (TaskInfo taskInfo : Lists.reverse(Lists.newArrayList(executionPlan.values()))) {
+            long longestDependentPath = 0;
+            for (TaskInfo dependent : taskInfo.getDependents()) {
+                longestDependentPath = Math.max(longestDependentPath, dependent.getRemainingCriticalPath());
+            }
+            long estimatedDuration = durationEstimator.estimateDuration(taskInfo.getTask());
+            taskInfo.setEstimates(estimatedDuration, estimatedDuration + longestDependentPath);
+        }
     }
 
     private void maybeRemoveProcessedShouldRunAfterEdge(Stack<GraphEdge> walkedShouldRunAfterEdges, TaskInfo taskNode) {
@@ -435,13 +519,16 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             graph.clear();
             entryTasks.clear();
             executionPlan.clear();
-            executionQueue.clear();
+            readyTasks.clear();
+            queuedTaskCount = 0;
             failures.clear();
             projectsWithRunningTasks.clear();
             projectsWithRunningNonParallelizableTasks.clear();
-            canonicalizedOutputCache.clear();
+            canonicalizedOutputPaths.clear();
             isParallelSafeCache.clear();
             runningTasks.clear();
+            runningTasksWithUnknownOutputs.clear();
+            runningTaskOutputs.clear();
         } finally {
             lock.unlock();
         }
@@ -466,37 +553,54 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
                 if (cancellationToken.isCancellationRequested()) {
                     if (abortExecution()) {
                         tasksCancelled = true;
+                        signalWaitingThreads();
                     }
                 }
+                if (allTasksComplete()) {
+                    return null;
+                }
                 TaskInfo nextMatching = null;
-                boolean allTasksComplete = true;
-                Iterator<TaskInfo> iterator = executionQueue.iterator();
+                TaskInfo taskWithUnknownOutputs = null;
+                Iterator<TaskInfo> iterator = readyTasks.iterator();
                 while (iterator.hasNext()) {
                     TaskInfo taskInfo = iterator.next();
-                    allTasksComplete = allTasksComplete && taskInfo.isComplete();
-                    if (taskInfo.isReady() && taskInfo.allDependenciesComplete() && canRunWithWithCurrentlyExecutedTasks(taskInfo)) {
-                        nextMatching = taskInfo;
-                        iterator.remove();
-                        break;
+                    if (!canRunInProjectWithCurrentlyExecutedTasks(taskInfo)) {
+                        continue;
                     }
+                    if (!runningTasks.isEmpty()) {
+                        taskWithUnknownOutputs = firstTaskWithUnknownOutputs(taskInfo);
+                        if (taskWithUnknownOutputs != null) {
+                            break;
+                        }
+                        if (hasOverlappingOutputWithCurrentlyExecutedTasks(taskInfo)) {
+                            continue;
+                        }
+                    }
+                    nextMatching = taskInfo;
+                    iterator.remove();
+                    break;
                 }
-                if (allTasksComplete) {
-                    return null;
-                }
-                if (nextMatching == null) {
+                if (taskWithUnknownOutputs != null) {
+                    canonicalizeOutputPathsWithoutLock(taskWithUnknownOutputs);
+                } else if (nextMatching == null) {
+                    waitingWorkerCount++;
                     try {
-                        condition.await();
+                        taskAvailable.await();
                     } catch (InterruptedException e) {
                         throw new RuntimeException(e);
+                    } finally {
+                        waitingWorkerCount--;
                     }
                 } else {
+                    queuedTaskCount--;
                     if (nextMatching.allDependenciesSuccessful()) {
                         nextMatching.startExecution();
+                        nextMatching.setExecutionStartTime(System.currentTimeMillis());
                         recordTaskStarted(nextMatching);
                         return nextMatching;
                     } else {
-                        nextMatching.skipExecution();
-                        condition.signalAll();
+                        skipTask(nextMatching);
+                        signalWaitingThreads();
                     }
                 }
             }
@@ -505,86 +609,108 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
     }
 
-    private boolean canRunWithWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
+    private boolean canRunInProjectWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
         TaskInternal task = taskInfo.getTask();
         String projectPath = task.getProject().getPath();
 
         if (isParallelizable(task)) {
-            if (projectsWithRunningNonParallelizableTasks.contains(projectPath)) {
-                return false;
-            }
+            return !projectsWithRunningNonParallelizableTasks.contains(projectPath);
         } else {
-            if (projectsWithRunningTasks.contains(projectPath)) {
-                return false;
-            }
+            return !projectsWithRunningTasks.contains(projectPath);
         }
+    }
 
+    private boolean hasOverlappingOutputWithCurrentlyExecutedTasks(TaskInfo taskInfo) {
+        TaskInternal task = taskInfo.getTask();
         Pair<TaskInternal, String> overlap = firstTaskWithOverlappingOutput(task);
         if (overlap == null) {
-            return true;
-        } else {
-            LOGGER.info("Cannot execute task {} in parallel with task {} due to overlapping output: {}", task.getPath(), overlap.left.getPath(), overlap.right);
+            return false;
         }
+        LOGGER.info("Cannot execute task {} in parallel with task {} due to overlapping output: {}", task.getPath(), overlap.left.getPath(), overlap.right);
+        return true;
+    }
 
-        return false;
+    /**
+     * Returns a running task, or else the given candidate, whose output paths have not been canonicalized yet, or null when they all have been.
+     */
+    @Nullable
+    private TaskInfo firstTaskWithUnknownOutputs(TaskInfo candidate) {
+        if (!runningTasksWithUnknownOutputs.isEmpty()) {
+            return runningTasksWithUnknownOutputs.iterator().next();
+        }
+        if (!canonicalizedOutputPaths.containsKey(candidate.getTask())) {
+            return candidate;
+        }
+        return null;
     }
 
-    private Set<String> canonicalizedOutputPaths(TaskInternal task) {
-        Set<String> paths = canonicalizedOutputCache.get(task);
-        if (paths == null) {
-            paths = Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
-                @Override
-                public String apply(File file) {
-                    String path;
-                    try {
-                        path = file.getCanonicalPath();
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                    return path;
-                }
-            }));
-            canonicalizedOutputCache.put(task, paths);
+    /**
+     * Canonicalizes the output paths of the given task with the lock released, as this hits the file system, then records the result.
+     * Output paths are only canonicalized once there is another task running that they may overlap with.
+     */
+    private void canonicalizeOutputPathsWithoutLock(TaskInfo taskInfo) {
+        TaskInternal task = taskInfo.getTask();
+        Set<String> paths;
+        lock.unlock();
+        try {
+            paths = canonicalizeOutputPaths(task);
+        } finally {
+            lock.lock();
+        }
+        // Another worker may have done the same while the lock was released, or the task may have completed in the meantime
+        if (canonicalizedOutputPaths.containsKey(task) || taskInfo.isComplete()) {
+            return;
+        }
+        canonicalizedOutputPaths.put(task, paths);
+        if (runningTasksWithUnknownOutputs.remove(taskInfo)) {
+            addRunningTaskOutputs(task, paths);
         }
+    }
+
+    private static Set<String> canonicalizeOutputPaths(TaskInternal task) {
+        return Sets.newHashSet(Iterables.transform(task.getOutputs().getFiles(), new Function<File, String>() {
+            @Override
+            public String apply(File file) {
+                String path;
+                try {
+                    path = file.getCanonicalPath();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return path;
+            }
+        }));
+    }
 
-        return paths;
+    private void addRunningTaskOutputs(TaskInternal task, Set<String> paths) {
+        for (String path : paths) {
+            runningTaskOutputs.add(path, task);
+        }
     }
 
     @Nullable
     private Pair<TaskInternal, String> firstTaskWithOverlappingOutput(TaskInternal candidateTask) {
-        if (runningTasks.isEmpty()) {
+        if (runningTaskOutputs.isEmpty()) {
             return null;
         }
 
-        for (String candidateTaskOutputPath : canonicalizedOutputPaths(candidateTask)) {
-            for (TaskInternal runningTask : runningTasks) {
-                for (String runningTaskOutputPath : canonicalizedOutputPaths(runningTask)) {
-                    if (pathsOverlap(candidateTaskOutputPath, runningTaskOutputPath)) {
-                        return Pair.of(runningTask, TextUtil.shorterOf(candidateTaskOutputPath, runningTaskOutputPath));
-                    }
-                }
+        for (String candidateTaskOutputPath : canonicalizedOutputPaths.get(candidateTask)) {
+            Pair<TaskInternal, String> overlap = runningTaskOutputs.findOverlap(candidateTaskOutputPath);
+            if (overlap != null) {
+                return overlap;
             }
         }
 
         return null;
     }
 
-
-    private boolean pathsOverlap(String firstPath, String secondPath) {
-        if (firstPath.equals(secondPath)) {
-            return true;
-        }
-
-        String shorter;
-        String longer;
-        if (firstPath.length() > secondPath.length()) {
-            shorter = secondPath;
-            longer = firstPath;
-        } else {
-            shorter = firstPath;
-            longer = secondPath;
+    boolean hasCanonicalizedOutputPaths(Task task) {
+        lock.lock();
+        try {
+            return canonicalizedOutputPaths.containsKey(task);
+        } finally {
+            lock.unlock();
         }
-        return longer.startsWith(shorter + StandardSystemProperty.FILE_SEPARATOR.value());
     }
 
     boolean isParallelizable(TaskInternal task) {
@@ -621,6 +747,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         }
         projectsWithRunningTasks.add(projectPath);
         runningTasks.add(task);
+        Set<String> outputPaths = canonicalizedOutputPaths.get(task);
+        if (outputPaths == null) {
+            runningTasksWithUnknownOutputs.add(taskInfo);
+        } else {
+            addRunningTaskOutputs(task, outputPaths);
+        }
     }
 
     private void recordTaskCompleted(TaskInfo taskInfo) {
@@ -630,7 +762,12 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             projectsWithRunningNonParallelizableTasks.remove(projectPath);
         }
         projectsWithRunningTasks.remove(projectPath);
-        canonicalizedOutputCache.remove(task);
+        Set<String> outputPaths = canonicalizedOutputPaths.remove(task);
+        if (!runningTasksWithUnknownOutputs.remove(taskInfo) && outputPaths != null) {
+            for (String path : outputPaths) {
+                runningTaskOutputs.remove(path, task);
+            }
+        }
         isParallelSafeCache.remove(task);
         runningTasks.remove(task);
     }
@@ -644,8 +781,10 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             }
 
             taskInfo.finishExecution();
+            taskInfo.setExecutionEndTime(System.currentTimeMillis());
             recordTaskCompleted(taskInfo);
-            condition.signalAll();
+            releaseDependents(taskInfo);
+            signalWaitingThreads();
         } finally {
             lock.unlock();
         }
@@ -670,7 +809,60 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
             enforceWithDependencies(dependencyNode, enforcedTasks);
         }
         if (node.isMustNotRun() || node.isRequired()) {
-            node.enforceRun();
+            enforceRun(node);
+        }
+    }
+
+    private void enforceRun(TaskInfo node) {
+        boolean reopened = node.isComplete();
+        node.enforceRun();
+        if (reopened) {
+            // The task was previously not going to run, so the tasks that depend on it now need to wait for it
+            queuedTaskCount++;
+            for (TaskInfo dependent : node.getDependents()) {
+                dependent.dependencyReopened();
+                if (readyTasks.remove(dependent)) {
+                    canonicalizedOutputPaths.remove(dependent.getTask());
+                }
+            }
+        }
+        if (node.isReadyToStart()) {
+            readyTasks.add(node);
+        }
+    }
+
+    /**
+     * Skips a task that has not started. Forgets the output paths that were canonicalized while it was ready to start, as they are only
+     * removed again when a task completes.
+     */
+    private void skipTask(TaskInfo taskInfo) {
+        taskInfo.skipExecution();
+        canonicalizedOutputPaths.remove(taskInfo.getTask());
+        releaseDependents(taskInfo);
+    }
+
+    private void releaseDependents(TaskInfo taskInfo) {
+        for (TaskInfo dependent : taskInfo.getDependents()) {
+            dependent.dependencyCompleted();
+            if (dependent.isReadyToStart()) {
+                readyTasks.add(dependent);
+            }
+        }
+    }
+
+    /**
+     * Wakes up as many waiting workers as there are tasks ready to start, rather than all of them. Workers keep waiting while tasks are
+     * still running, as a running task can enforce finalizers that were not going to run, and are all woken up once every task is complete.
+     */
+    private void signalWaitingThreads() {
+        if (allTasksComplete()) {
+            taskAvailable.signalAll();
+            allTasksCompleted.signalAll();
+            return;
+        }
+        int workersToWake = Math.min(readyTasks.size(), waitingWorkerCount);
+        for (int i = 0; i < workersToWake; i++) {
+            taskAvailable.signal();
         }
     }
 
@@ -699,7 +891,9 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         boolean aborted = false;
         for (TaskInfo taskInfo : executionPlan.values()) {
             if (taskInfo.isRequired()) {
-                taskInfo.skipExecution();
+                queuedTaskCount--;
+                readyTasks.remove(taskInfo);
+                skipTask(taskInfo);
                 aborted = true;
             }
         }
@@ -711,11 +905,14 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
         try {
             while (!allTasksComplete()) {
                 try {
-                    condition.await();
+                    allTasksCompleted.await();
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 }
             }
+            if (durationEstimator != null) {
+                LOGGER.lifecycle(new CriticalPathReport(executionPlan.values()).render());
+            }
             rethrowFailures();
         } finally {
             lock.unlock();
@@ -738,12 +935,7 @@ public class DefaultTaskExecutionPlan implements TaskExecutionPlan {
     }
 
     private boolean allTasksComplete() {
-        for (TaskInfo taskInfo : executionPlan.values()) {
-            if (!taskInfo.isComplete()) {
-                return false;
-            }
-        }
-        return true;
+        return queuedTaskCount == 0 && runningTasks.isEmpty();
     }
 
     private static class GraphEdge {
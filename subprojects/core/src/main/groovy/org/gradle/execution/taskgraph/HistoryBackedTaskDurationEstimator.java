@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.internal.TaskInternal;
+import org.gradle.api.internal.changedetection.state.TaskHistoryRepository;
+import org.gradle.internal.Factory;
+
+/**
+ * Estimates task durations from the time their most recent execution took, as recorded in the task history.
+ * Tasks that have no recorded execution time are assumed to take a fixed amount of time, unless they have no actions at all.
+ */
+public class HistoryBackedTaskDurationEstimator implements TaskDurationEstimator {
+    static final long DEFAULT_DURATION = 1000;
+
+    // This needs to be lazy, as the task history is not available when the task graph is created
+    private final Factory<? extends TaskHistoryRepository> taskHistoryRepository;
+
+    public HistoryBackedTaskDurationEstimator(Factory<? extends TaskHistoryRepository> taskHistoryRepository) {
+        this.taskHistoryRepository = taskHistoryRepository;
+    }
+
+    public long estimateDuration(TaskInternal task) {
+        if (task.getActions().isEmpty()) {
+            return 0;
+        }
+        long previousExecutionTime = taskHistoryRepository.create().getPreviousExecutionTime(task);
+        return previousExecutionTime < 0 ? DEFAULT_DURATION : previousExecutionTime;
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A prefix tree of canonical file paths, keyed by path segment, that records which owner declared each path.
+ * Finding whether a path overlaps with any path in the tree costs a single walk of the path's segments, regardless
+ * of how many paths the tree contains. Not thread safe.
+ */
+class OutputPathTrie<T> {
+    private final char separator;
+    private final Node<T> root = new Node<T>();
+
+    public OutputPathTrie(char separator) {
+        this.separator = separator;
+    }
+
+    public void add(String path, T owner) {
+        Node<T> node = root;
+        node.pathCount++;
+        int start = 0;
+        while ((start = nextSegmentStart(path, start)) < path.length()) {
+            int end = segmentEnd(path, start);
+            String segment = path.substring(start, end);
+            Node<T> child = node.children.get(segment);
+            if (child == null) {
+                child = new Node<T>();
+                node.children.put(segment, child);
+            }
+            node = child;
+            node.pathCount++;
+            start = end;
+        }
+        node.owners.add(owner);
+    }
+
+    public void remove(String path, T owner) {
+        List<Node<T>> visited = new ArrayList<Node<T>>();
+        List<String> segments = new ArrayList<String>();
+        Node<T> node = root;
+        int start = 0;
+        while ((start = nextSegmentStart(path, start)) < path.length()) {
+            int end = segmentEnd(path, start);
+            String segment = path.substring(start, end);
+            visited.add(node);
+            segments.add(segment);
+            node = node.children.get(segment);
+            if (node == null) {
+                return;
+            }
+            start = end;
+        }
+        if (!node.owners.remove(owner)) {
+            return;
+        }
+        node.pathCount--;
+        for (int i = visited.size() - 1; i >= 0; i--) {
+            Node<T> parent = visited.get(i);
+            parent.pathCount--;
+            if (node.pathCount == 0) {
+                parent.children.remove(segments.get(i));
+            }
+            node = parent;
+        }
+    }
+
+    /**
+     * Finds a path in the tree that is the same as, an ancestor of or a descendant of the given path.
+     *
+     * @return the owner of the overlapping path together with the shorter of the two overlapping paths, or null if there is no overlap.
+     */
+    @Nullable
+    public Pair<T, String> findOverlap(String path) {
+        Node<T> node = root;
+        int start = 0;
+        int previousEnd = 0;
+        while ((start = nextSegmentStart(path, start)) < path.length()) {
+            if (!node.owners.isEmpty()) {
+                // A path in the tree is an ancestor of the given path
+                return Pair.of(node.owners.get(0), previousEnd == 0 ? String.valueOf(separator) : path.substring(0, previousEnd));
+            }
+            int end = segmentEnd(path, start);
+            node = node.children.get(path.substring(start, end));
+            if (node == null) {
+                return null;
+            }
+            start = end;
+            previousEnd = end;
+        }
+        if (node.pathCount == 0) {
+            return null;
+        }
+        // The given path is the same as or an ancestor of a path in the tree
+        return Pair.of(node.anyOwner(), path);
+    }
+
+    public boolean isEmpty() {
+        return root.pathCount == 0;
+    }
+
+    public void clear() {
+        root.children.clear();
+        root.owners.clear();
+        root.pathCount = 0;
+    }
+
+    private int nextSegmentStart(String path, int index) {
+        while (index < path.length() && path.charAt(index) == separator) {
+            index++;
+        }
+        return index;
+    }
+
+    private int segmentEnd(String path, int start) {
+        int end = path.indexOf(separator, start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static class Node<T> {
+        private final Map<String, Node<T>> children = new HashMap<String, Node<T>>();
+        private final List<T> owners = new ArrayList<T>(1);
+        // Number of paths that end at this node or below it
+        private int pathCount;
+
+        T anyOwner() {
+            Node<T> node = this;
+            while (node.owners.isEmpty()) {
+                for (Node<T> child : node.children.values()) {
+                    if (child.pathCount > 0) {
+                        node = child;
+                        break;
+                    }
+                }
+            }
+            return node.owners.get(0);
+        }
+    }
+}
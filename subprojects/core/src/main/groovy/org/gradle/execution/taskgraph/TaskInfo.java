@@ -16,9 +16,10 @@
 
 package org.gradle.execution.taskgraph;
 
-import com.google.common.collect.Iterables;
 import org.gradle.api.internal.TaskInternal;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.TreeSet;
 
 public class TaskInfo implements Comparable<TaskInfo> {
@@ -36,6 +37,13 @@ public class TaskInfo implements Comparable<TaskInfo> {
     private final TreeSet<TaskInfo> mustSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> shouldSuccessors = new TreeSet<TaskInfo>();
     private final TreeSet<TaskInfo> finalizers = new TreeSet<TaskInfo>();
+    private final List<TaskInfo> dependents = new ArrayList<TaskInfo>();
+    private int incompleteDependencies;
+    private int executionIndex;
+    private long estimatedDuration;
+    private long remainingCriticalPath;
+    private long executionStartTime;
+    private long executionEndTime;
 
     public TaskInfo(TaskInternal task) {
         this.task = task;
@@ -129,13 +137,80 @@ public class TaskInfo implements Comparable<TaskInfo> {
         return this.getTask().getState().getFailure();
     }
 
-    public boolean allDependenciesComplete() {
-        for (TaskInfo dependency : Iterables.concat(mustSuccessors, dependencySuccessors)) {
-            if (!dependency.isComplete()) {
-                return false;
-            }
+    /**
+     * Returns true when this task should run and all of the tasks it depends on, or must run after, are complete.
+     */
+    public boolean isReadyToStart() {
+        return isReady() && incompleteDependencies == 0;
+    }
+
+    public void resetScheduling(int executionIndex) {
+        this.executionIndex = executionIndex;
+        dependents.clear();
+        incompleteDependencies = 0;
+        estimatedDuration = 0;
+        remainingCriticalPath = 0;
+        executionStartTime = 0;
+        executionEndTime = 0;
+    }
+
+    public int getExecutionIndex() {
+        return executionIndex;
+    }
+
+    public long getEstimatedDuration() {
+        return estimatedDuration;
+    }
+
+    /**
+     * Returns the estimated time from starting this task until all of the tasks that transitively wait on it are complete.
+     */
+    public long getRemainingCriticalPath() {
+        return remainingCriticalPath;
+    }
+
+    public void setEstimates(long estimatedDuration, long remainingCriticalPath) {
+        this.estimatedDuration = estimatedDuration;
+        this.remainingCriticalPath = remainingCriticalPath;
+    }
+
+    public long getExecutionStartTime() {
+        return executionStartTime;
+    }
+
+    public long getExecutionEndTime() {
+        return executionEndTime;
+    }
+
+    public void setExecutionStartTime(long executionStartTime) {
+        this.executionStartTime = executionStartTime;
+    }
+
+    public void setExecutionEndTime(long executionEndTime) {
+        this.executionEndTime = executionEndTime;
+    }
+
+    /**
+     * Records that the given task cannot start until this task is complete.
+     */
+    public void addDependent(TaskInfo dependent) {
+        dependents.add(dependent);
+        if (!isComplete()) {
+            dependent.incompleteDependencies++;
         }
-        return true;
+    }
+
+    public List<TaskInfo> getDependents() {
+        return dependents;
+    }
+
+    public void dependencyCompleted() {
+        assert incompleteDependencies > 0;
+        incompleteDependencies--;
+    }
+
+    public void dependencyReopened() {
+        incompleteDependencies++;
     }
 
     public boolean allDependenciesSuccessful() {
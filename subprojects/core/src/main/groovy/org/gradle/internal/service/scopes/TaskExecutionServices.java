@@ -23,7 +23,7 @@ import org.gradle.api.internal.changedetection.TaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.DefaultTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.changes.ShortCircuitTaskArtifactStateRepository;
 import org.gradle.api.internal.changedetection.state.*;
-import org.gradle.api.internal.hash.DefaultHasher;
+import org.gradle.api.internal.hash.Murmur3Hasher;
 import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
@@ -81,25 +81,32 @@ public class TaskExecutionServices {
         return new DefaultTaskArtifactStateCacheAccess(gradle, cacheRepository, decorator);
     }
 
-    FileTreeElementSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
-        return new CachingFileSnapshotter(new DefaultHasher(), cacheAccess, stringInterner);
+    FileTreeElementSnapshotter createFileSnapshotter(TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner, BuildOperationProcessor buildOperationProcessor) {
+        return new CachingFileSnapshotter(new Murmur3Hasher(), InMemoryTaskArtifactCache.FILE_HASHES_CACHE, cacheAccess, stringInterner, buildOperationProcessor);
     }
 
-    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, TaskArtifactStateCacheAccess cacheAccess, StartParameter startParameter, FileTreeElementSnapshotter fileSnapshotter, StringInterner stringInterner) {
-        FileCollectionSnapshotter fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, stringInterner);
+    DefaultFileCollectionSnapshotter createFileCollectionSnapshotter(FileTreeElementSnapshotter fileSnapshotter, StringInterner stringInterner) {
+        return new DefaultFileCollectionSnapshotter(fileSnapshotter, stringInterner);
+    }
 
-        FileCollectionSnapshotter outputFilesSnapshotter = new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, stringInterner);
+    OutputFilesCollectionSnapshotter createOutputFilesCollectionSnapshotter(DefaultFileCollectionSnapshotter fileCollectionSnapshotter, TaskArtifactStateCacheAccess cacheAccess, StringInterner stringInterner) {
+        return new OutputFilesCollectionSnapshotter(fileCollectionSnapshotter, new RandomLongIdGenerator(), cacheAccess, stringInterner);
+    }
 
+    TaskHistoryRepository createTaskHistoryRepository(TaskArtifactStateCacheAccess cacheAccess, DefaultFileCollectionSnapshotter fileCollectionSnapshotter, OutputFilesCollectionSnapshotter outputFilesSnapshotter, StringInterner stringInterner) {
         SerializerRegistry<FileCollectionSnapshot> serializerRegistry = new DefaultSerializerRegistry<FileCollectionSnapshot>();
         fileCollectionSnapshotter.registerSerializers(serializerRegistry);
         outputFilesSnapshotter.registerSerializers(serializerRegistry);
 
-        TaskHistoryRepository taskHistoryRepository = new CacheBackedTaskHistoryRepository(cacheAccess,
+        return new CacheBackedTaskHistoryRepository(cacheAccess,
             new CacheBackedFileSnapshotRepository(cacheAccess,
                 serializerRegistry.build(),
                 new RandomLongIdGenerator()),
             stringInterner);
+    }
 
+    TaskArtifactStateRepository createTaskArtifactStateRepository(Instantiator instantiator, StartParameter startParameter, TaskHistoryRepository taskHistoryRepository,
+                                                                  DefaultFileCollectionSnapshotter fileCollectionSnapshotter, OutputFilesCollectionSnapshotter outputFilesSnapshotter) {
         return new ShortCircuitTaskArtifactStateRepository(
             startParameter,
             instantiator,
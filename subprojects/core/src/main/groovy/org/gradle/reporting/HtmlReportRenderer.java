@@ -93,7 +93,8 @@ public class HtmlReportRenderer {
             this.outputDirectory = outputDirectory;
         }
 
-        Resource addResource(URL source) {
+        // Pages may be rendered on several threads at the same time
+        synchronized Resource addResource(URL source) {
             String name = StringUtils.substringAfterLast(source.getPath(), "/");
             String type = StringUtils.substringAfterLast(source.getPath(), ".");
             if (type.equalsIgnoreCase("png") || type.equalsIgnoreCase("gif")) {
@@ -17,8 +17,15 @@
 package org.gradle.api.internal.changedetection.state
 
 import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.CachingFileVisitDetails
+import org.gradle.api.internal.hash.DefaultHasher
 import org.gradle.api.internal.hash.Hasher
 import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.internal.NonThreadsafeInMemoryStore
+import org.gradle.cache.internal.OptimisticallyReadableCache
+import org.gradle.internal.Factory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.DefaultBuildOperationProcessor
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
 import spock.lang.Specification
@@ -104,4 +111,101 @@ class CachingFileSnapshotterTest extends Specification {
         1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
         0 * _._
     }
+
+    def snapshotsBatchOfFilesInOrder() {
+        given:
+        def file2 = tmpDir.createFile("testfile2")
+
+        when:
+        def result = hasher.snapshotAll([new CachingFileVisitDetails(file), new CachingFileVisitDetails(file2)])
+
+        then:
+        result*.hash == [hash, "hash2".bytes]
+
+        and:
+        1 * cacheAccess.useCache("Look up file hashes", _ as Factory) >> { String name, Factory action -> action.create() }
+        1 * cache.get(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * cache.get(file2.getAbsolutePath()) >> null
+        1 * target.hash(file2) >> "hash2".bytes
+        1 * cacheAccess.useCache("Record file hashes", _ as Runnable) >> { String name, Runnable action -> action.run() }
+        1 * cache.put(file2.getAbsolutePath(), _)
+        0 * _._
+    }
+
+    def "snapshots batch without the cache lock when hashes are cached in memory"() {
+        given:
+        def inMemoryCache = Mock(InMemoryCache)
+        def store = Mock(TaskArtifactStateCacheAccess)
+        1 * store.createCache("fileHashes", _, _) >> inMemoryCache
+        def hasher = new CachingFileSnapshotter(target, store, new StringInterner())
+        def file2 = tmpDir.createFile("testfile2")
+
+        when:
+        def result = hasher.snapshotAll([new CachingFileVisitDetails(file), new CachingFileVisitDetails(file2)])
+
+        then:
+        result*.hash == [hash, "hash2".bytes]
+
+        and:
+        1 * inMemoryCache.getIfCached(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * inMemoryCache.getIfCached(file2.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo("hash2".bytes, file2.length(), file2.lastModified())
+        0 * _._
+    }
+
+    def "falls back to the cache lock for files not cached in memory"() {
+        given:
+        def inMemoryCache = Mock(InMemoryCache)
+        def store = Mock(TaskArtifactStateCacheAccess)
+        1 * store.createCache("fileHashes", _, _) >> inMemoryCache
+        def hasher = new CachingFileSnapshotter(target, store, new StringInterner())
+        def file2 = tmpDir.createFile("testfile2")
+
+        when:
+        def result = hasher.snapshotAll([new CachingFileVisitDetails(file), new CachingFileVisitDetails(file2)])
+
+        then:
+        result*.hash == [hash, "hash2".bytes]
+
+        and:
+        1 * inMemoryCache.getIfCached(file.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo(hash, file.length(), file.lastModified())
+        1 * inMemoryCache.getIfCached(file2.getAbsolutePath()) >> null
+        1 * store.useCache("Look up file hashes", _ as Factory) >> { String name, Factory action -> action.create() }
+        1 * inMemoryCache.get(file2.getAbsolutePath()) >> new CachingFileSnapshotter.FileInfo("hash2".bytes, file2.length(), file2.lastModified())
+        0 * _._
+    }
+
+    def hashesLargeBatchOfFilesInParallelAndReusesCachedHashes() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        def store = new NonThreadsafeInMemoryStore()
+        def parallelHasher = new CachingFileSnapshotter(new DefaultHasher(), "fileHashes", store, new StringInterner(), new DefaultBuildOperationProcessor(executorFactory, 4))
+        def files = (0..(CachingFileSnapshotter.BATCH_SIZE * 3)).collect { i ->
+            def file = tmpDir.file("tree/file$i")
+            file.text = "content $i"
+            file
+        }
+        def elements = files.collect { new CachingFileVisitDetails(it) }
+        def expected = files.collect { new DefaultHasher().hash(it) }
+
+        when:
+        def result = parallelHasher.snapshotAll(elements)
+
+        then:
+        result*.hash == expected
+
+        when:
+        files[7].text = "changed"
+        def changed = files.collect { new CachingFileVisitDetails(it) }
+        expected[7] = new DefaultHasher().hash(files[7])
+        result = parallelHasher.snapshotAll(changed)
+
+        then:
+        result*.hash == expected
+
+        cleanup:
+        executorFactory.stop()
+    }
+
+    interface InMemoryCache extends PersistentIndexedCache<String, CachingFileSnapshotter.FileInfo>, OptimisticallyReadableCache<String, CachingFileSnapshotter.FileInfo> {
+    }
 }
@@ -30,8 +30,7 @@ import spock.lang.Specification
 @UsesNativeServices
 public class DefaultFileCollectionSnapshotterTest extends Specification {
     def fileSnapshotter = Stub(FileTreeElementSnapshotter)
-    def cacheAccess = Stub(TaskArtifactStateCacheAccess)
-    def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, cacheAccess, new StringInterner())
+    def snapshotter = new DefaultFileCollectionSnapshotter(fileSnapshotter, new StringInterner())
 
     def listener = Mock(ChangeListener)
     @Rule
@@ -48,8 +47,12 @@ public class DefaultFileCollectionSnapshotterTest extends Specification {
                 getHash() >> HashUtil.sha1(file).asByteArray()
             }
         }
-        cacheAccess.useCache(_, _) >> { String name, Runnable action ->
-            action.run()
+        fileSnapshotter.snapshotAll(_) >> { List<FileTreeElement> fileTreeElements ->
+            return fileTreeElements.collect { fileTreeElement ->
+                Stub(FileSnapshot) {
+                    getHash() >> HashUtil.sha1(fileTreeElement.file).asByteArray()
+                }
+            }
         }
     }
 
@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.changedetection.state
 
+import org.gradle.cache.internal.FileLock
 import org.gradle.cache.internal.MultiProcessSafePersistentIndexedCache
 import spock.lang.Specification
 
@@ -133,4 +134,135 @@ class InMemoryTaskArtifactCacheTest extends Specification {
         0 * target._
     }
 
+    def "caches file hashes outside of the heap"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileHashes.bin", InMemoryTaskArtifactCache.FILE_HASHES_CACHE, target)
+        def fileInfo = new CachingFileSnapshotter.FileInfo([1, 2, 3] as byte[], 12, 34)
+
+        when:
+        def result = cache.get("/some/file")
+
+        then:
+        result.hash == fileInfo.hash
+        result.length == 12
+        result.timestamp == 34
+
+        and:
+        1 * target.get("/some/file") >> fileInfo
+        0 * target._
+
+        when:
+        result = cache.get("/some/file")
+
+        then:
+        result.hash == fileInfo.hash
+
+        and:
+        0 * target._
+
+        when:
+        result = cache.get("/missing")
+        result = cache.get("/missing")
+
+        then:
+        result == null
+
+        and:
+        1 * target.get("/missing") >> null
+        0 * target._
+    }
+
+    def "reports usage counters of in-memory data"() {
+        given:
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        def fileHashes = cacheFactory.decorate("path/fileHashes.bin", InMemoryTaskArtifactCache.FILE_HASHES_CACHE, target)
+        _ * target.get("key") >> "result"
+        _ * target.get("/some/file") >> new CachingFileSnapshotter.FileInfo([1, 2, 3] as byte[], 12, 34)
+
+        expect:
+        cacheFactory.getStatistics("path/unknown.bin") == null
+
+        when:
+        cache.get("key")
+        cache.get("key")
+        fileHashes.get("/some/file")
+        fileHashes.get("/some/file")
+        fileHashes.get("/some/file")
+        def statistics = cacheFactory.getStatistics("path/fileSnapshots.bin")
+        def fileHashStatistics = cacheFactory.getStatistics("path/fileHashes.bin")
+
+        then:
+        statistics.size == 1
+        statistics.capacity > 0
+        statistics.occupancy == 1.0d / statistics.capacity
+        statistics.hitCount == 1
+        statistics.missCount == 1
+        statistics.hitRate == 0.5
+        statistics.evictionCount == 0
+
+        and:
+        fileHashStatistics.size == 1
+        fileHashStatistics.capacity > 0
+        fileHashStatistics.hitCount == 2
+        fileHashStatistics.missCount == 1
+        fileHashStatistics.evictionCount == 0
+    }
+
+    def "serves reads without the cache lock only while the lock is held"() {
+        given:
+        def state = Stub(FileLock.State)
+        def cache = cacheFactory.decorate("path/fileSnapshots.bin", "fileSnapshots", target)
+        target.get("key") >> "result"
+
+        expect:
+        cache.getIfCached("key") == null
+
+        when:
+        cache.onStartWork("use cache", state)
+
+        then:
+        cache.getIfCached("key") == null
+
+        when:
+        cache.get("key")
+
+        then:
+        cache.getIfCached("key") == "result"
+        cache.getIfCached("unknown") == null
+
+        when:
+        cache.onEndWork(state)
+
+        then:
+        cache.getIfCached("key") == null
+
+        when:
+        cache.onStartWork("use cache", state)
+
+        then:
+        cache.getIfCached("key") == "result"
+    }
+
+    def "serves file hashes without the cache lock while the lock is held"() {
+        given:
+        def state = Stub(FileLock.State)
+        def cache = cacheFactory.decorate("path/fileHashes.bin", InMemoryTaskArtifactCache.FILE_HASHES_CACHE, target)
+        def fileInfo = new CachingFileSnapshotter.FileInfo([1, 2, 3] as byte[], 12, 34)
+        target.get("/some/file") >> fileInfo
+
+        when:
+        cache.onStartWork("use cache", state)
+        cache.get("/some/file")
+        cache.get("/missing")
+
+        then:
+        cache.getIfCached("/some/file").hash == fileInfo.hash
+        cache.getIfCached("/missing") == null
+
+        when:
+        cache.onEndWork(state)
+
+        then:
+        cache.getIfCached("/some/file") == null
+    }
 }
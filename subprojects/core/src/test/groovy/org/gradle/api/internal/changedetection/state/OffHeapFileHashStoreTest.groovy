@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import spock.lang.Specification
+
+class OffHeapFileHashStoreTest extends Specification {
+
+    def "returns stored entries and null for paths that are not stored"() {
+        given:
+        def store = new OffHeapFileHashStore(100)
+        store.put("/a", new CachingFileSnapshotter.FileInfo([1, 2] as byte[], 10, 20))
+
+        when:
+        def a = store.get("/a")
+
+        then:
+        a.hash == [1, 2] as byte[]
+        a.length == 10
+        a.timestamp == 20
+        store.get("/b") == null
+        store.hitCount == 1
+        store.missCount == 1
+        store.size == 1
+    }
+
+    def "records paths that have no entry"() {
+        given:
+        def store = new OffHeapFileHashStore(100)
+
+        when:
+        store.put("/a", null)
+
+        then:
+        store.get("/a") == OffHeapFileHashStore.MISSING
+    }
+
+    def "replaces entry for path"() {
+        given:
+        def store = new OffHeapFileHashStore(100)
+        store.put("/a", new CachingFileSnapshotter.FileInfo([1, 2] as byte[], 10, 20))
+
+        when:
+        store.put("/a", new CachingFileSnapshotter.FileInfo([3, 4, 5] as byte[], 11, 21))
+
+        then:
+        store.get("/a").hash == [3, 4, 5] as byte[]
+        store.size == 1
+    }
+
+    def "does not store hashes that do not fit in a record"() {
+        given:
+        def store = new OffHeapFileHashStore(100)
+        store.put("/a", new CachingFileSnapshotter.FileInfo([1] as byte[], 10, 20))
+
+        when:
+        store.put("/a", new CachingFileSnapshotter.FileInfo(new byte[OffHeapFileHashStore.MAX_HASH_LENGTH + 1], 10, 20))
+
+        then:
+        store.get("/a") == null
+        store.size == 0
+    }
+
+    def "evicts entries that have not been read recently when full"() {
+        given:
+        def store = new OffHeapFileHashStore(OffHeapFileHashStore.BUCKET_SIZE)
+        def paths = (0..<OffHeapFileHashStore.BUCKET_SIZE).collect { "/file$it" as String }
+        paths.each { store.put(it, new CachingFileSnapshotter.FileInfo([1] as byte[], 1, 1)) }
+
+        when:
+        store.put("/another", new CachingFileSnapshotter.FileInfo([2] as byte[], 2, 2))
+
+        then:
+        store.evictionCount == 1
+        store.size == OffHeapFileHashStore.BUCKET_SIZE
+        store.statistics.evictionCount == 1
+        store.statistics.occupancy == 1.0
+        store.get("/another").hash == [2] as byte[]
+        paths.count { store.get(it) != null } == OffHeapFileHashStore.BUCKET_SIZE - 1
+    }
+
+    def "clear removes all entries"() {
+        given:
+        def store = new OffHeapFileHashStore(100)
+        store.put("/a", new CachingFileSnapshotter.FileInfo([1] as byte[], 10, 20))
+
+        when:
+        store.clear()
+
+        then:
+        store.get("/a") == null
+        store.size == 0
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.hash
+
+import com.google.common.hash.Hashing
+import org.gradle.api.UncheckedIOException
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class Murmur3HasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+
+    def "hashes small file content"() {
+        given:
+        def file = tmpDir.createFile("small")
+        file.text = "some content"
+
+        expect:
+        new Murmur3Hasher().hash(file) == Hashing.murmur3_128().hashBytes("some content".bytes).asBytes()
+        new Murmur3Hasher().hash(file) != new Murmur3Hasher().hash(tmpDir.createFile("empty"))
+    }
+
+    def "hashes large file the same whether it is mapped or read"() {
+        given:
+        def content = new byte[(int) (Murmur3Hasher.MAPPED_READ_THRESHOLD * 2 + 17)]
+        new Random(42).nextBytes(content)
+        def file = tmpDir.createFile("large")
+        file.bytes = content
+
+        expect:
+        new Murmur3Hasher(true).hash(file) == Hashing.murmur3_128().hashBytes(content).asBytes()
+        new Murmur3Hasher(false).hash(file) == Hashing.murmur3_128().hashBytes(content).asBytes()
+    }
+
+    def "reports file that cannot be read"() {
+        given:
+        def file = tmpDir.file("missing")
+
+        when:
+        new Murmur3Hasher().hash(file)
+
+        then:
+        UncheckedIOException e = thrown()
+        e.message == "Failed to create MurmurHash3 hash for file ${file.absolutePath}."
+    }
+}
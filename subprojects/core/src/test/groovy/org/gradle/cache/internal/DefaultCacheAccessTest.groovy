@@ -26,6 +26,7 @@ import spock.lang.Unroll
 
 import static org.gradle.cache.internal.FileLockManager.LockMode.*
 import static org.gradle.cache.internal.filelock.LockOptionsBuilder.mode
+import static org.gradle.test.fixtures.ConcurrentTestUtil.poll
 
 class DefaultCacheAccessTest extends ConcurrentSpec {
     @Rule final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
@@ -37,8 +38,8 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
     final BTreePersistentIndexedCache<String, Integer> backingCache = Mock()
     DefaultCacheAccess access = newAccess()
 
-    private DefaultCacheAccess newAccess() {
-        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction) {
+    private DefaultCacheAccess newAccess(long leaseMs = 0) {
+        new DefaultCacheAccess("<display-name>", lockFile, cacheDir, lockManager, initializationAction, leaseMs) {
             @Override
             def <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
                 return backingCache
@@ -476,6 +477,86 @@ class DefaultCacheAccessTest extends ConcurrentSpec {
 
         then:
         1 * lock.close()
+        access.contendedReleaseCount == 1
+    }
+
+    def "contended operation releases the lock at the end of the operation"() {
+        when:
+        access.open(mode(None))
+        access.useCache("some operation") {
+            access.whenContended().run()
+        }
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "some operation") >> lock
+        _ * lock.mode >> Exclusive
+        1 * lock.close()
+        !access.owner
+        access.contendedReleaseCount == 1
+    }
+
+    def "contended lock is kept while operations queued during the lease run"() {
+        def leasedAccess = newAccess(60000)
+        def ran = []
+        Thread second = null
+
+        when:
+        leasedAccess.open(mode(None))
+        leasedAccess.useCache("first operation") {
+            leasedAccess.whenContended().run()
+            second = Thread.start {
+                leasedAccess.useCache("second operation") { ran << "second" }
+            }
+            poll { assert leasedAccess.waitingForOwnership == 1 }
+            ran << "first"
+        }
+        second.join()
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "first operation") >> lock
+        _ * lock.mode >> Exclusive
+        1 * lock.close()
+
+        and:
+        ran == ["first", "second"]
+        !leasedAccess.owner
+        leasedAccess.contendedReleaseCount == 1
+    }
+
+    def "contended lock is released once the lease has expired"() {
+        def leasedAccess = newAccess(1)
+        Thread second = null
+
+        when:
+        leasedAccess.open(mode(None))
+        leasedAccess.useCache("first operation") {
+            leasedAccess.whenContended().run()
+            second = Thread.start {
+                leasedAccess.useCache("second operation") {}
+            }
+            poll { assert leasedAccess.waitingForOwnership == 1 }
+            sleep(10)
+        }
+        second.join()
+
+        then:
+        2 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", _) >> lock
+        _ * lock.mode >> Exclusive
+        1 * lock.close()
+    }
+
+    def "records time spent waiting for the file lock"() {
+        when:
+        access.open(mode(None))
+        access.useCache("some operation") {}
+
+        then:
+        1 * lockManager.lock(lockFile, mode(Exclusive), "<display-name>", "some operation") >> {
+            sleep(50)
+            lock
+        }
+        access.lockAcquisitionCount == 1
+        access.lockWaitTime >= 50
     }
 
     def "file access requires acquired lock"() {
@@ -46,7 +46,7 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
 
     def "can receive lock id"() {
         start {
-            receivedId = communicator.receive()
+            receivedId = communicator.receive().lockId
         }
 
         poll {
@@ -62,6 +62,35 @@ class FileLockCommunicatorTest extends ConcurrentSpecification {
         }
     }
 
+    def "ping asks the owner for a release notification"() {
+        def owner = new FileLockCommunicator(new InetAddressFactory())
+        FileLockPacket ping = null
+        FileLockPacket released = null
+
+        start {
+            ping = owner.receive()
+            owner.notifyReleased(ping.sender, ping.lockId)
+        }
+        start {
+            released = communicator.receive()
+        }
+
+        when:
+        communicator.pingOwner(owner.getPort(), 155, "lock")
+
+        then:
+        poll {
+            assert released != null
+        }
+        ping.releaseNotificationRequested
+        !ping.lockReleased
+        released.lockReleased
+        released.lockId == 155
+
+        cleanup:
+        owner.stop()
+    }
+
     def "may not receive after the stop"() {
         communicator.stop()
         when:
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import com.google.common.io.Files;
+import org.gradle.internal.serialize.DefaultSerializer;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.test.fixtures.file.TestFile;
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+public class MappedFileBlockStoreTest {
+    @Rule
+    public TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider();
+    private final Serializer<String> stringSerializer = new DefaultSerializer<String>();
+    private TestFile cacheFile;
+
+    @Before
+    public void setup() {
+        cacheFile = tmpDir.file("cache.bin");
+    }
+
+    private BTreePersistentIndexedCache<String, String> createMappedCache() {
+        // Small pages, so that blocks span pages and pages are unmapped while the cache is in use
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, new MappedFileBlockStore(cacheFile, 64, 3), stringSerializer, stringSerializer, (short) 4, 100);
+    }
+
+    private BTreePersistentIndexedCache<String, String> createFileBackedCache() {
+        return new BTreePersistentIndexedCache<String, String>(cacheFile, new FileBackedBlockStore(cacheFile), stringSerializer, stringSerializer, (short) 4, 100);
+    }
+
+    @Test
+    public void persistsEntriesAcrossPages() {
+        BTreePersistentIndexedCache<String, String> cache = createMappedCache();
+        for (int i = 0; i < 100; i++) {
+            cache.put("key_" + i, value(i));
+        }
+        cache.remove("key_10");
+        cache.put("key_20", "replaced");
+
+        cache.reset();
+
+        for (int i = 0; i < 100; i++) {
+            if (i == 10) {
+                assertNull(cache.get("key_" + i));
+            } else if (i == 20) {
+                assertThat(cache.get("key_" + i), equalTo("replaced"));
+            } else {
+                assertThat(cache.get("key_" + i), equalTo(value(i)));
+            }
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void canReadCacheWrittenByFileBackedStore() {
+        BTreePersistentIndexedCache<String, String> cache = createFileBackedCache();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key_" + i, value(i));
+        }
+        cache.close();
+        long length = cacheFile.length();
+
+        cache = createMappedCache();
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get("key_" + i), equalTo(value(i)));
+        }
+        cache.close();
+
+        assertThat(cacheFile.length(), equalTo(length));
+    }
+
+    @Test
+    public void writesCacheReadableByFileBackedStore() {
+        BTreePersistentIndexedCache<String, String> cache = createMappedCache();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key_" + i, value(i));
+        }
+        cache.close();
+
+        cache = createFileBackedCache();
+        for (int i = 0; i < 50; i++) {
+            assertThat(cache.get("key_" + i), equalTo(value(i)));
+        }
+        cache.verify();
+        cache.close();
+    }
+
+    @Test
+    public void truncatesFileToWrittenBlocksOnClose() throws IOException {
+        BTreePersistentIndexedCache<String, String> cache = createFileBackedCache();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key_" + i, value(i));
+        }
+        cache.close();
+        byte[] fileBackedContent = Files.toByteArray(cacheFile);
+        cacheFile.delete();
+
+        cache = createMappedCache();
+        for (int i = 0; i < 50; i++) {
+            cache.put("key_" + i, value(i));
+        }
+        cache.close();
+
+        assertThat(Files.toByteArray(cacheFile), equalTo(fileBackedContent));
+    }
+
+    @Test
+    public void handlesTruncatedCacheFile() throws IOException {
+        BTreePersistentIndexedCache<String, String> cache = createMappedCache();
+        cache.put("key_1", value(1));
+        cache.close();
+
+        RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+        file.setLength(file.length() - 10);
+        file.close();
+
+        cache = createMappedCache();
+        assertNull(cache.get("key_1"));
+        cache.verify();
+        cache.close();
+    }
+
+    private static String value(int i) {
+        StringBuilder builder = new StringBuilder();
+        for (int j = 0; j <= i % 7; j++) {
+            builder.append("value ").append(i).append(' ');
+        }
+        return builder.toString();
+    }
+}
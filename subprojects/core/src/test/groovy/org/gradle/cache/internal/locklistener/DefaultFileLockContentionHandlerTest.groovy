@@ -53,6 +53,64 @@ class DefaultFileLockContentionHandlerTest extends ConcurrentSpecification {
         }
     }
 
+    def "wakes up processes waiting for a lock when it is released"() {
+        def contended = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        handler.start(10, { contended.set(true) })
+        client.reservePort()
+        client.pingOwner(port, 10, "lock 1")
+        poll { assert contended.get() }
+
+        handler.stop(10)
+        handler.lockReleased(10)
+        def waitStarted = System.currentTimeMillis()
+        client.waitForRelease(10, 10000)
+
+        then:
+        System.currentTimeMillis() - waitStarted < 5000
+    }
+
+    def "keeps waiting when another lock is released"() {
+        def contended1 = new AtomicBoolean()
+        def contended2 = new AtomicBoolean()
+
+        when:
+        int port = handler.reservePort()
+        handler.start(10, { contended1.set(true) })
+        handler.start(11, { contended2.set(true) })
+        client.reservePort()
+        client.pingOwner(port, 10, "lock 1")
+        client.pingOwner(port, 11, "lock 2")
+        poll { assert contended1.get() && contended2.get() }
+
+        handler.stop(11)
+        handler.lockReleased(11)
+        def waitStarted = System.currentTimeMillis()
+        client.waitForRelease(10, 1000)
+
+        then:
+        System.currentTimeMillis() - waitStarted >= 1000
+
+        when:
+        waitStarted = System.currentTimeMillis()
+        client.waitForRelease(11, 10000)
+
+        then:
+        System.currentTimeMillis() - waitStarted < 5000
+    }
+
+    def "waiting for a lock release times out when no release is received"() {
+        when:
+        client.reservePort()
+        def waitStarted = System.currentTimeMillis()
+        client.waitForRelease(10, 100)
+
+        then:
+        System.currentTimeMillis() - waitStarted >= 100
+    }
+
     def "there is only one executor thread"() {
         def factory = Mock(ExecutorFactory)
         handler = new DefaultFileLockContentionHandler(factory, addressFactory)
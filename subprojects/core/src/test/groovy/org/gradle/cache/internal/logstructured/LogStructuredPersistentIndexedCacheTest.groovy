@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.logstructured
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LogStructuredPersistentIndexedCacheTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
+    TestFile cacheDir
+
+    def setup() {
+        cacheDir = tmpDir.file("cache")
+    }
+
+    def "returns null for unknown entry"() {
+        def cache = createCache()
+
+        expect:
+        cache.get("unknown") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "persists added, replaced and removed entries"() {
+        given:
+        def cache = createCache()
+        (1..20).each { cache.put("key_$it".toString(), "value $it".toString()) }
+        cache.put("key_3", "replaced")
+        cache.remove("key_4")
+
+        expect:
+        cache.get("key_3") == "replaced"
+        cache.get("key_4") == null
+
+        when:
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_3") == "replaced"
+        cache.get("key_4") == null
+        cache.get("key_20") == "value 20"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "rebuilds index from log when index file is missing or corrupt"() {
+        given:
+        def cache = createCache()
+        (1..20).each { cache.put("key_$it".toString(), "value $it".toString()) }
+        cache.remove("key_4")
+        cache.close()
+
+        when:
+        indexFile.text = "not an index"
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_4") == null
+        cache.get("key_20") == "value 20"
+
+        when:
+        cache.close()
+        indexFile.delete()
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_4") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards incompletely written records when log is truncated"() {
+        given:
+        def cache = createCache()
+        cache.put("key_1", "value 1")
+        cache.put("key_2", "value 2")
+        cache.close()
+        cache = createCache()
+        cache.put("key_2", "replaced")
+        cache.put("key_3", "value 3")
+        // Simulate a crash, where the cache is not closed and the last record is only partially written
+
+        when:
+        truncate(lastSegment, 3)
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_2") == "replaced"
+        cache.get("key_3") == null
+
+        when:
+        cache.put("key_3", "value 3")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("key_3") == "value 3"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "rebuilds index when log is truncated below the indexed length"() {
+        given:
+        def cache = createCache()
+        cache.put("key_1", "value 1")
+        cache.put("key_2", "value 2")
+        cache.close()
+
+        when:
+        truncate(lastSegment, 3)
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_2") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards records that fail their checksum"() {
+        given:
+        def cache = createCache()
+        cache.put("key_1", "value 1")
+        cache.put("key_2", "value 2")
+        cache.close()
+        indexFile.delete()
+
+        when:
+        def file = new RandomAccessFile(lastSegment, "rw")
+        file.seek(file.length() - 1)
+        file.write(file.read() ^ 0xff)
+        file.close()
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+        cache.get("key_2") == null
+
+        cleanup:
+        cache.close()
+    }
+
+    def "reclaims space used by replaced entries when closed"() {
+        given:
+        def cache = createCache()
+        (1..10).each { round ->
+            (1..50).each { cache.put("key_$it".toString(), "value $round $it".toString()) }
+        }
+        def sizeBeforeClose = cache.size
+
+        when:
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.size < sizeBeforeClose / 2
+        (1..50).every { cache.get("key_$it".toString()) == "value 10 $it" }
+
+        cleanup:
+        cache.close()
+    }
+
+    def "removed entries are not restored by compaction"() {
+        given:
+        def cache = createCache()
+        (1..50).each { cache.put("key_$it".toString(), "value $it".toString()) }
+        (1..50).each { cache.put("key_$it".toString(), "replaced $it".toString()) }
+        cache.remove("key_1")
+        (2..50).each { cache.put("key_$it".toString(), "again $it".toString()) }
+        cache.close()
+
+        when:
+        indexFile.delete()
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == null
+        cache.get("key_2") == "again 2"
+
+        cleanup:
+        cache.close()
+    }
+
+    def "discards segment files that are not log segments"() {
+        given:
+        cacheDir.file("cache.1.log").text = "junk"
+
+        when:
+        def cache = createCache()
+        cache.put("key_1", "value 1")
+        cache.close()
+        cache = createCache()
+
+        then:
+        cache.get("key_1") == "value 1"
+
+        cleanup:
+        cache.close()
+    }
+
+    private LogStructuredPersistentIndexedCache<String, String> createCache() {
+        def serializer = new DefaultSerializer<String>()
+        return new LogStructuredPersistentIndexedCache<String, String>(cacheDir, "cache", serializer, serializer, 1024, 0.5)
+    }
+
+    private TestFile getIndexFile() {
+        return cacheDir.file("cache.idx")
+    }
+
+    private File getLastSegment() {
+        return cacheDir.listFiles().findAll { it.name.endsWith(".log") }.max { (it.name =~ /\.(\d+)\.log/)[0][1] as int }
+    }
+
+    private static void truncate(File file, int count) {
+        def raf = new RandomAccessFile(file, "rw")
+        raf.setLength(raf.length() - count)
+        raf.close()
+    }
+}
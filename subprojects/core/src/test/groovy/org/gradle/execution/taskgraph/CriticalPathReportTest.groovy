@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import org.gradle.api.internal.TaskInternal
+import spock.lang.Specification
+
+class CriticalPathReportTest extends Specification {
+
+    TaskInfo a = taskInfo("a")
+    TaskInfo b = taskInfo("b")
+    TaskInfo c = taskInfo("c")
+    TaskInfo d = taskInfo("d")
+
+    def setup() {
+        // c waits on a and b, d waits on c
+        c.addDependencySuccessor(a)
+        c.addDependencySuccessor(b)
+        d.addDependencySuccessor(c)
+        a.addDependent(c)
+        b.addDependent(c)
+        c.addDependent(d)
+    }
+
+    def "predicted critical path follows the longest remaining estimate"() {
+        given:
+        a.setEstimates(10, 17)
+        b.setEstimates(20, 27)
+        c.setEstimates(5, 7)
+        d.setEstimates(2, 2)
+
+        expect:
+        new CriticalPathReport([a, b, c, d]).predictedCriticalPath == [b, c, d]
+    }
+
+    def "actual critical path walks back from the last task to finish through the dependencies that finished last"() {
+        given:
+        executed(a, 100, 300)
+        executed(b, 100, 200)
+        executed(c, 300, 350)
+        executed(d, 350, 360)
+
+        expect:
+        new CriticalPathReport([a, b, c, d]).actualCriticalPath == [a, c, d]
+    }
+
+    def "tasks that did not execute are not part of the actual critical path"() {
+        given:
+        executed(b, 100, 200)
+        executed(c, 200, 250)
+
+        expect:
+        new CriticalPathReport([a, b, c, d]).actualCriticalPath == [b, c]
+    }
+
+    def "renders predicted and actual critical paths"() {
+        given:
+        a.setEstimates(10, 10)
+        executed(a, 100, 112)
+
+        when:
+        def report = new CriticalPathReport([a]).render()
+
+        then:
+        report.contains("Predicted critical path")
+        report.contains(":a (estimated 0.01 secs)")
+        report.contains("Actual critical path")
+        report.contains(":a (estimated 0.01 secs, took 0.012 secs)")
+    }
+
+    private TaskInfo taskInfo(String name) {
+        def task = Stub(TaskInternal) {
+            getPath() >> ":$name"
+            compareTo(_) >> { TaskInternal other -> ":$name".compareTo(other.path) }
+        }
+        new TaskInfo(task)
+    }
+
+    private static void executed(TaskInfo taskInfo, long start, long end) {
+        taskInfo.executionStartTime = start
+        taskInfo.executionEndTime = end
+    }
+}
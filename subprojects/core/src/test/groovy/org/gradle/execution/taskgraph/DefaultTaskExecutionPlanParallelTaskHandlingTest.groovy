@@ -176,6 +176,77 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         requestedTasksBecomeAvailableForExecution()
     }
 
+    def "waiting workers are handed tasks as soon as their dependencies complete"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(a)
+        Task d = root.task("d", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(c, d)
+        startTasks(2)
+
+        then:
+        noMoreTasksCurrentlyAvailableForExecution()
+        noMoreTasksCurrentlyAvailableForExecution()
+
+        when:
+        completeAllStartedTasks()
+
+        then:
+        requestedTasksBecomeAvailableForExecution()
+    }
+
+    def "idle workers wait for running tasks to complete before finishing"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        def nextTasks = [].asSynchronized()
+
+        when:
+        addToGraphAndPopulate(a)
+        startTasks(1)
+
+        then:
+        blockedThreads << blockedThread { nextTasks << executionPlan.getTaskToExecute() }
+
+        when:
+        completeAllStartedTasks()
+        allBlockedThreadsFinish()
+
+        then:
+        nextTasks == [null]
+    }
+
+    def "ready tasks on the longest estimated chain of waiting tasks are started first when ordering by critical path"() {
+        given:
+        executionPlan = new DefaultTaskExecutionPlan(Stub(BuildCancellationToken), true, { 1L } as TaskDurationEstimator)
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(a, c)
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [b]
+    }
+
+    def "ready tasks are started in execution plan order unless ordering by critical path"() {
+        given:
+        Task a = root.task("a", type: Parallel)
+        Task b = root.task("b", type: Parallel)
+        Task c = root.task("c", type: Parallel).dependsOn(b)
+
+        when:
+        addToGraphAndPopulate(a, c)
+        startTasks(1)
+
+        then:
+        startedTasks*.task == [a]
+    }
+
     def "a parallelizable task with custom actions is not run in parallel"() {
         given:
         Task a = root.task("a", type: Parallel)
@@ -239,6 +310,30 @@ class DefaultTaskExecutionPlanParallelTaskHandlingTest extends Specification {
         noMoreTasksCurrentlyAvailableForExecution()
     }
 
+    def "forgets the output paths of a task that is skipped after they were canonicalized"() {
+        given:
+        Task a = taskWithOutputFile("a", file("output"))
+        Task b = taskWithOutputFile("b", file("output"))
+
+        when:
+        addToGraphAndPopulate(a, b)
+        startTasks(1)
+        blockedThreads << blockedThread { assert executionPlan.getTaskToExecute() == null }
+
+        then:
+        executionPlan.hasCanonicalizedOutputPaths(b)
+
+        when:
+        def failed = startedTasks.remove(0)
+        failed.executionFailure = new RuntimeException("broken")
+        executionPlan.taskComplete(failed)
+        allBlockedThreadsFinish()
+
+        then:
+        !executionPlan.hasCanonicalizedOutputPaths(a)
+        !executionPlan.hasCanonicalizedOutputPaths(b)
+    }
+
     @ParallelizableTask
     static class ParallelWithOutputDirectory extends DefaultTask {
         @OutputDirectory
@@ -41,7 +41,7 @@ class DefaultTaskGraphExecuterSpec extends Specification {
     def project = ProjectBuilder.builder().build()
     def listenerManager = new DefaultListenerManager()
     def executer = Mock(TaskExecuter)
-    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor))
+    def taskExecuter = new DefaultTaskGraphExecuter(listenerManager, new DefaultTaskPlanExecutor(), Factories.constant(executer), cancellationToken, Stub(TimeProvider), Stub(BuildOperationExecutor), Stub(TaskDurationEstimator))
 
     def "notifies task listener as tasks are executed"() {
         def listener = Mock(TaskExecutionListener)
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.taskgraph
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class OutputPathTrieTest extends Specification {
+    def trie = new OutputPathTrie<String>('/' as char)
+
+    def "empty trie has no overlaps"() {
+        expect:
+        trie.empty
+        trie.findOverlap("/a/b") == null
+    }
+
+    @Unroll
+    def "finds overlap of #path with #existing"() {
+        given:
+        trie.add(existing, "task")
+
+        when:
+        def overlap = trie.findOverlap(path)
+
+        then:
+        overlap.left == "task"
+        overlap.right == shorter
+
+        where:
+        existing  | path      | shorter
+        "/a/b"    | "/a/b"    | "/a/b"
+        "/a/b"    | "/a/b/c"  | "/a/b"
+        "/a/b/c"  | "/a/b"    | "/a/b"
+        "/a/b/c"  | "/a"      | "/a"
+        "/"       | "/a/b"    | "/"
+    }
+
+    @Unroll
+    def "does not find overlap of #path with #existing"() {
+        given:
+        trie.add(existing, "task")
+
+        expect:
+        trie.findOverlap(path) == null
+
+        where:
+        existing  | path
+        "/a/b"    | "/a/c"
+        "/a/b"    | "/a/bc"
+        "/a/bc"   | "/a/b"
+        "/a/b/c"  | "/a/b/d/e"
+    }
+
+    def "removed paths no longer overlap"() {
+        given:
+        trie.add("/a/b", "one")
+        trie.add("/a/b/c", "two")
+        trie.add("/a/d", "three")
+
+        when:
+        trie.remove("/a/b", "one")
+
+        then:
+        trie.findOverlap("/a/b/c/d").left == "two"
+        trie.findOverlap("/a/b/e") == null
+        trie.findOverlap("/a").left in ["two", "three"]
+
+        when:
+        trie.remove("/a/b/c", "two")
+        trie.remove("/a/d", "three")
+
+        then:
+        trie.empty
+        trie.findOverlap("/a") == null
+    }
+
+    def "keeps path that is declared by more than one owner until all owners are removed"() {
+        given:
+        trie.add("/a/b", "one")
+        trie.add("/a/b", "two")
+
+        when:
+        trie.remove("/a/b", "one")
+
+        then:
+        trie.findOverlap("/a/b").left == "two"
+
+        when:
+        trie.remove("/a/b", "two")
+
+        then:
+        trie.empty
+    }
+
+    def "ignores removal of unknown paths"() {
+        given:
+        trie.add("/a/b", "one")
+
+        when:
+        trie.remove("/a/b/c", "one")
+        trie.remove("/a/b", "two")
+
+        then:
+        trie.findOverlap("/a/b").left == "one"
+    }
+}
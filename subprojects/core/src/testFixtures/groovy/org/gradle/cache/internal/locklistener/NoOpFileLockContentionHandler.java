@@ -28,4 +28,11 @@ public class NoOpFileLockContentionHandler implements FileLockContentionHandler
 
     public void pingOwner(int port, long lockId, String displayName) {
     }
+
+    public void waitForRelease(long lockId, long timeoutMs) throws InterruptedException {
+        Thread.sleep(timeoutMs);
+    }
+
+    public void lockReleased(long lockId) {
+    }
 }
@@ -30,6 +30,7 @@ import org.gradle.api.internal.artifacts.dsl.dependencies.ProjectFinder;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ResolveIvyFactory;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.GradlePomModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.ConfigurationComponentMetaDataBuilder;
@@ -79,7 +80,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
         BaseRepositoryFactory createBaseRepositoryFactory(LocalMavenRepositoryLocator localMavenRepositoryLocator, Instantiator instantiator, FileResolver fileResolver,
                                                           RepositoryTransportFactory repositoryTransportFactory, LocallyAvailableResourceFinder<ModuleComponentArtifactMetaData> locallyAvailableResourceFinder,
                                                           ResolverStrategy resolverStrategy, ArtifactIdentifierFileStore artifactIdentifierFileStore,
-                                                          VersionSelectorScheme versionSelectorScheme,
+                                                          VersionSelectorScheme versionSelectorScheme, ParsedPomCache parsedPomCache,
                                                           AuthenticationSchemeRegistry authenticationSchemeRegistry) {
             return new DefaultBaseRepositoryFactory(
                     localMavenRepositoryLocator,
@@ -89,7 +90,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                     locallyAvailableResourceFinder,
                     resolverStrategy,
                     artifactIdentifierFileStore,
-                    new GradlePomModuleDescriptorParser(versionSelectorScheme),
+                    new GradlePomModuleDescriptorParser(versionSelectorScheme, parsedPomCache),
                     authenticationSchemeRegistry
             );
         }
@@ -145,6 +146,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                                        GlobalDependencyResolutionRules metadataHandler,
                                                        ComponentIdentifierFactory componentIdentifierFactory,
                                                        CacheLockingManager cacheLockingManager,
+                                                       ArtifactFilePrefetcher artifactFilePrefetcher,
                                                        ResolutionResultsStoreFactory resolutionResultsStoreFactory,
                                                        StartParameter startParameter) {
             return new ErrorHandlingConfigurationResolver(
@@ -155,6 +157,7 @@ public class DefaultDependencyManagementServices implements DependencyManagement
                                             repositories,
                                             metadataHandler,
                                             cacheLockingManager,
+                                            artifactFilePrefetcher,
                                             resolutionResultsStoreFactory,
                                             startParameter.isBuildProjectDependencies())),
                             componentIdentifierFactory)
@@ -15,9 +15,11 @@
  */
 package org.gradle.api.internal.artifacts;
 
+import org.gradle.api.Nullable;
 import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.ResolvedModuleVersion;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactFileSource;
 import org.gradle.internal.Factory;
 import org.gradle.internal.component.model.IvyArtifactName;
 
@@ -85,11 +87,35 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return artifact.getClassifier();
     }
 
-    public File getFile() {
+    public synchronized File getFile() {
         if (file == null) {
             file = artifactSource.create();
             artifactSource = null;
         }
         return file;
     }
+
+    /**
+     * Resolves the file of this artifact when it can be located without remote requests.
+     *
+     * @return true when the file of this artifact is known.
+     */
+    public synchronized boolean resolveLocally() {
+        if (file == null && artifactSource instanceof ArtifactFileSource) {
+            File localFile = ((ArtifactFileSource) artifactSource).createLocally();
+            if (localFile != null) {
+                file = localFile;
+                artifactSource = null;
+            }
+        }
+        return file != null;
+    }
+
+    /**
+     * Returns the id of the repository the file of this artifact is resolved from, when known.
+     */
+    @Nullable
+    public synchronized String getRepositoryId() {
+        return artifactSource instanceof ArtifactFileSource ? ((ArtifactFileSource) artifactSource).getRepositoryId() : null;
+    }
 }
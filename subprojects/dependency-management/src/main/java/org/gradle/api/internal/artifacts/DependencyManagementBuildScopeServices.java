@@ -24,9 +24,12 @@ import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.ModuleVersio
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.SingleFileBackedModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.*;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryCachedRepositoryFactory;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryModuleDescriptorCache;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.ParsedPomCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.*;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.DefaultModuleMetaDataCache;
+import org.gradle.api.internal.artifacts.ivyservice.modulecache.MissingModuleIndex;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleArtifactsCache;
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.ModuleMetaDataCache;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.ConfigurationComponentMetaDataBuilder;
@@ -36,6 +39,7 @@ import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProject
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectDependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectPublicationRegistry;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.DefaultArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.store.ResolutionResultsStoreFactory;
 import org.gradle.api.internal.artifacts.mvnsettings.*;
 import org.gradle.api.internal.artifacts.repositories.transport.RepositoryTransportFactory;
@@ -51,6 +55,7 @@ import org.gradle.api.internal.project.ProjectRegistry;
 import org.gradle.cache.CacheRepository;
 import org.gradle.initialization.ProjectAccessListener;
 import org.gradle.internal.component.external.model.ModuleComponentArtifactMetaData;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.reflect.Instantiator;
 import org.gradle.internal.resource.cached.ByUrlCachedExternalResourceIndex;
 import org.gradle.internal.resource.cached.ivy.ArtifactAtRepositoryCachedArtifactIndex;
@@ -112,11 +117,18 @@ class DependencyManagementBuildScopeServices {
         );
     }
 
-    ModuleMetaDataCache createModuleDescriptorCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy) {
+    MissingModuleIndex createMissingModuleIndex(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider) {
+        return new MissingModuleIndex(cacheLockingManager, timeProvider);
+    }
+
+    ModuleMetaDataCache createModuleDescriptorCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy,
+                                                    InMemoryModuleDescriptorCache inMemoryModuleDescriptorCache, MissingModuleIndex missingModuleIndex) {
         return new DefaultModuleMetaDataCache(
             timeProvider,
             cacheLockingManager,
-            resolverStrategy
+            resolverStrategy,
+            inMemoryModuleDescriptorCache,
+            missingModuleIndex
         );
     }
 
@@ -156,6 +168,10 @@ class DependencyManagementBuildScopeServices {
         return finderFactory.create();
     }
 
+    ParsedPomCache createParsedPomCache() {
+        return new ParsedPomCache();
+    }
+
     ResolverStrategy createResolverStrategy() {
         return new ResolverStrategy();
     }
@@ -202,11 +218,20 @@ class DependencyManagementBuildScopeServices {
             versionComparator);
     }
 
+    ComponentMetaDataPrefetcher createComponentMetaDataPrefetcher(CacheLockingManager cacheLockingManager, IvyContextManager ivyContextManager, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new ParallelComponentMetaDataPrefetcher(cacheLockingManager, ivyContextManager, executorFactory, startParameter.getMaxWorkerCount());
+    }
+
+    ArtifactFilePrefetcher createArtifactFilePrefetcher(CacheLockingManager cacheLockingManager, ProgressLoggerFactory progressLoggerFactory, ExecutorFactory executorFactory, StartParameter startParameter) {
+        return new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, startParameter.getMaxWorkerCount());
+    }
+
     ArtifactDependencyResolver createArtifactDependencyResolver(ResolveIvyFactory resolveIvyFactory,
                                                                 DependencyDescriptorFactory dependencyDescriptorFactory,
                                                                 CacheLockingManager cacheLockingManager,
                                                                 IvyContextManager ivyContextManager,
                                                                 VersionComparator versionComparator,
+                                                                ComponentMetaDataPrefetcher componentMetaDataPrefetcher,
                                                                 ServiceRegistry serviceRegistry) {
         DefaultArtifactDependencyResolver resolver = new DefaultArtifactDependencyResolver(
             serviceRegistry,
@@ -214,7 +239,8 @@ class DependencyManagementBuildScopeServices {
             dependencyDescriptorFactory,
             cacheLockingManager,
             ivyContextManager,
-            versionComparator
+            versionComparator,
+            componentMetaDataPrefetcher
         );
         return new CacheLockingArtifactDependencyResolver(cacheLockingManager, resolver);
     }
@@ -20,6 +20,7 @@ import org.gradle.api.internal.artifacts.component.ComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.component.DefaultComponentIdentifierFactory;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultIvyContextManager;
 import org.gradle.api.internal.artifacts.ivyservice.IvyContextManager;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryModuleDescriptorCache;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.*;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.*;
 import org.gradle.internal.resource.connector.ResourceConnectorFactory;
@@ -61,4 +62,8 @@ class DependencyManagementGlobalScopeServices {
     ResourceConnectorFactory createFileConnectorFactory() {
         return new FileConnectorFactory();
     }
+
+    InMemoryModuleDescriptorCache createInMemoryModuleDescriptorCache() {
+        return new InMemoryModuleDescriptorCache();
+    }
 }
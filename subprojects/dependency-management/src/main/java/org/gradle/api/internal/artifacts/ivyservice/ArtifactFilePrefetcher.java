@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+
+import java.util.Collection;
+
+/**
+ * Resolves the files of artifacts ahead of a caller that needs all of them.
+ */
+public interface ArtifactFilePrefetcher {
+    /**
+     * Resolves the files of the given artifacts, possibly at the same time on other threads, and waits for all of them to complete.
+     * An artifact that fails is simply skipped, and the caller reports the failure when it asks the artifact for its file.
+     */
+    void prefetch(String displayName, Collection<? extends ResolvedArtifact> artifacts);
+}
@@ -22,7 +22,7 @@ import java.io.File;
 public enum CacheLayout {
     ROOT(null, "modules", 2),
     FILE_STORE(ROOT, "files", 1),
-    META_DATA(ROOT, "metadata", 16);
+    META_DATA(ROOT, "metadata", 17);
 
     // If you update the META_DATA version, also update DefaultGradleDistribution.getArtifactCacheLayoutVersion() (which is the historical record)
     // If you update FILE_STORE, you may also need to update LocallyAvailableResourceFinderFactory
@@ -49,6 +49,20 @@ public enum CacheLayout {
         return key.toString();
     }
 
+    /**
+     * Returns the key used by the version of this layout that preceded the current one.
+     */
+    public String getPreviousKey() {
+        StringBuilder key = new StringBuilder();
+        key.append(name);
+        key.append("-");
+        if (parent != null) {
+            key.append(parent.getFormattedVersion()).append('.');
+        }
+        key.append(version - 1);
+        return key.toString();
+    }
+
     public String getFormattedVersion() {
         if (parent == null) {
             return String.valueOf(version);
@@ -16,6 +16,7 @@
 package org.gradle.api.internal.artifacts.ivyservice;
 
 import net.jcip.annotations.ThreadSafe;
+import org.gradle.api.Nullable;
 import org.gradle.cache.CacheAccess;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.serialize.Serializer;
@@ -37,6 +38,15 @@ public interface CacheLockingManager extends ArtifactCacheMetaData, CacheAccess
      */
     <K, V> PersistentIndexedCache<K, V> createCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer);
 
+    /**
+     * Opens a cache that was written by the previous meta-data layout, for reading entries that have not yet been copied to the current layout.
+     * The same usage restrictions apply as for {@link #createCache(String, Serializer, Serializer)}.
+     *
+     * @return the cache, or null when the previous layout has no such cache.
+     */
+    @Nullable
+    <K, V> PersistentIndexedCache<K, V> createPreviousMetaDataCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer);
+
     /**
      * Returns the root directory for the file store.
      *
@@ -50,4 +60,11 @@ public interface CacheLockingManager extends ArtifactCacheMetaData, CacheAccess
      * @return Metadata store location
      */
     File createMetaDataStore();
+
+    /**
+     * Returns the root directory for the meta-data file store of the previous layout. The directory may not exist, and must not be written to.
+     *
+     * @return Previous metadata store location
+     */
+    File getPreviousMetaDataStore();
 }
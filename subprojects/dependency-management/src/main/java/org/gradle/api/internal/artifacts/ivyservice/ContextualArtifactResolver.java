@@ -63,6 +63,14 @@ public class ContextualArtifactResolver implements ArtifactResolver {
         });
     }
 
+    public void resolveArtifactLocally(final ComponentArtifactMetaData artifact, final ModuleSource moduleSource, final BuildableArtifactResolveResult result) {
+        executeInContext("Resolve local ".concat(artifact.toString()), new Action<Ivy>() {
+            public void execute(Ivy ivy) {
+                delegate.resolveArtifactLocally(artifact, moduleSource, result);
+            }
+        });
+    }
+
     private void executeInContext(String description, final Action<Ivy> action) {
         lockingManager.useCache(description, new Runnable() {
             public void run() {
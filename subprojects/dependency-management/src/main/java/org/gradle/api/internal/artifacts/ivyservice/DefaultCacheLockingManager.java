@@ -73,6 +73,14 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
         return cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInMetaDataStore, keySerializer, valueSerializer));
     }
 
+    public <K, V> PersistentIndexedCache<K, V> createPreviousMetaDataCache(String cacheName, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        String cacheFileInPreviousMetaDataStore = CacheLayout.META_DATA.getPreviousKey() + "/" + cacheName;
+        if (!new File(cache.getBaseDir(), cacheFileInPreviousMetaDataStore + ".bin").isFile()) {
+            return null;
+        }
+        return cache.createCache(new PersistentIndexedCacheParameters<K, V>(cacheFileInPreviousMetaDataStore, keySerializer, valueSerializer));
+    }
+
     public File getFileStoreDirectory() {
         return createCacheRelativeDir(CacheLayout.FILE_STORE);
     }
@@ -81,6 +89,10 @@ public class DefaultCacheLockingManager implements CacheLockingManager, Closeabl
         return new File(createCacheRelativeDir(CacheLayout.META_DATA), "descriptors");
     }
 
+    public File getPreviousMetaDataStore() {
+        return new File(new File(cache.getBaseDir(), CacheLayout.META_DATA.getPreviousKey()), "descriptors");
+    }
+
     private File createCacheRelativeDir(CacheLayout cacheLayout) {
         return cacheLayout.getPath(cache.getBaseDir());
     }
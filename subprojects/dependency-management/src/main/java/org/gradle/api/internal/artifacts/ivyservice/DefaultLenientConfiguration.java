@@ -31,15 +31,17 @@ import java.util.*;
 
 public class DefaultLenientConfiguration implements LenientConfiguration {
     private CacheLockingManager cacheLockingManager;
+    private final ArtifactFilePrefetcher artifactFilePrefetcher;
     private final Configuration configuration;
     private final Set<UnresolvedDependency> unresolvedDependencies;
     private final ResolvedArtifacts artifactResults;
     private final Factory<TransientConfigurationResults> transientConfigurationResultsFactory;
 
-    public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, Set<UnresolvedDependency> unresolvedDependencies,
+    public DefaultLenientConfiguration(Configuration configuration, CacheLockingManager cacheLockingManager, ArtifactFilePrefetcher artifactFilePrefetcher, Set<UnresolvedDependency> unresolvedDependencies,
                                        ResolvedArtifacts artifactResults, Factory<TransientConfigurationResults> transientConfigurationResultsLoader) {
         this.configuration = configuration;
         this.cacheLockingManager = cacheLockingManager;
+        this.artifactFilePrefetcher = artifactFilePrefetcher;
         this.unresolvedDependencies = unresolvedDependencies;
         this.artifactResults = artifactResults;
         this.transientConfigurationResultsFactory = transientConfigurationResultsLoader;
@@ -98,6 +100,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
      */
     public Set<ResolvedArtifact> getArtifacts(Spec<? super Dependency> dependencySpec) {
         final Set<ResolvedArtifact> allArtifacts = getAllArtifacts(dependencySpec);
+        artifactFilePrefetcher.prefetch(configuration.toString(), allArtifacts);
         return cacheLockingManager.useCache("retrieve artifacts from " + configuration, new Factory<Set<ResolvedArtifact>>() {
             public Set<ResolvedArtifact> create() {
                 return CollectionUtils.filter(allArtifacts, new Spec<ResolvedArtifact>() {
@@ -116,6 +119,7 @@ public class DefaultLenientConfiguration implements LenientConfiguration {
 
     private Set<File> getFiles(final Set<ResolvedArtifact> artifacts) {
         final Set<File> files = new LinkedHashSet<File>();
+        artifactFilePrefetcher.prefetch(configuration.toString(), artifacts);
         cacheLockingManager.useCache("resolve files from " + configuration, new Runnable() {
             public void run() {
                 for (ResolvedArtifact artifact : artifacts) {
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+import org.gradle.internal.operations.DefaultBuildOperationProcessor;
+import org.gradle.internal.operations.MultipleBuildOperationFailures;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves artifact files on a bounded pool of threads. The files that are already in the cache are located first on the calling thread,
+ * holding the cache lock once for all of them. The calling thread then gives up the cache lock while it waits for the remaining artifacts.
+ * Each of these takes the cache lock when it resolves its file, and the repositories release the lock while they download, so the downloads
+ * run at the same time. The downloads are interleaved by repository, so that the threads spread over the repositories rather than queuing
+ * behind the connection limit of one host. The HTTP transport shares a pool of keep-alive connections between the threads and limits the
+ * number of connections to each host.
+ */
+public class ParallelArtifactFilePrefetcher implements ArtifactFilePrefetcher, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactFilePrefetcher.class);
+    private final CacheLockingManager lockingManager;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final DefaultBuildOperationProcessor buildOperationProcessor;
+    private final int maxParallelDownloads;
+
+    public ParallelArtifactFilePrefetcher(CacheLockingManager lockingManager, ProgressLoggerFactory progressLoggerFactory, ExecutorFactory executorFactory, int maxParallelDownloads) {
+        this.lockingManager = lockingManager;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.maxParallelDownloads = maxParallelDownloads;
+        this.buildOperationProcessor = maxParallelDownloads > 1 ? new DefaultBuildOperationProcessor(executorFactory, maxParallelDownloads) : null;
+    }
+
+    public void prefetch(final String displayName, Collection<? extends ResolvedArtifact> artifacts) {
+        if (buildOperationProcessor == null || artifacts.size() < 2) {
+            return;
+        }
+        final List<ResolvedArtifact> missing = locateCachedFiles(displayName, artifacts);
+        if (missing.size() < 2) {
+            return;
+        }
+        lockingManager.longRunningOperation(String.format("Resolve %s artifact files for %s", missing.size(), displayName), new Runnable() {
+            public void run() {
+                ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactFilePrefetcher.class);
+                progressLogger.start("Resolve files of " + displayName, "Resolve files");
+                BuildOperationQueue<Download> queue = buildOperationProcessor.newQueue(new DownloadWorker(progressLogger, missing.size()), null);
+                for (ResolvedArtifact artifact : missing) {
+                    queue.add(new Download(artifact));
+                }
+                try {
+                    queue.waitForCompletion();
+                } catch (MultipleBuildOperationFailures e) {
+                    // The caller resolves the failed artifacts again and reports any problem itself
+                    LOGGER.debug("Could not prefetch artifact files.", e);
+                } finally {
+                    progressLogger.completed();
+                }
+            }
+        });
+    }
+
+    /**
+     * Locates the files that do not need remote requests, and returns the remaining artifacts interleaved by repository.
+     */
+    List<ResolvedArtifact> locateCachedFiles(String displayName, final Collection<? extends ResolvedArtifact> artifacts) {
+        return lockingManager.useCache("Locate cached artifact files for " + displayName, new Factory<List<ResolvedArtifact>>() {
+            public List<ResolvedArtifact> create() {
+                Map<String, List<ResolvedArtifact>> grouped = new LinkedHashMap<String, List<ResolvedArtifact>>();
+                int count = 0;
+                for (ResolvedArtifact artifact : artifacts) {
+                    String repositoryId = null;
+                    if (artifact instanceof DefaultResolvedArtifact) {
+                        DefaultResolvedArtifact defaultArtifact = (DefaultResolvedArtifact) artifact;
+                        if (defaultArtifact.resolveLocally()) {
+                            continue;
+                        }
+                        repositoryId = defaultArtifact.getRepositoryId();
+                    }
+                    List<ResolvedArtifact> group = grouped.get(repositoryId);
+                    if (group == null) {
+                        group = new ArrayList<ResolvedArtifact>();
+                        grouped.put(repositoryId, group);
+                    }
+                    group.add(artifact);
+                    count++;
+                }
+                List<ResolvedArtifact> missing = new ArrayList<ResolvedArtifact>(count);
+                for (int i = 0; missing.size() < count; i++) {
+                    for (List<ResolvedArtifact> group : grouped.values()) {
+                        if (i < group.size()) {
+                            missing.add(group.get(i));
+                        }
+                    }
+                }
+                return missing;
+            }
+        });
+    }
+
+    public void stop() {
+        if (buildOperationProcessor != null) {
+            buildOperationProcessor.stop();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("artifact file prefetcher (%s threads)", maxParallelDownloads);
+    }
+
+    private static class Download implements BuildOperation {
+        private final ResolvedArtifact artifact;
+
+        private Download(ResolvedArtifact artifact) {
+            this.artifact = artifact;
+        }
+
+        public String getDescription() {
+            return artifact.toString();
+        }
+    }
+
+    private static class DownloadWorker implements BuildOperationWorker<Download> {
+        private final ProgressLogger progressLogger;
+        private final int total;
+        private int completed;
+
+        private DownloadWorker(ProgressLogger progressLogger, int total) {
+            this.progressLogger = progressLogger;
+            this.total = total;
+        }
+
+        public String getDisplayName() {
+            return "artifact file download";
+        }
+
+        public void execute(Download download) {
+            try {
+                download.artifact.getFile();
+            } finally {
+                synchronized (this) {
+                    completed++;
+                    progressLogger.progress(String.format("%s/%s files", completed, total));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.gradle.api.Action;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationWorker;
+import org.gradle.internal.operations.DefaultBuildOperationProcessor;
+import org.gradle.internal.operations.MultipleBuildOperationFailures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * Fetches component meta-data on a bounded pool of threads. The calling thread gives up the cache lock while it waits, and each fetch
+ * takes the cache lock and sets up an Ivy context, as the resolution on the calling thread would. The repositories release the
+ * cache lock while they talk to the network, so the downloads run at the same time.
+ */
+public class ParallelComponentMetaDataPrefetcher implements ComponentMetaDataPrefetcher, Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelComponentMetaDataPrefetcher.class);
+    private final CacheLockingManager lockingManager;
+    private final IvyContextManager ivyContextManager;
+    private final DefaultBuildOperationProcessor buildOperationProcessor;
+    private final int maxParallelFetches;
+
+    public ParallelComponentMetaDataPrefetcher(CacheLockingManager lockingManager, IvyContextManager ivyContextManager, ExecutorFactory executorFactory, int maxParallelFetches) {
+        this.lockingManager = lockingManager;
+        this.ivyContextManager = ivyContextManager;
+        this.maxParallelFetches = maxParallelFetches;
+        this.buildOperationProcessor = maxParallelFetches > 1 ? new DefaultBuildOperationProcessor(executorFactory, maxParallelFetches) : null;
+    }
+
+    public void prefetch(final Collection<? extends Runnable> fetches) {
+        if (buildOperationProcessor == null || fetches.size() < 2) {
+            return;
+        }
+        lockingManager.longRunningOperation(String.format("Fetch meta-data for %s components", fetches.size()), new Runnable() {
+            public void run() {
+                BuildOperationQueue<Fetch> queue = buildOperationProcessor.newQueue(new FetchWorker(), null);
+                for (Runnable fetch : fetches) {
+                    queue.add(new Fetch(fetch));
+                }
+                try {
+                    queue.waitForCompletion();
+                } catch (MultipleBuildOperationFailures e) {
+                    // The traversal fetches the missing meta-data again and reports any problem itself
+                    LOGGER.debug("Could not prefetch component meta-data.", e);
+                }
+            }
+        });
+    }
+
+    public void stop() {
+        if (buildOperationProcessor != null) {
+            buildOperationProcessor.stop();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("meta-data prefetcher (%s threads)", maxParallelFetches);
+    }
+
+    private static class Fetch implements BuildOperation {
+        private final Runnable action;
+
+        private Fetch(Runnable action) {
+            this.action = action;
+        }
+
+        public String getDescription() {
+            return action.toString();
+        }
+    }
+
+    private class FetchWorker implements BuildOperationWorker<Fetch> {
+        public String getDisplayName() {
+            return "component meta-data fetch";
+        }
+
+        public void execute(final Fetch fetch) {
+            lockingManager.useCache(fetch.getDescription(), new Runnable() {
+                public void run() {
+                    ivyContextManager.withIvy(new Action<Ivy>() {
+                        public void execute(Ivy ivy) {
+                            fetch.action.run();
+                        }
+                    });
+                }
+            });
+        }
+    }
+}
@@ -55,4 +55,12 @@ public class ErrorHandlingArtifactResolver implements ArtifactResolver {
             result.failed(new ArtifactResolveException(artifact.getId(), t));
         }
     }
+
+    public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        try {
+            resolver.resolveArtifactLocally(artifact, moduleSource, result);
+        } catch (Throwable t) {
+            result.failed(new ArtifactResolveException(artifact.getId(), t));
+        }
+    }
 }
@@ -63,4 +63,8 @@ public class NoRepositoriesResolver implements ComponentResolvers, DependencyToC
     public void resolveArtifact(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
         throw new UnsupportedOperationException();
     }
+
+    public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        throw new UnsupportedOperationException();
+    }
 }
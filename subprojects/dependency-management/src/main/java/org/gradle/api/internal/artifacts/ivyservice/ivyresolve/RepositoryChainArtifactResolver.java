@@ -66,6 +66,11 @@ class RepositoryChainArtifactResolver implements ArtifactResolver {
         }
     }
 
+    public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        ModuleComponentRepository sourceRepository = findSourceRepository(moduleSource);
+        sourceRepository.getLocalAccess().resolveArtifact(artifact, unpackSource(moduleSource), result);
+    }
+
     private ModuleComponentRepository findSourceRepository(ModuleSource originalSource) {
         ModuleComponentRepository moduleVersionRepository = repositories.get(repositorySource(originalSource).getRepositoryId());
         if (moduleVersionRepository == null) {
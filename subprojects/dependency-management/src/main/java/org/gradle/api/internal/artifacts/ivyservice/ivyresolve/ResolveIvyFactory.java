@@ -186,5 +186,13 @@ public class ResolveIvyFactory {
                 }
             });
         }
+
+        public void resolveArtifactLocally(final ComponentArtifactMetaData artifact, final ModuleSource moduleSource, final BuildableArtifactResolveResult result) {
+            cacheLockingManager.useCache(String.format("Resolve %s", artifact), new Runnable() {
+                public void run() {
+                    delegate.getArtifactResolver().resolveArtifactLocally(artifact, moduleSource, result);
+                }
+            });
+        }
     }
 }
@@ -16,14 +16,20 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 class InMemoryCacheStats {
     int cacheInstances;
     int reposWrapped;
     int metadataServed;
     int artifactsServed;
+    // Updated by concurrent builds when the stats belong to the daemon wide descriptor cache
+    final AtomicInteger descriptorsServed = new AtomicInteger();
+    final AtomicInteger descriptorsParsed = new AtomicInteger();
+
     public String toString() {
         return String.format(
-                "Repos cached: %s, cache instances: %s, modules served from cache: %s, artifacts: %s",
-                reposWrapped, cacheInstances, metadataServed, artifactsServed);
+                "Repos cached: %s, cache instances: %s, modules served from cache: %s, artifacts: %s, module descriptors served from cache: %s of %s",
+                reposWrapped, cacheInstances, metadataServed, artifactsServed, descriptorsServed.get(), descriptorsServed.get() + descriptorsParsed.get());
     }
 }
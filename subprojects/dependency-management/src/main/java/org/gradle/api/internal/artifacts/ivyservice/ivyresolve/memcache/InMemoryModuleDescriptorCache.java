@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.internal.Factory;
+import org.gradle.internal.concurrent.Stoppable;
+
+import java.math.BigInteger;
+
+/**
+ * Caches the module descriptors parsed from the meta-data file store, for the lifetime of the process. This avoids parsing the same
+ * descriptors again in each build run by a daemon.
+ *
+ * <p>Entries are keyed by the hash of the descriptor file, so a descriptor that is rewritten in the file store is parsed again. The cached descriptors are
+ * shared between concurrent builds, and must not be mutated.
+ */
+public class InMemoryModuleDescriptorCache implements Stoppable {
+    public final static String SIZE_PROPERTY = "org.gradle.resolution.descriptorCacheSize";
+    private final static Logger LOG = Logging.getLogger(InMemoryModuleDescriptorCache.class);
+
+    final InMemoryCacheStats stats = new InMemoryCacheStats();
+    private final Cache<DescriptorKey, ModuleDescriptor> descriptors;
+    private final boolean enabled;
+
+    public InMemoryModuleDescriptorCache() {
+        this(Integer.getInteger(SIZE_PROPERTY, 5000), !"false".equalsIgnoreCase(System.getProperty(InMemoryCachedRepositoryFactory.TOGGLE_PROPERTY)));
+    }
+
+    InMemoryModuleDescriptorCache(int maxSize, boolean enabled) {
+        this.descriptors = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+        this.enabled = enabled && maxSize > 0;
+    }
+
+    /**
+     * Returns the descriptor for the given component from the given repository, using the given factory to parse the descriptor when it is not cached.
+     */
+    @Nullable
+    public ModuleDescriptor getModuleDescriptor(String repositoryId, ModuleComponentIdentifier componentId, BigInteger descriptorHash, Factory<ModuleDescriptor> parser) {
+        if (!enabled || descriptorHash == null) {
+            return parser.create();
+        }
+        DescriptorKey key = new DescriptorKey(repositoryId, componentId, descriptorHash);
+        ModuleDescriptor descriptor = descriptors.getIfPresent(key);
+        if (descriptor != null) {
+            stats.descriptorsServed.incrementAndGet();
+            return descriptor;
+        }
+        descriptor = parser.create();
+        stats.descriptorsParsed.incrementAndGet();
+        if (descriptor != null) {
+            descriptors.put(key, descriptor);
+        }
+        return descriptor;
+    }
+
+    public void stop() {
+        descriptors.invalidateAll();
+        LOG.debug("In-memory module descriptor cache closed. {}", stats);
+    }
+
+    private static class DescriptorKey {
+        private final String repositoryId;
+        private final ModuleComponentIdentifier componentId;
+        private final BigInteger descriptorHash;
+
+        private DescriptorKey(String repositoryId, ModuleComponentIdentifier componentId, BigInteger descriptorHash) {
+            this.repositoryId = repositoryId;
+            this.componentId = componentId;
+            this.descriptorHash = descriptorHash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || !(o instanceof DescriptorKey)) {
+                return false;
+            }
+            DescriptorKey other = (DescriptorKey) o;
+            return repositoryId.equals(other.repositoryId) && componentId.equals(other.componentId) && descriptorHash.equals(other.descriptorHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return repositoryId.hashCode() ^ componentId.hashCode() ^ descriptorHash.hashCode();
+        }
+    }
+}
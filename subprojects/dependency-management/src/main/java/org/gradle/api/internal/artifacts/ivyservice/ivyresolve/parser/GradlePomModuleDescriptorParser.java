@@ -48,9 +48,11 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     private static final String DEPENDENCY_IMPORT_SCOPE = "import";
     private final VersionSelectorScheme gradleVersionSelectorScheme;
     private final VersionSelectorScheme mavenVersionSelectorScheme;
+    private final ParsedPomCache parsedPoms;
 
-    public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme) {
+    public GradlePomModuleDescriptorParser(VersionSelectorScheme gradleVersionSelectorScheme, ParsedPomCache parsedPoms) {
         this.gradleVersionSelectorScheme = gradleVersionSelectorScheme;
+        this.parsedPoms = parsedPoms;
         mavenVersionSelectorScheme = new MavenVersionSelectorScheme(gradleVersionSelectorScheme);
     }
 
@@ -199,7 +201,7 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
     }
 
     /**
-     * Parses other POM.
+     * Parses other POM. The resolved POM is reused for other POMs that refer to the same coordinates and POM file.
      *
      * @param parseContext Parse context
      * @param parentId Parent module revision ID
@@ -209,9 +211,17 @@ public final class GradlePomModuleDescriptorParser extends AbstractModuleDescrip
      */
     private PomReader parseOtherPom(DescriptorParseContext parseContext, ModuleComponentIdentifier parentId) throws IOException, SAXException {
         LocallyAvailableExternalResource localResource = parseContext.getMetaDataArtifact(parentId, ArtifactType.MAVEN_POM);
-        PomReader pomReader = new PomReader(localResource);
+        PomReader pomReader = parsedPoms.get(parentId, localResource.getLocalResource());
+        if (pomReader != null) {
+            return pomReader;
+        }
+        pomReader = new PomReader(localResource);
         GradlePomModuleDescriptorBuilder mdBuilder = new GradlePomModuleDescriptorBuilder(pomReader, gradleVersionSelectorScheme, mavenVersionSelectorScheme);
         doParsePom(parseContext, mdBuilder, pomReader);
+        // Resolve the lazily calculated state, so that the reader is not mutated once it is shared
+        pomReader.getDependencies();
+        pomReader.getDependencyMgt();
+        parsedPoms.put(parentId, localResource.getLocalResource(), pomReader);
         return pomReader;
     }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.resource.local.LocallyAvailableResource;
+
+/**
+ * Holds the parent and imported POMs parsed during the build. These POMs, such as large BOMs, are shared by the modules that all projects
+ * depend on, so each is parsed once per build. Entries are keyed by the coordinates and SHA1 of the POM, and are released when memory is low.
+ */
+public class ParsedPomCache implements Stoppable {
+    private static final int MAX_CACHED_POMS = 500;
+    private final Cache<String, PomReader> poms = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_POMS).softValues().build();
+
+    @Nullable
+    PomReader get(ModuleComponentIdentifier id, LocallyAvailableResource resource) {
+        return poms.getIfPresent(key(id, resource));
+    }
+
+    void put(ModuleComponentIdentifier id, LocallyAvailableResource resource, PomReader pomReader) {
+        poms.put(key(id, resource), pomReader);
+    }
+
+    private static String key(ModuleComponentIdentifier id, LocallyAvailableResource resource) {
+        return id.getDisplayName() + "|" + resource.getSha1().asHexString();
+    }
+
+    public void stop() {
+        poms.invalidateAll();
+    }
+}
@@ -16,39 +16,92 @@
 
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.io.*;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * Reads a POM into a lightweight tree of {@link PomElement}s using a StAX pull parser. Only element names, element nesting
+ * and the text directly contained by each element are retained, which is all that {@link PomReader} queries.
+ */
 public final class PomDomParser {
-    private PomDomParser() {}
+    private static final String M2_ENTITIES = "m2-entities.ent";
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
 
-    public static String getTextContent(Element element) {
-        StringBuilder result = new StringBuilder();
+    private PomDomParser() {}
 
-        NodeList childNodes = element.getChildNodes();
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Node child = childNodes.item(i);
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_VALIDATING, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, true);
+        factory.setProperty(XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES, true);
+        factory.setXMLResolver(new XMLResolver() {
+            public Object resolveEntity(String publicID, String systemID, String baseURI, String namespace) throws XMLStreamException {
+                if ((systemID != null) && systemID.endsWith(M2_ENTITIES)) {
+                    return org.apache.ivy.plugins.parser.m2.PomReader.class.getResourceAsStream(M2_ENTITIES);
+                }
+                return null;
+            }
+        });
+        return factory;
+    }
 
-            switch (child.getNodeType()) {
-                case Node.CDATA_SECTION_NODE:
-                case Node.TEXT_NODE:
-                    result.append(child.getNodeValue());
-                    break;
-                default:
-                    break;
+    /**
+     * Parses the given POM content and returns its root element. The Maven entities (as defined by {@code m2-entities.ent}) are available to the content.
+     */
+    public static PomElement parse(InputStream stream, String systemId) throws IOException, XMLStreamException {
+        XMLStreamReader reader;
+        synchronized (INPUT_FACTORY) {
+            reader = INPUT_FACTORY.createXMLStreamReader(systemId, new AddDTDFilterInputStream(stream));
+        }
+        try {
+            List<PomElement> stack = new ArrayList<PomElement>();
+            PomElement root = null;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        PomElement element = new PomElement(reader.getLocalName());
+                        if (stack.isEmpty()) {
+                            root = element;
+                        } else {
+                            stack.get(stack.size() - 1).addChild(element);
+                        }
+                        stack.add(element);
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        stack.remove(stack.size() - 1).endElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        if (!stack.isEmpty()) {
+                            stack.get(stack.size() - 1).appendText(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    default:
+                        break;
+                }
             }
+            return root;
+        } finally {
+            reader.close();
         }
+    }
 
-        return result.toString();
+    public static String getTextContent(PomElement element) {
+        return element.getText();
     }
 
-    public static String getFirstChildText(Element parentElem, String name) {
-        Element node = getFirstChildElement(parentElem, name);
+    public static String getFirstChildText(PomElement parentElem, String name) {
+        PomElement node = getFirstChildElement(parentElem, name);
         if (node != null) {
             return getTextContent(node);
         } else {
@@ -56,32 +109,78 @@ public final class PomDomParser {
         }
     }
 
-    public static Element getFirstChildElement(Element parentElem, String name) {
+    public static PomElement getFirstChildElement(PomElement parentElem, String name) {
         if (parentElem == null) {
             return null;
         }
-        NodeList childs = parentElem.getChildNodes();
-        for (int i = 0; i < childs.getLength(); i++) {
-            Node node = childs.item(i);
-            if (node instanceof Element && name.equals(node.getNodeName())) {
-                return (Element) node;
+        for (PomElement child : parentElem.getChildren()) {
+            if (name.equals(child.getName())) {
+                return child;
             }
         }
         return null;
     }
 
-    public static List<Element> getAllChilds(Element parent) {
-        List<Element> r = new LinkedList<Element>();
-        if (parent != null) {
-            NodeList childs = parent.getChildNodes();
-            for (int i = 0; i < childs.getLength(); i++) {
-                Node node = childs.item(i);
-                if (node instanceof Element) {
-                    r.add((Element) node);
-                }
+    public static List<PomElement> getAllChilds(PomElement parent) {
+        if (parent == null) {
+            return Collections.emptyList();
+        }
+        return parent.getChildren();
+    }
+
+    /**
+     * An element of a POM. Holds the element name, the child elements and the concatenated text directly contained by the element.
+     */
+    public static final class PomElement {
+        private final String name;
+        private List<PomElement> children = Collections.emptyList();
+        private StringBuilder textBuilder;
+        private String text = "";
+
+        PomElement(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public List<PomElement> getChildren() {
+            return children;
+        }
+
+        private void addChild(PomElement child) {
+            if (children.isEmpty()) {
+                children = new ArrayList<PomElement>(4);
+            }
+            children.add(child);
+        }
+
+        private void appendText(char[] chars, int start, int length) {
+            if (textBuilder == null) {
+                textBuilder = new StringBuilder(length);
+            }
+            textBuilder.append(chars, start, length);
+        }
+
+        private void endElement() {
+            if (textBuilder != null) {
+                text = textBuilder.toString();
+                textBuilder = null;
+            }
+            if (children instanceof ArrayList) {
+                ((ArrayList<PomElement>) children).trimToSize();
             }
         }
-        return r;
+
+        @Override
+        public String toString() {
+            return name;
+        }
     }
 
     public static final class AddDTDFilterInputStream extends FilterInputStream {
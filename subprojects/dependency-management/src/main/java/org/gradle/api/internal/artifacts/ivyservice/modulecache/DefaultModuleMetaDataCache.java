@@ -18,12 +18,13 @@ package org.gradle.api.internal.artifacts.ivyservice.modulecache;
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
-import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache.InMemoryModuleDescriptorCache;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser;
 import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ComponentIdentifierSerializer;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.Factory;
 import org.gradle.internal.component.external.model.ModuleComponentResolveMetaData;
 import org.gradle.internal.hash.HashValue;
 import org.gradle.internal.resource.local.LocallyAvailableResource;
@@ -42,13 +43,22 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
     private final CacheLockingManager cacheLockingManager;
 
     private final ModuleDescriptorStore moduleDescriptorStore;
+    private final LegacyModuleDescriptorStore previousModuleDescriptorStore;
+    private final InMemoryModuleDescriptorCache descriptorCache;
+    private final MissingModuleIndex missingModuleIndex;
     private PersistentIndexedCache<RevisionKey, ModuleDescriptorCacheEntry> cache;
+    private PersistentIndexedCache<RevisionKey, ModuleDescriptorCacheEntry> previousCache;
+    private boolean previousCacheOpened;
 
-    public DefaultModuleMetaDataCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy) {
+    public DefaultModuleMetaDataCache(BuildCommencedTimeProvider timeProvider, CacheLockingManager cacheLockingManager, ResolverStrategy resolverStrategy, InMemoryModuleDescriptorCache descriptorCache,
+                                      MissingModuleIndex missingModuleIndex) {
         this.timeProvider = timeProvider;
         this.cacheLockingManager = cacheLockingManager;
+        this.descriptorCache = descriptorCache;
+        this.missingModuleIndex = missingModuleIndex;
 
-        moduleDescriptorStore = new ModuleDescriptorStore(new PathKeyFileStore(cacheLockingManager.createMetaDataStore()), new IvyXmlModuleDescriptorWriter(), new IvyXmlModuleDescriptorParser(resolverStrategy));
+        moduleDescriptorStore = new ModuleDescriptorStore(new PathKeyFileStore(cacheLockingManager.createMetaDataStore()), new ModuleDescriptorSerializer(resolverStrategy));
+        previousModuleDescriptorStore = new LegacyModuleDescriptorStore(cacheLockingManager.getPreviousMetaDataStore(), new IvyXmlModuleDescriptorParser(resolverStrategy));
     }
 
     private PersistentIndexedCache<RevisionKey, ModuleDescriptorCacheEntry> getCache() {
@@ -62,15 +72,33 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         return cacheLockingManager.createCache("module-metadata", new RevisionKeySerializer(), new ModuleDescriptorCacheEntrySerializer());
     }
 
-    public CachedMetaData getCachedModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier componentId) {
-        ModuleDescriptorCacheEntry entry = getCache().get(createKey(repository, componentId));
+    private PersistentIndexedCache<RevisionKey, ModuleDescriptorCacheEntry> getPreviousCache() {
+        if (!previousCacheOpened) {
+            previousCache = cacheLockingManager.createPreviousMetaDataCache("module-metadata", new RevisionKeySerializer(), new ModuleDescriptorCacheEntrySerializer());
+            previousCacheOpened = true;
+        }
+        return previousCache;
+    }
+
+    public CachedMetaData getCachedModuleDescriptor(final ModuleComponentRepository repository, final ModuleComponentIdentifier componentId) {
+        Long missingSince = missingModuleIndex.getMissingSince(repository.getId(), componentId);
+        if (missingSince != null) {
+            return new DefaultCachedMetaData(ModuleDescriptorCacheEntry.forMissingModule(missingSince), null, timeProvider);
+        }
+        RevisionKey key = createKey(repository, componentId);
+        ModuleDescriptorCacheEntry entry = getCache().get(key);
         if (entry == null) {
-            return null;
+            return copyFromPreviousCache(repository, componentId, key);
         }
         if (entry.isMissing()) {
+            missingModuleIndex.missing(repository.getId(), componentId, entry.createTimestamp);
             return new DefaultCachedMetaData(entry, null, timeProvider);
         }
-        ModuleDescriptor descriptor = moduleDescriptorStore.getModuleDescriptor(repository, componentId);
+        ModuleDescriptor descriptor = descriptorCache.getModuleDescriptor(repository.getId(), componentId, entry.moduleDescriptorHash, new Factory<ModuleDescriptor>() {
+            public ModuleDescriptor create() {
+                return moduleDescriptorStore.getModuleDescriptor(repository, componentId);
+            }
+        });
         if (descriptor == null) {
             // Descriptor file has been deleted - ignore the entry
             return null;
@@ -78,10 +106,36 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         return new DefaultCachedMetaData(entry, entry.createMetaData(componentId, descriptor), timeProvider);
     }
 
+    private CachedMetaData copyFromPreviousCache(ModuleComponentRepository repository, ModuleComponentIdentifier componentId, RevisionKey key) {
+        PersistentIndexedCache<RevisionKey, ModuleDescriptorCacheEntry> previousCache = getPreviousCache();
+        if (previousCache == null) {
+            return null;
+        }
+        ModuleDescriptorCacheEntry entry = previousCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isMissing()) {
+            getCache().put(key, entry);
+            missingModuleIndex.missing(repository.getId(), componentId, entry.createTimestamp);
+            return new DefaultCachedMetaData(entry, null, timeProvider);
+        }
+        ModuleDescriptor descriptor = previousModuleDescriptorStore.getModuleDescriptor(repository, componentId);
+        if (descriptor == null) {
+            return null;
+        }
+        LOGGER.debug("Copying module descriptor from previous cache layout: {}", componentId);
+        moduleDescriptorStore.putModuleDescriptor(repository, componentId, descriptor);
+        // Keep the original descriptor hash, as artifacts of changing modules were cached against it
+        getCache().put(key, entry);
+        return new DefaultCachedMetaData(entry, entry.createMetaData(componentId, descriptor), timeProvider);
+    }
+
     public CachedMetaData cacheMissing(ModuleComponentRepository repository, ModuleComponentIdentifier id) {
         LOGGER.debug("Recording absence of module descriptor in cache: {} [changing = {}]", id, false);
         ModuleDescriptorCacheEntry entry = ModuleDescriptorCacheEntry.forMissingModule(timeProvider.getCurrentTime());
         getCache().put(createKey(repository, id), entry);
+        missingModuleIndex.missing(repository.getId(), id, entry.createTimestamp);
         return new DefaultCachedMetaData(entry, null, timeProvider);
     }
 
@@ -91,6 +145,7 @@ public class DefaultModuleMetaDataCache implements ModuleMetaDataCache {
         LocallyAvailableResource resource = moduleDescriptorStore.putModuleDescriptor(repository, metaData.getComponentId(), moduleDescriptor);
         ModuleDescriptorCacheEntry entry = createEntry(metaData, resource.getSha1());
         getCache().put(createKey(repository, metaData.getComponentId()), entry);
+        missingModuleIndex.found(repository.getId(), metaData.getComponentId());
         return new DefaultCachedMetaData(entry, null, timeProvider);
     }
 
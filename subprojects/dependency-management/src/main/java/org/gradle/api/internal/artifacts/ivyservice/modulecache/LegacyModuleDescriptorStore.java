@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser;
+import org.gradle.internal.resource.local.PathKeyFileStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Reads the ivy.xml descriptors cached by the previous meta-data layout. Unlike a {@link PathKeyFileStore}, this never modifies the store.
+ */
+class LegacyModuleDescriptorStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LegacyModuleDescriptorStore.class);
+
+    public static final String FILE_PATH_PATTERN = "%s/%s/%s/%s/ivy.xml";
+    private final File metaDataStore;
+    private final IvyXmlModuleDescriptorParser descriptorParser;
+
+    LegacyModuleDescriptorStore(File metaDataStore, IvyXmlModuleDescriptorParser descriptorParser) {
+        this.metaDataStore = metaDataStore;
+        this.descriptorParser = descriptorParser;
+    }
+
+    public ModuleDescriptor getModuleDescriptor(ModuleComponentRepository repository, ModuleComponentIdentifier moduleComponentIdentifier) {
+        String filePath = String.format(FILE_PATH_PATTERN, moduleComponentIdentifier.getGroup(), moduleComponentIdentifier.getModule(), moduleComponentIdentifier.getVersion(), repository.getId());
+        File descriptorFile = new File(metaDataStore, filePath);
+        // A file that is still marked as in progress was not completely written
+        if (!descriptorFile.isFile() || new File(descriptorFile.getParentFile(), descriptorFile.getName() + PathKeyFileStore.IN_PROGRESS_MARKER_FILE_SUFFIX).exists()) {
+            return null;
+        }
+        return parseModuleDescriptorFile(descriptorFile);
+    }
+
+    private ModuleDescriptor parseModuleDescriptorFile(File moduleDescriptorFile) {
+        DescriptorParseContext parserSettings = new CachedModuleDescriptorParseContext();
+        try {
+            return descriptorParser.parseMetaData(parserSettings, moduleDescriptorFile, false).getDescriptor();
+        } catch (RuntimeException e) {
+            // Treat an unreadable descriptor as not cached, so that it is resolved again
+            LOGGER.debug("Could not read cached module descriptor {}.", moduleDescriptorFile, e);
+            return null;
+        }
+    }
+}
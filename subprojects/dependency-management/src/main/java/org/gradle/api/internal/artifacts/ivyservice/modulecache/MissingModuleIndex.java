@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.gradle.api.Nullable;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.util.BuildCommencedTimeProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which modules are missing from which repository, so that a module that is found only in a later repository of the chain does not cost a
+ * lookup of the module meta-data cache for each earlier repository.
+ *
+ * <p>The modules known to be missing from a repository are loaded into memory the first time the repository is queried in a build, and the changes are
+ * merged back into the persistent index when the build finishes. Each record keeps the time the module was found to be missing, so the caller can
+ * expire it according to its cache policy, exactly as for the missing entries of the module meta-data cache. Records that are not refreshed are
+ * discarded after {@value #MAX_RECORD_AGE_DAYS} days.
+ */
+public class MissingModuleIndex implements Stoppable {
+    public static final String TOGGLE_PROPERTY = "org.gradle.resolution.missingModuleIndex";
+    private static final int MAX_RECORD_AGE_DAYS = 30;
+    private static final Logger LOGGER = LoggerFactory.getLogger(MissingModuleIndex.class);
+
+    private final CacheLockingManager cacheLockingManager;
+    private final BuildCommencedTimeProvider timeProvider;
+    private final boolean enabled;
+    private final Map<String, RepositoryRecords> repositories = new HashMap<String, RepositoryRecords>();
+    private PersistentIndexedCache<String, Map<String, Long>> cache;
+    private int lookupsSaved;
+
+    public MissingModuleIndex(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider) {
+        this(cacheLockingManager, timeProvider, !"false".equalsIgnoreCase(System.getProperty(TOGGLE_PROPERTY)));
+    }
+
+    MissingModuleIndex(CacheLockingManager cacheLockingManager, BuildCommencedTimeProvider timeProvider, boolean enabled) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.timeProvider = timeProvider;
+        this.enabled = enabled;
+    }
+
+    private PersistentIndexedCache<String, Map<String, Long>> getCache() {
+        if (cache == null) {
+            cache = cacheLockingManager.createCache("missing-modules", BaseSerializerFactory.STRING_SERIALIZER, new MissingModulesSerializer());
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the time at which the given module was found to be missing from the given repository, or null when it is not known to be missing.
+     * Must be called while holding the cache lock.
+     */
+    @Nullable
+    public synchronized Long getMissingSince(String repositoryId, ModuleComponentIdentifier id) {
+        if (!enabled) {
+            return null;
+        }
+        Long missingSince = getRecords(repositoryId).missing.get(id.getDisplayName());
+        if (missingSince != null) {
+            lookupsSaved++;
+        }
+        return missingSince;
+    }
+
+    /**
+     * Records that the given module was found to be missing from the given repository at the given time. Must be called while holding the cache lock.
+     */
+    public synchronized void missing(String repositoryId, ModuleComponentIdentifier id, long missingSince) {
+        if (enabled) {
+            getRecords(repositoryId).missing(id.getDisplayName(), missingSince);
+        }
+    }
+
+    /**
+     * Records that the given module was found in the given repository. Must be called while holding the cache lock.
+     */
+    public synchronized void found(String repositoryId, ModuleComponentIdentifier id) {
+        if (enabled) {
+            getRecords(repositoryId).found(id.getDisplayName());
+        }
+    }
+
+    private RepositoryRecords getRecords(String repositoryId) {
+        RepositoryRecords records = repositories.get(repositoryId);
+        if (records == null) {
+            Map<String, Long> stored = getCache().get(repositoryId);
+            records = new RepositoryRecords(stored == null ? new HashMap<String, Long>() : new HashMap<String, Long>(stored));
+            repositories.put(repositoryId, records);
+        }
+        return records;
+    }
+
+    public synchronized void stop() {
+        final List<Map.Entry<String, RepositoryRecords>> changed = new ArrayList<Map.Entry<String, RepositoryRecords>>();
+        for (Map.Entry<String, RepositoryRecords> entry : repositories.entrySet()) {
+            if (entry.getValue().isChanged()) {
+                changed.add(entry);
+            }
+        }
+        if (!changed.isEmpty()) {
+            final long expiry = timeProvider.getCurrentTime() - TimeUnit.DAYS.toMillis(MAX_RECORD_AGE_DAYS);
+            cacheLockingManager.useCache("store missing module index", new Runnable() {
+                public void run() {
+                    for (Map.Entry<String, RepositoryRecords> entry : changed) {
+                        // Merge with the records that other processes have stored in the meantime
+                        Map<String, Long> stored = getCache().get(entry.getKey());
+                        Map<String, Long> merged = stored == null ? new HashMap<String, Long>() : new HashMap<String, Long>(stored);
+                        entry.getValue().applyChangesTo(merged);
+                        for (Iterator<Long> iterator = merged.values().iterator(); iterator.hasNext();) {
+                            if (iterator.next() < expiry) {
+                                iterator.remove();
+                            }
+                        }
+                        getCache().put(entry.getKey(), merged);
+                    }
+                }
+            });
+        }
+        if (lookupsSaved > 0 || !changed.isEmpty()) {
+            LOGGER.info("Missing module index: {} module meta-data cache lookups saved, missing modules of {} repositories updated.", lookupsSaved, changed.size());
+        }
+        repositories.clear();
+    }
+
+    private static class RepositoryRecords {
+        private final Map<String, Long> missing;
+        private final Map<String, Long> added = new HashMap<String, Long>();
+        private final Set<String> removed = new HashSet<String>();
+
+        private RepositoryRecords(Map<String, Long> missing) {
+            this.missing = missing;
+        }
+
+        void missing(String module, long missingSince) {
+            Long previous = missing.put(module, missingSince);
+            if (previous == null || previous != missingSince) {
+                added.put(module, missingSince);
+                removed.remove(module);
+            }
+        }
+
+        void found(String module) {
+            // Also record modules that are not known here, as another process may have found them missing since the records were loaded
+            missing.remove(module);
+            added.remove(module);
+            removed.add(module);
+        }
+
+        boolean isChanged() {
+            return !added.isEmpty() || !removed.isEmpty();
+        }
+
+        void applyChangesTo(Map<String, Long> records) {
+            records.keySet().removeAll(removed);
+            records.putAll(added);
+        }
+    }
+
+    private static class MissingModulesSerializer implements Serializer<Map<String, Long>> {
+        public Map<String, Long> read(Decoder decoder) throws Exception {
+            int count = decoder.readSmallInt();
+            Map<String, Long> records = new HashMap<String, Long>(count * 2);
+            for (int i = 0; i < count; i++) {
+                records.put(decoder.readString(), decoder.readLong());
+            }
+            return records;
+        }
+
+        public void write(Encoder encoder, Map<String, Long> value) throws Exception {
+            encoder.writeSmallInt(value.size());
+            for (Map.Entry<String, Long> entry : value.entrySet()) {
+                encoder.writeString(entry.getKey());
+                encoder.writeLong(entry.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache;
+
+import org.apache.ivy.core.module.descriptor.*;
+import org.apache.ivy.core.module.id.ArtifactId;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.plugins.matcher.PatternMatcher;
+import org.apache.ivy.plugins.parser.xml.XmlModuleDescriptorParser;
+import org.gradle.api.internal.artifacts.ivyservice.IvyUtil;
+import org.gradle.api.internal.artifacts.ivyservice.NamespaceId;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * Serializes a {@link ModuleDescriptor} into a compact binary format, holding the same information as the ivy.xml written by
+ * {@link org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter}.
+ *
+ * <p>Configurations and dependencies are decoded eagerly. The published artifacts are decoded when they are first queried, as
+ * they are not required to traverse the dependency graph.</p>
+ */
+public class ModuleDescriptorSerializer implements Serializer<ModuleDescriptor> {
+    private final ResolverStrategy resolverStrategy;
+
+    public ModuleDescriptorSerializer(ResolverStrategy resolverStrategy) {
+        this.resolverStrategy = resolverStrategy;
+    }
+
+    public void write(Encoder encoder, ModuleDescriptor md) throws Exception {
+        writeInfo(encoder, md);
+        writeConfigurations(encoder, md);
+        writeDependencies(encoder, md);
+        writeExcludeRules(encoder, md.getAllExcludeRules());
+        writeArtifacts(encoder, md);
+    }
+
+    public ModuleDescriptor read(Decoder decoder) throws Exception {
+        LazyArtifactsModuleDescriptor md = new LazyArtifactsModuleDescriptor();
+        readInfo(decoder, md);
+        readConfigurations(decoder, md);
+        readDependencies(decoder, md);
+        for (ExcludeRule excludeRule : readExcludeRules(decoder)) {
+            md.addExcludeRule(excludeRule);
+        }
+        md.encodedArtifacts = decoder.readBinary();
+        return md;
+    }
+
+    private void writeInfo(Encoder encoder, ModuleDescriptor md) throws Exception {
+        writeAttributes(encoder, md.getExtraAttributesNamespaces());
+
+        ModuleRevisionId moduleRevisionId = md.getModuleRevisionId();
+        ModuleRevisionId resolvedModuleRevisionId = md.getResolvedModuleRevisionId();
+        encoder.writeString(moduleRevisionId.getOrganisation());
+        encoder.writeString(moduleRevisionId.getName());
+        encoder.writeNullableString(resolvedModuleRevisionId.getBranch());
+        encoder.writeNullableString(resolvedModuleRevisionId.getRevision());
+        writeAttributes(encoder, md.getQualifiedExtraAttributes());
+        encoder.writeString(md.getStatus());
+        Date publicationDate = md.getResolvedPublicationDate();
+        encoder.writeBoolean(publicationDate != null);
+        if (publicationDate != null) {
+            encoder.writeLong(publicationDate.getTime());
+        }
+        encoder.writeBoolean(md.isDefault());
+        encoder.writeBoolean(md.isMappingOverride());
+
+        License[] licenses = md.getLicenses();
+        encoder.writeSmallInt(licenses.length);
+        for (License license : licenses) {
+            encoder.writeNullableString(license.getName());
+            encoder.writeNullableString(license.getUrl());
+        }
+        encoder.writeNullableString(md.getHomePage());
+        encoder.writeNullableString(md.getDescription());
+
+        List<Map.Entry> extraInfo = new ArrayList<Map.Entry>();
+        for (Object entry : md.getExtraInfo().entrySet()) {
+            Map.Entry extraDescr = (Map.Entry) entry;
+            if (extraDescr.getValue() != null && extraDescr.getValue().toString().length() > 0) {
+                extraInfo.add(extraDescr);
+            }
+        }
+        encoder.writeSmallInt(extraInfo.size());
+        for (Map.Entry extraDescr : extraInfo) {
+            if (extraDescr.getKey() instanceof NamespaceId) {
+                NamespaceId id = (NamespaceId) extraDescr.getKey();
+                encoder.writeString(id.getNamespace());
+                encoder.writeString(id.getName());
+            } else {
+                encoder.writeString("");
+                encoder.writeString(extraDescr.getKey().toString());
+            }
+            encoder.writeString(extraDescr.getValue().toString());
+        }
+    }
+
+    private void readInfo(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        for (Map.Entry<String, String> namespace : readAttributes(decoder).entrySet()) {
+            md.addExtraAttributeNamespace(namespace.getKey(), namespace.getValue());
+        }
+
+        String organisation = decoder.readString();
+        String module = decoder.readString();
+        String branch = decoder.readNullableString();
+        String revision = decoder.readNullableString();
+        Map<String, String> extraAttributes = readAttributes(decoder);
+        md.setModuleRevisionId(IvyUtil.createModuleRevisionId(organisation, module, branch, revision, extraAttributes));
+        md.setStatus(decoder.readString());
+        if (decoder.readBoolean()) {
+            md.setPublicationDate(new Date(decoder.readLong()));
+        }
+        md.setDefault(decoder.readBoolean());
+        md.setMappingOverride(decoder.readBoolean());
+
+        int licenses = decoder.readSmallInt();
+        for (int i = 0; i < licenses; i++) {
+            md.addLicense(new License(decoder.readNullableString(), decoder.readNullableString()));
+        }
+        md.setHomePage(decoder.readNullableString());
+        md.setDescription(decoder.readNullableString());
+
+        Map extraInfo = md.getExtraInfo();
+        int extraInfoCount = decoder.readSmallInt();
+        for (int i = 0; i < extraInfoCount; i++) {
+            NamespaceId id = new NamespaceId(decoder.readString(), decoder.readString());
+            extraInfo.put(id, decoder.readString());
+        }
+    }
+
+    private void writeConfigurations(Encoder encoder, ModuleDescriptor md) throws Exception {
+        Configuration[] configurations = md.getConfigurations();
+        encoder.writeSmallInt(configurations.length);
+        for (Configuration configuration : configurations) {
+            encoder.writeString(configuration.getName());
+            encoder.writeString(configuration.getVisibility().toString());
+            encoder.writeNullableString(configuration.getDescription());
+            writeStrings(encoder, configuration.getExtends());
+            encoder.writeBoolean(configuration.isTransitive());
+            encoder.writeNullableString(configuration.getDeprecated());
+            writeAttributes(encoder, configuration.getQualifiedExtraAttributes());
+        }
+    }
+
+    private void readConfigurations(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String name = decoder.readString();
+            Configuration.Visibility visibility = Configuration.Visibility.getVisibility(decoder.readString());
+            String description = decoder.readNullableString();
+            String[] extendsFrom = readStrings(decoder);
+            boolean transitive = decoder.readBoolean();
+            String deprecated = decoder.readNullableString();
+            Configuration configuration = new Configuration(name, visibility, description, extendsFrom, transitive, deprecated);
+            for (Map.Entry<String, String> attribute : readAttributes(decoder).entrySet()) {
+                configuration.setExtraAttribute(attribute.getKey(), attribute.getValue());
+            }
+            md.addConfiguration(configuration);
+        }
+        if (count == 0) {
+            md.addConfiguration(new Configuration("default"));
+        }
+        for (Configuration configuration : md.getConfigurations()) {
+            configuration.replaceWildcards(md);
+        }
+    }
+
+    private void writeDependencies(Encoder encoder, ModuleDescriptor md) throws Exception {
+        DependencyDescriptor[] dependencies = md.getDependencies();
+        encoder.writeSmallInt(dependencies.length);
+        for (DependencyDescriptor dependency : dependencies) {
+            ModuleRevisionId revisionId = dependency.getDependencyRevisionId();
+            ModuleRevisionId dynamicRevisionId = dependency.getDynamicConstraintDependencyRevisionId();
+            encoder.writeString(revisionId.getOrganisation());
+            encoder.writeString(revisionId.getName());
+            encoder.writeNullableString(revisionId.getBranch());
+            encoder.writeNullableString(revisionId.getRevision());
+            writeAttributes(encoder, dependency.getQualifiedExtraAttributes());
+            boolean dynamic = !dynamicRevisionId.equals(revisionId);
+            encoder.writeBoolean(dynamic);
+            if (dynamic) {
+                encoder.writeNullableString(dynamicRevisionId.getBranch());
+                encoder.writeNullableString(dynamicRevisionId.getRevision());
+            }
+            encoder.writeBoolean(dependency.isForce());
+            encoder.writeBoolean(dependency.isChanging());
+            encoder.writeBoolean(dependency.isTransitive());
+
+            Map<String, String[]> configMappings = getConfigMappings(dependency);
+            encoder.writeSmallInt(configMappings.size());
+            for (Map.Entry<String, String[]> mapping : configMappings.entrySet()) {
+                encoder.writeString(mapping.getKey());
+                writeStrings(encoder, mapping.getValue());
+            }
+
+            DependencyArtifactDescriptor[] artifacts = dependency.getAllDependencyArtifacts();
+            encoder.writeSmallInt(artifacts.length);
+            for (DependencyArtifactDescriptor artifact : artifacts) {
+                encoder.writeString(artifact.getName());
+                encoder.writeString(artifact.getType());
+                encoder.writeString(artifact.getExt());
+                encoder.writeNullableString(artifact.getUrl() == null ? null : artifact.getUrl().toString());
+                writeStrings(encoder, artifact.getConfigurations());
+                writeAttributes(encoder, artifact.getQualifiedExtraAttributes());
+            }
+
+            IncludeRule[] includeRules = dependency.getAllIncludeRules();
+            encoder.writeSmallInt(includeRules.length);
+            for (IncludeRule includeRule : includeRules) {
+                writeRule(encoder, includeRule.getId(), includeRule.getMatcher(), includeRule.getConfigurations(), includeRule.getQualifiedExtraAttributes());
+            }
+            writeExcludeRules(encoder, dependency.getAllExcludeRules());
+        }
+    }
+
+    private void readDependencies(Decoder decoder, DefaultModuleDescriptor md) throws Exception {
+        int count = decoder.readSmallInt();
+        for (int i = 0; i < count; i++) {
+            String organisation = decoder.readString();
+            String name = decoder.readString();
+            String branch = decoder.readNullableString();
+            String revision = decoder.readNullableString();
+            Map<String, String> extraAttributes = readAttributes(decoder);
+            ModuleRevisionId revisionId = IvyUtil.createModuleRevisionId(organisation, name, branch, revision, extraAttributes);
+            ModuleRevisionId dynamicRevisionId;
+            if (decoder.readBoolean()) {
+                String branchConstraint = decoder.readNullableString();
+                String revisionConstraint = decoder.readNullableString();
+                dynamicRevisionId = IvyUtil.createModuleRevisionId(organisation, name, branchConstraint, revisionConstraint, extraAttributes, branchConstraint != null);
+            } else {
+                dynamicRevisionId = IvyUtil.createModuleRevisionId(organisation, name, branch, revision, extraAttributes, false);
+            }
+            boolean force = decoder.readBoolean();
+            boolean changing = decoder.readBoolean();
+            boolean transitive = decoder.readBoolean();
+            DefaultDependencyDescriptor dependency = new DefaultDependencyDescriptor(md, revisionId, dynamicRevisionId, force, changing, transitive);
+
+            int mappings = decoder.readSmallInt();
+            for (int j = 0; j < mappings; j++) {
+                String moduleConfiguration = decoder.readString();
+                for (String dependencyConfiguration : readStrings(decoder)) {
+                    dependency.addDependencyConfiguration(moduleConfiguration, dependencyConfiguration);
+                }
+            }
+
+            int artifacts = decoder.readSmallInt();
+            for (int j = 0; j < artifacts; j++) {
+                String artifactName = decoder.readString();
+                String type = decoder.readString();
+                String ext = decoder.readString();
+                String url = decoder.readNullableString();
+                String[] configurations = readStrings(decoder);
+                DefaultDependencyArtifactDescriptor artifact = new DefaultDependencyArtifactDescriptor(dependency, artifactName, type, ext, url == null ? null : new URL(url), readAttributes(decoder));
+                for (String configuration : configurations) {
+                    artifact.addConfiguration(configuration);
+                    dependency.addDependencyArtifact(configuration, artifact);
+                }
+            }
+
+            int includeRules = decoder.readSmallInt();
+            for (int j = 0; j < includeRules; j++) {
+                ArtifactId artifactId = readArtifactId(decoder);
+                PatternMatcher matcher = resolverStrategy.getPatternMatcher(decoder.readString());
+                String[] configurations = readStrings(decoder);
+                DefaultIncludeRule includeRule = new DefaultIncludeRule(artifactId, matcher, readAttributes(decoder));
+                for (String configuration : configurations) {
+                    includeRule.addConfiguration(configuration);
+                    dependency.addIncludeRule(configuration, includeRule);
+                }
+            }
+
+            for (ExcludeRule excludeRule : readExcludeRules(decoder)) {
+                for (String configuration : excludeRule.getConfigurations()) {
+                    dependency.addExcludeRule(configuration, excludeRule);
+                }
+            }
+            md.addDependency(dependency);
+        }
+    }
+
+    private Map<String, String[]> getConfigMappings(DependencyDescriptor dependency) {
+        // Passing '@' and '#' as the module and requested configuration leaves the self and this placeholders of the mappings in place.
+        // The wildcard keys are looked up through '@', which is never declared, so the result holds the '*' and '%' mappings.
+        Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+        for (String moduleConfiguration : dependency.getModuleConfigurations()) {
+            boolean wildcard = moduleConfiguration.equals("*") || moduleConfiguration.equals("%");
+            result.put(moduleConfiguration, dependency.getDependencyConfigurations(wildcard ? "@" : moduleConfiguration, "#"));
+        }
+        return result;
+    }
+
+    private void writeExcludeRules(Encoder encoder, ExcludeRule[] excludeRules) throws Exception {
+        encoder.writeSmallInt(excludeRules.length);
+        for (ExcludeRule excludeRule : excludeRules) {
+            writeRule(encoder, excludeRule.getId(), excludeRule.getMatcher(), excludeRule.getConfigurations(), excludeRule.getQualifiedExtraAttributes());
+        }
+    }
+
+    private List<ExcludeRule> readExcludeRules(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        List<ExcludeRule> excludeRules = new ArrayList<ExcludeRule>(count);
+        for (int i = 0; i < count; i++) {
+            ArtifactId artifactId = readArtifactId(decoder);
+            PatternMatcher matcher = resolverStrategy.getPatternMatcher(decoder.readString());
+            String[] configurations = readStrings(decoder);
+            DefaultExcludeRule excludeRule = new DefaultExcludeRule(artifactId, matcher, readAttributes(decoder));
+            for (String configuration : configurations) {
+                excludeRule.addConfiguration(configuration);
+            }
+            excludeRules.add(excludeRule);
+        }
+        return excludeRules;
+    }
+
+    private void writeRule(Encoder encoder, ArtifactId artifactId, PatternMatcher matcher, String[] configurations, Map attributes) throws Exception {
+        encoder.writeString(artifactId.getModuleId().getOrganisation());
+        encoder.writeString(artifactId.getModuleId().getName());
+        encoder.writeString(artifactId.getName());
+        encoder.writeString(artifactId.getType());
+        encoder.writeString(artifactId.getExt());
+        encoder.writeString(matcher.getName());
+        writeStrings(encoder, configurations);
+        writeAttributes(encoder, attributes);
+    }
+
+    private ArtifactId readArtifactId(Decoder decoder) throws Exception {
+        String organisation = decoder.readString();
+        String module = decoder.readString();
+        return new ArtifactId(IvyUtil.createModuleId(organisation, module), decoder.readString(), decoder.readString(), decoder.readString());
+    }
+
+    private void writeArtifacts(Encoder encoder, ModuleDescriptor md) throws Exception {
+        Artifact[] artifacts = md.getAllArtifacts();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder artifactsEncoder = new KryoBackedEncoder(outputStream);
+        artifactsEncoder.writeSmallInt(artifacts.length);
+        for (Artifact artifact : artifacts) {
+            artifactsEncoder.writeString(artifact.getName());
+            artifactsEncoder.writeString(artifact.getType());
+            artifactsEncoder.writeString(artifact.getExt());
+            artifactsEncoder.writeNullableString(artifact.getUrl() == null ? null : artifact.getUrl().toString());
+            writeStrings(artifactsEncoder, artifact.getConfigurations());
+            writeAttributes(artifactsEncoder, artifact.getQualifiedExtraAttributes());
+        }
+        artifactsEncoder.flush();
+        encoder.writeBinary(outputStream.toByteArray());
+    }
+
+    private static void writeStrings(Encoder encoder, String[] values) throws Exception {
+        encoder.writeSmallInt(values.length);
+        for (String value : values) {
+            encoder.writeString(value);
+        }
+    }
+
+    private static String[] readStrings(Decoder decoder) throws Exception {
+        String[] values = new String[decoder.readSmallInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = decoder.readString();
+        }
+        return values;
+    }
+
+    private static void writeAttributes(Encoder encoder, Map<?, ?> attributes) throws Exception {
+        if (attributes == null) {
+            encoder.writeSmallInt(0);
+            return;
+        }
+        encoder.writeSmallInt(attributes.size());
+        for (Map.Entry<?, ?> entry : attributes.entrySet()) {
+            encoder.writeString(entry.getKey().toString());
+            encoder.writeString(entry.getValue().toString());
+        }
+    }
+
+    private static Map<String, String> readAttributes(Decoder decoder) throws Exception {
+        int count = decoder.readSmallInt();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> attributes = new LinkedHashMap<String, String>(count);
+        for (int i = 0; i < count; i++) {
+            attributes.put(decoder.readString(), decoder.readString());
+        }
+        return attributes;
+    }
+
+    /**
+     * A module descriptor that decodes its published artifacts on first access.
+     */
+    private static class LazyArtifactsModuleDescriptor extends DefaultModuleDescriptor {
+        private byte[] encodedArtifacts;
+
+        LazyArtifactsModuleDescriptor() {
+            super(XmlModuleDescriptorParser.getInstance(), null);
+        }
+
+        @Override
+        public Artifact[] getArtifacts(String conf) {
+            loadArtifacts();
+            return super.getArtifacts(conf);
+        }
+
+        @Override
+        public Artifact[] getAllArtifacts() {
+            loadArtifacts();
+            return super.getAllArtifacts();
+        }
+
+        @Override
+        public void addArtifact(String conf, Artifact artifact) {
+            loadArtifacts();
+            super.addArtifact(conf, artifact);
+        }
+
+        private synchronized void loadArtifacts() {
+            if (encodedArtifacts == null) {
+                return;
+            }
+            List<MDArtifact> artifacts;
+            KryoBackedDecoder decoder = new KryoBackedDecoder(new ByteArrayInputStream(encodedArtifacts));
+            try {
+                int count = decoder.readSmallInt();
+                artifacts = new ArrayList<MDArtifact>(count);
+                for (int i = 0; i < count; i++) {
+                    String name = decoder.readString();
+                    String type = decoder.readString();
+                    String ext = decoder.readString();
+                    String url = decoder.readNullableString();
+                    String[] configurations = readStrings(decoder);
+                    MDArtifact artifact = new MDArtifact(this, name, type, ext, url == null ? null : new URL(url), readAttributes(decoder));
+                    for (String configuration : configurations) {
+                        artifact.addConfiguration(configuration);
+                    }
+                    artifacts.add(artifact);
+                }
+            } catch (Exception e) {
+                throw UncheckedException.throwAsUncheckedException(e);
+            }
+            // Only discard the encoded form once every artifact has been decoded, so a failed decode is reported again on the next query
+            encodedArtifacts = null;
+            for (MDArtifact artifact : artifacts) {
+                for (String configuration : artifact.getConfigurations()) {
+                    super.addArtifact(configuration, artifact);
+                }
+            }
+        }
+    }
+}
@@ -93,6 +93,10 @@ public class ProjectDependencyResolver implements ComponentMetaDataResolver, Dep
         }
     }
 
+    public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        resolveArtifact(artifact, moduleSource, result);
+    }
+
     private boolean isProjectModule(ComponentIdentifier componentId) {
         return componentId instanceof ProjectComponentIdentifier;
     }
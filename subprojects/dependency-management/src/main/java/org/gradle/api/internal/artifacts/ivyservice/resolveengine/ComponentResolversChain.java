@@ -99,6 +99,16 @@ public class ComponentResolversChain implements ComponentResolvers {
             }
         }
 
+        @Override
+        public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+            for (ArtifactResolver resolver : resolvers) {
+                if (result.hasResult()) {
+                    return;
+                }
+                resolver.resolveArtifactLocally(artifact, moduleSource, result);
+            }
+        }
+
         @Override
         public void resolveModuleArtifacts(ComponentResolveMetaData component, ComponentUsage usage, BuildableArtifactSetResolveResult result) {
             for (ArtifactResolver resolver : resolvers) {
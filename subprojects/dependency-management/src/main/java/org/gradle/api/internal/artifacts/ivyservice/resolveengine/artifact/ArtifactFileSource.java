@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.Factory;
+
+import java.io.File;
+
+/**
+ * Provides the file of a resolved artifact, and allows the file to be located without remote requests first.
+ */
+public interface ArtifactFileSource extends Factory<File> {
+    /**
+     * Returns the id of the repository the artifact is resolved from, or null when the artifact does not come from a repository.
+     */
+    @Nullable
+    String getRepositoryId();
+
+    /**
+     * Returns the file of the artifact when it can be located without remote requests, or null otherwise.
+     */
+    @Nullable
+    File createLocally();
+}
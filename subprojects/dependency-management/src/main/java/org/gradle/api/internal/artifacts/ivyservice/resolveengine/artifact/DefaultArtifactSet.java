@@ -21,8 +21,8 @@ import org.gradle.api.artifacts.ResolvedArtifact;
 import org.gradle.api.artifacts.component.ComponentArtifactIdentifier;
 import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicversions.DefaultResolvedModuleVersion;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.RepositoryChainModuleSource;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleResolutionFilter;
-import org.gradle.internal.Factory;
 import org.gradle.internal.component.model.ComponentArtifactMetaData;
 import org.gradle.internal.component.model.IvyArtifactName;
 import org.gradle.internal.component.model.ModuleSource;
@@ -68,7 +68,7 @@ public class DefaultArtifactSet implements ArtifactSet {
 
             ResolvedArtifact resolvedArtifact = allResolvedArtifacts.get(artifact.getId());
             if (resolvedArtifact == null) {
-                Factory<File> artifactSource = new LazyArtifactSource(artifact, moduleSource, artifactResolver);
+                ArtifactFileSource artifactSource = new LazyArtifactSource(artifact, moduleSource, artifactResolver);
                 resolvedArtifact = new DefaultResolvedArtifact(new DefaultResolvedModuleVersion(moduleVersionIdentifier), artifactName, artifact.getId(), artifactSource);
                 allResolvedArtifacts.put(artifact.getId(), resolvedArtifact);
             }
@@ -77,7 +77,7 @@ public class DefaultArtifactSet implements ArtifactSet {
         return resolvedArtifacts;
     }
 
-    private static class LazyArtifactSource implements Factory<File> {
+    private static class LazyArtifactSource implements ArtifactFileSource {
         private final ArtifactResolver artifactResolver;
         private final ModuleSource moduleSource;
         private final ComponentArtifactMetaData artifact;
@@ -93,5 +93,19 @@ public class DefaultArtifactSet implements ArtifactSet {
             artifactResolver.resolveArtifact(artifact, moduleSource, result);
             return result.getFile();
         }
+
+        public String getRepositoryId() {
+            return moduleSource instanceof RepositoryChainModuleSource ? ((RepositoryChainModuleSource) moduleSource).getRepositoryId() : null;
+        }
+
+        public File createLocally() {
+            DefaultBuildableArtifactResolveResult result = new DefaultBuildableArtifactResolveResult();
+            artifactResolver.resolveArtifactLocally(artifact, moduleSource, result);
+            if (!result.hasResult() || result.getFailure() != null) {
+                // Resolved again later by create(), which reports any failure
+                return null;
+            }
+            return result.getFile();
+        }
     }
 }
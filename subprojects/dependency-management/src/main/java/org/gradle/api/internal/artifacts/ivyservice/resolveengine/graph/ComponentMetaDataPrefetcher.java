@@ -0,0 +1,30 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph;
+
+import java.util.Collection;
+
+/**
+ * Fetches component meta-data ahead of the dependency graph traversal.
+ */
+public interface ComponentMetaDataPrefetcher {
+    /**
+     * Runs the given fetches, possibly at the same time on other threads, and waits for all of them to complete.
+     * A fetch that fails is simply skipped, and the traversal fetches that meta-data again when it needs it.
+     */
+    void prefetch(Collection<? extends Runnable> fetches);
+}
@@ -23,6 +23,7 @@ import org.gradle.api.artifacts.ModuleVersionIdentifier;
 import org.gradle.api.artifacts.ModuleVersionSelector;
 import org.gradle.api.artifacts.component.ComponentIdentifier;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.result.ComponentSelectionReason;
 import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
 import org.gradle.api.internal.artifacts.ResolveContext;
@@ -34,6 +35,7 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflict
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.PotentialConflict;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.VersionSelectionReasons;
+import org.gradle.api.Nullable;
 import org.gradle.internal.Cast;
 import org.gradle.internal.component.local.model.DslOriginDependencyMetaData;
 import org.gradle.internal.component.model.*;
@@ -54,10 +56,18 @@ public class DependencyGraphBuilder {
     private final ResolveContextToComponentResolver moduleResolver;
     private final DependencyToComponentIdResolver idResolver;
     private final ComponentMetaDataResolver metaDataResolver;
+    private final ComponentMetaDataPrefetcher metaDataPrefetcher;
 
     public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
                                   ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
                                   ConflictHandler conflictHandler) {
+        this(componentIdResolver, componentMetaDataResolver, resolveContextToComponentResolver, dependencyToConfigurationResolver, conflictHandler, null);
+    }
+
+    public DependencyGraphBuilder(DependencyToComponentIdResolver componentIdResolver, ComponentMetaDataResolver componentMetaDataResolver,
+                                  ResolveContextToComponentResolver resolveContextToComponentResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver,
+                                  ConflictHandler conflictHandler, @Nullable ComponentMetaDataPrefetcher metaDataPrefetcher) {
+        this.metaDataPrefetcher = metaDataPrefetcher;
         this.idResolver = componentIdResolver;
         this.metaDataResolver = componentMetaDataResolver;
         this.moduleResolver = resolveContextToComponentResolver;
@@ -92,6 +102,7 @@ public class DependencyGraphBuilder {
                 // Calculate the outgoing edges of this configuration
                 dependencies.clear();
                 node.visitOutgoingDependencies(dependencies);
+                prefetchMetaData(dependencies, conflictHandler);
 
                 for (DependencyEdge dependency : dependencies) {
                     LOGGER.debug("Visiting dependency {}", dependency);
@@ -154,6 +165,65 @@ public class DependencyGraphBuilder {
         }
     }
 
+    /**
+     * Fetches the meta-data for the targets of the given edges at the same time, rather than one at a time as the edges are attached.
+     * The selectors are resolved here in edge order, exactly as the traversal would resolve them. The fetched meta-data is only used
+     * when the traversal asks for it, so the resulting graph is the same as when the meta-data is fetched one at a time.
+     *
+     * <p>Only the versions that the traversal would select when it attaches the edges are fetched. A version that takes part in a
+     * conflict is left to the traversal, so that the meta-data of a version that is later evicted is never requested.
+     */
+    private void prefetchMetaData(List<DependencyEdge> dependencies, ConflictHandler conflictHandler) {
+        if (metaDataPrefetcher == null || dependencies.size() < 2) {
+            return;
+        }
+        Set<ModuleVersionResolveState> required = new LinkedHashSet<ModuleVersionResolveState>();
+        Set<ModuleIdentifier> registered = new HashSet<ModuleIdentifier>();
+        Set<ModuleIdentifier> conflicted = new HashSet<ModuleIdentifier>();
+        for (DependencyEdge dependency : dependencies) {
+            ModuleVersionResolveState moduleRevision = dependency.selector.resolveModuleRevisionId();
+            if (moduleRevision == null || required.contains(moduleRevision)) {
+                continue;
+            }
+            ModuleIdentifier moduleId = moduleRevision.id.getModule();
+            if (moduleRevision.state == ModuleState.New && !registered.contains(moduleId)) {
+                // Work out what the traversal will do when it registers this version, without registering it
+                if (conflictHandler.hasReplacementConflict(moduleRevision.module, registered)) {
+                    // Can't tell which modules the traversal will deselect, so stop here
+                    break;
+                }
+                registered.add(moduleId);
+                if (moduleRevision.module.getVersions().size() > 1) {
+                    conflicted.add(moduleId);
+                    continue;
+                }
+            } else if (moduleRevision.state != ModuleState.Selected || conflicted.contains(moduleId)) {
+                continue;
+            }
+            if (moduleRevision.isMetaDataFetchRequired()) {
+                required.add(moduleRevision);
+            }
+        }
+        if (required.size() < 2) {
+            return;
+        }
+        List<Runnable> fetches = new ArrayList<Runnable>(required.size());
+        for (final ModuleVersionResolveState moduleRevision : required) {
+            fetches.add(new Runnable() {
+                public void run() {
+                    moduleRevision.prefetchMetaData();
+                }
+
+                @Override
+                public String toString() {
+                    return "Resolve " + moduleRevision;
+                }
+            });
+        }
+        LOGGER.debug("Prefetching meta-data for {} module versions.", fetches.size());
+        metaDataPrefetcher.prefetch(fetches);
+    }
+
     /**
      * Populates the result from the graph traversal state.
      */
@@ -187,7 +257,7 @@ public class DependencyGraphBuilder {
         private final DependencyMetaData dependencyMetaData;
         private final ResolveState resolveState;
         private final ModuleResolutionFilter resolutionFilter;
-        private final Set<ConfigurationNode> targetConfigurations = new LinkedHashSet<ConfigurationNode>();
+        private final List<ConfigurationNode> targetConfigurations = new ArrayList<ConfigurationNode>();
         private ModuleVersionResolveState targetModuleRevision;
 
         public DependencyEdge(ConfigurationNode from, DependencyMetaData dependencyMetaData, ModuleResolutionFilter resolutionFilter, ResolveState resolveState) {
@@ -309,14 +379,13 @@ public class DependencyGraphBuilder {
      */
     private static class ResolveState {
         private final Map<ModuleIdentifier, ModuleResolveState> modules = new LinkedHashMap<ModuleIdentifier, ModuleResolveState>();
-        private final Map<ResolvedConfigurationIdentifier, ConfigurationNode> nodes = new LinkedHashMap<ResolvedConfigurationIdentifier, ConfigurationNode>();
+        private final List<ConfigurationNode> nodes = new ArrayList<ConfigurationNode>();
         private final Map<ModuleVersionSelector, ModuleVersionSelectorResolveState> selectors = new LinkedHashMap<ModuleVersionSelector, ModuleVersionSelectorResolveState>();
         private final RootConfigurationNode root;
         private final DependencyToComponentIdResolver idResolver;
         private final ComponentMetaDataResolver metaDataResolver;
         private final DependencyToConfigurationResolver dependencyToConfigurationResolver;
-        private final Set<ConfigurationNode> queued = new HashSet<ConfigurationNode>();
-        private final LinkedList<ConfigurationNode> queue = new LinkedList<ConfigurationNode>();
+        private final ArrayDeque<ConfigurationNode> queue = new ArrayDeque<ConfigurationNode>();
 
         public ResolveState(ComponentResolveResult rootResult, String rootConfigurationName, DependencyToComponentIdResolver idResolver,
                             ComponentMetaDataResolver metaDataResolver, DependencyToConfigurationResolver dependencyToConfigurationResolver) {
@@ -326,7 +395,7 @@ public class DependencyGraphBuilder {
             ModuleVersionResolveState rootVersion = getRevision(rootResult.getId());
             rootVersion.setMetaData(rootResult.getMetaData());
             root = new RootConfigurationNode(rootVersion, new ResolvedConfigurationIdentifier(rootVersion.id, rootConfigurationName), this);
-            nodes.put(root.id, root);
+            nodes.add(root);
             root.moduleRevision.module.select(root.moduleRevision);
         }
 
@@ -344,15 +413,15 @@ public class DependencyGraphBuilder {
         }
 
         public Collection<ConfigurationNode> getConfigurationNodes() {
-            return nodes.values();
+            return nodes;
         }
 
         public ConfigurationNode getConfigurationNode(ModuleVersionResolveState module, String configurationName) {
-            ResolvedConfigurationIdentifier id = new ResolvedConfigurationIdentifier(module.id, configurationName);
-            ConfigurationNode configuration = nodes.get(id);
+            // Look up the node via its module version, which has only a handful of configurations, rather than allocating a key for a global map
+            ConfigurationNode configuration = module.getConfiguration(configurationName);
             if (configuration == null) {
-                configuration = new ConfigurationNode(id, module, this);
-                nodes.put(id, configuration);
+                configuration = new ConfigurationNode(new ResolvedConfigurationIdentifier(module.id, configurationName), module, this);
+                nodes.add(configuration);
             }
             return configuration;
         }
@@ -368,12 +437,12 @@ public class DependencyGraphBuilder {
         }
 
         public ConfigurationNode peek() {
-            return queue.isEmpty() ? null : queue.getFirst();
+            return queue.peekFirst();
         }
 
         public ConfigurationNode pop() {
             ConfigurationNode next = queue.removeFirst();
-            queued.remove(next);
+            next.queued = false;
             return next;
         }
 
@@ -383,7 +452,8 @@ public class DependencyGraphBuilder {
         public void onMoreSelected(ConfigurationNode configuration) {
             // Add to the end of the queue, so that we traverse the graph in breadth-wise order to pick up as many conflicts as
             // possible before attempting to resolve them
-            if (queued.add(configuration)) {
+            if (!configuration.queued) {
+                configuration.queued = true;
                 queue.addLast(configuration);
             }
         }
@@ -393,7 +463,8 @@ public class DependencyGraphBuilder {
          */
         public void onFewerSelected(ConfigurationNode configuration) {
             // Add to the front of the queue, to flush out configurations that are no longer required.
-            if (queued.add(configuration)) {
+            if (!configuration.queued) {
+                configuration.queued = true;
                 queue.addFirst(configuration);
             }
         }
@@ -498,13 +569,14 @@ public class DependencyGraphBuilder {
     public static class ModuleVersionResolveState implements ComponentResolutionState, ModuleVersionSelection {
         public final ModuleVersionIdentifier id;
         private final ComponentMetaDataResolver resolver;
-        private final Set<ConfigurationNode> configurations = new LinkedHashSet<ConfigurationNode>();
+        private final List<ConfigurationNode> configurations = new ArrayList<ConfigurationNode>();
         private final ModuleResolveState module;
         private ComponentResolveMetaData metaData;
         private ModuleState state = ModuleState.New;
         private ComponentSelectionReason selectionReason = VersionSelectionReasons.REQUESTED;
         private ModuleVersionResolveException failure;
         private ModuleVersionSelectorResolveState firstReference;
+        private BuildableComponentResolveResult prefetched;
 
         private ModuleVersionResolveState(ModuleResolveState module, ModuleVersionIdentifier id, ComponentMetaDataResolver resolver) {
             this.module = module;
@@ -556,8 +628,12 @@ public class DependencyGraphBuilder {
                 return;
             }
 
-            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
-            resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            BuildableComponentResolveResult result = prefetched;
+            prefetched = null;
+            if (result == null) {
+                result = new DefaultBuildableComponentResolveResult();
+                resolver.resolve(idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            }
             if (result.getFailure() != null) {
                 failure = result.getFailure();
                 return;
@@ -565,6 +641,32 @@ public class DependencyGraphBuilder {
             metaData = result.getMetaData();
         }
 
+        /**
+         * Returns true when the meta-data for this version has to be fetched from a repository.
+         */
+        public boolean isMetaDataFetchRequired() {
+            if (metaData != null || failure != null || prefetched != null || firstReference == null) {
+                return false;
+            }
+            ComponentIdResolveResult idResolveResult = firstReference.idResolveResult;
+            return idResolveResult.getFailure() == null && idResolveResult.getMetaData() == null && idResolveResult.getId() instanceof ModuleComponentIdentifier;
+        }
+
+        /**
+         * Fetches the meta-data for this version, to be used when the traversal asks for it. May be called from any thread, while the traversal waits.
+         */
+        public void prefetchMetaData() {
+            DefaultBuildableComponentResolveResult result = new DefaultBuildableComponentResolveResult();
+            try {
+                resolver.resolve(firstReference.idResolveResult.getId(), DefaultComponentOverrideMetadata.forDependency(firstReference.dependencyMetaData), result);
+            } catch (Throwable t) {
+                // Leave it to the traversal to fetch again and report the problem in the usual way
+                LOGGER.debug("Could not prefetch meta-data for {}.", this, t);
+                return;
+            }
+            prefetched = result;
+        }
+
         public ComponentResolveMetaData getMetaData() {
             if (metaData == null) {
                 resolve();
@@ -581,6 +683,16 @@ public class DependencyGraphBuilder {
             configurations.add(configurationNode);
         }
 
+        @Nullable
+        public ConfigurationNode getConfiguration(String configurationName) {
+            for (ConfigurationNode configuration : configurations) {
+                if (configuration.id.getConfiguration().equals(configurationName)) {
+                    return configuration;
+                }
+            }
+            return null;
+        }
+
         public ComponentSelectionReason getSelectionReason() {
             return selectionReason;
         }
@@ -610,12 +722,13 @@ public class DependencyGraphBuilder {
     static class ConfigurationNode implements DependencyGraphNode {
         public final ModuleVersionResolveState moduleRevision;
         public final Set<DependencyEdge> incomingEdges = new LinkedHashSet<DependencyEdge>();
-        public final Set<DependencyEdge> outgoingEdges = new LinkedHashSet<DependencyEdge>();
+        public final List<DependencyEdge> outgoingEdges = new ArrayList<DependencyEdge>();
         public final ResolvedConfigurationIdentifier id;
 
         private final ConfigurationMetaData metaData;
         private final ResolveState resolveState;
         private ModuleResolutionFilter previousTraversal;
+        private boolean queued;
 
         private ConfigurationNode(ResolvedConfigurationIdentifier id, ModuleVersionResolveState moduleRevision, ResolveState resolveState) {
             this.id = id;
@@ -651,7 +764,7 @@ public class DependencyGraphBuilder {
         }
 
         @Override
-        public Set<DependencyGraphEdge> getOutgoingEdges() {
+        public Collection<DependencyGraphEdge> getOutgoingEdges() {
             return Cast.uncheckedCast(outgoingEdges);
         }
 
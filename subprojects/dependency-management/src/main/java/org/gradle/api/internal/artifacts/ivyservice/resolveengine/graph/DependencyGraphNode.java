@@ -22,6 +22,7 @@ import org.gradle.api.internal.artifacts.ResolvedConfigurationIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ModuleVersionSelection;
 import org.gradle.internal.component.model.ConfigurationMetaData;
 
+import java.util.Collection;
 import java.util.Set;
 
 public interface DependencyGraphNode {
@@ -35,7 +36,7 @@ public interface DependencyGraphNode {
 
     Set<DependencyGraphEdge> getIncomingEdges();
 
-    Set<DependencyGraphEdge> getOutgoingEdges();
+    Collection<DependencyGraphEdge> getOutgoingEdges();
 
     ConfigurationMetaData getMetaData();
 }
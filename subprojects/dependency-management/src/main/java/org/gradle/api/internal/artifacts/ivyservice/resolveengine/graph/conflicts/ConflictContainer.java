@@ -105,6 +105,20 @@ class ConflictContainer<K, T> {
         return registerConflict(asList(target), replacedBy);
     }
 
+    /**
+     * Informs whether given element has been added.
+     */
+    public boolean hasElement(K target) {
+        return elements.containsKey(target);
+    }
+
+    /**
+     * Informs whether given element replaces an element that has been added.
+     */
+    public boolean isReplacement(K target) {
+        return targetToSource.containsKey(target);
+    }
+
     public int getSize() {
         return conflicts.size();
     }
@@ -17,8 +17,11 @@
 package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts;
 
 import org.gradle.api.Action;
+import org.gradle.api.artifacts.ModuleIdentifier;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ModuleConflictResolver;
 
+import java.util.Collection;
+
 public interface ConflictHandler {
 
     /**
@@ -26,6 +29,12 @@ public interface ConflictHandler {
      */
     PotentialConflict registerModule(CandidateModule newModule);
 
+    /**
+     * Informs whether registering given new module would put it in conflict with another module via a module replacement.
+     * Does not register the module. The given pending modules are treated as if they had been registered already.
+     */
+    boolean hasReplacementConflict(CandidateModule newModule, Collection<ModuleIdentifier> pendingModules);
+
     /**
      * Informs whether there is any conflict at present
      */
@@ -25,6 +25,8 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.ComponentResol
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 
+import java.util.Collection;
+
 import static org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.conflicts.PotentialConflictFactory.potentialConflict;
 
 public class DefaultConflictHandler implements ConflictHandler {
@@ -49,6 +51,22 @@ public class DefaultConflictHandler implements ConflictHandler {
         return potentialConflict(conflicts.newElement(newModule.getId(), newModule.getVersions(), replacedBy));
     }
 
+    public boolean hasReplacementConflict(CandidateModule newModule, Collection<ModuleIdentifier> pendingModules) {
+        ModuleIdentifier replacedBy = moduleReplacements.getReplacementFor(newModule.getId());
+        if (replacedBy != null && (conflicts.hasElement(replacedBy) || pendingModules.contains(replacedBy))) {
+            return true;
+        }
+        if (conflicts.isReplacement(newModule.getId())) {
+            return true;
+        }
+        for (ModuleIdentifier pendingModule : pendingModules) {
+            if (newModule.getId().equals(moduleReplacements.getReplacementFor(pendingModule))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Informs if there are any batched up conflicts.
      */
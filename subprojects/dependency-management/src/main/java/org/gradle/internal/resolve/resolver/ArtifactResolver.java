@@ -38,4 +38,10 @@ public interface ArtifactResolver {
      * Resolves the given artifact. Any failures are packaged up in the result.
      */
     void resolveArtifact(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result);
+
+    /**
+     * Resolves the given artifact without making any remote requests, for example from the artifact cache. Leaves the result empty when the artifact
+     * cannot be resolved locally.
+     */
+    void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result);
 }
@@ -16,28 +16,56 @@
 
 package org.gradle.internal.resource.cached.ivy;
 
+import org.gradle.api.internal.artifacts.ivyservice.CacheLayout;
+import org.gradle.api.Nullable;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.os.OperatingSystem;
 import org.gradle.internal.resource.cached.CachedItem;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.internal.Factory;
 import org.gradle.internal.serialize.Serializer;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.util.Arrays;
 
+/**
+ * An index of cached artifacts, stored in a persistent indexed cache.
+ *
+ * <p>Except on Windows, the entries that are looked up or stored are also copied into a {@link MappedSortedIndex}. A lookup then tries that
+ * index first, without taking the cache lock, and only falls back to the persistent cache when the index does not know the key, records it as
+ * missing, or refers to a file that no longer exists. Changes are written to the index as they are made, and the changes of other processes
+ * are read each time the cache lock is acquired. Older Gradle versions use an earlier meta-data layout, so they never change the persistent
+ * cache behind the copy's back. The copy can be disabled by setting the {@value #MAPPED_INDEX_TOGGLE} system property to false. That should
+ * be done for all builds that share the cache, as an entry that a build without the copy changes may be read in its previous state until
+ * it expires.</p>
+ */
 abstract public class AbstractCachedIndex<K, V extends CachedItem> {
+    public static final String MAPPED_INDEX_TOGGLE = "org.gradle.resolution.mappedArtifactIndex";
+
     private final String persistentCacheFile;
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
     private final CacheLockingManager cacheLockingManager;
+    private final MappedSortedIndex mappedIndex;
 
     private PersistentIndexedCache<K, V> persistentCache;
 
     public AbstractCachedIndex(String persistentCacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, CacheLockingManager cacheLockingManager) {
+        this(persistentCacheFile, keySerializer, valueSerializer, cacheLockingManager, !"false".equalsIgnoreCase(System.getProperty(MAPPED_INDEX_TOGGLE)) && !OperatingSystem.current().isWindows());
+    }
 
+    AbstractCachedIndex(String persistentCacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer, CacheLockingManager cacheLockingManager, boolean useMappedIndex) {
         this.persistentCacheFile = persistentCacheFile;
         this.keySerializer = keySerializer;
         this.valueSerializer = valueSerializer;
         this.cacheLockingManager = cacheLockingManager;
+        // A mapped file cannot be replaced on Windows until the mapping is garbage collected
+        this.mappedIndex = useMappedIndex ? new MappedSortedIndex(new File(CacheLayout.META_DATA.getPath(cacheLockingManager.getCacheDir()), persistentCacheFile)) : null;
     }
 
     private PersistentIndexedCache<K, V> getPersistentCache() {
@@ -58,12 +86,33 @@ abstract public class AbstractCachedIndex<K, V extends CachedItem> {
     public V lookup(final K key) {
         assertKeyNotNull(key);
 
+        final byte[] encodedKey = mappedIndex == null ? null : encode(keySerializer, key);
+        if (encodedKey != null) {
+            byte[] encodedValue = mappedIndex.get(encodedKey);
+            if (encodedValue != null) {
+                V found = decode(valueSerializer, encodedValue);
+                // Another process may since have found what is recorded as missing, so check the persistent cache for those
+                if (!found.isMissing() && found.getCachedFile().exists()) {
+                    return found;
+                }
+            }
+        }
+
         return cacheLockingManager.useCache(operationName("lookup from"), new Factory<V>() {
             public V create() {
                 V found = getPersistentCache().get(key);
                 if (found == null) {
+                    if (encodedKey != null && getMappedIndex().get(encodedKey) != null) {
+                        updateMappedIndex(encodedKey, null);
+                    }
                     return null;
                 } else if (found.isMissing() || found.getCachedFile().exists()) {
+                    if (encodedKey != null) {
+                        byte[] encodedValue = encode(valueSerializer, found);
+                        if (!Arrays.equals(getMappedIndex().get(encodedKey), encodedValue)) {
+                            updateMappedIndex(encodedKey, encodedValue);
+                        }
+                    }
                     return found;
                 } else {
                     clear(key);
@@ -77,10 +126,45 @@ abstract public class AbstractCachedIndex<K, V extends CachedItem> {
         cacheLockingManager.useCache(operationName("store into"), new Runnable() {
             public void run() {
                 getPersistentCache().put(key, entry);
+                if (mappedIndex != null) {
+                    updateMappedIndex(encode(keySerializer, key), encode(valueSerializer, entry));
+                }
             }
         });
     }
 
+    private MappedSortedIndex getMappedIndex() {
+        // Reads the changes made by other processes since the cache lock was last held
+        mappedIndex.open();
+        return mappedIndex;
+    }
+
+    private void updateMappedIndex(byte[] encodedKey, @Nullable byte[] encodedValue) {
+        MappedSortedIndex index = getMappedIndex();
+        index.put(encodedKey, encodedValue);
+        index.flush();
+    }
+
+    private static <T> byte[] encode(Serializer<T> serializer, T value) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        KryoBackedEncoder encoder = new KryoBackedEncoder(outputStream);
+        try {
+            serializer.write(encoder, value);
+            encoder.flush();
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static <T> T decode(Serializer<T> serializer, byte[] encoded) {
+        try {
+            return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(encoded)));
+        } catch (Exception e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     protected void assertKeyNotNull(K key) {
         if (key == null) {
             throw new IllegalArgumentException("key cannot be null");
@@ -98,6 +182,9 @@ abstract public class AbstractCachedIndex<K, V extends CachedItem> {
         cacheLockingManager.useCache(operationName("clear from"), new Runnable() {
             public void run() {
                 getPersistentCache().remove(key);
+                if (mappedIndex != null) {
+                    updateMappedIndex(encode(keySerializer, key), null);
+                }
             }
         });
     }
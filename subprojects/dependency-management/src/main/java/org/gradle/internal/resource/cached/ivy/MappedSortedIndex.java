@@ -0,0 +1,422 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.cached.ivy;
+
+import com.google.common.hash.Hashing;
+import org.gradle.api.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32;
+
+/**
+ * A read-optimized copy of an index, which can be queried without holding the cache lock.
+ *
+ * <p>The entries are kept in two files. The snapshot file holds entries sorted by the hash of their key, and is memory mapped and searched
+ * with a binary search. The log file holds the entries changed since the snapshot was written, as a sequence of appended records. When the
+ * index is opened, the log is read into memory. Once the log has grown large enough, it is merged with the snapshot into a new snapshot
+ * file. The new file replaces the old one with a rename, so a snapshot file is never modified once written. That is why a reader in
+ * another process can keep using its mapping without the cache lock.</p>
+ *
+ * <p>Other processes change the files while they hold the cache lock, so {@link #open()} must be called each time the lock is acquired.
+ * It then reads the records appended to the log since it was last read, or reloads the index when the snapshot has been replaced.</p>
+ *
+ * <p>Keys and values are serialized bytes. Opening, changing and flushing the index must happen while holding the cache lock.</p>
+ */
+public class MappedSortedIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MappedSortedIndex.class);
+    private static final int SNAPSHOT_MAGIC = 0x5349445a;
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int SLOT_SIZE = 12;
+    private static final int MIN_RECORDS_TO_MERGE = 1000;
+    private static final int MAX_PENDING_RECORDS = 4096;
+    private static final byte[] REMOVED = new byte[0];
+
+    private final File snapshotFile;
+    private final File logFile;
+    private final List<Record> pending = new ArrayList<Record>();
+    private volatile State state = new State(null, new ConcurrentHashMap<ByteBuffer, byte[]>());
+    private boolean open;
+    private long logLength;
+    private long snapshotLength;
+    private long snapshotLastModified;
+
+    public MappedSortedIndex(File baseFile) {
+        this.snapshotFile = new File(baseFile.getParentFile(), baseFile.getName() + ".sorted");
+        this.logFile = new File(baseFile.getParentFile(), baseFile.getName() + ".log");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sorted index %s", snapshotFile);
+    }
+
+    /**
+     * Returns the value of the given key, or null when the index does not know the key. Does not need the cache lock.
+     */
+    @Nullable
+    public byte[] get(byte[] key) {
+        State state = this.state;
+        byte[] value = state.changed.get(ByteBuffer.wrap(key));
+        if (value != null) {
+            return value == REMOVED ? null : value;
+        }
+        ByteBuffer snapshot = state.snapshot;
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            return find(snapshot, key);
+        } catch (IndexOutOfBoundsException e) {
+            LOGGER.debug("Could not read {}.", this, e);
+            return null;
+        }
+    }
+
+    /**
+     * Maps the snapshot and reads the log, merging them into a new snapshot when the log has grown large. When the index is already open,
+     * reads the changes that other processes have made since, instead.
+     */
+    public void open() {
+        try {
+            if (!open) {
+                open = true;
+                load();
+            } else if (snapshotFile.length() != snapshotLength || snapshotFile.lastModified() != snapshotLastModified || logFile.length() < logLength) {
+                // Another process has merged the log into a new snapshot
+                flush();
+                load();
+            } else if (logFile.length() > logLength) {
+                Map<ByteBuffer, byte[]> logged = readLog(logLength);
+                for (Record record : pending) {
+                    // Not flushed yet, so these are appended after the records just read
+                    logged.remove(ByteBuffer.wrap(record.key));
+                }
+                state.changed.putAll(logged);
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not open {}.", this, e);
+        }
+    }
+
+    /**
+     * Reads the snapshot and the log into a new state, which replaces the current one in a single step. A reader never sees the changes
+     * of one snapshot combined with another snapshot.
+     */
+    private void load() throws IOException {
+        logLength = 0;
+        Map<ByteBuffer, byte[]> logged = readLog(0);
+        ByteBuffer current = mapSnapshot();
+        int snapshotCount = current == null ? 0 : current.getInt(8);
+        if (logged.size() >= Math.max(MIN_RECORDS_TO_MERGE, snapshotCount / 8)) {
+            current = merge(current, logged);
+            logged.clear();
+            logLength = 0;
+        }
+        state = new State(current, new ConcurrentHashMap<ByteBuffer, byte[]>(logged));
+        snapshotLength = snapshotFile.length();
+        snapshotLastModified = snapshotFile.lastModified();
+    }
+
+    /**
+     * Records the new value of the given key, or its removal when the value is null.
+     */
+    public void put(byte[] key, @Nullable byte[] value) {
+        state.changed.put(ByteBuffer.wrap(key), value == null ? REMOVED : value);
+        pending.add(new Record(key, value));
+        if (pending.size() >= MAX_PENDING_RECORDS) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends the changes recorded since the last flush to the log.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            // Records appended by other processes since the log was last read are read again on the next open
+            boolean upToDate = logFile.length() == logLength;
+            DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, true)));
+            try {
+                for (Record record : pending) {
+                    writeLogRecord(outputStream, record.key, record.value);
+                }
+            } finally {
+                outputStream.close();
+            }
+            if (upToDate) {
+                logLength = logFile.length();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Could not write {}.", logFile, e);
+        }
+        pending.clear();
+    }
+
+    private Map<ByteBuffer, byte[]> readLog(long offset) throws IOException {
+        Map<ByteBuffer, byte[]> entries = new HashMap<ByteBuffer, byte[]>();
+        if (!logFile.isFile()) {
+            return entries;
+        }
+        long length = logFile.length();
+        long validLength = offset;
+        FileInputStream fileInputStream = new FileInputStream(logFile);
+        fileInputStream.getChannel().position(offset);
+        DataInputStream inputStream = new DataInputStream(new BufferedInputStream(fileInputStream));
+        try {
+            while (true) {
+                long remaining = length - validLength;
+                if (remaining < 4) {
+                    break;
+                }
+                int keyLength = inputStream.readInt();
+                if (keyLength < 0 || keyLength + 12L > remaining) {
+                    break;
+                }
+                byte[] key = new byte[keyLength];
+                inputStream.readFully(key);
+                int valueLength = inputStream.readInt();
+                if (valueLength < -1 || keyLength + Math.max(valueLength, 0) + 12L > remaining) {
+                    break;
+                }
+                byte[] value = valueLength < 0 ? null : new byte[valueLength];
+                if (value != null) {
+                    inputStream.readFully(value);
+                }
+                if (inputStream.readInt() != checksum(key, value)) {
+                    break;
+                }
+                entries.put(ByteBuffer.wrap(key), value == null ? REMOVED : value);
+                validLength += keyLength + Math.max(valueLength, 0) + 12L;
+            }
+        } finally {
+            inputStream.close();
+        }
+        if (validLength < length) {
+            // Discard a record that was only partly written
+            RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+            try {
+                file.setLength(validLength);
+            } finally {
+                file.close();
+            }
+        }
+        logLength = validLength;
+        return entries;
+    }
+
+    private static void writeLogRecord(DataOutputStream outputStream, byte[] key, @Nullable byte[] value) throws IOException {
+        outputStream.writeInt(key.length);
+        outputStream.write(key);
+        if (value == null) {
+            outputStream.writeInt(-1);
+        } else {
+            outputStream.writeInt(value.length);
+            outputStream.write(value);
+        }
+        outputStream.writeInt(checksum(key, value));
+    }
+
+    private static int checksum(byte[] key, @Nullable byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        if (value != null) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+
+    @Nullable
+    private ByteBuffer mapSnapshot() throws IOException {
+        if (!snapshotFile.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+        try {
+            long length = file.length();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                return null;
+            }
+            ByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != SNAPSHOT_MAGIC || buffer.getInt(4) != SNAPSHOT_FORMAT || HEADER_SIZE + (long) buffer.getInt(8) * SLOT_SIZE > length) {
+                LOGGER.debug("Ignoring {} as it has an unexpected format.", this);
+                return null;
+            }
+            return buffer;
+        } finally {
+            file.close();
+        }
+    }
+
+    private ByteBuffer merge(@Nullable ByteBuffer current, Map<ByteBuffer, byte[]> logged) throws IOException {
+        Map<ByteBuffer, byte[]> entries = new HashMap<ByteBuffer, byte[]>();
+        if (current != null) {
+            int count = current.getInt(8);
+            for (int i = 0; i < count; i++) {
+                int offset = current.getInt(HEADER_SIZE + i * SLOT_SIZE + 8);
+                entries.put(ByteBuffer.wrap(readBytes(current, offset)), readBytes(current, offset + 4 + current.getInt(offset)));
+            }
+        }
+        for (Map.Entry<ByteBuffer, byte[]> entry : logged.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                entries.remove(entry.getKey());
+            } else {
+                entries.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        List<Slot> slots = new ArrayList<Slot>(entries.size());
+        for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().array();
+            slots.add(new Slot(hash(key), key, entry.getValue()));
+        }
+        Collections.sort(slots);
+
+        File tempFile = new File(snapshotFile.getParentFile(), snapshotFile.getName() + ".tmp");
+        DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            outputStream.writeInt(SNAPSHOT_MAGIC);
+            outputStream.writeInt(SNAPSHOT_FORMAT);
+            outputStream.writeInt(slots.size());
+            int offset = HEADER_SIZE + slots.size() * SLOT_SIZE;
+            for (Slot slot : slots) {
+                outputStream.writeLong(slot.hash);
+                outputStream.writeInt(offset);
+                offset += 8 + slot.key.length + slot.value.length;
+            }
+            for (Slot slot : slots) {
+                outputStream.writeInt(slot.key.length);
+                outputStream.write(slot.key);
+                outputStream.writeInt(slot.value.length);
+                outputStream.write(slot.value);
+            }
+        } finally {
+            outputStream.close();
+        }
+        if (!tempFile.renameTo(snapshotFile)) {
+            throw new IOException(String.format("Could not rename %s to %s.", tempFile, snapshotFile));
+        }
+        // The snapshot now holds the logged entries. Replaying them again after a crash at this point would do no harm.
+        if (!logFile.delete() && logFile.exists()) {
+            throw new IOException(String.format("Could not delete %s.", logFile));
+        }
+        LOGGER.debug("Merged {} logged entries into {}, which now holds {} entries.", logged.size(), this, slots.size());
+        return mapSnapshot();
+    }
+
+    @Nullable
+    private static byte[] find(ByteBuffer snapshot, byte[] key) {
+        long hash = hash(key);
+        int low = 0;
+        int high = snapshot.getInt(8) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midHash = hashAt(snapshot, mid);
+            if (midHash < hash) {
+                low = mid + 1;
+            } else if (midHash > hash) {
+                high = mid - 1;
+            } else {
+                while (mid > low && hashAt(snapshot, mid - 1) == hash) {
+                    mid--;
+                }
+                for (int i = mid; i <= high && hashAt(snapshot, i) == hash; i++) {
+                    int offset = snapshot.getInt(HEADER_SIZE + i * SLOT_SIZE + 8);
+                    if (keyMatches(snapshot, offset, key)) {
+                        return readBytes(snapshot, offset + 4 + key.length);
+                    }
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static long hashAt(ByteBuffer snapshot, int slot) {
+        return snapshot.getLong(HEADER_SIZE + slot * SLOT_SIZE);
+    }
+
+    private static boolean keyMatches(ByteBuffer snapshot, int offset, byte[] key) {
+        if (snapshot.getInt(offset) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (snapshot.get(offset + 4 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] readBytes(ByteBuffer snapshot, int offset) {
+        byte[] bytes = new byte[snapshot.getInt(offset)];
+        ByteBuffer source = snapshot.duplicate();
+        source.position(offset + 4);
+        source.get(bytes);
+        return bytes;
+    }
+
+    private static long hash(byte[] key) {
+        return Hashing.murmur3_128().hashBytes(key).asLong();
+    }
+
+    private static class State {
+        private final ByteBuffer snapshot;
+        private final ConcurrentMap<ByteBuffer, byte[]> changed;
+
+        private State(@Nullable ByteBuffer snapshot, ConcurrentMap<ByteBuffer, byte[]> changed) {
+            this.snapshot = snapshot;
+            this.changed = changed;
+        }
+    }
+
+    private static class Record {
+        private final byte[] key;
+        private final byte[] value;
+
+        private Record(byte[] key, @Nullable byte[] value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static class Slot implements Comparable<Slot> {
+        private final long hash;
+        private final byte[] key;
+        private final byte[] value;
+
+        private Slot(long hash, byte[] key, byte[] value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        public int compareTo(Slot other) {
+            return hash < other.hash ? -1 : (hash == other.hash ? 0 : 1);
+        }
+    }
+}
@@ -18,7 +18,9 @@ package org.gradle.api.internal.artifacts.ivyservice
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
 import org.gradle.cache.internal.FileLockManager
+import org.gradle.internal.serialize.Serializer
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.junit.Rule
@@ -71,4 +73,51 @@ class DefaultCacheLockingManagerTest extends Specification {
         1 * directoryCacheBuilder.open() >> persistentCache
         _ * persistentCache.baseDir >> testCacheDir
     }
+
+    def "does not create previous metadata cache when the previous layout has none"() {
+        given:
+        TestFile testCacheDir = temporaryFolder.file("test/cache")
+        Serializer<String> serializer = Mock()
+
+        when:
+        CacheLockingManager cacheLockingManager = new DefaultCacheLockingManager(cacheRepository)
+        def previousCache = cacheLockingManager.createPreviousMetaDataCache("module-metadata", serializer, serializer)
+
+        then:
+        previousCache == null
+        cacheLockingManager.previousMetaDataStore == new File(testCacheDir, CacheLayout.META_DATA.previousKey + System.properties['file.separator'] + 'descriptors')
+
+        and:
+        1 * cacheRepository.store(CacheLayout.ROOT.getKey()) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withDisplayName("artifact cache") >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withCrossVersionCache() >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None)) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.open() >> persistentCache
+        _ * persistentCache.baseDir >> testCacheDir
+        0 * persistentCache.createCache(_)
+    }
+
+    def "creates previous metadata cache when the previous layout has one"() {
+        given:
+        TestFile testCacheDir = temporaryFolder.file("test/cache")
+        testCacheDir.createFile(CacheLayout.META_DATA.previousKey + "/module-metadata.bin")
+        Serializer<String> serializer = Mock()
+        PersistentIndexedCache<String, String> indexedCache = Mock()
+
+        when:
+        CacheLockingManager cacheLockingManager = new DefaultCacheLockingManager(cacheRepository)
+        def previousCache = cacheLockingManager.createPreviousMetaDataCache("module-metadata", serializer, serializer)
+
+        then:
+        previousCache == indexedCache
+
+        and:
+        1 * cacheRepository.store(CacheLayout.ROOT.getKey()) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withDisplayName("artifact cache") >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withCrossVersionCache() >> directoryCacheBuilder
+        1 * directoryCacheBuilder.withLockOptions(mode(FileLockManager.LockMode.None)) >> directoryCacheBuilder
+        1 * directoryCacheBuilder.open() >> persistentCache
+        _ * persistentCache.baseDir >> testCacheDir
+        1 * persistentCache.createCache({ it.cacheName == CacheLayout.META_DATA.previousKey + "/module-metadata" }) >> indexedCache
+    }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedModuleVersion
+import org.gradle.api.artifacts.component.ComponentArtifactIdentifier
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ArtifactFileSource
+import org.gradle.internal.Factory
+import org.gradle.internal.component.model.IvyArtifactName
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.resolve.ArtifactResolveException
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ParallelArtifactFilePrefetcherTest extends Specification {
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        longRunningOperation(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+        useCache(_, _ as Factory) >> { String name, Factory action -> action.create() }
+    }
+    def progressLogger = Mock(ProgressLogger)
+    def progressLoggerFactory = Stub(ProgressLoggerFactory) {
+        newOperation(ParallelArtifactFilePrefetcher) >> progressLogger
+    }
+    def executorFactory = new DefaultExecutorFactory()
+    def threads = new CopyOnWriteArrayList<Thread>()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "resolves the artifact files on other threads and reports progress"() {
+        given:
+        def prefetcher = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 4)
+        def artifacts = (1..3).collect { artifact() }
+
+        when:
+        prefetcher.prefetch("configuration ':compile'", artifacts)
+
+        then:
+        threads.size() == 3
+        !threads.contains(Thread.currentThread())
+        1 * progressLogger.start("Resolve files of configuration ':compile'", "Resolve files")
+        3 * progressLogger.progress({ it ==~ /\d\/3 files/ })
+        1 * progressLogger.completed()
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "ignores artifacts that cannot be resolved"() {
+        given:
+        def prefetcher = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 4)
+        def broken = Stub(ResolvedArtifact) {
+            getFile() >> { throw new ArtifactResolveException("broken") }
+        }
+
+        when:
+        prefetcher.prefetch("configuration ':compile'", [broken, artifact()])
+
+        then:
+        noExceptionThrown()
+        threads.size() == 1
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "does nothing when a single thread is allowed or there is only one artifact"() {
+        given:
+        def sequential = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 1)
+        def parallel = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 4)
+
+        when:
+        sequential.prefetch("configuration ':compile'", [artifact(), artifact()])
+        parallel.prefetch("configuration ':compile'", [artifact()])
+
+        then:
+        threads.empty
+        0 * progressLogger._
+
+        cleanup:
+        parallel.stop()
+    }
+
+    def "locates cached files first and downloads the others interleaved by repository"() {
+        given:
+        def prefetcher = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 4)
+        def cached = repositoryArtifact("repo1", new File("cached.jar"))
+        def a1 = repositoryArtifact("repo1", null)
+        def a2 = repositoryArtifact("repo1", null)
+        def a3 = repositoryArtifact("repo1", null)
+        def b1 = repositoryArtifact("repo2", null)
+        def b2 = repositoryArtifact("repo2", null)
+        def other = artifact()
+
+        when:
+        def missing = prefetcher.locateCachedFiles("configuration ':compile'", [a1, cached, a2, b1, other, a3, b2])
+
+        then:
+        missing.size() == 6
+        [missing, [a1, b1, other, a2, b2, a3]].transpose().every { actual, expected -> actual.is(expected) }
+        cached.getFile() == new File("cached.jar")
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def "does not start threads when all files are cached"() {
+        given:
+        def prefetcher = new ParallelArtifactFilePrefetcher(cacheLockingManager, progressLoggerFactory, executorFactory, 4)
+
+        when:
+        prefetcher.prefetch("configuration ':compile'", [repositoryArtifact("repo", new File("a.jar")), repositoryArtifact("repo", new File("b.jar"))])
+
+        then:
+        threads.empty
+        0 * progressLogger._
+
+        cleanup:
+        prefetcher.stop()
+    }
+
+    def repositoryArtifact(String repositoryId, File cachedFile) {
+        def source = Stub(ArtifactFileSource) {
+            getRepositoryId() >> repositoryId
+            createLocally() >> cachedFile
+            create() >> {
+                threads << Thread.currentThread()
+                return new File("downloaded.jar")
+            }
+        }
+        return new DefaultResolvedArtifact(Stub(ResolvedModuleVersion), Stub(IvyArtifactName), Stub(ComponentArtifactIdentifier), source)
+    }
+
+    def artifact() {
+        return Stub(ResolvedArtifact) {
+            getFile() >> {
+                threads << Thread.currentThread()
+                return new File("artifact.jar")
+            }
+        }
+    }
+}
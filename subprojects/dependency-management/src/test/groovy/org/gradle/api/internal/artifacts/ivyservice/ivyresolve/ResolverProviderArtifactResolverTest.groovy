@@ -125,4 +125,18 @@ class ResolverProviderArtifactResolverTest extends Specification {
         and:
         result.file == artifactFile
     }
+
+    def "does not use remote access when locating artifact locally"() {
+        def artifact = Mock(ComponentArtifactMetaData)
+        when:
+        resolver.resolveArtifactLocally(artifact, repo2Source, result)
+
+        then:
+        1 * repo2.getLocalAccess() >> localAccess2
+        1 * localAccess2.resolveArtifact(artifact, originalSource, result)
+        0 * _._
+
+        and:
+        !result.hasResult()
+    }
 }
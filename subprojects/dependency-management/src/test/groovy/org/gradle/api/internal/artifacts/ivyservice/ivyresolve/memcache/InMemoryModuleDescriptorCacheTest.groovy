@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.memcache
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.gradle.internal.Factory
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import spock.lang.Specification
+
+class InMemoryModuleDescriptorCacheTest extends Specification {
+    def cache = new InMemoryModuleDescriptorCache(10, true)
+    def parser = Mock(Factory)
+    def descriptor = Stub(ModuleDescriptor)
+    def componentId = DefaultModuleComponentIdentifier.newId("org", "foo", "1.0")
+
+    def "parses descriptor once and serves it from the cache afterwards"() {
+        when:
+        def first = cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+        def second = cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+
+        then:
+        1 * parser.create() >> descriptor
+        first == descriptor
+        second == descriptor
+        cache.stats.descriptorsServed.get() == 1
+        cache.stats.descriptorsParsed.get() == 1
+    }
+
+    def "parses descriptor again when its hash or repository changes"() {
+        given:
+        cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, Stub(Factory) { create() >> descriptor })
+
+        when:
+        cache.getModuleDescriptor("repo", componentId, BigInteger.TEN, parser)
+        cache.getModuleDescriptor("other", componentId, BigInteger.ONE, parser)
+
+        then:
+        2 * parser.create() >> Stub(ModuleDescriptor)
+    }
+
+    def "does not cache missing descriptor"() {
+        when:
+        def first = cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+        def second = cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+
+        then:
+        2 * parser.create() >> null
+        first == null
+        second == null
+    }
+
+    def "always parses descriptor when disabled"() {
+        given:
+        cache = new InMemoryModuleDescriptorCache(10, false)
+
+        when:
+        cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+        cache.getModuleDescriptor("repo", componentId, BigInteger.ONE, parser)
+
+        then:
+        2 * parser.create() >> descriptor
+    }
+}
@@ -15,9 +15,11 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
 
+import org.gradle.api.Transformer
 import org.gradle.internal.component.external.model.MavenModuleResolveMetaData
 import org.gradle.internal.resource.local.DefaultLocallyAvailableExternalResource
 import org.gradle.internal.resource.local.DefaultLocallyAvailableResource
+import org.gradle.internal.resource.local.LocallyAvailableExternalResource
 import spock.lang.Issue
 import spock.lang.Unroll
 
@@ -2297,4 +2299,59 @@ class GradlePomModuleDescriptorParserTest extends AbstractGradlePomModuleDescrip
         depGroupOne.moduleConfigurations as List == ['compile', 'runtime']
         hasDefaultDependencyArtifact(depGroupOne)
     }
+
+    def "parses parent pom shared by multiple poms only once"() {
+        given:
+        def parent = tmpDir.file("parent.xml") << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>parent</artifactId>
+    <version>version-one</version>
+
+    <dependencies>
+        <dependency>
+            <groupId>group-two</groupId>
+            <artifactId>artifact-two</artifactId>
+            <version>1.2</version>
+        </dependency>
+    </dependencies>
+</project>
+"""
+        def otherPom = tmpDir.file("other.xml")
+        [pomFile, otherPom].each { pom ->
+            pom << """
+<project>
+    <modelVersion>4.0.0</modelVersion>
+    <artifactId>${pom.name}</artifactId>
+
+    <parent>
+        <groupId>group-one</groupId>
+        <artifactId>parent</artifactId>
+        <version>version-one</version>
+    </parent>
+</project>
+"""
+        }
+        def parentResource = Mock(LocallyAvailableExternalResource)
+
+        and:
+        parseContext.getMetaDataArtifact(_, MAVEN_POM) >> parentResource
+        parentResource.getLocalResource() >> new DefaultLocallyAvailableResource(parent)
+
+        when:
+        def descriptor = parsePom()
+        def otherDescriptor = parser.parseMetaData(parseContext, otherPom, true).descriptor
+
+        then:
+        1 * parentResource.withContent(_ as Transformer) >> { Transformer action -> parent.withInputStream { action.transform(it) } }
+
+        and:
+        descriptor.moduleRevisionId == moduleId('group-one', 'foo', 'version-one')
+        otherDescriptor.moduleRevisionId == moduleId('group-one', 'other.xml', 'version-one')
+        [descriptor, otherDescriptor].each {
+            assert it.dependencies.length == 1
+            assert it.dependencies[0].dependencyRevisionId == moduleId('group-two', 'artifact-two', '1.2')
+        }
+    }
 }
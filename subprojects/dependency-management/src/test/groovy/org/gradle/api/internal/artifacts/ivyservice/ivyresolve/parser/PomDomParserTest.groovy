@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser
+
+import org.apache.ivy.util.XMLHelper
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.PomDomParser.PomElement
+import org.w3c.dom.Element
+import org.w3c.dom.Node
+import org.xml.sax.EntityResolver
+import org.xml.sax.InputSource
+import org.xml.sax.SAXException
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import javax.xml.stream.XMLStreamException
+
+class PomDomParserTest extends Specification {
+    private static final List<String> CORPUS = [
+        """<project>
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>group-one</groupId>
+    <artifactId>artifact-one</artifactId>
+    <version>version-one</version>
+</project>""",
+        """<?xml version="1.0" encoding="UTF-8"?>
+<project xmlns="http://maven.apache.org/POM/4.0.0" xmlns:xsi="http://www.w3.org/2001/XMLSchema-instance"
+         xsi:schemaLocation="http://maven.apache.org/POM/4.0.0 http://maven.apache.org/maven-v4_0_0.xsd">
+    <!-- a comment -->
+    <modelVersion>4.0.0</modelVersion>
+    <parent>
+        <groupId>org.sonatype.oss</groupId>
+        <artifactId>oss-parent</artifactId>
+        <version>7</version>
+    </parent>
+    <groupId>org.test</groupId>
+    <artifactId>module</artifactId>
+    <version>\${revision}</version>
+    <packaging>bundle</packaging>
+    <description>
+        Description with entities &amp; &lt;markup&gt;, Maven entities &nbsp;&copy; and <![CDATA[a <cdata> section]]>.
+    </description>
+    <properties>
+        <revision>1.0</revision>
+        <empty></empty>
+        <pom:prefixed xmlns:pom="urn:test">value</pom:prefixed>
+    </properties>
+    <dependencyManagement>
+        <dependencies>
+            <dependency>
+                <groupId>org.test</groupId>
+                <artifactId>bom</artifactId>
+                <version>1.0</version>
+                <type>pom</type>
+                <scope>import</scope>
+            </dependency>
+        </dependencies>
+    </dependencyManagement>
+    <dependencies>
+        <dependency>
+            <groupId>org.test</groupId>
+            <artifactId>dep</artifactId>
+            <optional>true</optional>
+            <exclusions>
+                <exclusion>
+                    <groupId>*</groupId>
+                    <artifactId>*</artifactId>
+                </exclusion>
+            </exclusions>
+        </dependency>
+    </dependencies>
+    <profiles>
+        <profile>
+            <id>default</id>
+            <activation><activeByDefault>true</activeByDefault></activation>
+        </profile>
+    </profiles>
+</project>""",
+        """<?xml version='1.0'?><model><groupId>group</groupId>mixed<artifactId>module</artifactId>content</model>""",
+        "\uFEFF<project><version>1.0</version></project>"
+    ]
+
+    @Unroll
+    def "produces the same tree as the DOM parser for POM #index"() {
+        expect:
+        assertSameTree(parse(CORPUS[index]), parseToDom(CORPUS[index]))
+
+        where:
+        index << (0..<CORPUS.size())
+    }
+
+    def "provides text content of elements"() {
+        when:
+        def project = parse(CORPUS[1])
+
+        then:
+        project.name == "project"
+        PomDomParser.getFirstChildText(project, "packaging") == "bundle"
+        PomDomParser.getFirstChildText(project, "missing") == null
+        PomDomParser.getFirstChildText(PomDomParser.getFirstChildElement(project, "properties"), "empty") == ""
+        PomDomParser.getFirstChildText(project, "description").trim() == "Description with entities & <markup>, Maven entities \u00a0\u00a9 and a <cdata> section."
+        PomDomParser.getAllChilds(PomDomParser.getFirstChildElement(project, "properties"))*.name == ["revision", "empty", "pom:prefixed"]
+        PomDomParser.getAllChilds(null).empty
+    }
+
+    def "fails on malformed XML"() {
+        when:
+        parse("<project><groupId>group</project>")
+
+        then:
+        thrown(XMLStreamException)
+    }
+
+    private static PomElement parse(String pom) {
+        return PomDomParser.parse(new ByteArrayInputStream(pom.getBytes("UTF-8")), "file:/pom.xml")
+    }
+
+    private static Element parseToDom(String pom) {
+        EntityResolver entityResolver = new EntityResolver() {
+            InputSource resolveEntity(String publicId, String systemId) throws SAXException, IOException {
+                if (systemId != null && systemId.endsWith("m2-entities.ent")) {
+                    return new InputSource(org.apache.ivy.plugins.parser.m2.PomReader.getResourceAsStream("m2-entities.ent"))
+                }
+                return null
+            }
+        }
+        def stream = new PomDomParser.AddDTDFilterInputStream(new ByteArrayInputStream(pom.getBytes("UTF-8")))
+        return XMLHelper.getDocBuilder(entityResolver).parse(stream, "file:/pom.xml").documentElement
+    }
+
+    private static void assertSameTree(PomElement element, Element domElement) {
+        assert element.name == domElement.nodeName
+        assert element.text == textContent(domElement)
+        def domChildren = (0..<domElement.childNodes.length).collect { domElement.childNodes.item(it) }.findAll { it instanceof Element }
+        assert element.children*.name == domChildren*.nodeName
+        [element.children, domChildren].transpose().each { PomElement child, Element domChild ->
+            assertSameTree(child, domChild)
+        }
+    }
+
+    private static String textContent(Element element) {
+        def text = new StringBuilder()
+        for (int i = 0; i < element.childNodes.length; i++) {
+            def child = element.childNodes.item(i)
+            if (child.nodeType == Node.TEXT_NODE || child.nodeType == Node.CDATA_SECTION_NODE) {
+                text.append(child.nodeValue)
+            }
+        }
+        return text.toString()
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.ModuleComponentRepository
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class LegacyModuleDescriptorStoreTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    ModuleComponentRepository repository = Mock()
+    ModuleComponentIdentifier moduleComponentIdentifier = Mock()
+    LegacyModuleDescriptorStore store
+
+    def setup() {
+        store = new LegacyModuleDescriptorStore(temporaryFolder.file("descriptors"), new IvyXmlModuleDescriptorParser(new ResolverStrategy()))
+        _ * repository.getId() >> "repositoryId"
+        _ * moduleComponentIdentifier.group >> "org.test"
+        _ * moduleComponentIdentifier.module >> "testArtifact"
+        _ * moduleComponentIdentifier.version >> "1.0"
+    }
+
+    def "returns null for not cached descriptors"() {
+        expect:
+        store.getModuleDescriptor(repository, moduleComponentIdentifier) == null
+        !temporaryFolder.file("descriptors").exists()
+    }
+
+    def "parses cached ivy.xml without modifying it"() {
+        given:
+        def ivyXml = temporaryFolder.file("descriptors/org.test/testArtifact/1.0/repositoryId/ivy.xml")
+        ivyXml.text = """
+<ivy-module version="2.0">
+    <info organisation="org.test" module="testArtifact" revision="1.0"/>
+    <dependencies>
+        <dependency org="org.test" name="dep1" rev="1.0"/>
+    </dependencies>
+</ivy-module>
+"""
+        def lastModified = ivyXml.lastModified()
+
+        when:
+        def descriptor = store.getModuleDescriptor(repository, moduleComponentIdentifier)
+
+        then:
+        descriptor.moduleRevisionId.organisation == "org.test"
+        descriptor.moduleRevisionId.revision == "1.0"
+        descriptor.dependencies*.dependencyRevisionId*.name == ["dep1"]
+        ivyXml.lastModified() == lastModified
+    }
+
+    def "ignores descriptors that were not completely written"() {
+        given:
+        temporaryFolder.file("descriptors/org.test/testArtifact/1.0/repositoryId/ivy.xml").text = "<ivy-module"
+        def marker = temporaryFolder.createFile("descriptors/org.test/testArtifact/1.0/repositoryId/ivy.xml.fslck")
+
+        expect:
+        store.getModuleDescriptor(repository, moduleComponentIdentifier) == null
+        marker.exists()
+    }
+
+    def "ignores descriptors that cannot be parsed"() {
+        given:
+        temporaryFolder.file("descriptors/org.test/testArtifact/1.0/repositoryId/ivy.xml").text = "<ivy-module"
+
+        expect:
+        store.getModuleDescriptor(repository, moduleComponentIdentifier) == null
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.util.BuildCommencedTimeProvider
+import spock.lang.Specification
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier.newId
+
+class MissingModuleIndexTest extends Specification {
+    def entries = [:]
+    def persistentCache = Stub(PersistentIndexedCache) {
+        get(_) >> { String key -> entries[key] }
+        put(_, _) >> { String key, value -> entries[key] = value }
+    }
+    def cacheLockingManager = Stub(CacheLockingManager) {
+        createCache(_, _, _) >> persistentCache
+        useCache(_, _ as Runnable) >> { String name, Runnable action -> action.run() }
+    }
+    def timeProvider = Stub(BuildCommencedTimeProvider) {
+        getCurrentTime() >> { now }
+    }
+    def now = 100000L
+    def module = newId("org", "foo", "1.0")
+
+    def "remembers missing modules per repository across builds"() {
+        given:
+        def index = new MissingModuleIndex(cacheLockingManager, timeProvider, true)
+
+        when:
+        index.missing("repo", module, 1000)
+
+        then:
+        index.getMissingSince("repo", module) == 1000
+        index.getMissingSince("other", module) == null
+        index.getMissingSince("repo", newId("org", "foo", "1.1")) == null
+
+        when:
+        index.stop()
+        def nextBuild = new MissingModuleIndex(cacheLockingManager, timeProvider, true)
+
+        then:
+        nextBuild.getMissingSince("repo", module) == 1000
+    }
+
+    def "forgets a module once it is found"() {
+        given:
+        entries["repo"] = ["org:foo:1.0": 1000L]
+        def index = new MissingModuleIndex(cacheLockingManager, timeProvider, true)
+
+        when:
+        index.found("repo", module)
+
+        then:
+        index.getMissingSince("repo", module) == null
+
+        when:
+        index.stop()
+
+        then:
+        entries["repo"] == [:]
+    }
+
+    def "merges changes with the records stored by other processes"() {
+        given:
+        def index = new MissingModuleIndex(cacheLockingManager, timeProvider, true)
+        index.getMissingSince("repo", module)
+        entries["repo"] = ["org:bar:1.0": 2000L, "org:baz:1.0": 3000L]
+
+        when:
+        index.missing("repo", module, 1000)
+        index.found("repo", newId("org", "baz", "1.0"))
+        index.stop()
+
+        then:
+        entries["repo"] == ["org:foo:1.0": 1000L, "org:bar:1.0": 2000L]
+    }
+
+    def "discards old records when storing the index"() {
+        given:
+        now = 40L * 24 * 60 * 60 * 1000
+        entries["repo"] = ["org:bar:1.0": 1000L]
+        def index = new MissingModuleIndex(cacheLockingManager, timeProvider, true)
+
+        when:
+        index.missing("repo", module, now)
+        index.stop()
+
+        then:
+        entries["repo"] == ["org:foo:1.0": now]
+    }
+
+    def "does nothing when disabled"() {
+        given:
+        def index = new MissingModuleIndex(cacheLockingManager, timeProvider, false)
+
+        when:
+        index.missing("repo", module, 1000)
+        index.stop()
+
+        then:
+        index.getMissingSince("repo", module) == null
+        entries.isEmpty()
+    }
+}
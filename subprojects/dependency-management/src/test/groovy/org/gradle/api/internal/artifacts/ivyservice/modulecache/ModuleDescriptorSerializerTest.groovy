@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.modulecache
+
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.gradle.api.internal.artifacts.ivyservice.IvyXmlModuleDescriptorWriter
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.DescriptorParseContext
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.parser.IvyXmlModuleDescriptorParser
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.ResolverStrategy
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ModuleDescriptorSerializerTest extends Specification {
+    @Rule TestNameTestDirectoryProvider temporaryFolder
+    def resolverStrategy = new ResolverStrategy()
+    def serializer = new ModuleDescriptorSerializer(resolverStrategy)
+
+    def "serialized descriptor holds the same information as the ivy.xml"() {
+        given:
+        def md = parse """
+<ivy-module version="2.0" xmlns:e="http://ant.apache.org/ivy/extra">
+    <info organisation="org.test" module="projectA" branch="trunk" revision="1.2" status="release" publication="20120817120000" e:buildNr="815">
+        <license name="Apache License" url="http://www.apache.org/licenses/LICENSE-2.0.txt"/>
+        <description homepage="http://www.test.org">A test module</description>
+        <e:info>some info</e:info>
+    </info>
+    <configurations>
+        <conf name="compile" visibility="public" description="compile classpath"/>
+        <conf name="runtime" extends="compile"/>
+        <conf name="test" visibility="private" extends="*" transitive="false" deprecated="use runtime"/>
+    </configurations>
+    <publications>
+        <artifact name="projectA" type="jar" ext="jar" conf="compile,runtime"/>
+        <artifact name="projectA" type="source" ext="jar" conf="runtime" e:classifier="sources"/>
+    </publications>
+    <dependencies>
+        <dependency org="org.test" name="dep1" rev="1.0" conf="compile->default"/>
+        <dependency org="org.test" name="dep2" branch="b" rev="2.0" revConstraint="2.+" force="true" changing="true" transitive="false" conf="runtime->default,@;test->#">
+            <artifact name="dep2" type="zip" ext="zip" conf="runtime" e:classifier="dist"/>
+            <include name="dep2" type="jar" ext="jar" matcher="exact" conf="runtime"/>
+            <exclude org="org.other" module="excluded" matcher="glob" conf="runtime,test"/>
+        </dependency>
+        <dependency org="org.test" name="dep3" rev="3.0" conf="*->@(default)"/>
+        <dependency org="org.test" name="dep4" rev="4.0" conf="%->master"/>
+        <exclude org="org.excluded" module="*" matcher="exact"/>
+    </dependencies>
+</ivy-module>
+"""
+
+        when:
+        def copy = roundTrip(md)
+
+        then:
+        toIvyXml(copy) == toIvyXml(md)
+    }
+
+    def "decodes published artifacts when they are first queried"() {
+        given:
+        def md = parse """
+<ivy-module version="2.0">
+    <info organisation="org.test" module="projectA" revision="1.2"/>
+    <configurations>
+        <conf name="compile"/>
+        <conf name="runtime" extends="compile"/>
+    </configurations>
+    <publications>
+        <artifact name="projectA" type="jar" ext="jar" conf="compile"/>
+        <artifact name="projectA-extra" type="jar" ext="jar" conf="runtime"/>
+    </publications>
+</ivy-module>
+"""
+
+        when:
+        def copy = roundTrip(md)
+
+        then:
+        copy.moduleRevisionId == md.moduleRevisionId
+        copy.configurationsNames as List == ["compile", "runtime"]
+        copy.encodedArtifacts != null
+
+        and:
+        copy.getArtifacts("runtime")*.name == ["projectA-extra"]
+        copy.encodedArtifacts == null
+        copy.allArtifacts*.name as Set == ["projectA", "projectA-extra"] as Set
+        copy.getArtifacts("compile")[0].moduleRevisionId == md.moduleRevisionId
+    }
+
+    def "keeps encoded artifacts when they cannot be decoded"() {
+        given:
+        def md = parse """
+<ivy-module version="2.0">
+    <info organisation="org.test" module="projectA" revision="1.2"/>
+</ivy-module>
+"""
+        def copy = roundTrip(md)
+        copy.encodedArtifacts = new byte[0]
+
+        when:
+        copy.allArtifacts
+
+        then:
+        thrown(Exception)
+        copy.encodedArtifacts != null
+    }
+
+    private ModuleDescriptor parse(String ivyXml) {
+        def file = temporaryFolder.file("ivy.xml")
+        file.text = ivyXml
+        return new IvyXmlModuleDescriptorParser(resolverStrategy).parseMetaData(Stub(DescriptorParseContext), file, true).descriptor
+    }
+
+    private ModuleDescriptor roundTrip(ModuleDescriptor md) {
+        def outputStream = new ByteArrayOutputStream()
+        def encoder = new KryoBackedEncoder(outputStream)
+        serializer.write(encoder, md)
+        encoder.flush()
+        return serializer.read(new KryoBackedDecoder(new ByteArrayInputStream(outputStream.toByteArray())))
+    }
+
+    private String toIvyXml(ModuleDescriptor md) {
+        def file = temporaryFolder.file("written/ivy.xml")
+        new IvyXmlModuleDescriptorWriter().write(md, file)
+        return file.text
+    }
+}
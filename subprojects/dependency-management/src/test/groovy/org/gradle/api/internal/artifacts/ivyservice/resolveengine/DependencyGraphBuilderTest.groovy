@@ -27,10 +27,12 @@ import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
 import org.gradle.api.internal.artifacts.DefaultModuleVersionSelector
 import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
 import org.gradle.api.internal.artifacts.dsl.ModuleReplacementsData
+import org.gradle.api.internal.artifacts.ivyservice.ArtifactFilePrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager
 import org.gradle.api.internal.artifacts.ivyservice.DefaultLenientConfiguration
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.DefaultResolvedArtifactsBuilder
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.artifact.ResolvedArtifactsGraphVisitor
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.ComponentMetaDataPrefetcher
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyArtifactsVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.CompositeDependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphBuilder
@@ -108,7 +110,7 @@ class DependencyGraphBuilderTest extends Specification {
         def graphResults = modelBuilder.complete()
         def artifactResults = artifactsBuilder.resolve()
 
-        new DefaultLenientConfiguration(configuration, Stub(CacheLockingManager), graphResults.getUnresolvedDependencies(),
+        new DefaultLenientConfiguration(configuration, Stub(CacheLockingManager), Stub(ArtifactFilePrefetcher), graphResults.getUnresolvedDependencies(),
                 artifactResults, new TransientConfigurationResultsLoader(transientConfigurationResultsBuilder, graphResults, artifactResults))
     }
 
@@ -130,6 +132,70 @@ class DependencyGraphBuilderTest extends Specification {
         modules(result) == ids(a, b, c)
     }
 
+    def "fetches meta-data for the targets of each node at the same time"() {
+        given:
+        def batches = []
+        def prefetcher = { Collection<Runnable> fetches ->
+            batches << fetches*.toString()
+            fetches.collect { fetch -> Thread.start { fetch.run() } }*.join()
+        } as ComponentMetaDataPrefetcher
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+
+        def a = revision("a")
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, a
+        traverses root, b
+        traverses a, c
+        traverses a, d
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        modules(result) == ids(a, b, c, d)
+        batches == [["Resolve group:a:1.0", "Resolve group:b:1.0"], ["Resolve group:c:1.0", "Resolve group:d:1.0"]]
+    }
+
+    def "does not fetch meta-data for a version that takes part in a conflict"() {
+        given:
+        def batches = []
+        def prefetcher = { Collection<Runnable> fetches ->
+            batches << fetches*.toString()
+            fetches*.run()
+        } as ComponentMetaDataPrefetcher
+        builder = new DependencyGraphBuilder(idResolver, metaDataResolver, moduleResolver, dependencyToConfigurationResolver, new DefaultConflictHandler(conflictResolver, moduleReplacements), prefetcher)
+
+        def selected = revision('a', '1.2')
+        def evicted = revision('a', '1.1')
+        def b = revision("b")
+        def c = revision("c")
+        def d = revision("d")
+        traverses root, selected
+        traverses root, b
+        doesNotTraverse b, evicted
+        traverses b, c
+        traverses b, d
+
+        when:
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        1 * conflictResolver.select(!null) >> {
+            Collection<ComponentResolutionState> candidates = it[0]
+            assert candidates*.version == ['1.2', '1.1']
+            return candidates.find { it.version == '1.2' }
+        }
+        0 * conflictResolver._
+
+        and:
+        modules(result) == ids(selected, b, c, d)
+        batches == [["Resolve group:a:1.2", "Resolve group:b:1.0"], ["Resolve group:c:1.0", "Resolve group:d:1.0"]]
+    }
+
     def "correctly notifies the resolution result builder"() {
         given:
         def a = revision("a")
@@ -71,6 +71,28 @@ class DefaultConflictHandlerTest extends Specification {
         handler.hasConflicts()
     }
 
+    def "informs about module conflict without registering module"() {
+        def a = candidate("org", "a", "1")
+        def b = candidate("org", "b", "1")
+        def c = candidate("org", "c", "1")
+
+        replacements.getReplacementFor(DefaultModuleIdentifier.newId("org", "a")) >> DefaultModuleIdentifier.newId("org", "b")
+
+        expect:
+        !handler.hasReplacementConflict(a, [])
+        !handler.hasReplacementConflict(b, [])
+        handler.hasReplacementConflict(b, [a.id])
+        handler.hasReplacementConflict(a, [b.id])
+        !handler.hasReplacementConflict(c, [a.id, b.id])
+
+        when:
+        handler.registerModule(a)
+
+        then:
+        handler.hasReplacementConflict(b, [])
+        !handler.hasConflicts()
+    }
+
     def "resolves conflict"() {
         def a = candidate("org", "a", "1", "2")
         handler.registerModule(a)
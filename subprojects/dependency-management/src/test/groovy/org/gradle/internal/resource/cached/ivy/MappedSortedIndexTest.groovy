@@ -0,0 +1,210 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.resource.cached.ivy
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class MappedSortedIndexTest extends Specification {
+    @Rule TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def baseFile = tmp.file("index")
+
+    def "reads the changes made by a previous instance from the log"() {
+        given:
+        def index = openIndex()
+        index.put(bytes("a"), bytes("1"))
+        index.put(bytes("b"), bytes("2"))
+        index.put(bytes("b"), null)
+
+        expect:
+        string(index.get(bytes("a"))) == "1"
+        index.get(bytes("b")) == null
+
+        when:
+        index.flush()
+        def reopened = new MappedSortedIndex(baseFile)
+
+        then:
+        reopened.get(bytes("a")) == null
+
+        when:
+        reopened.open()
+
+        then:
+        string(reopened.get(bytes("a"))) == "1"
+        reopened.get(bytes("b")) == null
+        reopened.get(bytes("c")) == null
+    }
+
+    def "merges a large log into the sorted snapshot"() {
+        given:
+        def index = openIndex()
+        index.put(bytes("removed"), bytes("value"))
+        2000.times { index.put(bytes("key-$it"), bytes("value-$it")) }
+        index.flush()
+        def merged = openIndex()
+        merged.put(bytes("removed"), null)
+        merged.put(bytes("key-12"), bytes("changed"))
+        merged.flush()
+
+        when:
+        def reopened = openIndex()
+
+        then:
+        tmp.file("index.sorted").file
+        2000.times { assert string(reopened.get(bytes("key-$it"))) == (it == 12 ? "changed" : "value-$it") }
+        reopened.get(bytes("removed")) == null
+        reopened.get(bytes("missing")) == null
+    }
+
+    def "reads the changes made by another instance when opened again"() {
+        given:
+        def index = openIndex()
+        index.put(bytes("a"), bytes("1"))
+        index.put(bytes("b"), bytes("2"))
+        index.flush()
+        def other = openIndex()
+        other.put(bytes("a"), bytes("changed"))
+        other.put(bytes("b"), null)
+        other.put(bytes("c"), bytes("3"))
+        other.flush()
+
+        expect:
+        string(index.get(bytes("a"))) == "1"
+        index.get(bytes("c")) == null
+
+        when:
+        index.put(bytes("c"), bytes("not flushed"))
+        index.open()
+
+        then:
+        string(index.get(bytes("a"))) == "changed"
+        index.get(bytes("b")) == null
+        string(index.get(bytes("c"))) == "not flushed"
+    }
+
+    def "reloads the index when another instance has merged the log"() {
+        given:
+        def index = openIndex()
+        index.put(bytes("a"), bytes("1"))
+        index.flush()
+        def other = openIndex()
+        other.put(bytes("a"), bytes("changed"))
+        2000.times { other.put(bytes("key-$it"), bytes("value-$it")) }
+        other.flush()
+        openIndex()
+
+        expect:
+        tmp.file("index.sorted").file
+        !tmp.file("index.log").exists()
+
+        when:
+        index.open()
+
+        then:
+        string(index.get(bytes("a"))) == "changed"
+        string(index.get(bytes("key-12"))) == "value-12"
+    }
+
+    def "readers never see a removed entry while the index is reloaded"() {
+        given:
+        def index = openIndex()
+        def phase = new AtomicInteger()
+        def violations = new AtomicInteger()
+        def reader = Thread.start {
+            while (phase.get() >= 0) {
+                int before = phase.get()
+                def value = index.get(bytes("removed"))
+                // While the phase is odd, the entry is removed in the log and still present in the snapshot
+                if (before % 2 == 1 && phase.get() == before && value != null) {
+                    violations.incrementAndGet()
+                }
+            }
+        }
+
+        when:
+        50.times {
+            def other = openIndex()
+            other.put(bytes("removed"), bytes("value"))
+            1000.times { other.put(bytes("key-$it"), bytes("value-$it")) }
+            other.flush()
+            openIndex()
+            index.open()
+            index.put(bytes("removed"), null)
+            index.flush()
+            phase.incrementAndGet()
+
+            other = openIndex()
+            1000.times { other.put(bytes("key-$it"), bytes("value-$it")) }
+            other.flush()
+            openIndex()
+            index.open()
+            phase.incrementAndGet()
+        }
+        phase.set(-1)
+        reader.join()
+
+        then:
+        violations.get() == 0
+        index.get(bytes("removed")) == null
+    }
+
+    def "discards a partly written record at the end of the log"() {
+        given:
+        def index = openIndex()
+        index.put(bytes("a"), bytes("1"))
+        index.flush()
+        def log = tmp.file("index.log")
+        def length = log.length()
+        log << ([0, 0, 0, 9, 1, 2] as byte[])
+
+        when:
+        def reopened = openIndex()
+
+        then:
+        string(reopened.get(bytes("a"))) == "1"
+        log.length() == length
+    }
+
+    def "ignores a snapshot with an unexpected format"() {
+        given:
+        tmp.file("index.sorted").text = "not an index"
+
+        when:
+        def index = openIndex()
+
+        then:
+        index.get(bytes("a")) == null
+    }
+
+    private MappedSortedIndex openIndex() {
+        def index = new MappedSortedIndex(baseFile)
+        index.open()
+        return index
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes("utf-8")
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, "utf-8")
+    }
+}
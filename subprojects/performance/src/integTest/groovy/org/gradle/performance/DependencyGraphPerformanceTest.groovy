@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.BasicPerformanceTest
+import org.gradle.performance.measure.DataAmount
+import org.junit.experimental.categories.Category
+
+import static org.gradle.performance.measure.Duration.millis
+
+@Category(BasicPerformanceTest)
+class DependencyGraphPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    def "resolving a large dependency graph"() {
+        given:
+        runner.testId = "resolving dependencies largeDependencyGraph"
+        runner.testProject = "largeDependencyGraph"
+        runner.tasksToRun = ['resolveDependencies']
+        runner.useDaemon = true
+        runner.targetVersions = ['2.8', 'last']
+        runner.maxExecutionTimeRegression = millis(1000)
+        runner.maxMemoryRegression = DataAmount.mbytes(20)
+        runner.gradleOpts = ["-Xms1g", "-Xmx1g"]
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
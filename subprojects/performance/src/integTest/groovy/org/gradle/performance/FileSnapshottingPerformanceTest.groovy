@@ -0,0 +1,72 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.BasicPerformanceTest
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.measure.Duration.millis
+
+/**
+ * Snapshots trees of 50000 files with different shapes, so that throughput in files per second can be compared between a flat
+ * directory, many medium sized directories and a deep tree of small directories. Also snapshots 16 trees at once from 16 workers,
+ * to measure contention for the task history cache.
+ */
+@Category(BasicPerformanceTest)
+class FileSnapshottingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    @Unroll("Project '#testProject' input file snapshotting")
+    def "input file snapshotting"() {
+        given:
+        runner.testId = "input file snapshotting $testProject ($fileCount files)"
+        runner.testProject = testProject
+        runner.tasksToRun = ['snapshotTree']
+        runner.useDaemon = true
+        runner.targetVersions = ['last']
+        runner.maxExecutionTimeRegression = maxExecutionTimeRegression
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject    | fileCount | maxExecutionTimeRegression
+        "flatFileTree" | 50000     | millis(500)
+        "wideFileTree" | 50000     | millis(500)
+        "deepFileTree" | 51200     | millis(500)
+    }
+
+    def "parallel input file snapshotting"() {
+        given:
+        runner.testId = "parallel input file snapshotting parallelFileTree (16 x 5000 files)"
+        runner.testProject = "parallelFileTree"
+        runner.tasksToRun = ['snapshotTree']
+        runner.args = ['--parallel', '--max-workers=16']
+        runner.useDaemon = true
+        runner.targetVersions = ['last']
+        runner.maxExecutionTimeRegression = millis(500)
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+    }
+}
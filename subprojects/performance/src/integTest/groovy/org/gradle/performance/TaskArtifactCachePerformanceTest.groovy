@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.performance
+
+import org.gradle.performance.categories.BasicPerformanceTest
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.measure.Duration.millis
+
+/**
+ * Snapshots the file tree projects with the task artifact caches read and written through memory mapped pages, for comparison
+ * with the seek and read block store used by the baseline version and by the 'input file snapshotting' tests.
+ */
+@Category(BasicPerformanceTest)
+class TaskArtifactCachePerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    @Unroll("Project '#testProject' input file snapshotting with mapped block store")
+    def "input file snapshotting with mapped block store"() {
+        given:
+        runner.testId = "input file snapshotting with mapped block store $testProject"
+        runner.testProject = testProject
+        runner.tasksToRun = ['snapshotTree']
+        runner.gradleOpts = ["-Dorg.gradle.cache.mappedBlockStore=true"]
+        runner.useDaemon = true
+        runner.targetVersions = ['last']
+        runner.maxExecutionTimeRegression = maxExecutionTimeRegression
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject    | maxExecutionTimeRegression
+        "flatFileTree" | millis(500)
+        "deepFileTree" | millis(500)
+    }
+}
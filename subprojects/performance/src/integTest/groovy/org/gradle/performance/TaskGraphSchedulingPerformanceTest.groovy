@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.performance
+
+import org.gradle.performance.categories.BasicPerformanceTest
+import org.junit.experimental.categories.Category
+import spock.lang.Unroll
+
+import static org.gradle.performance.measure.Duration.millis
+
+@Category(BasicPerformanceTest)
+class TaskGraphSchedulingPerformanceTest extends AbstractCrossVersionPerformanceTest {
+
+    @Unroll("Project '#testProject' parallel task scheduling")
+    def "parallel task scheduling"() {
+        given:
+        runner.testId = "parallel task scheduling $testProject"
+        runner.testProject = testProject
+        runner.tasksToRun = ['graph']
+        runner.args = ['--parallel', '--max-workers=16']
+        runner.useDaemon = true
+        runner.targetVersions = ['last']
+        runner.maxExecutionTimeRegression = maxExecutionTimeRegression
+
+        when:
+        def result = runner.run()
+
+        then:
+        result.assertCurrentVersionHasNotRegressed()
+
+        where:
+        testProject    | maxExecutionTimeRegression
+        "taskGraph10k" | millis(1000)
+        "taskGraph50k" | millis(5000)
+    }
+}
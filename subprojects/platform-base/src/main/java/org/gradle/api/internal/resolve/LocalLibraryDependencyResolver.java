@@ -168,4 +168,9 @@ public class LocalLibraryDependencyResolver<T extends BinarySpec> implements Dep
             }
         }
     }
+
+    @Override
+    public void resolveArtifactLocally(ComponentArtifactMetaData artifact, ModuleSource moduleSource, BuildableArtifactResolveResult result) {
+        resolveArtifact(artifact, moduleSource, result);
+    }
 }
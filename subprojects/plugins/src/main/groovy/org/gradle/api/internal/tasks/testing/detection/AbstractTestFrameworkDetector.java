@@ -16,66 +16,76 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.internal.hash.HashUtil;
+import org.gradle.internal.hash.HashValue;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
 
     private List<File> testClassDirectories;
     private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private final ClassFileDetailsCache classFileDetailsCache;
+    private final Map<String, Boolean> superClasses;
+    private final Map<File, ClassFileDetails> readTestClasses;
     private TestClassProcessor testClassProcessor;
     private final List<String> knownTestCaseClassNames;
 
     private File testClassesDirectory;
     private FileCollection testClasspath;
 
-    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager) {
+    protected AbstractTestFrameworkDetector(ClassFileExtractionManager classFileExtractionManager, ClassFileDetailsCache classFileDetailsCache) {
         assert classFileExtractionManager != null;
         this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+        this.classFileDetailsCache = classFileDetailsCache;
+        this.superClasses = new HashMap<String, Boolean>();
+        this.readTestClasses = new ConcurrentHashMap<File, ClassFileDetails>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
+    /**
+     * Finds the super class in the test class directories, then in the library jars.
+     *
+     * @return The details of the super class file, or null when it cannot be found.
+     */
+    protected ClassFileDetails getSuperTestClassDetails(String superClassName) {
         prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
 
-        final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
-
-        File superTestClassFile = null;
-        while (superTestClassFile == null && testClassDirectoriesIt.hasNext()) {
-            final File testClassDirectory = testClassDirectoriesIt.next();
+        for (File testClassDirectory : testClassDirectories) {
             final File superTestClassFileCandidate = new File(testClassDirectory, superClassName + ".class");
             if (superTestClassFileCandidate.exists()) {
-                superTestClassFile = superTestClassFileCandidate;
+                ClassFileDetails readAhead = readTestClasses.get(superTestClassFileCandidate);
+                return readAhead != null ? readAhead : classFileDetails(superTestClassFileCandidate);
             }
         }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+        // super test class file not in test class directories
+        byte[] superTestClassFile = classFileExtractionManager.getLibraryClassFile(superClassName);
+        if (superTestClassFile == null) {
+            return null;
         }
+        return classFileDetails(superTestClassFile, superClassName);
     }
 
     private void prepareClasspath() {
@@ -107,52 +117,74 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClasspath = testClasspath;
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
+    private ClassFileDetails classFileDetails(File testClassFile) {
+        byte[] classFile;
+        try {
+            classFile = FileUtils.readFileToByteArray(testClassFile);
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
+        }
+        return classFileDetails(classFile, testClassFile.getAbsolutePath());
+    }
 
-        InputStream classStream = null;
+    private ClassFileDetails classFileDetails(byte[] classFile, String displayName) {
+        HashValue classFileHash = HashUtil.sha1(classFile);
+        ClassFileDetails details = classFileDetailsCache.get(classFileHash);
+        if (details != null) {
+            return details;
+        }
+
+        final TestClassVisitor classVisitor = createClassVisitor();
         try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(classStream);
+            final ClassReader classReader = new ClassReader(classFile);
             classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
         } catch (Throwable e) {
-            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(classStream);
+            throw new GradleException("failed to read class file " + displayName, e);
         }
+        details = ClassFileDetails.of(classVisitor);
+        classFileDetailsCache.put(classFileHash, details);
+        return details;
+    }
 
-        return classVisitor;
+    public void readTestClass(File testClassFile) {
+        readTestClasses.put(testClassFile, classFileDetails(testClassFile));
     }
 
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        ClassFileDetails details = readTestClasses.remove(testClassFile);
+        if (details == null) {
+            details = classFileDetails(testClassFile);
+        }
+        return processTestClass(details, false);
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
+    protected abstract boolean processTestClass(ClassFileDetails testClass, boolean superClass);
 
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
-
-        Boolean isSuperTest = superClasses.get(testClassFile);
+    protected boolean processSuperClass(String superClassName) {
+        Boolean isSuperTest = superClasses.get(superClassName);
 
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+            final ClassFileDetails superClass = getSuperTestClassDetails(superClassName);
+            if (superClass != null) {
+                isSuperTest = processTestClass(superClass, true);
+            } else {
+                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file", superClassName);
+                isSuperTest = false;
+            }
 
-            superClasses.put(testClassFile, isTest);
-        } else {
-            isTest = isSuperTest;
+            superClasses.put(superClassName, isSuperTest);
         }
 
-        return isTest;
+        return isSuperTest;
     }
 
     /**
      * In none super class mode a test class is published when the class is a test and it is not abstract. In super class mode it must not publish the class otherwise it will get published multiple
      * times (for each extending class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, ClassFileDetails testClass, boolean superClass) {
+        if (isTest && !testClass.isAbstract() && !superClass) {
+            String className = Type.getObjectType(testClass.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -161,6 +193,12 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClassProcessor = testClassProcessor;
     }
 
+    public void stopDetection() {
+        readTestClasses.clear();
+        classFileExtractionManager.close();
+        classFileDetailsCache.save();
+    }
+
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
         if (knownTestCaseClassNames != null && knownTestCaseClassNames.length != 0) {
             for (String knownTestCaseClassName : knownTestCaseClassNames) {
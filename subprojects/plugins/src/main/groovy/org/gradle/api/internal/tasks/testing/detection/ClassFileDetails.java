@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+
+/**
+ * What a {@link TestClassVisitor} found in a single class file, without looking at its super classes.
+ */
+public class ClassFileDetails {
+    private final String className;
+    private final String superClassName;
+    private final boolean isAbstract;
+    private final boolean test;
+
+    public ClassFileDetails(String className, @Nullable String superClassName, boolean isAbstract, boolean test) {
+        this.className = className;
+        this.superClassName = superClassName;
+        this.isAbstract = isAbstract;
+        this.test = test;
+    }
+
+    public static ClassFileDetails of(TestClassVisitor classVisitor) {
+        return new ClassFileDetails(classVisitor.getClassName(), classVisitor.getSuperClassName(), classVisitor.isAbstract(), classVisitor.isTest());
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    @Nullable
+    public String getSuperClassName() {
+        return superClassName;
+    }
+
+    public boolean isAbstract() {
+        return isAbstract;
+    }
+
+    public boolean isTest() {
+        return test;
+    }
+}
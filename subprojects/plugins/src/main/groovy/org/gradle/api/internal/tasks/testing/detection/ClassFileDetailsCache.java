@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.Nullable;
+import org.gradle.internal.Factory;
+import org.gradle.internal.hash.HashValue;
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.FlushableEncoder;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the {@link ClassFileDetails} of class files across builds, keyed by the hash of the class file content. Only the entries
+ * used since the last {@link #save()} are written back, so entries for class files that no longer exist are dropped.
+ *
+ * Can be used from multiple threads at once, except for {@link #save()}.
+ */
+public class ClassFileDetailsCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassFileDetailsCache.class);
+    private static final int VERSION = 1;
+
+    private final Factory<File> dirFactory;
+    private final String fileName;
+    private final ConcurrentMap<HashValue, ClassFileDetails> used = new ConcurrentHashMap<HashValue, ClassFileDetails>();
+    private volatile Map<HashValue, ClassFileDetails> saved;
+    private volatile boolean added;
+
+    public ClassFileDetailsCache(Factory<File> dirFactory, String fileName) {
+        this.dirFactory = dirFactory;
+        this.fileName = fileName;
+    }
+
+    @Nullable
+    public ClassFileDetails get(HashValue classFileHash) {
+        ClassFileDetails details = used.get(classFileHash);
+        if (details == null) {
+            details = getSaved().get(classFileHash);
+            if (details != null) {
+                used.put(classFileHash, details);
+            }
+        }
+        return details;
+    }
+
+    public void put(HashValue classFileHash, ClassFileDetails details) {
+        used.put(classFileHash, details);
+        added = true;
+    }
+
+    /**
+     * Writes the entries used since the last save to disk, if they differ from what is there.
+     */
+    public void save() {
+        Map<HashValue, ClassFileDetails> saved = getSaved();
+        if (added || used.size() != saved.size()) {
+            File cacheFile = getCacheFile();
+            try {
+                write(cacheFile);
+            } catch (Exception e) {
+                LOGGER.debug("Could not write test class detection cache {}.", cacheFile, e);
+                cacheFile.delete();
+            }
+        }
+        this.saved = new HashMap<HashValue, ClassFileDetails>(used);
+        used.clear();
+        added = false;
+    }
+
+    private Map<HashValue, ClassFileDetails> getSaved() {
+        Map<HashValue, ClassFileDetails> saved = this.saved;
+        if (saved == null) {
+            synchronized (this) {
+                saved = this.saved;
+                if (saved == null) {
+                    saved = read(getCacheFile());
+                    this.saved = saved;
+                }
+            }
+        }
+        return saved;
+    }
+
+    private File getCacheFile() {
+        return new File(dirFactory.create(), fileName);
+    }
+
+    private static Map<HashValue, ClassFileDetails> read(File cacheFile) {
+        if (!cacheFile.isFile()) {
+            return Collections.emptyMap();
+        }
+        try {
+            InputStream inputStream = new BufferedInputStream(new FileInputStream(cacheFile));
+            try {
+                Decoder decoder = new KryoBackedDecoder(inputStream);
+                if (decoder.readSmallInt() != VERSION) {
+                    return Collections.emptyMap();
+                }
+                int count = decoder.readSmallInt();
+                Map<HashValue, ClassFileDetails> entries = new HashMap<HashValue, ClassFileDetails>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    HashValue hash = new HashValue(decoder.readBinary());
+                    String className = decoder.readNullableString();
+                    String superClassName = decoder.readNullableString();
+                    boolean isAbstract = decoder.readBoolean();
+                    boolean test = decoder.readBoolean();
+                    entries.put(hash, new ClassFileDetails(className, superClassName, isAbstract, test));
+                }
+                return entries;
+            } finally {
+                inputStream.close();
+            }
+        } catch (Exception e) {
+            LOGGER.debug("Could not read test class detection cache {}. Reading all class files.", cacheFile, e);
+            return Collections.emptyMap();
+        }
+    }
+
+    private void write(File cacheFile) throws Exception {
+        cacheFile.getParentFile().mkdirs();
+        OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(cacheFile));
+        try {
+            FlushableEncoder encoder = new KryoBackedEncoder(outputStream);
+            encoder.writeSmallInt(VERSION);
+            encoder.writeSmallInt(used.size());
+            for (Map.Entry<HashValue, ClassFileDetails> entry : used.entrySet()) {
+                ClassFileDetails details = entry.getValue();
+                encoder.writeBinary(entry.getKey().asByteArray());
+                encoder.writeNullableString(details.getClassName());
+                encoder.writeNullableString(details.getSuperClassName());
+                encoder.writeBoolean(details.isAbstract());
+                encoder.writeBoolean(details.isTest());
+            }
+            encoder.flush();
+        } finally {
+            outputStream.close();
+        }
+    }
+}
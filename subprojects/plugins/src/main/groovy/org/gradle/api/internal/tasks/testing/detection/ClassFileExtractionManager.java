@@ -15,34 +15,32 @@
  */
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.text.StrBuilder;
 import org.gradle.api.GradleException;
-import org.gradle.api.internal.file.DefaultTemporaryFileProvider;
-import org.gradle.api.internal.file.TemporaryFileProvider;
-import org.gradle.internal.Factory;
-import org.gradle.util.JarUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
- * This class manages class file extraction from library jar files.
+ * This class manages reading class files from library jar files. The class files are read in place, through the entry index of each
+ * jar file, which is opened once and kept open until {@link #close()}.
  */
 public class ClassFileExtractionManager {
     private static final Logger LOGGER = LoggerFactory.getLogger(ClassFileExtractionManager.class);
     private final Map<String, Set<File>> packageJarFilesMappings;
-    private final Map<String, File> extractedJarClasses;
+    private final Map<File, ZipFile> openJarFiles;
     private final Set<String> unextractableClasses;
-    private final TemporaryFileProvider tempDirProvider;
 
-    public ClassFileExtractionManager(final Factory<File> tempDirFactory) {
-        assert tempDirFactory != null;
-        tempDirProvider = new DefaultTemporaryFileProvider(tempDirFactory);
+    public ClassFileExtractionManager() {
         packageJarFilesMappings = new HashMap<String, Set<File>>();
-        extractedJarClasses = new HashMap<String, File>();
+        openJarFiles = new HashMap<File, ZipFile>();
         unextractableClasses = new TreeSet<String>();
     }
 
@@ -66,62 +64,71 @@ public class ClassFileExtractionManager {
     }
 
     /**
-     * Retrieve the file that contains the extracted class file. <p/> This method will extract the class file if it is
-     * not extracted yet. Extracted class files are deleted on exit of the Gradle process. The same class is only
-     * extracted once.
+     * Retrieve the content of a class file from the library jars.
      *
-     * @param className Name of the class to extract.
-     * @return File that contains the extracted class file.
+     * @param className Name of the class to read.
+     * @return The content of the class file, or null when the class is not found in any of the library jars.
      */
-    public File getLibraryClassFile(final String className) {
+    public byte[] getLibraryClassFile(final String className) {
         if (unextractableClasses.contains(className)) {
             return null;
-        } else {
-            if (!extractedJarClasses.containsKey(className)) {
-                if (!extractClassFile(className)) {
-                    unextractableClasses.add(className);
-                }
-            }
-
-            return extractedJarClasses.get(className);
         }
+        byte[] classFile = readClassFile(className);
+        if (classFile == null) {
+            unextractableClasses.add(className);
+        }
+        return classFile;
     }
 
-    private boolean extractClassFile(final String className) {
-        boolean classFileExtracted = false;
+    /**
+     * Closes the library jar files that were opened to read class files.
+     */
+    public void close() {
+        for (ZipFile zipFile : openJarFiles.values()) {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+                LOGGER.debug("failed to close jar file {}", zipFile.getName(), e);
+            }
+        }
+        openJarFiles.clear();
+    }
 
-        final File extractedClassFile = tempFile();
+    private byte[] readClassFile(final String className) {
         final String classFileName = new StrBuilder().append(className).append(".class").toString();
         final String classNamePackage = classNamePackage(className);
         final Set<File> packageJarFiles = packageJarFilesMappings.get(classNamePackage);
 
-        File classFileSourceJar = null;
-
-        if (packageJarFiles != null && !packageJarFiles.isEmpty()) {
-            final Iterator<File> packageJarFilesIt = packageJarFiles.iterator();
-
-            while (!classFileExtracted && packageJarFilesIt.hasNext()) {
-                final File jarFile = packageJarFilesIt.next();
-
+        if (packageJarFiles != null) {
+            for (File jarFile : packageJarFiles) {
                 try {
-                    classFileExtracted = JarUtil.extractZipEntry(jarFile, classFileName, extractedClassFile);
-
-                    if (classFileExtracted) {
-                        classFileSourceJar = jarFile;
+                    ZipFile zipFile = openJarFile(jarFile);
+                    ZipEntry classFileEntry = zipFile.getEntry(classFileName);
+                    if (classFileEntry != null) {
+                        InputStream inputStream = zipFile.getInputStream(classFileEntry);
+                        try {
+                            LOGGER.debug("read class {} from {}", className, jarFile.getName());
+                            return IOUtils.toByteArray(inputStream);
+                        } finally {
+                            inputStream.close();
+                        }
                     }
                 } catch (IOException e) {
-                    throw new GradleException("failed to extract class file from jar (" + jarFile + ")", e);
+                    throw new GradleException("failed to read class file from jar (" + jarFile + ")", e);
                 }
             }
-
-            if (classFileExtracted) {
-                LOGGER.debug("extracted class {} from {}", className, classFileSourceJar.getName());
-
-                extractedJarClasses.put(className, extractedClassFile);
-            }
         } // super class not on the classpath - unable to scan parent class
 
-        return classFileExtracted;
+        return null;
+    }
+
+    private ZipFile openJarFile(File jarFile) throws IOException {
+        ZipFile zipFile = openJarFiles.get(jarFile);
+        if (zipFile == null) {
+            zipFile = new ZipFile(jarFile);
+            openJarFiles.put(jarFile, zipFile);
+        }
+        return zipFile;
     }
 
     private String classNamePackage(final String className) {
@@ -133,8 +140,4 @@ public class ClassFileExtractionManager {
             return className.substring(0, lastSlashIndex + 1);
         }
     }
-
-    private File tempFile() {
-        return tempDirProvider.createTemporaryFile("jar_extract_", "_tmp"); // Could throw UncheckedIOException
-    }
 }
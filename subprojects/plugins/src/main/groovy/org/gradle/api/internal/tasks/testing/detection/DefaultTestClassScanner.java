@@ -22,23 +22,47 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.StoppableExecutor;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * The default test class scanner. Depending on the availability of a test framework detector,
  * a detection or filename scan is performed to find test classes.
+ *
+ * When detecting, the class files are read on several threads ahead of the detection, which then
+ * handles the class files one at a time in the order they were found.
  */
 public class DefaultTestClassScanner implements Runnable {
+    /**
+     * Set to false to read the class files on a single thread when detecting test classes.
+     */
+    public static final String PARALLEL_DETECTION_PROPERTY = "org.gradle.test.parallelDetection";
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final ExecutorFactory executorFactory;
+    private final int readerThreads;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
-                                   TestClassProcessor testClassProcessor) {
+                                   TestClassProcessor testClassProcessor, ExecutorFactory executorFactory) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, executorFactory,
+            "false".equalsIgnoreCase(System.getProperty(PARALLEL_DETECTION_PROPERTY)) ? 1 : Runtime.getRuntime().availableProcessors());
+    }
+
+    DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                            TestClassProcessor testClassProcessor, ExecutorFactory executorFactory, int readerThreads) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.executorFactory = executorFactory;
+        this.readerThreads = readerThreads;
     }
 
     public void run() {
@@ -51,11 +75,53 @@ public class DefaultTestClassScanner implements Runnable {
 
     private void detectionScan() {
         testFrameworkDetector.startDetection(testClassProcessor);
-        candidateClassFiles.visit(new ClassFileVisitor() {
-            public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+        try {
+            if (readerThreads > 1) {
+                parallelDetectionScan();
+            } else {
+                candidateClassFiles.visit(new ClassFileVisitor() {
+                    public void visitClassFile(FileVisitDetails fileDetails) {
+                        testFrameworkDetector.processTestClass(fileDetails.getFile());
+                    }
+                });
             }
-        });
+        } finally {
+            testFrameworkDetector.stopDetection();
+        }
+    }
+
+    private void parallelDetectionScan() {
+        final StoppableExecutor executor = executorFactory.create("Test class reader", readerThreads);
+        final List<File> classFiles = new ArrayList<File>();
+        final List<FutureTask<Void>> reads = new ArrayList<FutureTask<Void>>();
+        try {
+            candidateClassFiles.visit(new ClassFileVisitor() {
+                public void visitClassFile(FileVisitDetails fileDetails) {
+                    final File classFile = fileDetails.getFile();
+                    FutureTask<Void> read = new FutureTask<Void>(new Runnable() {
+                        public void run() {
+                            testFrameworkDetector.readTestClass(classFile);
+                        }
+                    }, null);
+                    classFiles.add(classFile);
+                    reads.add(read);
+                    executor.execute(read);
+                }
+            });
+            for (int i = 0; i < classFiles.size(); i++) {
+                reads.get(i).get();
+                testFrameworkDetector.processTestClass(classFiles.get(i));
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } catch (ExecutionException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        } finally {
+            for (FutureTask<Void> read : reads) {
+                read.cancel(false);
+            }
+            executor.stop();
+        }
     }
 
     private void filenameScan() {
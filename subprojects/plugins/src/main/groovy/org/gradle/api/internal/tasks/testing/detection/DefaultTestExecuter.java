@@ -16,18 +16,24 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Transformer;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory;
+import org.gradle.api.internal.tasks.testing.processors.HistoryOrderingTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.SharedQueueTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
 import org.gradle.api.tasks.testing.Test;
 import org.gradle.internal.Factory;
 import org.gradle.internal.TrueTimeProvider;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.progress.OperationIdGenerator;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
@@ -36,31 +42,73 @@ import org.gradle.process.internal.WorkerProcessBuilder;
  * The default test class scanner factory.
  */
 public class DefaultTestExecuter implements TestExecuter {
+    /**
+     * Enables handing out test classes to the test worker processes from a shared queue, instead of assigning them round-robin when they are found.
+     */
+    public static final String SHARED_QUEUE_PROPERTY = "org.gradle.test.sharedQueue";
+    /**
+     * Enables running the test classes that failed in the previous run first, and the remaining classes longest first, using the durations
+     * from the previous run. Implies {@link #SHARED_QUEUE_PROPERTY}.
+     */
+    public static final String ORDER_BY_HISTORY_PROPERTY = "org.gradle.test.orderByHistory";
+    // One test class running and one waiting, so the worker does not sit idle while it asks for the next one
+    private static final int MAX_PENDING_PER_WORKER = 2;
+    private static final TestClassProcessedListener IGNORE_PROCESSED = new TestClassProcessedListener() {
+        public void testClassProcessed() {
+        }
+    };
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactory;
+    private final ExecutorFactory executorFactory;
+    private final boolean sharedQueue;
+    private final TestClassHistory history;
+
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, ExecutorFactory executorFactory) {
+        this(workerFactory, actorFactory, executorFactory, TestClassHistory.EMPTY);
+    }
+
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, ExecutorFactory executorFactory, TestClassHistory history) {
+        // Handing out the ordered classes to whichever worker is free is what spreads the long classes across the workers
+        this(workerFactory, actorFactory, executorFactory, Boolean.getBoolean(SHARED_QUEUE_PROPERTY) || !history.isEmpty(), history);
+    }
 
-    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory) {
+    DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactory, ExecutorFactory executorFactory, boolean sharedQueue, TestClassHistory history) {
         this.workerFactory = workerFactory;
         this.actorFactory = actorFactory;
+        this.executorFactory = executorFactory;
+        this.sharedQueue = sharedQueue;
+        this.history = history;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
-        final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                    testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
-            }
-        };
-        Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
+        final Transformer<TestClassProcessor, TestClassProcessedListener> reforkingProcessorFactory = new Transformer<TestClassProcessor, TestClassProcessedListener>() {
+            public TestClassProcessor transform(final TestClassProcessedListener processedListener) {
+                Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                    public TestClassProcessor create() {
+                        return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                            testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), processedListener);
+                    }
+                };
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
             }
         };
 
-        TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-            reforkingProcessorFactory, actorFactory);
+        TestClassProcessor processor;
+        if (sharedQueue) {
+            processor = new SharedQueueTestClassProcessor(testTask.getMaxParallelForks(), MAX_PENDING_PER_WORKER,
+                reforkingProcessorFactory, actorFactory);
+        } else {
+            processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(), new Factory<TestClassProcessor>() {
+                public TestClassProcessor create() {
+                    return reforkingProcessorFactory.transform(IGNORE_PROCESSED);
+                }
+            }, actorFactory);
+        }
+        if (!history.isEmpty()) {
+            processor = new HistoryOrderingTestClassProcessor(history, processor);
+        }
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
@@ -69,9 +117,9 @@ public class DefaultTestExecuter implements TestExecuter {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
             testFrameworkDetector.setTestClassesDirectory(testTask.getTestClassesDir());
             testFrameworkDetector.setTestClasspath(testTask.getClasspath());
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, executorFactory);
         } else {
-            detector = new DefaultTestClassScanner(testClassFiles, null, processor);
+            detector = new DefaultTestClassScanner(testClassFiles, null, processor, executorFactory);
         }
 
         final Object testTaskOperationId = OperationIdGenerator.generateId(testTask);
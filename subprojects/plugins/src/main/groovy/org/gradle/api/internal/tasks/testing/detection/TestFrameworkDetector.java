@@ -23,8 +23,18 @@ import java.io.File;
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
+    /**
+     * Reads the given class file ahead of it being passed to {@link #processTestClass(File)}. Can be called from multiple threads at once.
+     */
+    void readTestClass(File testClassFile);
+
     boolean processTestClass(File testClassFile);
 
+    /**
+     * Called once all test class files have been processed.
+     */
+    void stopDetection();
+
     void setTestClassesDirectory(File testClassesDir);
 
     void setTestClasspath(FileCollection classpath);
@@ -16,47 +16,33 @@
 package org.gradle.api.internal.tasks.testing.junit;
 
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetails;
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetailsCache;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
-import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.File;
 
 public class JUnitDetector extends AbstractTestFrameworkDetector<JUnitTestClassDetecter> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(JUnitDetector.class);
-
-    public JUnitDetector(ClassFileExtractionManager classFileExtractionManager) {
-        super(classFileExtractionManager);
+    public JUnitDetector(ClassFileExtractionManager classFileExtractionManager, ClassFileDetailsCache classFileDetailsCache) {
+        super(classFileExtractionManager, classFileDetailsCache);
     }
 
     protected JUnitTestClassDetecter createClassVisitor() {
         return new JUnitTestClassDetecter(this);
     }
 
-    protected boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
-
-        boolean isTest = classVisitor.isTest();
+    protected boolean processTestClass(final ClassFileDetails testClass, boolean superClass) {
+        boolean isTest = testClass.isTest();
 
         if (!isTest) { // scan parent class
-            final String superClassName = classVisitor.getSuperClassName();
+            final String superClassName = testClass.getSuperClassName();
 
             if (isKnownTestCaseClassName(superClassName)) {
                 isTest = true;
             } else {
-                final File superClassFile = getSuperTestClassFile(superClassName);
-
-                if (superClassFile != null) {
-                    isTest = processSuperClass(superClassFile);
-                } else {
-                    LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
-                            superClassName);
-                }
+                isTest = processSuperClass(superClassName);
             }
         }
 
-        publishTestClass(isTest, classVisitor, superClass);
+        publishTestClass(isTest, testClass, superClass);
 
         return isTest;
     }
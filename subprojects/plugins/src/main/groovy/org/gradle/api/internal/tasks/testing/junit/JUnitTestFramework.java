@@ -23,6 +23,7 @@ import org.gradle.api.internal.tasks.testing.TestClassLoaderFactory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetailsCache;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.tasks.testing.Test;
@@ -44,7 +45,7 @@ public class JUnitTestFramework implements TestFramework {
     public JUnitTestFramework(Test testTask, DefaultTestFilter filter, ClassLoaderCache classLoaderCache) {
         this.filter = filter;
         options = new JUnitOptions();
-        detector = new JUnitDetector(new ClassFileExtractionManager(testTask.getTemporaryDirFactory()));
+        detector = new JUnitDetector(new ClassFileExtractionManager(), new ClassFileDetailsCache(testTask.getTemporaryDirFactory(), "junitDetection.bin"));
         classLoaderFactory = new TestClassLoaderFactory(classLoaderCache, testTask);
     }
 
@@ -16,6 +16,8 @@
 package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.apache.commons.lang.StringUtils;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.testing.junit.result.TestSchedulingSummary;
 
 import java.util.*;
 
@@ -24,6 +26,7 @@ import java.util.*;
  */
 public class AllTestResults extends CompositeTestResults {
     private final Map<String, PackageTestResults> packages = new TreeMap<String, PackageTestResults>();
+    private TestSchedulingSummary schedulingSummary;
 
     public AllTestResults() {
         super(null);
@@ -43,6 +46,15 @@ public class AllTestResults extends CompositeTestResults {
         return packages.values();
     }
 
+    @Nullable
+    public TestSchedulingSummary getSchedulingSummary() {
+        return schedulingSummary;
+    }
+
+    public void setSchedulingSummary(@Nullable TestSchedulingSummary schedulingSummary) {
+        this.schedulingSummary = schedulingSummary;
+    }
+
     public TestResult addTest(long classId, String className, String testName, long duration) {
         PackageTestResults packageResults = addPackageForClass(className);
         return addTest(packageResults.addTest(classId, className, testName, duration));
@@ -72,6 +72,17 @@ public class ClassTestResults extends CompositeTestResults {
         return results;
     }
 
+    /**
+     * Discards the results of the individual tests of this class, once its page has been rendered. Keeps the counts and duration,
+     * and the failed and ignored tests without their failures.
+     */
+    public void discardTestResults() {
+        results.clear();
+        for (TestResult failedTest : getFailures()) {
+            failedTest.discardFailures();
+        }
+    }
+
     public TestResult addTest(String testName, long duration) {
         TestResult test = new TestResult(testName, duration, this);
         results.add(test);
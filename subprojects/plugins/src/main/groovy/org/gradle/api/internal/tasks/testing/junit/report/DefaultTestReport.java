@@ -17,12 +17,16 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.Nullable;
+import org.gradle.api.internal.tasks.testing.junit.result.ReportWriterExecutor;
 import org.gradle.api.internal.tasks.testing.junit.result.TestClassResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestFailure;
 import org.gradle.api.internal.tasks.testing.junit.result.TestMethodResult;
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider;
+import org.gradle.api.internal.tasks.testing.junit.result.TestSchedulingSummary;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.reporting.HtmlReportBuilder;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.gradle.reporting.ReportRenderer;
@@ -34,38 +38,56 @@ import java.util.List;
 
 import static org.gradle.api.tasks.testing.TestResult.ResultType.SKIPPED;
 
+/**
+ * Generates the HTML test report. The page of each test class is rendered as soon as the results of the class are visited,
+ * on a bounded number of threads, after which the results of its individual tests are discarded. The package and overview
+ * pages are rendered last, from the counts, durations and failed and ignored tests kept for each class.
+ */
 public class DefaultTestReport implements TestReporter {
     private final static Logger LOG = Logging.getLogger(DefaultTestReport.class);
+    private final ExecutorFactory executorFactory;
+    private final TestSchedulingSummary schedulingSummary;
+    private final int writerThreads;
+
+    public DefaultTestReport(ExecutorFactory executorFactory) {
+        this(executorFactory, null);
+    }
+
+    public DefaultTestReport(ExecutorFactory executorFactory, @Nullable TestSchedulingSummary schedulingSummary) {
+        this(executorFactory, schedulingSummary, ReportWriterExecutor.getDefaultThreads());
+    }
+
+    DefaultTestReport(ExecutorFactory executorFactory, @Nullable TestSchedulingSummary schedulingSummary, int writerThreads) {
+        this.executorFactory = executorFactory;
+        this.schedulingSummary = schedulingSummary;
+        this.writerThreads = writerThreads;
+    }
 
     public void generateReport(TestResultsProvider resultsProvider, File reportDir) {
         LOG.info("Generating HTML test report...");
 
         Clock clock = new Clock();
-        AllTestResults model = loadModelFromProvider(resultsProvider);
+        AllTestResults model = new AllTestResults();
+        model.setSchedulingSummary(schedulingSummary);
         generateFiles(model, resultsProvider, reportDir);
         LOG.info("Finished generating test html results ({}) into: {}", clock.getTime(), reportDir);
     }
 
-    private AllTestResults loadModelFromProvider(TestResultsProvider resultsProvider) {
-        final AllTestResults model = new AllTestResults();
-        resultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult classResult) {
-                model.addTestClass(classResult.getId(), classResult.getClassName());
-                List<TestMethodResult> collectedResults = classResult.getResults();
-                for (TestMethodResult collectedResult : collectedResults) {
-                    final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
-                    if (collectedResult.getResultType() == SKIPPED) {
-                        testResult.setIgnored();
-                    } else {
-                        List<TestFailure> failures = collectedResult.getFailures();
-                        for (TestFailure failure : failures) {
-                            testResult.addFailure(failure);
-                        }
-                    }
+    private static ClassTestResults addClassResult(AllTestResults model, TestClassResult classResult) {
+        ClassTestResults classResults = model.addTestClass(classResult.getId(), classResult.getClassName());
+        List<TestMethodResult> collectedResults = classResult.getResults();
+        for (TestMethodResult collectedResult : collectedResults) {
+            final TestResult testResult = model.addTest(classResult.getId(), classResult.getClassName(), collectedResult.getName(), collectedResult.getDuration());
+            if (collectedResult.getResultType() == SKIPPED) {
+                testResult.setIgnored();
+            } else {
+                List<TestFailure> failures = collectedResult.getFailures();
+                for (TestFailure failure : failures) {
+                    testResult.addFailure(failure);
                 }
             }
-        });
-        return model;
+        }
+        return classResults;
     }
 
     private void generateFiles(AllTestResults model, final TestResultsProvider resultsProvider, File reportDir) {
@@ -74,20 +96,51 @@ public class DefaultTestReport implements TestReporter {
             htmlRenderer.render(model, new ReportRenderer<AllTestResults, HtmlReportBuilder>() {
                 @Override
                 public void render(AllTestResults model, HtmlReportBuilder output) throws IOException {
-                    PackagePageRenderer packagePageRenderer = new PackagePageRenderer();
-                    ClassPageRenderer classPageRenderer = new ClassPageRenderer(resultsProvider);
-
-                    output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
-                    for (PackageTestResults packageResults : model.getPackages()) {
-                        output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, packagePageRenderer);
-                        for (ClassTestResults classResults : packageResults.getClasses()) {
-                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, classPageRenderer);
-                        }
-                    }
+                    renderClassPages(model, resultsProvider, output);
+                    renderSummaryPages(model, output);
                 }
             }, reportDir);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
+
+    private void renderClassPages(final AllTestResults model, final TestResultsProvider resultsProvider, final HtmlReportBuilder output) {
+        final ReportWriterExecutor executor = new ReportWriterExecutor(executorFactory, "Test HTML report writer", writerThreads);
+        try {
+            resultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    final ClassTestResults classResults = addClassResult(model, classResult);
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            output.renderHtmlPage(classResults.getBaseUrl(), classResults, new ClassPageRenderer(resultsProvider));
+                            classResults.discardTestResults();
+                        }
+                    });
+                }
+            });
+        } finally {
+            executor.stop();
+        }
+    }
+
+    private void renderSummaryPages(final AllTestResults model, final HtmlReportBuilder output) {
+        ReportWriterExecutor executor = new ReportWriterExecutor(executorFactory, "Test HTML report writer", writerThreads);
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    output.renderHtmlPage("index.html", model, new OverviewPageRenderer());
+                }
+            });
+            for (final PackageTestResults packageResults : model.getPackages()) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        output.renderHtmlPage(packageResults.getBaseUrl(), packageResults, new PackagePageRenderer());
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+        }
+    }
 }
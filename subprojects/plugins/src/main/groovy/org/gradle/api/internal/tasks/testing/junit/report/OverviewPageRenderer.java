@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report;
 
+import org.gradle.api.internal.tasks.testing.junit.result.TestSchedulingSummary;
 import org.gradle.internal.ErroringAction;
 import org.gradle.internal.html.SimpleHtmlWriter;
 
@@ -39,6 +40,14 @@ class OverviewPageRenderer extends PageRenderer<AllTestResults> {
                 renderClasses(htmlWriter);
             }
         });
+        final TestSchedulingSummary schedulingSummary = getResults().getSchedulingSummary();
+        if (schedulingSummary != null) {
+            addTab("Scheduling", new ErroringAction<SimpleHtmlWriter>() {
+                public void doExecute(SimpleHtmlWriter htmlWriter) throws IOException {
+                    renderScheduling(schedulingSummary, htmlWriter);
+                }
+            });
+        }
     }
 
     @Override
@@ -104,4 +113,24 @@ class OverviewPageRenderer extends PageRenderer<AllTestResults> {
         htmlWriter.endElement();
         htmlWriter.endElement();
     }
+
+    private void renderScheduling(TestSchedulingSummary schedulingSummary, SimpleHtmlWriter htmlWriter) throws IOException {
+        htmlWriter.startElement("p").characters("Test classes that failed in the previous run were run first, followed by the remaining classes longest first.").endElement();
+        htmlWriter.startElement("table");
+        htmlWriter.startElement("thead");
+        htmlWriter.startElement("tr");
+        htmlWriter.startElement("th").characters("Parallel forks").endElement();
+        htmlWriter.startElement("th").characters("Predicted duration").endElement();
+        htmlWriter.startElement("th").characters("Actual duration").endElement();
+        htmlWriter.endElement();
+        htmlWriter.endElement();
+        htmlWriter.startElement("tbody");
+        htmlWriter.startElement("tr");
+        htmlWriter.startElement("td").characters(Integer.toString(schedulingSummary.getWorkers())).endElement();
+        htmlWriter.startElement("td").characters(TestResultModel.DURATION_FORMATTER.format(schedulingSummary.getPredictedRunTime())).endElement();
+        htmlWriter.startElement("td").characters(TestResultModel.DURATION_FORMATTER.format(schedulingSummary.getActualRunTime())).endElement();
+        htmlWriter.endElement();
+        htmlWriter.endElement();
+        htmlWriter.endElement();
+    }
 }
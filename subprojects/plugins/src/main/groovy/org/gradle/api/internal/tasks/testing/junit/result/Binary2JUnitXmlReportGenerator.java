@@ -23,6 +23,7 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.util.Clock;
 import org.gradle.internal.FileUtils;
+import org.gradle.internal.concurrent.ExecutorFactory;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -35,35 +36,56 @@ public class Binary2JUnitXmlReportGenerator {
 
     private final File testResultsDir;
     private final TestResultsProvider testResultsProvider;
+    private final ExecutorFactory executorFactory;
+    private final int writerThreads;
     JUnitXmlResultWriter saxWriter;
     private final static Logger LOG = Logging.getLogger(Binary2JUnitXmlReportGenerator.class);
 
-    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation) {
+    public Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, ExecutorFactory executorFactory) {
+        this(testResultsDir, testResultsProvider, outputAssociation, executorFactory, ReportWriterExecutor.getDefaultThreads());
+    }
+
+    Binary2JUnitXmlReportGenerator(File testResultsDir, TestResultsProvider testResultsProvider, TestOutputAssociation outputAssociation, ExecutorFactory executorFactory, int writerThreads) {
         this.testResultsDir = testResultsDir;
         this.testResultsProvider = testResultsProvider;
+        this.executorFactory = executorFactory;
+        this.writerThreads = writerThreads;
         this.saxWriter = new JUnitXmlResultWriter(getHostname(), testResultsProvider, outputAssociation);
     }
 
     public void generate() {
         Clock clock = new Clock();
-        testResultsProvider.visitClasses(new Action<TestClassResult>() {
-            public void execute(TestClassResult result) {
-                File file = new File(testResultsDir, getReportFileName(result));
-                OutputStream output = null;
-                try {
-                    output = new BufferedOutputStream(new FileOutputStream(file));
-                    saxWriter.write(result, output);
-                    output.close();
-                } catch (Exception e) {
-                    throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
-                } finally {
-                    IOUtils.closeQuietly(output);
+        final ReportWriterExecutor executor = new ReportWriterExecutor(executorFactory, "Test XML report writer", writerThreads);
+        try {
+            testResultsProvider.visitClasses(new Action<TestClassResult>() {
+                public void execute(final TestClassResult result) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            writeReportFile(result);
+                        }
+                    });
                 }
-            }
-        });
+            });
+        } finally {
+            executor.stop();
+        }
         LOG.info("Finished generating test XML results ({}) into: {}", clock.getTime(), testResultsDir);
     }
 
+    private void writeReportFile(TestClassResult result) {
+        File file = new File(testResultsDir, getReportFileName(result));
+        OutputStream output = null;
+        try {
+            output = new BufferedOutputStream(new FileOutputStream(file));
+            saxWriter.write(result, output);
+            output.close();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write XML test results for %s to file %s.", result.getClassName(), file), e);
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
     private String getReportFileName(TestClassResult result) {
         return "TEST-" + FileUtils.toSafeFileName(result.getClassName()) + ".xml";
     }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.internal.xml.SimpleXmlWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes test output into the current CDATA section of a JUnit XML report. Characters go through the XML writer, which escapes
+ * them as required. Output that the {@link TestOutputStore} knows to need no escaping can instead be copied into the report as
+ * UTF-8 encoded bytes.
+ */
+class CDataOutputWriter extends Writer {
+    private final SimpleXmlWriter xmlWriter;
+    private final WritableByteChannel output;
+
+    /**
+     * @param xmlWriter the writer of the report, which must be writing UTF-8 to the given stream.
+     * @param output the stream the report is written to.
+     */
+    CDataOutputWriter(SimpleXmlWriter xmlWriter, OutputStream output) {
+        this.xmlWriter = xmlWriter;
+        this.output = Channels.newChannel(output);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        xmlWriter.write(chars, offset, length);
+    }
+
+    /**
+     * Copies UTF-8 encoded text that contains no characters a CDATA section needs to escape into the report.
+     */
+    public void writeEncoded(ByteBuffer bytes) throws IOException {
+        // Moves the characters the XML writer has buffered into the stream ahead of the bytes
+        xmlWriter.flush();
+        while (bytes.hasRemaining()) {
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+}
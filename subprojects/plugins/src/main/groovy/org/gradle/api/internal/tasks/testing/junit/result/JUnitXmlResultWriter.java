@@ -22,6 +22,7 @@ import org.gradle.api.tasks.testing.TestOutputEvent;
 import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.internal.UncheckedException;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -42,7 +43,9 @@ public class JUnitXmlResultWriter {
         long classId = result.getId();
 
         try {
-            SimpleXmlWriter writer = new SimpleXmlWriter(output, "  ");
+            OutputStream reportOutput = new UnflushedOutputStream(output);
+            SimpleXmlWriter writer = new SimpleXmlWriter(reportOutput, "  ");
+            CDataOutputWriter outputWriter = new CDataOutputWriter(writer, reportOutput);
             writer.startElement("testsuite")
                     .attribute("name", className)
                     .attribute("tests", String.valueOf(result.getTestsCount()))
@@ -56,38 +59,39 @@ public class JUnitXmlResultWriter {
             writer.startElement("properties");
             writer.endElement();
 
-            writeTests(writer, result.getResults(), className, classId);
+            writeTests(writer, outputWriter, result.getResults(), className, classId);
 
             writer.startElement("system-out");
-            writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdOut);
+            writeOutputs(writer, outputWriter, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdOut);
             writer.endElement();
             writer.startElement("system-err");
-            writeOutputs(writer, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdErr);
+            writeOutputs(writer, outputWriter, classId, outputAssociation.equals(TestOutputAssociation.WITH_SUITE), TestOutputEvent.Destination.StdErr);
             writer.endElement();
 
             writer.endElement();
+            output.flush();
         } catch (IOException e) {
             throw UncheckedException.throwAsUncheckedException(e);
         }
     }
 
-    private void writeOutputs(SimpleXmlWriter writer, long classId, boolean allClassOutput, TestOutputEvent.Destination destination) throws IOException {
+    private void writeOutputs(SimpleXmlWriter writer, CDataOutputWriter outputWriter, long classId, boolean allClassOutput, TestOutputEvent.Destination destination) throws IOException {
         writer.startCDATA();
         if (allClassOutput) {
-            testResultsProvider.writeAllOutput(classId, destination, writer);
+            testResultsProvider.writeAllOutput(classId, destination, outputWriter);
         } else {
-            testResultsProvider.writeNonTestOutput(classId, destination, writer);
+            testResultsProvider.writeNonTestOutput(classId, destination, outputWriter);
         }
         writer.endCDATA();
     }
 
-    private void writeOutputs(SimpleXmlWriter writer, long classId, long testId, TestOutputEvent.Destination destination) throws IOException {
+    private void writeOutputs(SimpleXmlWriter writer, CDataOutputWriter outputWriter, long classId, long testId, TestOutputEvent.Destination destination) throws IOException {
         writer.startCDATA();
-        testResultsProvider.writeTestOutput(classId, testId, destination, writer);
+        testResultsProvider.writeTestOutput(classId, testId, destination, outputWriter);
         writer.endCDATA();
     }
 
-    private void writeTests(SimpleXmlWriter writer, Iterable<TestMethodResult> methodResults, String className, long classId) throws IOException {
+    private void writeTests(SimpleXmlWriter writer, CDataOutputWriter outputWriter, Iterable<TestMethodResult> methodResults, String className, long classId) throws IOException {
         for (TestMethodResult methodResult : methodResults) {
             writer.startElement("testcase")
                     .attribute("name", methodResult.getName())
@@ -111,14 +115,32 @@ public class JUnitXmlResultWriter {
 
             if (outputAssociation.equals(TestOutputAssociation.WITH_TESTCASE)) {
                 writer.startElement("system-out");
-                writeOutputs(writer, classId, methodResult.getId(), TestOutputEvent.Destination.StdOut);
+                writeOutputs(writer, outputWriter, classId, methodResult.getId(), TestOutputEvent.Destination.StdOut);
                 writer.endElement();
                 writer.startElement("system-err");
-                writeOutputs(writer, classId, methodResult.getId(), TestOutputEvent.Destination.StdErr);
+                writeOutputs(writer, outputWriter, classId, methodResult.getId(), TestOutputEvent.Destination.StdErr);
                 writer.endElement();
             }
 
             writer.endElement();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Keeps the flushes of the XML writer, one for each region of output copied as bytes, from flushing the stream of the report.
+     */
+    private static class UnflushedOutputStream extends FilterOutputStream {
+        UnflushedOutputStream(OutputStream output) {
+            super(output);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }
+}
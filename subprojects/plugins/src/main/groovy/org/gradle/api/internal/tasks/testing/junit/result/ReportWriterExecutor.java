@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.concurrent.StoppableExecutor;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the files of a test report on a fixed number of threads, as the test results are visited. The visiting thread waits
+ * while too many files are pending, so only a bounded number of class results is held in memory, however large the test suite.
+ *
+ * The first failure is rethrown by {@link #stop()}, and files handed out after it are not written.
+ */
+public class ReportWriterExecutor implements Stoppable {
+    /**
+     * Set to false to write test reports on a single thread.
+     */
+    public static final String PARALLEL_REPORTS_PROPERTY = "org.gradle.test.parallelReports";
+    private static final int PENDING_FILES_PER_THREAD = 4;
+
+    private final StoppableExecutor executor;
+    private final Semaphore pendingFiles;
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    public static int getDefaultThreads() {
+        return "false".equalsIgnoreCase(System.getProperty(PARALLEL_REPORTS_PROPERTY)) ? 1 : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param threads the number of threads to write files on. With a single thread, files are written by the calling thread.
+     */
+    public ReportWriterExecutor(ExecutorFactory executorFactory, String displayName, int threads) {
+        if (threads > 1) {
+            executor = executorFactory.create(displayName, threads);
+            pendingFiles = new Semaphore(threads * PENDING_FILES_PER_THREAD);
+        } else {
+            executor = null;
+            pendingFiles = null;
+        }
+    }
+
+    public void execute(final Runnable writeFile) {
+        if (executor == null) {
+            writeFile.run();
+            return;
+        }
+        if (failure.get() != null) {
+            return;
+        }
+        try {
+            pendingFiles.acquire();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (failure.get() == null) {
+                        writeFile.run();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    pendingFiles.release();
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits for all pending files to be written, and rethrows the first failure to write one.
+     */
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
+        Throwable writeFailure = failure.get();
+        if (writeFailure != null) {
+            throw UncheckedException.throwAsUncheckedException(writeFailure);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+import org.gradle.api.Action;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * The duration and outcome of each test class in a previous test run. Used to run the test classes that failed last time first,
+ * followed by the remaining classes longest first. Handing the classes out in this order to whichever test worker is free is
+ * longest-processing-time-first scheduling, so the run time can be predicted up front and compared with the actual run time.
+ */
+public class TestClassHistory {
+    private static final Logger LOGGER = Logging.getLogger(TestClassHistory.class);
+    public static final TestClassHistory EMPTY = new TestClassHistory(Collections.<String, Long>emptyMap(), Collections.<String>emptySet());
+
+    private final Map<String, Long> durations;
+    private final Set<String> failed;
+    private final long defaultDuration;
+    private final Comparator<String> runOrder = new Comparator<String>() {
+        public int compare(String left, String right) {
+            boolean leftFailed = failed.contains(left);
+            boolean rightFailed = failed.contains(right);
+            if (leftFailed != rightFailed) {
+                return leftFailed ? -1 : 1;
+            }
+            long leftDuration = estimateDuration(left);
+            long rightDuration = estimateDuration(right);
+            return leftDuration > rightDuration ? -1 : leftDuration < rightDuration ? 1 : 0;
+        }
+    };
+
+    TestClassHistory(Map<String, Long> durations, Set<String> failed) {
+        this.durations = durations;
+        this.failed = failed;
+        long total = 0;
+        for (Long duration : durations.values()) {
+            total += duration;
+        }
+        // A test class that has not run before is assumed to take as long as an average one
+        defaultDuration = durations.isEmpty() ? 0 : total / durations.size();
+    }
+
+    /**
+     * Reads the history from the binary results of the previous run. Returns an empty history when there are no results, or they cannot be read.
+     */
+    public static TestClassHistory read(File binaryResultsDir) {
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        final Set<String> failed = new HashSet<String>();
+        try {
+            new TestResultSerializer(binaryResultsDir).read(new Action<TestClassResult>() {
+                public void execute(TestClassResult classResult) {
+                    durations.put(classResult.getClassName(), classResult.getDuration());
+                    if (classResult.getFailuresCount() > 0) {
+                        failed.add(classResult.getClassName());
+                    }
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.info("Could not read the results of the previous test run from {}. Running test classes in the order they are found.", binaryResultsDir);
+            LOGGER.debug("Failure reading the previous test results.", e);
+            return EMPTY;
+        }
+        return new TestClassHistory(durations, failed);
+    }
+
+    public boolean isEmpty() {
+        return durations.isEmpty();
+    }
+
+    public boolean hasFailed(String className) {
+        return failed.contains(className);
+    }
+
+    public long estimateDuration(String className) {
+        Long duration = durations.get(className);
+        return duration != null ? duration : defaultDuration;
+    }
+
+    /**
+     * Returns the run order of test class names: classes that failed last time first, then the longest classes first.
+     */
+    public Comparator<String> getRunOrder() {
+        return runOrder;
+    }
+
+    /**
+     * Predicts how long it takes the given number of workers to run the given test classes, when each class goes to the first free
+     * worker in run order.
+     */
+    public long predictRunTime(Collection<String> classNames, int workers) {
+        List<String> ordered = new ArrayList<String>(classNames);
+        Collections.sort(ordered, runOrder);
+        PriorityQueue<Long> workerLoads = new PriorityQueue<Long>();
+        for (int i = 0; i < workers; i++) {
+            workerLoads.add(0L);
+        }
+        long runTime = 0;
+        for (String className : ordered) {
+            long load = workerLoads.poll() + estimateDuration(className);
+            runTime = Math.max(runTime, load);
+            workerLoads.add(load);
+        }
+        return runTime;
+    }
+
+    /**
+     * Compares the predicted run time of the given results with the time they actually took, from the start of the first test class
+     * to the end of the last one.
+     */
+    public TestSchedulingSummary summarize(Collection<TestClassResult> results, int workers) {
+        List<String> classNames = new ArrayList<String>(results.size());
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (TestClassResult result : results) {
+            classNames.add(result.getClassName());
+            start = Math.min(start, result.getStartTime());
+            end = Math.max(end, result.getStartTime() + result.getDuration());
+        }
+        long actualRunTime = results.isEmpty() ? 0 : end - start;
+        return new TestSchedulingSummary(workers, predictRunTime(classNames, workers), actualRunTime);
+    }
+}
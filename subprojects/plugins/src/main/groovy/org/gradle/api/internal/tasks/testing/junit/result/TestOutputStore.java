@@ -18,27 +18,51 @@ package org.gradle.api.internal.tasks.testing.junit.result;
 
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.google.common.collect.ImmutableMap;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.tasks.testing.TestOutputEvent;
-import org.gradle.internal.io.RandomAccessFileInputStream;
 import org.gradle.internal.UncheckedException;
-import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
-import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+import org.gradle.internal.os.OperatingSystem;
+import org.gradle.internal.xml.XmlValidation;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
+/**
+ * Stores the output of test classes and test cases in an append-only data file, holding only the raw UTF-8 bytes of the messages.
+ * An index, written when the writer is closed, lists for each test class and destination the regions of the data file that belong
+ * to it, in the order they were written, so reading the output of a class never scans the output of other classes.
+ */
 public class TestOutputStore {
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int CHAR_BUFFER_SIZE = 8 * 1024;
+    // Mapped chunks overlap a little, so that a character encoded across a chunk boundary can always be decoded from one chunk
+    private static final long MAP_CHUNK_SIZE = 1L << 30;
+    private static final int MAP_CHUNK_OVERLAP = 8;
+
     private final File resultsDir;
     private final Charset messageStorageCharset;
+    private final boolean mapOutputs;
 
     public TestOutputStore(File resultsDir) {
+        // A mapped file cannot be deleted on Windows until the mapping is garbage collected
+        this(resultsDir, !OperatingSystem.current().isWindows());
+    }
+
+    TestOutputStore(File resultsDir, boolean mapOutputs) {
         this.resultsDir = resultsDir;
         this.messageStorageCharset = Charset.forName("UTF-8");
+        this.mapOutputs = mapOutputs;
     }
 
     File getOutputsFile() {
@@ -49,41 +73,121 @@ public class TestOutputStore {
         return new File(resultsDir, getOutputsFile().getName() + ".idx");
     }
 
-    private static class Region {
-        long start;
-        long stop;
+    /**
+     * The regions of the data file holding the output of a test class for one destination, in the order they were written.
+     * Each region belongs to the class itself (test id 0) or to one of its test cases, and records whether its text can be
+     * copied into a CDATA section without escaping.
+     */
+    private static class Regions {
+        private long[] testIds = new long[4];
+        private long[] starts = new long[4];
+        private long[] lengths = new long[4];
+        private boolean[] plain = new boolean[4];
+        private int count;
+
+        void add(long testId, long start, long length, boolean plainText) {
+            int last = count - 1;
+            if (last >= 0 && testIds[last] == testId && plain[last] == plainText && starts[last] + lengths[last] == start) {
+                lengths[last] += length;
+                return;
+            }
+            if (count == testIds.length) {
+                int capacity = count * 2;
+                testIds = copyOf(testIds, capacity);
+                starts = copyOf(starts, capacity);
+                lengths = copyOf(lengths, capacity);
+                boolean[] newPlain = new boolean[capacity];
+                System.arraycopy(plain, 0, newPlain, 0, count);
+                plain = newPlain;
+            }
+            testIds[count] = testId;
+            starts[count] = start;
+            lengths[count] = length;
+            plain[count] = plainText;
+            count++;
+        }
+
+        private static long[] copyOf(long[] values, int capacity) {
+            long[] copy = new long[capacity];
+            System.arraycopy(values, 0, copy, 0, values.length);
+            return copy;
+        }
 
-        private Region() {
-            start = -1;
-            stop = -1;
+        void write(Output output) {
+            output.writeInt(count, true);
+            for (int i = 0; i < count; i++) {
+                output.writeLong(testIds[i], true);
+                output.writeLong(starts[i], true);
+                output.writeLong(lengths[i], true);
+                output.writeBoolean(plain[i]);
+            }
         }
 
-        private Region(long start, long stop) {
-            this.start = start;
-            this.stop = stop;
+        static Regions read(Input input) {
+            Regions regions = new Regions();
+            int count = input.readInt(true);
+            for (int i = 0; i < count; i++) {
+                regions.add(input.readLong(true), input.readLong(true), input.readLong(true), input.readBoolean());
+            }
+            return regions;
         }
     }
 
-    private static class TestCaseRegion {
-        Region stdOutRegion = new Region();
-        Region stdErrRegion = new Region();
+    private static class ClassOutput {
+        final Regions stdOut;
+        final Regions stdErr;
+
+        ClassOutput(Regions stdOut, Regions stdErr) {
+            this.stdOut = stdOut;
+            this.stdErr = stdErr;
+        }
+
+        Regions get(TestOutputEvent.Destination destination) {
+            return destination == TestOutputEvent.Destination.StdOut ? stdOut : stdErr;
+        }
+    }
+
+    /**
+     * Returns true when the message contains nothing that a CDATA section needs to escape or replace, and cannot form
+     * a CDATA end token together with the messages written before or after it.
+     */
+    static boolean isPlainText(String message) {
+        int length = message.length();
+        if (length == 0) {
+            return true;
+        }
+        if (message.charAt(0) == '>' || message.charAt(0) == ']' || message.charAt(length - 1) == ']') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char ch = message.charAt(i);
+            if (!XmlValidation.isLegalCharacter(ch) || XmlValidation.isRestrictedCharacter(ch)) {
+                return false;
+            }
+        }
+        return !message.contains("]]>");
     }
 
     public class Writer implements Closeable {
-        private final KryoBackedEncoder output;
+        private final OutputStream output;
+        private long writePosition;
 
-        private final Map<Long, Map<Long, TestCaseRegion>> index = new LinkedHashMap<Long, Map<Long, TestCaseRegion>>();
+        private final Map<Long, ClassOutput> index = new LinkedHashMap<Long, ClassOutput>();
 
         public Writer() {
             try {
-                output = new KryoBackedEncoder(new FileOutputStream(getOutputsFile()));
+                output = new BufferedOutputStream(new FileOutputStream(getOutputsFile()), WRITE_BUFFER_SIZE);
             } catch (FileNotFoundException e) {
                 throw new UncheckedIOException(e);
             }
         }
 
         public void close() {
-            output.close();
+            try {
+                output.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             writeIndex();
         }
 
@@ -92,43 +196,27 @@ public class TestOutputStore {
         }
 
         public void onOutput(long classId, long testId, TestOutputEvent outputEvent) {
-            boolean stdout = outputEvent.getDestination() == TestOutputEvent.Destination.StdOut;
-            mark(classId, testId, stdout);
-
-            output.writeBoolean(stdout);
-            output.writeSmallLong(classId);
-            output.writeSmallLong(testId);
-
+            String message = outputEvent.getMessage();
             byte[] bytes;
             try {
-                bytes = outputEvent.getMessage().getBytes(messageStorageCharset.name());
+                bytes = message.getBytes(messageStorageCharset.name());
             } catch (UnsupportedEncodingException e) {
                 throw UncheckedException.throwAsUncheckedException(e);
             }
-            output.writeSmallInt(bytes.length);
-            output.writeBytes(bytes, 0, bytes.length);
-        }
-
-        private void mark(long classId, long testId, boolean isStdout) {
-            if (!index.containsKey(classId)) {
-                index.put(classId, new LinkedHashMap<Long, TestCaseRegion>());
-            }
 
-            Map<Long, TestCaseRegion> testCaseRegions = index.get(classId);
-            if (!testCaseRegions.containsKey(testId)) {
-                TestCaseRegion region = new TestCaseRegion();
-                testCaseRegions.put(testId, region);
+            ClassOutput classOutput = index.get(classId);
+            if (classOutput == null) {
+                classOutput = new ClassOutput(new Regions(), new Regions());
+                index.put(classId, classOutput);
             }
+            classOutput.get(outputEvent.getDestination()).add(testId, writePosition, bytes.length, isPlainText(message));
 
-            TestCaseRegion region = testCaseRegions.get(testId);
-
-            Region streamRegion = isStdout ? region.stdOutRegion : region.stdErrRegion;
-
-            int total = output.getWritePosition();
-            if (streamRegion.start < 0) {
-                streamRegion.start = total;
+            try {
+                output.write(bytes);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            streamRegion.stop = total;
+            writePosition += bytes.length;
         }
 
         private void writeIndex() {
@@ -139,26 +227,13 @@ public class TestOutputStore {
                 throw new UncheckedIOException(e);
             }
 
-
             try {
                 indexOutput.writeInt(index.size(), true);
 
-                for (Map.Entry<Long, Map<Long, TestCaseRegion>> classEntry : index.entrySet()) {
-                    Long classId = classEntry.getKey();
-                    Map<Long, TestCaseRegion> regions = classEntry.getValue();
-
-                    indexOutput.writeLong(classId, true);
-                    indexOutput.writeInt(regions.size(), true);
-
-                    for (Map.Entry<Long, TestCaseRegion> testCaseEntry : regions.entrySet()) {
-                        long id = testCaseEntry.getKey();
-                        TestCaseRegion region = testCaseEntry.getValue();
-                        indexOutput.writeLong(id, true);
-                        indexOutput.writeLong(region.stdOutRegion.start);
-                        indexOutput.writeLong(region.stdOutRegion.stop);
-                        indexOutput.writeLong(region.stdErrRegion.start);
-                        indexOutput.writeLong(region.stdErrRegion.stop);
-                    }
+                for (Map.Entry<Long, ClassOutput> classEntry : index.entrySet()) {
+                    indexOutput.writeLong(classEntry.getKey(), true);
+                    classEntry.getValue().stdOut.write(indexOutput);
+                    classEntry.getValue().stdErr.write(indexOutput);
                 }
             } finally {
                 indexOutput.close();
@@ -170,55 +245,16 @@ public class TestOutputStore {
         return new Writer();
     }
 
-    private static class Index {
-        final ImmutableMap<Long, Index> children;
-        final Region stdOut;
-        final Region stdErr;
-
-        private Index(Region stdOut, Region stdErr) {
-            this.children = ImmutableMap.of();
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-
-        private Index(ImmutableMap<Long, Index> children, Region stdOut, Region stdErr) {
-            this.children = children;
-            this.stdOut = stdOut;
-            this.stdErr = stdErr;
-        }
-    }
-
-    private static class IndexBuilder {
-        final Region stdOut = new Region();
-        final Region stdErr = new Region();
-
-        private final ImmutableMap.Builder<Long, Index> children = ImmutableMap.builder();
-
-        void add(long key, Index index) {
-            if (stdOut.start < 0) {
-                stdOut.start = index.stdOut.start;
-            }
-            if (stdErr.start < 0) {
-                stdErr.start = index.stdErr.start;
-            }
-            if (index.stdOut.stop > stdOut.stop) {
-                stdOut.stop = index.stdOut.stop;
-            }
-            if (index.stdErr.stop > stdErr.stop) {
-                stdErr.stop = index.stdErr.stop;
-            }
-
-            children.put(key, index);
-        }
-
-        Index build() {
-            return new Index(children.build(), stdOut, stdErr);
-        }
-    }
-
+    /**
+     * Reads the output of test classes and test cases. The data file is memory-mapped where possible, and may be read
+     * by multiple threads at the same time.
+     */
     public class Reader implements Closeable {
-        private final Index index;
+        private final Map<Long, ClassOutput> index;
         private final RandomAccessFile dataFile;
+        private final FileChannel dataChannel;
+        private final long dataLength;
+        private final MappedByteBuffer[] mappedChunks;
 
         public Reader() {
             File indexFile = getIndexFile();
@@ -236,36 +272,27 @@ public class TestOutputStore {
                     throw new UncheckedIOException(e);
                 }
 
-                IndexBuilder rootBuilder = null;
+                index = new HashMap<Long, ClassOutput>();
                 try {
                     int numClasses = input.readInt(true);
-                    rootBuilder = new IndexBuilder();
-
                     for (int classCounter = 0; classCounter < numClasses; ++classCounter) {
                         long classId = input.readLong(true);
-                        IndexBuilder classBuilder = new IndexBuilder();
-
-                        int numEntries = input.readInt(true);
-                        for (int entryCounter = 0; entryCounter < numEntries; ++entryCounter) {
-                            long testId = input.readLong(true);
-                            Region stdOut = new Region(input.readLong(), input.readLong());
-                            Region stdErr = new Region(input.readLong(), input.readLong());
-                            classBuilder.add(testId, new Index(stdOut, stdErr));
-                        }
-
-                        rootBuilder.add(classId, classBuilder.build());
+                        Regions stdOut = Regions.read(input);
+                        Regions stdErr = Regions.read(input);
+                        index.put(classId, new ClassOutput(stdOut, stdErr));
                     }
                 } finally {
                     input.close();
                 }
 
-                index = rootBuilder.build();
-
                 try {
                     dataFile = new RandomAccessFile(getOutputsFile(), "r");
-                } catch (FileNotFoundException e) {
+                    dataChannel = dataFile.getChannel();
+                    dataLength = dataChannel.size();
+                } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
+                mappedChunks = mapOutputs ? new MappedByteBuffer[(int) ((dataLength + MAP_CHUNK_SIZE - 1) / MAP_CHUNK_SIZE)] : null;
             } else { // no outputs file
                 if (indexFile.exists()) {
                     throw new IllegalStateException(String.format("Test outputs data file '%s' does not exist but the index file '%s' does", outputsFile, indexFile));
@@ -273,6 +300,9 @@ public class TestOutputStore {
 
                 index = null;
                 dataFile = null;
+                dataChannel = null;
+                dataLength = 0;
+                mappedChunks = null;
             }
         }
 
@@ -287,13 +317,8 @@ public class TestOutputStore {
                 return false;
             }
 
-            Index classIndex = index.children.get(classId);
-            if (classIndex == null) {
-                return false;
-            } else {
-                Region region = destination == TestOutputEvent.Destination.StdOut ? classIndex.stdOut : classIndex.stdErr;
-                return region.start >= 0;
-            }
+            ClassOutput classOutput = index.get(classId);
+            return classOutput != null && classOutput.get(destination).count > 0;
         }
 
         public void writeAllOutput(long classId, TestOutputEvent.Destination destination, java.io.Writer writer) {
@@ -313,70 +338,110 @@ public class TestOutputStore {
                 return;
             }
 
-            Index targetIndex = index.children.get(classId);
-            if (targetIndex != null && testId != 0) {
-                targetIndex = targetIndex.children.get(testId);
+            ClassOutput classOutput = index.get(classId);
+            if (classOutput == null) {
+                return;
             }
 
-            if (targetIndex == null) {
-                return;
+            Regions regions = classOutput.get(destination);
+            RegionCopier copier = null;
+            try {
+                for (int i = 0; i < regions.count; i++) {
+                    if ((allClassOutput || regions.testIds[i] == testId) && regions.lengths[i] > 0) {
+                        if (copier == null) {
+                            copier = new RegionCopier(writer);
+                        }
+                        copier.copy(regions.starts[i], regions.lengths[i], regions.plain[i]);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
+        }
 
-            boolean stdout = destination == TestOutputEvent.Destination.StdOut;
-            Region region = stdout ? targetIndex.stdOut : targetIndex.stdErr;
+        /**
+         * Returns a buffer positioned at the given position of the data file, holding at most the given number of bytes.
+         */
+        private ByteBuffer window(long position, long maxLength, ByteBuffer readBuffer) throws IOException {
+            if (mappedChunks != null) {
+                int chunkIndex = (int) (position / MAP_CHUNK_SIZE);
+                ByteBuffer chunk = mappedChunk(chunkIndex).duplicate();
+                int offset = (int) (position - chunkIndex * MAP_CHUNK_SIZE);
+                chunk.limit((int) Math.min(chunk.capacity(), offset + maxLength));
+                chunk.position(offset);
+                return chunk;
+            }
 
-            if (region.start < 0) {
-                return;
+            readBuffer.clear();
+            readBuffer.limit((int) Math.min(readBuffer.capacity(), maxLength));
+            while (readBuffer.hasRemaining()) {
+                if (dataChannel.read(readBuffer, position + readBuffer.position()) < 0) {
+                    throw new EOFException(String.format("Unexpected end of test outputs data file '%s'.", getOutputsFile()));
+                }
             }
+            readBuffer.flip();
+            return readBuffer;
+        }
 
-            boolean ignoreClassLevel = !allClassOutput && testId != 0;
-            boolean ignoreTestLevel = !allClassOutput && testId == 0;
+        private synchronized MappedByteBuffer mappedChunk(int chunkIndex) throws IOException {
+            MappedByteBuffer chunk = mappedChunks[chunkIndex];
+            if (chunk == null) {
+                long start = chunkIndex * MAP_CHUNK_SIZE;
+                chunk = dataChannel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_CHUNK_SIZE + MAP_CHUNK_OVERLAP, dataLength - start));
+                mappedChunks[chunkIndex] = chunk;
+            }
+            return chunk;
+        }
 
-            try {
-                dataFile.seek(region.start);
-                long maxPos = region.stop - region.start;
-                KryoBackedDecoder decoder = new KryoBackedDecoder(new RandomAccessFileInputStream(dataFile));
-                while (decoder.getReadPosition() <= maxPos) {
-                    boolean readStdout = decoder.readBoolean();
-                    long readClassId = decoder.readSmallLong();
-                    long readTestId = decoder.readSmallLong();
-                    int readLength = decoder.readSmallInt();
-
-                    boolean isClassLevel = readTestId == 0;
-
-                    if (stdout != readStdout || classId != readClassId) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
+        /**
+         * Copies regions of the data file to a writer. Plain text goes to a {@link CDataOutputWriter} as encoded bytes,
+         * everything else is decoded straight from the data file into a reused character buffer.
+         */
+        private class RegionCopier {
+            private final java.io.Writer writer;
+            private final ByteBuffer readBuffer;
+            private CharsetDecoder decoder;
+            private CharBuffer chars;
+
+            RegionCopier(java.io.Writer writer) {
+                this.writer = writer;
+                this.readBuffer = mappedChunks == null ? ByteBuffer.allocate(READ_BUFFER_SIZE) : null;
+            }
 
-                    if (ignoreClassLevel && isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
-                    }
+            void copy(long start, long length, boolean plain) throws IOException {
+                long position = start;
+                long end = start + length;
 
-                    if (ignoreTestLevel && !isClassLevel) {
-                        decoder.skipBytes(readLength);
-                        continue;
+                if (plain && writer instanceof CDataOutputWriter) {
+                    while (position < end) {
+                        ByteBuffer bytes = window(position, end - position, readBuffer);
+                        position += bytes.remaining();
+                        ((CDataOutputWriter) writer).writeEncoded(bytes);
                     }
+                    return;
+                }
 
-                    if (testId == 0 || testId == readTestId) {
-                        byte[] stringBytes = new byte[readLength];
-                        decoder.readBytes(stringBytes);
-                        String message;
-                        try {
-                            message = new String(stringBytes, messageStorageCharset.name());
-                        } catch (UnsupportedEncodingException e) {
-                            // shouldn't happen
-                            throw UncheckedException.throwAsUncheckedException(e);
-                        }
-
-                        writer.write(message);
-                    } else {
-                        decoder.skipBytes(readLength);
-                    }
+                if (decoder == null) {
+                    decoder = messageStorageCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+                    chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+                }
+                decoder.reset();
+                while (position < end) {
+                    ByteBuffer bytes = window(position, end - position, readBuffer);
+                    int windowStart = bytes.position();
+                    // An incomplete character at the end of the window stays unconsumed, and starts the next window
+                    decoder.decode(bytes, chars, position + bytes.remaining() == end);
+                    position += bytes.position() - windowStart;
+                    writeChars();
                 }
-            } catch (IOException e1) {
-                throw new UncheckedIOException(e1);
+                decoder.flush(chars);
+                writeChars();
+            }
+
+            private void writeChars() throws IOException {
+                chars.flip();
+                writer.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+                chars.clear();
             }
         }
     }
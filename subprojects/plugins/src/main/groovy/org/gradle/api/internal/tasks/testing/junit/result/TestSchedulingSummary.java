@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result;
+
+/**
+ * The predicted and actual run time of a test run whose test classes were ordered using a {@link TestClassHistory}.
+ */
+public class TestSchedulingSummary {
+    private final int workers;
+    private final long predictedRunTime;
+    private final long actualRunTime;
+
+    public TestSchedulingSummary(int workers, long predictedRunTime, long actualRunTime) {
+        this.workers = workers;
+        this.predictedRunTime = predictedRunTime;
+        this.actualRunTime = actualRunTime;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public long getPredictedRunTime() {
+        return predictedRunTime;
+    }
+
+    public long getActualRunTime() {
+        return actualRunTime;
+    }
+}
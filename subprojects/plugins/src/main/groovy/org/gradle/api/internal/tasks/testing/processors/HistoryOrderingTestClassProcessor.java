@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds back the test classes until all of them have been found, then hands them to the delegate in the run order of the
+ * given {@link TestClassHistory}.
+ */
+public class HistoryOrderingTestClassProcessor implements TestClassProcessor {
+    private final TestClassHistory history;
+    private final TestClassProcessor delegate;
+    private final List<TestClassRunInfo> testClasses = new ArrayList<TestClassRunInfo>();
+
+    public HistoryOrderingTestClassProcessor(TestClassHistory history, TestClassProcessor delegate) {
+        this.history = history;
+        this.delegate = delegate;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        delegate.startProcessing(resultProcessor);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        testClasses.add(testClass);
+    }
+
+    public void stop() {
+        try {
+            final Comparator<String> runOrder = history.getRunOrder();
+            Collections.sort(testClasses, new Comparator<TestClassRunInfo>() {
+                public int compare(TestClassRunInfo left, TestClassRunInfo right) {
+                    return runOrder.compare(left.getTestClassName(), right.getTestClassName());
+                }
+            });
+            for (TestClassRunInfo testClass : testClasses) {
+                delegate.processTestClass(testClass);
+            }
+        } finally {
+            testClasses.clear();
+            delegate.stop();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.Transformer;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
+import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.messaging.actor.Actor;
+import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.dispatch.DispatchException;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Manages a set of parallel TestClassProcessors that take their test classes from a shared queue. Each processor is given at most
+ * a fixed number of test classes it has not finished with yet, and is given the next class from the queue when it reports that it
+ * has finished with one. So a processor that runs a few slow test classes does not hold on to test classes that other processors
+ * could run in the meantime.
+ */
+public class SharedQueueTestClassProcessor implements TestClassProcessor {
+    private final int maxProcessors;
+    private final int maxPendingPerProcessor;
+    private final Transformer<TestClassProcessor, TestClassProcessedListener> factory;
+    private final ActorFactory actorFactory;
+    private final Lock lock = new ReentrantLock();
+    private final Condition queueEmpty = lock.newCondition();
+    private final LinkedList<TestClassRunInfo> queue = new LinkedList<TestClassRunInfo>();
+    private final List<Worker> workers = new ArrayList<Worker>();
+    private final List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
+    private final List<Actor> actors = new ArrayList<Actor>();
+    private TestResultProcessor resultProcessor;
+    private Actor resultProcessorActor;
+
+    public SharedQueueTestClassProcessor(int maxProcessors, int maxPendingPerProcessor, Transformer<TestClassProcessor, TestClassProcessedListener> factory, ActorFactory actorFactory) {
+        this.maxProcessors = maxProcessors;
+        this.maxPendingPerProcessor = maxPendingPerProcessor;
+        this.factory = factory;
+        this.actorFactory = actorFactory;
+    }
+
+    public void startProcessing(TestResultProcessor resultProcessor) {
+        resultProcessorActor = actorFactory.createActor(resultProcessor);
+        this.resultProcessor = resultProcessorActor.getProxy(TestResultProcessor.class);
+    }
+
+    public void processTestClass(TestClassRunInfo testClass) {
+        if (processors.size() < maxProcessors) {
+            startWorker();
+        }
+        lock.lock();
+        try {
+            queue.add(testClass);
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void startWorker() {
+        Worker worker = new Worker();
+        TestClassProcessor processor = factory.transform(worker);
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        processor.startProcessing(resultProcessor);
+        lock.lock();
+        try {
+            worker.processor = processor;
+            workers.add(worker);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hands out queued test classes to the workers with the fewest pending test classes. Must be called with the lock held.
+     */
+    private void dispatch() {
+        while (!queue.isEmpty()) {
+            Worker next = null;
+            for (Worker worker : workers) {
+                if (worker.pending < maxPendingPerProcessor && (next == null || worker.pending < next.pending)) {
+                    next = worker;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            next.pending++;
+            next.processor.processTestClass(queue.removeFirst());
+        }
+        queueEmpty.signalAll();
+    }
+
+    public void stop() {
+        lock.lock();
+        try {
+            while (!queue.isEmpty()) {
+                queueEmpty.await();
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
+        } catch (DispatchException e) {
+            throw UncheckedException.throwAsUncheckedException(e.getCause());
+        }
+    }
+
+    private class Worker implements TestClassProcessedListener {
+        private TestClassProcessor processor;
+        private int pending;
+
+        public void testClassProcessed() {
+            lock.lock();
+            try {
+                pending--;
+                dispatch();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
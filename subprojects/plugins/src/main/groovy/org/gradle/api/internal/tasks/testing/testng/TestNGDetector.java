@@ -16,18 +16,13 @@
 package org.gradle.api.internal.tasks.testing.testng;
 
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetails;
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetailsCache;
 import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager;
-import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.File;
 
 class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetecter> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(TestNGDetector.class);
-
-    TestNGDetector(ClassFileExtractionManager classFileExtractionManager) {
-        super(classFileExtractionManager);
+    TestNGDetector(ClassFileExtractionManager classFileExtractionManager, ClassFileDetailsCache classFileDetailsCache) {
+        super(classFileExtractionManager, classFileDetailsCache);
     }
 
     protected TestNGTestClassDetecter createClassVisitor() {
@@ -39,25 +34,14 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
      * class is a test class. First the package of the parent class is checked, if it is a java.lang or groovy.lang the class can't be a test class, otherwise the parent class is scanned. <p/> When a
      * parent class is a test class all the extending classes are marked as test classes.
      */
-    protected boolean processTestClass(final File testClassFile, boolean superClass) {
-        final TestClassVisitor classVisitor = classVisitor(testClassFile);
-
-        boolean isTest = classVisitor.isTest();
+    protected boolean processTestClass(final ClassFileDetails testClass, boolean superClass) {
+        boolean isTest = testClass.isTest();
 
         if (!isTest) {
-            final String superClassName = classVisitor.getSuperClassName();
-
-            final File superClassFile = getSuperTestClassFile(superClassName);
-
-            if (superClassFile != null) {
-                isTest = processSuperClass(superClassFile);
-            } else {
-                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
-                        superClassName);
-            }
+            isTest = processSuperClass(testClass.getSuperClassName());
         }
 
-        publishTestClass(isTest, classVisitor, superClass);
+        publishTestClass(isTest, testClass, superClass);
 
         return isTest;
     }
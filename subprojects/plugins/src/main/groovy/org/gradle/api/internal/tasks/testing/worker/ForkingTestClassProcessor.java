@@ -17,13 +17,18 @@
 package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.internal.Factory;
 import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandle;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
 
@@ -35,16 +40,23 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
+    final ProcessedTestClasses processedTestClasses;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
     private TestResultProcessor resultProcessor;
 
-    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+    /**
+     * @param processedListener Notified each time the worker process is done with a test class. Test classes that are still pending when the worker process
+     * stops, or that cannot be sent to a worker process, are reported as done as well.
+     */
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction,
+                                     TestClassProcessedListener processedListener) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.processedTestClasses = new ProcessedTestClasses(processedListener);
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -52,11 +64,21 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        if (remoteProcessor == null) {
-            remoteProcessor = forkProcess();
+        boolean sent = false;
+        try {
+            if (remoteProcessor == null) {
+                remoteProcessor = forkProcess();
+            }
+            if (!processedTestClasses.sending()) {
+                throw new GradleException(String.format("Could not run test class '%s' as the test worker process has stopped.", testClass.getTestClassName()));
+            }
+            sent = true;
+            remoteProcessor.processTestClass(testClass);
+        } finally {
+            if (!sent) {
+                processedTestClasses.notSent();
+            }
         }
-
-        remoteProcessor.processTestClass(testClass);
     }
 
     RemoteTestClassProcessor forkProcess() {
@@ -66,6 +88,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         builder.setLoadApplicationInSystemClassLoader(true);
         builder.worker(new TestWorker(processorFactory));
         options.copyTo(builder.getJavaCommand());
+        builder.getJavaCommand().listener(processedTestClasses);
         buildConfigAction.execute(builder);
 
         workerProcess = builder.build();
@@ -74,6 +97,7 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
         ObjectConnection connection = workerProcess.getConnection();
         connection.useParameterSerializer(TestEventSerializer.create());
         connection.addIncoming(TestResultProcessor.class, resultProcessor);
+        connection.addIncoming(TestClassProcessedListener.class, processedTestClasses);
         RemoteTestClassProcessor remoteProcessor = connection.addOutgoing(RemoteTestClassProcessor.class);
         connection.connect();
         remoteProcessor.startProcessing();
@@ -86,4 +110,54 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             workerProcess.waitForStop();
         }
     }
+
+    /**
+     * Tracks the test classes sent to the worker process that it has not finished with yet, and reports them as done when the worker process stops.
+     */
+    static class ProcessedTestClasses implements TestClassProcessedListener, ExecHandleListener {
+        private final TestClassProcessedListener listener;
+        private int pending;
+        private boolean workerStopped;
+
+        private ProcessedTestClasses(TestClassProcessedListener listener) {
+            this.listener = listener;
+        }
+
+        synchronized boolean sending() {
+            if (workerStopped) {
+                return false;
+            }
+            pending++;
+            return true;
+        }
+
+        void notSent() {
+            listener.testClassProcessed();
+        }
+
+        public void testClassProcessed() {
+            synchronized (this) {
+                if (pending == 0) {
+                    return;
+                }
+                pending--;
+            }
+            listener.testClassProcessed();
+        }
+
+        public void executionStarted(ExecHandle execHandle) {
+        }
+
+        public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+            int abandoned;
+            synchronized (this) {
+                workerStopped = true;
+                abandoned = pending;
+                pending = 0;
+            }
+            for (int i = 0; i < abandoned; i++) {
+                listener.testClassProcessed();
+            }
+        }
+    }
 }
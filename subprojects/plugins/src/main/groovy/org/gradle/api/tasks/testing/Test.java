@@ -37,6 +37,7 @@ import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junit.JUnitTestFramework;
 import org.gradle.api.internal.tasks.testing.junit.report.DefaultTestReport;
 import org.gradle.api.internal.tasks.testing.junit.report.TestReporter;
+import org.gradle.api.internal.tasks.testing.junit.report.TestResultModel;
 import org.gradle.api.internal.tasks.testing.junit.result.*;
 import org.gradle.api.internal.tasks.testing.logging.*;
 import org.gradle.api.internal.tasks.testing.results.StateTrackingTestResultProcessor;
@@ -54,6 +55,7 @@ import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
 import org.gradle.internal.Factory;
 import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.event.ListenerBroadcast;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.reflect.Instantiator;
@@ -179,6 +181,11 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         throw new UnsupportedOperationException();
     }
 
+    @Inject
+    protected ExecutorFactory getExecutorFactory() {
+        throw new UnsupportedOperationException();
+    }
+
     @Inject
     protected ClassLoaderCache getClassLoaderCache() {
         throw new UnsupportedOperationException();
@@ -503,6 +510,9 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         }
 
         File binaryResultsDir = getBinResultsDir();
+        TestClassHistory history = Boolean.getBoolean(DefaultTestExecuter.ORDER_BY_HISTORY_PROPERTY)
+                ? TestClassHistory.read(binaryResultsDir)
+                : TestClassHistory.EMPTY;
         getProject().delete(binaryResultsDir);
         getProject().mkdir(binaryResultsDir);
 
@@ -523,7 +533,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         TestResultProcessor resultProcessor = new StateTrackingTestResultProcessor(testListenerInternalBroadcaster.getSource());
 
         if (testExecuter == null) {
-            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory());
+            testExecuter = new DefaultTestExecuter(getProcessBuilderFactory(), getActorFactory(), getExecutorFactory(), history);
         }
 
         try {
@@ -540,9 +550,17 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
 
         TestResultsProvider testResultsProvider = new InMemoryTestResultsProvider(results.values(), testOutputStore.reader());
 
+        TestSchedulingSummary schedulingSummary = null;
+        if (!history.isEmpty()) {
+            schedulingSummary = history.summarize(results.values(), getMaxParallelForks());
+            getLogger().info("Ran test classes in the order of the previous run's results. Predicted run time: {}, actual run time: {}.",
+                    TestResultModel.DURATION_FORMATTER.format(schedulingSummary.getPredictedRunTime()),
+                    TestResultModel.DURATION_FORMATTER.format(schedulingSummary.getActualRunTime()));
+        }
+
         try {
             if (testReporter == null) {
-                testReporter = new DefaultTestReport();
+                testReporter = new DefaultTestReport(getExecutorFactory(), schedulingSummary);
             }
 
             JUnitXmlReport junitXml = reports.getJunitXml();
@@ -550,7 +568,7 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
                 TestOutputAssociation outputAssociation = junitXml.isOutputPerTestCase()
                         ? TestOutputAssociation.WITH_TESTCASE
                         : TestOutputAssociation.WITH_SUITE;
-                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation);
+                Binary2JUnitXmlReportGenerator binary2JUnitXmlReportGenerator = new Binary2JUnitXmlReportGenerator(junitXml.getDestination(), testResultsProvider, outputAssociation, getExecutorFactory());
                 binary2JUnitXmlReportGenerator.generate();
             }
 
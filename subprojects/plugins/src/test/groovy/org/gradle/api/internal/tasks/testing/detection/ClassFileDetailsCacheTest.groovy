@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.internal.Factory
+import org.gradle.internal.hash.HashUtil
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassFileDetailsCacheTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def dirFactory = { tmp.testDirectory } as Factory<File>
+    def hash1 = HashUtil.sha1("class1".bytes)
+    def hash2 = HashUtil.sha1("class2".bytes)
+
+    def "keeps details across instances"() {
+        given:
+        def cache = new ClassFileDetailsCache(dirFactory, "detection.bin")
+        cache.put(hash1, new ClassFileDetails("org/test/Foo", "org/test/Base", true, false))
+        cache.put(hash2, new ClassFileDetails("org/test/Bar", null, false, true))
+        cache.save()
+
+        when:
+        def reopened = new ClassFileDetailsCache(dirFactory, "detection.bin")
+        def foo = reopened.get(hash1)
+        def bar = reopened.get(hash2)
+
+        then:
+        foo.className == "org/test/Foo"
+        foo.superClassName == "org/test/Base"
+        foo.abstract
+        !foo.test
+        bar.className == "org/test/Bar"
+        bar.superClassName == null
+        !bar.abstract
+        bar.test
+        reopened.get(HashUtil.sha1("other".bytes)) == null
+    }
+
+    def "drops details that were not used since they were last saved"() {
+        given:
+        def cache = new ClassFileDetailsCache(dirFactory, "detection.bin")
+        cache.put(hash1, new ClassFileDetails("org/test/Foo", "java/lang/Object", false, true))
+        cache.put(hash2, new ClassFileDetails("org/test/Bar", "java/lang/Object", false, true))
+        cache.save()
+
+        when:
+        def reopened = new ClassFileDetailsCache(dirFactory, "detection.bin")
+        reopened.get(hash1)
+        reopened.save()
+
+        then:
+        def cacheAfterPrune = new ClassFileDetailsCache(dirFactory, "detection.bin")
+        cacheAfterPrune.get(hash1) != null
+        cacheAfterPrune.get(hash2) == null
+    }
+
+    def "ignores a cache file that cannot be read"() {
+        given:
+        tmp.file("detection.bin").text = "not a cache"
+
+        expect:
+        new ClassFileDetailsCache(dirFactory, "detection.bin").get(hash1) == null
+    }
+}
@@ -27,6 +27,10 @@ import org.jmock.Sequence
 import org.gradle.api.file.FileTree
 import static org.hamcrest.Matchers.*
 import org.gradle.api.file.FileVisitDetails
+import org.gradle.api.file.FileCollection
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+
+import java.util.concurrent.CopyOnWriteArrayList
 
 @RunWith(JMock.class)
 public class DefaultTestClassScannerTest {
@@ -34,10 +38,11 @@ public class DefaultTestClassScannerTest {
     private final TestFrameworkDetector detector = context.mock(TestFrameworkDetector.class)
     private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
     private final FileTree files = context.mock(FileTree.class)
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
 
     @Test
     public void passesEachClassFileToTestClassDetector() {
-        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor)
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, detector, processor, executorFactory, 1)
 
         context.checking {
             Sequence sequence = context.sequence('seq')
@@ -51,8 +56,59 @@ public class DefaultTestClassScannerTest {
             one(detector).processTestClass(new File('class1.class'))
             one(detector).processTestClass(new File('class2.class'))
             inSequence(sequence)
+            one(detector).stopDetection()
+            inSequence(sequence)
         }
         
         scanner.run()
     }
+
+    @Test
+    public void readsClassFilesInParallelAndPassesThemToTestClassDetectorInOrder() {
+        def classFiles = (1..20).collect { new File("class${it}.class") }
+        def recordingDetector = new RecordingDetector()
+        DefaultTestClassScanner scanner = new DefaultTestClassScanner(files, recordingDetector, processor, executorFactory, 4)
+
+        context.checking {
+            one(files).visit(withParam(notNullValue()))
+            will { visitor ->
+                classFiles.each { file -> visitor.visitFile({ file } as FileVisitDetails) }
+            }
+        }
+
+        scanner.run()
+
+        assert recordingDetector.read as Set == classFiles as Set
+        assert recordingDetector.processed == classFiles
+        assert recordingDetector.stopped
+    }
+
+    private static class RecordingDetector implements TestFrameworkDetector {
+        final List<File> read = new CopyOnWriteArrayList<File>()
+        final List<File> processed = []
+        boolean stopped
+
+        void startDetection(TestClassProcessor testClassProcessor) {
+        }
+
+        void readTestClass(File testClassFile) {
+            read << testClassFile
+        }
+
+        boolean processTestClass(File testClassFile) {
+            assert read.contains(testClassFile)
+            processed << testClassFile
+            return true
+        }
+
+        void stopDetection() {
+            stopped = true
+        }
+
+        void setTestClassesDirectory(File testClassesDir) {
+        }
+
+        void setTestClasspath(FileCollection classpath) {
+        }
+    }
 }
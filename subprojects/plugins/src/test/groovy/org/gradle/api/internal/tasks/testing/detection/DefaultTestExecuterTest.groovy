@@ -22,6 +22,8 @@ import org.gradle.api.file.FileTree
 import org.gradle.api.internal.tasks.testing.TestFramework
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.tasks.testing.Test
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.StoppableExecutor
 import org.gradle.messaging.actor.Actor
 import org.gradle.messaging.actor.ActorFactory
 import spock.lang.Specification
@@ -31,6 +33,7 @@ class DefaultTestExecuterTest extends Specification {
     TestResultProcessor testResultProcessor = Mock()
     Test testTask = Mock()
     ActorFactory actorFactory = Mock()
+    ExecutorFactory executorFactory = Mock()
     org.gradle.internal.Factory workerFactory = Mock()
     TestFramework testFramework = Mock()
     TestResultProcessor resultProcessor = Mock()
@@ -40,7 +43,7 @@ class DefaultTestExecuterTest extends Specification {
     FileCollection testClasspath = Mock()
     Project project = Mock()
 
-    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory)
+    DefaultTestExecuter executer = new DefaultTestExecuter(workerFactory, actorFactory, executorFactory)
 
     def setup() {
         _ * testTask.testFramework >> testFramework
@@ -48,6 +51,7 @@ class DefaultTestExecuterTest extends Specification {
         _ * testTask.getPath() >> ':'
         _ * testTask.getProject() >> project
         _ * actorFactory.createActor(_) >> resultProcessorActor
+        _ * executorFactory.create(_, _) >> Mock(StoppableExecutor)
         _ * resultProcessorActor.getProxy(_) >> resultProcessor
         _ * testTask.isScanForTestClasses() >> true
         _ * testFramework.getDetector() >> testFrameworkTestDetector
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.detection.ClassFileDetailsCache
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.internal.Factory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import spock.lang.Specification
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class JUnitDetectorTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+    def classesDir = tmp.createDir("classes")
+    def libraryJar = tmp.file("lib.jar")
+    def processor = Mock(TestClassProcessor)
+
+    def setup() {
+        writeJar(libraryJar, "org/lib/BaseTest": classFile("org/lib/BaseTest", "java/lang/Object", true), "org/lib/Helper": classFile("org/lib/Helper", "java/lang/Object", false))
+        classesDir.file("org/test/SubTest.class").bytes = classFile("org/test/SubTest", "org/lib/BaseTest", false)
+        classesDir.file("org/test/NotATest.class").bytes = classFile("org/test/NotATest", "org/lib/Helper", false)
+    }
+
+    def "finds test classes whose super class is in a library jar"() {
+        given:
+        def detector = detector()
+
+        when:
+        detect(detector)
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "org.test.SubTest" })
+        0 * processor._
+    }
+
+    def "finds the same test classes using the details cached by a previous detection"() {
+        given:
+        detect(detector())
+
+        when:
+        detect(detector())
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "org.test.SubTest" })
+        0 * processor._
+        tmp.file("tmp/detection.bin").file
+    }
+
+    def "finds test classes that were read ahead"() {
+        given:
+        def detector = detector()
+        detector.startDetection(processor)
+        detector.readTestClass(classesDir.file("org/test/SubTest.class"))
+        detector.readTestClass(classesDir.file("org/test/NotATest.class"))
+
+        when:
+        detector.processTestClass(classesDir.file("org/test/SubTest.class"))
+        detector.processTestClass(classesDir.file("org/test/NotATest.class"))
+        detector.stopDetection()
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == "org.test.SubTest" })
+        0 * processor._
+    }
+
+    private JUnitDetector detector() {
+        def detector = new JUnitDetector(new ClassFileExtractionManager(), new ClassFileDetailsCache({ tmp.createDir("tmp") } as Factory<File>, "detection.bin"))
+        detector.testClassesDirectory = classesDir
+        detector.testClasspath = Stub(FileCollection) {
+            iterator() >> { [classesDir, libraryJar].iterator() }
+        }
+        return detector
+    }
+
+    private void detect(JUnitDetector detector) {
+        detector.startDetection(processor)
+        detector.processTestClass(classesDir.file("org/test/SubTest.class"))
+        detector.processTestClass(classesDir.file("org/test/NotATest.class"))
+        detector.stopDetection()
+    }
+
+    private static byte[] classFile(String name, String superName, boolean withTestMethod) {
+        def writer = new ClassWriter(0)
+        writer.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC, name, null, superName, null)
+        if (withTestMethod) {
+            def method = writer.visitMethod(Opcodes.ACC_PUBLIC, "test", "()V", null, null)
+            method.visitAnnotation("Lorg/junit/Test;", true).visitEnd()
+            method.visitEnd()
+        }
+        writer.visitEnd()
+        return writer.toByteArray()
+    }
+
+    private static void writeJar(TestFile jar, Map<String, byte[]> classes) {
+        def outputStream = new ZipOutputStream(new FileOutputStream(jar))
+        try {
+            classes.keySet().collect { it.substring(0, it.lastIndexOf('/') + 1) }.unique().each { packageName ->
+                outputStream.putNextEntry(new ZipEntry(packageName))
+                outputStream.closeEntry()
+            }
+            classes.each { name, bytes ->
+                outputStream.putNextEntry(new ZipEntry(name + ".class"))
+                outputStream.write(bytes)
+                outputStream.closeEntry()
+            }
+        } finally {
+            outputStream.close()
+        }
+    }
+}
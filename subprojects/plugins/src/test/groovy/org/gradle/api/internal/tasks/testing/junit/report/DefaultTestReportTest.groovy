@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.testing.junit.report
 import org.gradle.api.internal.tasks.testing.BuildableTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.AggregateTestResultsProvider
 import org.gradle.api.internal.tasks.testing.junit.result.TestResultsProvider
+import org.gradle.internal.concurrent.DefaultExecutorFactory
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
 import org.gradle.util.ConfigureUtil
@@ -27,7 +28,8 @@ import spock.lang.Specification
 class DefaultTestReportTest extends Specification {
     @Rule
     public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider()
-    final DefaultTestReport report = new DefaultTestReport()
+    final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
+    final DefaultTestReport report = new DefaultTestReport(executorFactory)
     final TestFile reportDir = tmpDir.file('report')
     final TestFile indexFile = reportDir.file('index.html')
     final TestResultsProvider testResultProvider = Mock()
@@ -412,6 +414,41 @@ class DefaultTestReportTest extends Specification {
         mixedClassFile.assertHasFailure('secondAlternative', 'something failed\n\nthis is the failure\nat someClass\n')
     }
 
+    def rendersClassPagesOnSeveralThreads() {
+        given:
+        def parallelReport = new DefaultTestReport(executorFactory, null, 4)
+        def testTestResults = buildResults {
+            50.times { i ->
+                testClassResult("org.gradle.parallel.Test$i") {
+                    testcase("passed") {
+                        duration = 1000
+                    }
+                    testcase("failed") {
+                        duration = 1000
+                        failure("something failed", "this is the failure\nat someClass")
+                    }
+                }
+            }
+        }
+
+        when:
+        parallelReport.generateReport(testTestResults, reportDir)
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(100)
+        index.assertHasFailures(50)
+        index.assertHasFailedTest('classes/org.gradle.parallel.Test7', 'failed')
+
+        and:
+        (0..<50).each { i ->
+            def classFile = results(reportDir.file("classes/org.gradle.parallel.Test${i}.html"))
+            classFile.assertHasTests(2)
+            classFile.assertHasFailures(1)
+            classFile.assertHasFailure('failed', 'something failed\n\nthis is the failure\nat someClass\n')
+        }
+    }
+
     def reportsOnClassesInDefaultPackage() {
         given:
         def testTestResults = buildResults {
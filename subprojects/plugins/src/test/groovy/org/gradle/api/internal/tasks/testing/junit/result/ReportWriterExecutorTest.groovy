@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ReportWriterExecutorTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+
+    def "writes files on the calling thread when using a single thread"() {
+        def executor = new ReportWriterExecutor(executorFactory, "writer", 1)
+        def threads = []
+
+        when:
+        3.times { executor.execute { threads << Thread.currentThread() } }
+        executor.stop()
+
+        then:
+        threads == [Thread.currentThread()] * 3
+    }
+
+    def "writes all files when using several threads"() {
+        def executor = new ReportWriterExecutor(executorFactory, "writer", 4)
+        def written = new CopyOnWriteArrayList()
+
+        when:
+        100.times { i -> executor.execute { written << i } }
+        executor.stop()
+
+        then:
+        written.sort() == (0..<100).toList()
+    }
+
+    def "rethrows the first failure when stopped"() {
+        def executor = new ReportWriterExecutor(executorFactory, "writer", 2)
+        def failure = new RuntimeException("broken")
+
+        when:
+        executor.execute { throw failure }
+        10.times { executor.execute { } }
+        executor.stop()
+
+        then:
+        def e = thrown(RuntimeException)
+        e.is(failure)
+    }
+}
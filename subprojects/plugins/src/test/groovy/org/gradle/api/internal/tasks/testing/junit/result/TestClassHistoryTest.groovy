@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.junit.result
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import static org.gradle.api.tasks.testing.TestResult.ResultType.FAILURE
+import static org.gradle.api.tasks.testing.TestResult.ResultType.SUCCESS
+
+class TestClassHistoryTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmp = new TestNameTestDirectoryProvider()
+
+    def "reads durations and failures of the previous run"() {
+        given:
+        writeResults()
+
+        when:
+        def history = TestClassHistory.read(tmp.testDirectory)
+
+        then:
+        !history.empty
+        history.estimateDuration("Slow") == 3000
+        history.estimateDuration("Failed") == 1000
+        history.estimateDuration("Fast") == 500
+        history.estimateDuration("New") == 1500
+        history.hasFailed("Failed")
+        !history.hasFailed("Slow")
+    }
+
+    def "runs failed classes first then longest first"() {
+        given:
+        writeResults()
+        def history = TestClassHistory.read(tmp.testDirectory)
+        def classNames = ["Fast", "New", "Slow", "Failed"]
+
+        when:
+        Collections.sort(classNames, history.runOrder)
+
+        then:
+        classNames == ["Failed", "Slow", "New", "Fast"]
+    }
+
+    def "predicts run time for the given number of workers"() {
+        given:
+        writeResults()
+        def history = TestClassHistory.read(tmp.testDirectory)
+        def classNames = ["Fast", "New", "Slow", "Failed"]
+
+        expect:
+        history.predictRunTime(classNames, 1) == 6000
+        history.predictRunTime(classNames, 2) == 3000
+        history.predictRunTime(classNames, 4) == 3000
+    }
+
+    def "compares predicted with actual run time"() {
+        given:
+        writeResults()
+        def history = TestClassHistory.read(tmp.testDirectory)
+        def first = new TestClassResult(1, "Slow", 10000).add(new TestMethodResult(1, "test", SUCCESS, 2000, 12000))
+        def second = new TestClassResult(2, "Fast", 10500).add(new TestMethodResult(2, "test", SUCCESS, 2000, 12500))
+
+        when:
+        def summary = history.summarize([first, second], 2)
+
+        then:
+        summary.workers == 2
+        summary.predictedRunTime == 3000
+        summary.actualRunTime == 2500
+    }
+
+    def "history is empty when there are no previous results"() {
+        expect:
+        TestClassHistory.read(tmp.file("missing")).empty
+    }
+
+    def "history is empty when the previous results cannot be read"() {
+        given:
+        tmp.file("results.bin").text = "not results"
+
+        expect:
+        TestClassHistory.read(tmp.testDirectory).empty
+    }
+
+    private void writeResults() {
+        def slow = new TestClassResult(1, "Slow", 1000).add(new TestMethodResult(1, "test", SUCCESS, 3000, 4000))
+        def failed = new TestClassResult(2, "Failed", 1000).add(new TestMethodResult(2, "test", FAILURE, 1000, 2000).addFailure("broken", "stack-trace", "Exception"))
+        def fast = new TestClassResult(3, "Fast", 0).add(new TestMethodResult(3, "test", SUCCESS, 500, 500))
+        new TestResultSerializer(tmp.testDirectory).write([slow, failed, fast])
+    }
+}
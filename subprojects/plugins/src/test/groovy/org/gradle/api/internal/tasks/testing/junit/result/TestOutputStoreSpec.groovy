@@ -18,7 +18,9 @@ package org.gradle.api.internal.tasks.testing.junit.result
 import org.gradle.api.internal.tasks.testing.DefaultTestOutputEvent
 import org.gradle.api.internal.tasks.testing.TestDescriptorInternal
 import org.gradle.api.tasks.testing.TestOutputEvent
+import org.gradle.internal.xml.SimpleXmlWriter
 import org.gradle.test.fixtures.file.WorkspaceTest
+import spock.lang.Unroll
 
 import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdErr
 import static org.gradle.api.tasks.testing.TestOutputEvent.Destination.StdOut
@@ -102,6 +104,99 @@ class TestOutputStoreSpec extends WorkspaceTest {
         new DefaultTestOutputEvent(destination, msg)
     }
 
+    @Unroll
+    def "reads output interleaved with other classes when mapping is #mapOutputs"() {
+        given:
+        def store = new TestOutputStore(testDirectory, mapOutputs)
+
+        when:
+        def writer = store.writer()
+        writer.onOutput(1, output(StdOut, "[out-1 \u017c]"))
+        writer.onOutput(2, 1, output(StdOut, "[other]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-2 \ud83d\ude00]"))
+        writer.onOutput(1, 1, output(StdOut, "[out-3]"))
+        writer.onOutput(1, 2, output(StdOut, "x" * 100000))
+        writer.onOutput(1, output(StdOut, "[out-4]"))
+        writer.close()
+        def reader = store.reader()
+
+        then:
+        collectAllOutput(reader, 1, StdOut) == "[out-1 \u017c][out-2 \ud83d\ude00][out-3]" + "x" * 100000 + "[out-4]"
+        collectOutput(reader, 1, 1, StdOut) == "[out-2 \ud83d\ude00][out-3]"
+        collectOutput(reader, 1, StdOut) == "[out-1 \u017c][out-4]"
+        collectAllOutput(reader, 2, StdOut) == "[other]"
+
+        cleanup:
+        reader.close()
+
+        where:
+        mapOutputs << [true, false]
+    }
+
+    def "copies plain output into a CDATA section as bytes and escapes the rest"() {
+        given:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "a]]"))
+        writer.onOutput(1, output(StdOut, ">b "))
+        writer.onOutput(1, 1, output(StdOut, "plain \u017c"))
+        writer.onOutput(1, 1, output(StdOut, "\u007f"))
+        writer.close()
+        def reader = output.reader()
+        def bytes = new ByteArrayOutputStream()
+        def xmlWriter = new SimpleXmlWriter(bytes)
+
+        when:
+        xmlWriter.startElement("output").startCDATA()
+        reader.writeAllOutput(1, StdOut, new CDataOutputWriter(xmlWriter, bytes))
+        xmlWriter.endCDATA().endElement()
+
+        then:
+        bytes.toString("UTF-8") == '<?xml version="1.0" encoding="UTF-8"?><output><![CDATA[a]]]]><![CDATA[>b plain \u017c]]>&#x7f;<![CDATA[]]></output>'
+
+        cleanup:
+        reader.close()
+    }
+
+    def "escapes CDATA end token split across messages"() {
+        given:
+        def writer = output.writer()
+        writer.onOutput(1, output(StdOut, "x]"))
+        writer.onOutput(1, output(StdOut, "]>y"))
+        writer.close()
+        def reader = output.reader()
+        def bytes = new ByteArrayOutputStream()
+        def xmlWriter = new SimpleXmlWriter(bytes)
+
+        when:
+        xmlWriter.startElement("output").startCDATA()
+        reader.writeAllOutput(1, StdOut, new CDataOutputWriter(xmlWriter, bytes))
+        xmlWriter.endCDATA().endElement()
+
+        then:
+        bytes.toString("UTF-8") == '<?xml version="1.0" encoding="UTF-8"?><output><![CDATA[x]]]]><![CDATA[>y]]></output>'
+
+        cleanup:
+        reader.close()
+    }
+
+    @Unroll
+    def "message '#message' is plain text: #plain"() {
+        expect:
+        TestOutputStore.isPlainText(message) == plain
+
+        where:
+        message            | plain
+        ""                 | true
+        "some text \u017c" | true
+        "[INFO] done"      | true
+        "a]]>b"            | false
+        "ends with ]"      | false
+        "> starts"         | false
+        "] starts"         | false
+        "bell \u0007"      | false
+        "\ud83d\ude00"     | false
+    }
+
     def "writes nothing for unknown test class"() {
         when:
         def writer = output.writer()
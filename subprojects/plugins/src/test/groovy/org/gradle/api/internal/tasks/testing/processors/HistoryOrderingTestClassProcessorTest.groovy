@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.junit.result.TestClassHistory
+import spock.lang.Specification
+
+class HistoryOrderingTestClassProcessorTest extends Specification {
+    private final TestClassProcessor delegate = Mock()
+    private final TestResultProcessor resultProcessor = Mock()
+    private final TestClassHistory history = new TestClassHistory([Slow: 3000L, Failed: 1000L, Fast: 500L], ["Failed"] as Set)
+    private final HistoryOrderingTestClassProcessor processor = new HistoryOrderingTestClassProcessor(history, delegate)
+
+    def "holds back test classes until stopped"() {
+        when:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass("Fast"))
+        processor.processTestClass(testClass("Slow"))
+
+        then:
+        1 * delegate.startProcessing(resultProcessor)
+        0 * delegate._
+    }
+
+    def "hands test classes to the delegate in run order when stopped"() {
+        given:
+        def fast = testClass("Fast")
+        def slow = testClass("Slow")
+        def unknown = testClass("New")
+        def failed = testClass("Failed")
+        processor.startProcessing(resultProcessor)
+        [fast, unknown, slow, failed].each { processor.processTestClass(it) }
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(failed)
+
+        then:
+        1 * delegate.processTestClass(slow)
+
+        then:
+        1 * delegate.processTestClass(unknown)
+
+        then:
+        1 * delegate.processTestClass(fast)
+
+        then:
+        1 * delegate.stop()
+    }
+
+    def "stops the delegate when it fails to take a test class"() {
+        given:
+        processor.startProcessing(resultProcessor)
+        processor.processTestClass(testClass("Slow"))
+        def failure = new RuntimeException()
+
+        when:
+        processor.stop()
+
+        then:
+        1 * delegate.processTestClass(_) >> { throw failure }
+        1 * delegate.stop()
+
+        and:
+        def e = thrown(RuntimeException)
+        e == failure
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
+}
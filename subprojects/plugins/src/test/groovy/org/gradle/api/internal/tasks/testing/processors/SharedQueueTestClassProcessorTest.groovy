@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.Transformer
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.messaging.actor.Actor
+import org.gradle.messaging.actor.ActorFactory
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+class SharedQueueTestClassProcessorTest extends ConcurrentSpec {
+    def resultProcessor = Mock(TestResultProcessor)
+    def asyncResultProcessor = Mock(TestResultProcessor)
+    def resultProcessorActor = Mock(Actor)
+    def processor1 = Mock(TestClassProcessor)
+    def processor2 = Mock(TestClassProcessor)
+    def asyncProcessor1 = Mock(TestClassProcessor)
+    def asyncProcessor2 = Mock(TestClassProcessor)
+    def actor1 = Mock(Actor)
+    def actor2 = Mock(Actor)
+    def actorFactory = Mock(ActorFactory)
+    def listeners = []
+    def factory = Stub(Transformer) {
+        transform(_) >> { TestClassProcessedListener listener ->
+            listeners << listener
+            return listeners.size() == 1 ? processor1 : processor2
+        }
+    }
+    def tests = (1..6).collect { Mock(TestClassRunInfo) }
+    def processor = new SharedQueueTestClassProcessor(2, 2, factory, actorFactory)
+
+    def setup() {
+        _ * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        _ * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        _ * actorFactory.createActor(processor1) >> actor1
+        _ * actorFactory.createActor(processor2) >> actor2
+        _ * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        _ * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        processor.startProcessing(resultProcessor)
+    }
+
+    def "gives each processor a limited number of test classes and queues the others"() {
+        when:
+        tests.each { processor.processTestClass(it) }
+
+        then:
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.processTestClass(tests[0])
+        1 * asyncProcessor2.processTestClass(tests[1])
+        1 * asyncProcessor1.processTestClass(tests[2])
+        1 * asyncProcessor2.processTestClass(tests[3])
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+    }
+
+    def "gives the next queued test class to the processor that has finished with one"() {
+        given:
+        tests.each { processor.processTestClass(it) }
+
+        when:
+        listeners[1].testClassProcessed()
+
+        then:
+        1 * asyncProcessor2.processTestClass(tests[4])
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        listeners[1].testClassProcessed()
+
+        then:
+        1 * asyncProcessor2.processTestClass(tests[5])
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
+    def "stops the processors once all test classes have been handed out"() {
+        given:
+        tests.take(5).each { processor.processTestClass(it) }
+
+        when:
+        async {
+            start {
+                thread.blockUntil.stopping
+                thread.block()
+                instant.processed
+                listeners[0].testClassProcessed()
+            }
+            instant.stopping
+            processor.stop()
+            instant.stopped
+        }
+
+        then:
+        instant.stopped > instant.processed
+        1 * asyncProcessor1.processTestClass(tests[4])
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        1 * actor1.stop()
+        1 * actor2.stop()
+        1 * resultProcessorActor.stop()
+    }
+}
@@ -17,6 +17,8 @@
 package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.Action
+import org.gradle.api.GradleException
+import org.gradle.api.internal.tasks.testing.TestClassProcessedListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory
 import org.gradle.internal.Factory
@@ -26,7 +28,8 @@ import spock.lang.Subject
 
 class ForkingTestClassProcessorTest extends Specification {
 
-    @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action)])
+    def processedListener = Mock(TestClassProcessedListener)
+    @Subject processor = Spy(ForkingTestClassProcessor, constructorArgs: [Mock(Factory), Mock(WorkerTestClassProcessorFactory), Mock(JavaForkOptions), [new File("classpath.jar")], Mock(Action), processedListener])
 
     def "starts worker process on first test"() {
         def test1 = Mock(TestClassRunInfo)
@@ -43,4 +46,55 @@ class ForkingTestClassProcessorTest extends Specification {
         1 * remoteProcessor.processTestClass(test2)
         0 * remoteProcessor._
     }
+
+    def "forwards notifications for test classes sent to the worker process"() {
+        def test = Mock(TestClassRunInfo)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        when:
+        processor.processTestClass(test)
+        processor.processedTestClasses.testClassProcessed()
+        processor.processedTestClasses.testClassProcessed()
+
+        then:
+        1 * processor.forkProcess() >> remoteProcessor
+        1 * remoteProcessor.processTestClass(test)
+        1 * processedListener.testClassProcessed()
+    }
+
+    def "reports pending test classes as processed when the worker process stops"() {
+        def test1 = Mock(TestClassRunInfo)
+        def test2 = Mock(TestClassRunInfo)
+        def remoteProcessor = Mock(RemoteTestClassProcessor)
+
+        given:
+        _ * processor.forkProcess() >> remoteProcessor
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processedTestClasses.testClassProcessed()
+
+        when:
+        processor.processedTestClasses.executionFinished(null, null)
+
+        then:
+        1 * processedListener.testClassProcessed()
+
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        thrown(GradleException)
+        1 * processedListener.testClassProcessed()
+        0 * remoteProcessor._
+    }
+
+    def "reports a test class as processed when the worker process cannot be started"() {
+        when:
+        processor.processTestClass(Mock(TestClassRunInfo))
+
+        then:
+        thrown(RuntimeException)
+        1 * processor.forkProcess() >> { throw new RuntimeException("broken") }
+        1 * processedListener.testClassProcessed()
+    }
 }
@@ -21,10 +21,12 @@ import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.DecompressingHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.client.SystemDefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.util.EntityUtils;
 import org.gradle.api.UncheckedIOException;
@@ -35,21 +37,45 @@ import java.io.IOException;
 
 /**
  * Provides some convenience and unified logging.
+ *
+ * <p>An instance can be used by several threads at the same time. Each thread uses its own request context, and the threads share a pool of
+ * keep-alive connections. The number of connections per host is limited by the {@value #MAX_CONNECTIONS_PER_HOST_PROPERTY} system
+ * property, which defaults to {@value #DEFAULT_MAX_CONNECTIONS_PER_HOST}. Further requests to that host wait until a connection is released.</p>
  */
 public class HttpClientHelper {
+    public static final String MAX_CONNECTIONS_PER_HOST_PROPERTY = "org.gradle.internal.http.maxConnectionsPerHost";
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpClientHelper.class);
     private final HttpClient client;
-    private final BasicHttpContext httpContext = new BasicHttpContext();
+    private final ThreadLocal<BasicHttpContext> httpContext = new ThreadLocal<BasicHttpContext>() {
+        @Override
+        protected BasicHttpContext initialValue() {
+            return new BasicHttpContext();
+        }
+    };
 
     public HttpClientHelper(HttpSettings settings) {
+        this(settings, Integer.getInteger(MAX_CONNECTIONS_PER_HOST_PROPERTY, DEFAULT_MAX_CONNECTIONS_PER_HOST));
+    }
+
+    HttpClientHelper(HttpSettings settings, int maxConnectionsPerHost) {
         alwaysUseKeepAliveConnections();
         DefaultHttpClient client = new SystemDefaultHttpClient();
+        limitConnections(client.getConnectionManager(), Math.max(1, maxConnectionsPerHost));
         client.setRedirectStrategy(new AlwaysRedirectRedirectStrategy());
         new HttpClientConfigurer(settings).configure(client);
         this.client = new DecompressingHttpClient(client);
     }
 
+    private void limitConnections(ClientConnectionManager connectionManager, int maxConnectionsPerHost) {
+        if (connectionManager instanceof PoolingClientConnectionManager) {
+            PoolingClientConnectionManager pool = (PoolingClientConnectionManager) connectionManager;
+            pool.setDefaultMaxPerRoute(maxConnectionsPerHost);
+            pool.setMaxTotal(Math.max(pool.getMaxTotal(), 4 * maxConnectionsPerHost));
+        }
+    }
+
     private void alwaysUseKeepAliveConnections() {
         // HttpClient 4.2.2 does not use the correct default value for "http.keepAlive" system property (default is "true").
         // HttpClient NTLM authentication fails badly when this property value is true.
@@ -107,10 +133,11 @@ public class HttpClientHelper {
     }
 
     public HttpResponse performHttpRequest(HttpRequestBase request) throws IOException {
+        BasicHttpContext context = httpContext.get();
         // Without this, HTTP Client prohibits multiple redirects to the same location within the same context
-        httpContext.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
+        context.removeAttribute(DefaultRedirectStrategy.REDIRECT_LOCATIONS);
         LOGGER.debug("Performing HTTP {}: {}", request.getMethod(), request.getURI());
-        return client.execute(request, httpContext);
+        return client.execute(request, context);
     }
 
     private HttpResponse processResponse(String source, String method, HttpResponse response) {
@@ -15,14 +15,21 @@
  */
 
 package org.gradle.internal.resource.transport.http
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
 import org.apache.http.HttpResponse
 import org.apache.http.client.methods.HttpGet
 import org.apache.http.client.methods.HttpRequestBase
+import org.apache.http.util.EntityUtils
 import org.gradle.api.artifacts.repositories.PasswordCredentials
 import org.gradle.util.SetSystemProperties
 import org.junit.Rule
 import spock.lang.Specification
 
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
 class HttpClientHelperTest extends Specification {
     @Rule SetSystemProperties sysProp = new SetSystemProperties()
 
@@ -53,6 +60,51 @@ class HttpClientHelperTest extends Specification {
         System.getProperty("http.keepAlive", "true")
     }
 
+    def "can be used by several threads at the same time and reuses a limited number of connections per host"() {
+        given:
+        def active = new AtomicInteger()
+        def maxActive = 0
+        def clientPorts = Collections.synchronizedSet(new HashSet())
+        def server = HttpServer.create(new InetSocketAddress("localhost", 0), 0)
+        server.executor = Executors.newFixedThreadPool(8)
+        server.createContext("/", new HttpHandler() {
+            void handle(HttpExchange exchange) {
+                def current = active.incrementAndGet()
+                synchronized (active) {
+                    maxActive = Math.max(maxActive, current)
+                }
+                clientPorts << exchange.remoteAddress.port
+                Thread.sleep(50)
+                active.decrementAndGet()
+                def content = exchange.requestURI.path.bytes
+                exchange.sendResponseHeaders(200, content.length)
+                exchange.responseBody.write(content)
+                exchange.close()
+            }
+        })
+        server.start()
+        def client = new HttpClientHelper(httpSettings, 2)
+
+        when:
+        def results = Collections.synchronizedList([])
+        def threads = (1..12).collect { index ->
+            Thread.start {
+                def response = client.performGet("http://localhost:${server.address.port}/artifact-${index}.jar")
+                results << EntityUtils.toString(response.entity)
+            }
+        }
+        threads*.join()
+
+        then:
+        results.sort() == (1..12).collect { "/artifact-${it}.jar" as String }.sort()
+        maxActive <= 2
+        clientPorts.size() <= 2
+
+        cleanup:
+        server?.stop(0)
+        server?.executor?.shutdownNow()
+    }
+
     private HttpSettings getHttpSettings() {
         return Stub(HttpSettings) {
             getCredentials() >> Stub(PasswordCredentials)